@@ -1,58 +1,224 @@
 package com.pensatocode.sfs;
 
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Game;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEventBus;
+import com.pensatocode.sfs.events.JsonLinesSink;
+import com.pensatocode.sfs.input.InputBindings;
+import com.pensatocode.sfs.input.KeyBindingsFile;
+import com.pensatocode.sfs.input.PlayerAction;
+import com.pensatocode.sfs.net.SpectatorServer;
 import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.SuspendedMatch;
+import com.pensatocode.sfs.profile.ProfileStore;
+import com.pensatocode.sfs.replay.ReplayArchive;
 import com.pensatocode.sfs.resources.Assets;
 import com.pensatocode.sfs.resources.AudioManager;
+import com.pensatocode.sfs.resources.FighterChoice;
+import com.pensatocode.sfs.resources.GlobalVariables;
+import com.pensatocode.sfs.telemetry.MatchTelemetry;
+import com.pensatocode.sfs.telemetry.TelemetryStore;
 import com.pensatocode.sfs.screens.GameScreen;
+import com.pensatocode.sfs.screens.ScreenManager;
+import com.pensatocode.sfs.utils.FramePacer;
+import com.pensatocode.sfs.utils.PaletteShader;
+import com.pensatocode.sfs.utils.Palettes;
+
+import java.io.IOException;
 
 public class SfsGame extends Game {
     // It's good practice to use a single SpriteBatch per game.
     // It's also good practice to dispose of it when it's no longer needed.
     private SpriteBatch batch;
     private ShapeRenderer shapeRenderer;
+    private Palettes palettes;
+    private PaletteShader paletteShader;
 	private Assets assets;
     private AudioManager audioManager;
-    private GameScreen gameScreen;
+    private GameEventBus eventBus;
+    private ProfileStore profile;
+    private ReplayArchive replays;
+    private SuspendedMatch suspendedMatch;
+    private InputBindings keyBindings;
+    private ScreenManager screenManager;
+    private FramePacer framePacer;
+    private SpectatorServer spectatorServer;
+    private StateMachine fighterStateMachine;
+    private MoveSet fighterMoves;
+    private World world;
     private Fighter player;
     private Fighter opponent;
 
+    // events that are waiting to be written, at most
+    private static final int EVENT_BUS_CAPACITY = 1024;
+    private static final String EVENT_LOG_FILE = "logs/events.jsonl";
+    private static final String TELEMETRY_FILE = "telemetry/matches.bin";
+    private static final String PROFILE_DIRECTORY = "profile";
+    private static final String REPLAY_ARCHIVE_FILE = "replays/replays.sfsr";
+    private static final String SUSPENDED_MATCH_FILE = "saves/match.bin";
+    private static final String KEY_BINDINGS_FILE = "settings/key_bindings.json";
+
+    // memory the assets may take on mobile devices, in bytes
+    private static final long MOBILE_ASSET_MEMORY_BUDGET = 32L * 1024L * 1024L;
+
     @Override
     public void create() {
         batch = new SpriteBatch();
         shapeRenderer = new ShapeRenderer();
 		assets = new Assets();
 
-		// load all assets
-		assets.load();
-		assets.manager().finishLoading();
+		// use a smaller memory budget on mobile devices, where the game may be killed in the background
+		if (Gdx.app.getType() == Application.ApplicationType.Android
+				|| Gdx.app.getType() == Application.ApplicationType.iOS) {
+			assets.setMemoryBudget(MOBILE_ASSET_MEMORY_BUDGET);
+		}
+
+		// load the fonts and audio, which are needed all the time;
+		// the screen manager takes care of the assets of each screen
+		assets.acquire(assets.bootGroup());
+
+        // the skins of the fighters, one palette each, drawn by a shader; tinted if the GPU can't compile it
+        if (GlobalVariables.PALETTE_SKINS) {
+            palettes = new Palettes(GlobalVariables.MAX_SKINS);
+            for (FighterChoice choice : FighterChoice.loadAll()) {
+                choice.addPalette(palettes);
+            }
+            try {
+                paletteShader = new PaletteShader(palettes);
+            } catch (GdxRuntimeException e) {
+                Gdx.app.error("SfsGame", "Couldn't create the palette shader, the fighters will be tinted", e);
+            }
+        }
+
+        // load the player's profile: match history, stats and settings
+        try {
+            profile = new ProfileStore(Gdx.files.local(PROFILE_DIRECTORY).file());
+            profile.start();
+        } catch (IOException e) {
+            Gdx.app.error("SfsGame", "Couldn't open the profile, nothing will be saved", e);
+        }
+
+        // open the archive the finished matches are recorded into
+        if (GlobalVariables.RECORD_REPLAYS) {
+            try {
+                replays = new ReplayArchive(Gdx.files.local(REPLAY_ARCHIVE_FILE).file());
+                replays.start();
+            } catch (IOException e) {
+                Gdx.app.error("SfsGame", "Couldn't open the replay archive, no replays will be recorded", e);
+            }
+        }
 
-        // initialize the audio manager
+        // initialize the audio manager, with the settings of the profile
         audioManager = new AudioManager(assets.manager());
+        if (profile != null) {
+            if (!profile.getBoolean(ProfileStore.MUSIC_ENABLED, true)) {
+                audioManager.disableMusic();
+            }
+            if (!profile.getBoolean(ProfileStore.SOUNDS_ENABLED, true)) {
+                audioManager.disableSounds();
+            }
+        }
         audioManager.playMusic();
 
-        // initialize the fighters
-        player = new Fighter(this, "Slim Stallone", new Color(1f, 0.2f, 0.2f, 1f));
-        opponent = new Fighter(this, "Thin Diesel", new Color(0.25f, 0.7f, 1f, 1f));
+        // log the gameplay events in the background, so the game loop never waits for the disk
+        eventBus = new GameEventBus(EVENT_BUS_CAPACITY);
+        eventBus.addSink(new JsonLinesSink(Gdx.files.local(EVENT_LOG_FILE).write(false)));
+        // aggregate the telemetry of each match from the same events
+        eventBus.addSink(new MatchTelemetry(new TelemetryStore(Gdx.files.local(TELEMETRY_FILE).file())));
+        eventBus.start();
 
-        // initialize the game screen and switch to it
-        gameScreen = new GameScreen(this);
-        setScreen(gameScreen);
+        // let spectators watch the matches
+        if (GlobalVariables.SPECTATOR_BROADCAST) {
+            try {
+                spectatorServer = new SpectatorServer(GlobalVariables.SPECTATOR_PORT);
+                spectatorServer.start();
+            } catch (IOException e) {
+                Gdx.app.error("SfsGame", "Couldn't start the spectator server", e);
+            }
+        }
+
+        // read the keys the player fights with
+        keyBindings = loadKeyBindings();
+
+        // render continuously only while something moves on screen
+        framePacer = new FramePacer();
+
+        // initialize the screen manager and start at the main menu,
+        // or back in the match the game was in if it was killed in the background
+        suspendedMatch = new SuspendedMatch(Gdx.files.local(SUSPENDED_MATCH_FILE).file());
+        screenManager = new ScreenManager(this);
+        screenManager.show(suspendedMatch.exists() ? ScreenManager.ScreenId.GAME : ScreenManager.ScreenId.MAIN_MENU);
+    }
+
+    /**
+     * Creates the fighters, once the gameplay assets are loaded.
+     */
+    public void createFighters() {
+        if (player == null) {
+            // compiled once, the fighters share it
+            if (fighterStateMachine == null) {
+                fighterStateMachine = Fighter.loadStateMachine();
+                fighterMoves = Fighter.loadMoves();
+            }
+            world = new World(GlobalVariables.FIXED_POINT_SIMULATION);
+            player = new Fighter(this, "Slim Stallone", new Color(1f, 0.2f, 0.2f, 1f));
+            opponent = new Fighter(this, "Thin Diesel", new Color(0.25f, 0.7f, 1f, 1f));
+        }
+    }
+
+    /**
+     * Lets go of the fighters, when the gameplay assets they use are unloaded.
+     */
+    public void disposeFighters() {
+        player = null;
+        opponent = null;
+        world = null;
     }
 
     @Override
     public void render() {
-        super.render();
+        framePacer.beginFrame();
+
+        // keep loading assets and building screens in the background,
+        // asking for more frames until it's done, even if the screen doesn't change
+        if (screenManager.update()) {
+            framePacer.requestRender();
+        }
+        // what super.render() does, with the time of a frame that went by, not of a pause
+        if (screen != null) {
+            screen.render(framePacer.deltaTime(Gdx.graphics.getDeltaTime()));
+        }
+
+        framePacer.endFrame();
     }
 
     @Override
     public void dispose() {
-        gameScreen.dispose();
+        screenManager.dispose();
+        eventBus.dispose();
+        if (profile != null) {
+            profile.dispose();
+        }
+        if (replays != null) {
+            replays.dispose();
+        }
+        if (spectatorServer != null) {
+            spectatorServer.dispose();
+        }
         batch.dispose();
         shapeRenderer.dispose();
+        if (paletteShader != null) {
+            paletteShader.dispose();
+        }
 		assets.dispose();
     }
 
@@ -64,6 +230,17 @@ public class SfsGame extends Game {
         return shapeRenderer;
     }
 
+    public Palettes palettes() {
+        return palettes;
+    }
+
+    /**
+     * @return the shader the fighters are drawn with, in their skins, or null if they're tinted
+     */
+    public PaletteShader paletteShader() {
+        return paletteShader;
+    }
+
     public Assets assets() {
         return assets;
     }
@@ -72,8 +249,120 @@ public class SfsGame extends Game {
         return audioManager;
     }
 
+    public GameEventBus eventBus() {
+        return eventBus;
+    }
+
+    /**
+     * @return the player's profile, or null if it couldn't be opened
+     */
+    public ProfileStore profile() {
+        return profile;
+    }
+
+    /**
+     * @return the archive the matches are recorded into, or null if replays aren't recorded
+     */
+    public ReplayArchive replays() {
+        return replays;
+    }
+
+    /**
+     * @return the save of the match in progress, written when the game goes to the background
+     */
+    public SuspendedMatch suspendedMatch() {
+        return suspendedMatch;
+    }
+
+    /**
+     * @return the player's own key bindings, if they rebound any key and the file can be read, or the defaults
+     */
+    private InputBindings loadKeyBindings() {
+        FileHandle own = Gdx.files.local(KEY_BINDINGS_FILE);
+        if (own.exists()) {
+            try {
+                return KeyBindingsFile.load(own);
+            } catch (IllegalArgumentException e) {
+                Gdx.app.error("SfsGame", "Couldn't read the key bindings, using the default ones", e);
+            }
+        }
+        return KeyBindingsFile.load(Gdx.files.internal(KeyBindingsFile.DEFAULT_KEY_BINDINGS_FILE));
+    }
+
+    /**
+     * @return the keyboard bindings, a table from key code to action, which the screens read on every key event
+     */
+    public InputBindings keyBindings() {
+        return keyBindings;
+    }
+
+    /**
+     * Makes a key the one of an action, from now on, and saves the bindings for the next runs.
+     */
+    public void rebindKey(PlayerAction action, int keycode) {
+        keyBindings.rebindButton(action, keycode);
+        try {
+            KeyBindingsFile.save(keyBindings, Gdx.files.local(KEY_BINDINGS_FILE));
+        } catch (GdxRuntimeException e) {
+            Gdx.app.error("SfsGame", "Couldn't save the key bindings", e);
+        }
+    }
+
+    /**
+     * Toggles the music on or off, and remembers it in the profile.
+     */
+    public void toggleMusic() {
+        audioManager.toggleMusic();
+        if (profile != null) {
+            profile.putBoolean(ProfileStore.MUSIC_ENABLED, audioManager.isMusicEnabled());
+        }
+    }
+
+    /**
+     * @return the difficulty saved in the profile, easy by default
+     */
+    public GlobalVariables.Difficulty difficulty() {
+        String difficulty = profile == null ? null
+                : profile.getSetting(ProfileStore.DIFFICULTY, GlobalVariables.Difficulty.EASY.name());
+        try {
+            return difficulty == null ? GlobalVariables.Difficulty.EASY : GlobalVariables.Difficulty.valueOf(difficulty);
+        } catch (IllegalArgumentException e) {
+            return GlobalVariables.Difficulty.EASY;
+        }
+    }
+
+    /**
+     * @return the server that broadcasts the matches to spectators, or null if there's none
+     */
+    public SpectatorServer spectatorServer() {
+        return spectatorServer;
+    }
+
+    public ScreenManager screenManager() {
+        return screenManager;
+    }
+
+    public FramePacer framePacer() {
+        return framePacer;
+    }
+
     public GameScreen gameScreen() {
-        return gameScreen;
+        return screenManager.gameScreen();
+    }
+
+    /**
+     * @return the world the fighters live in, null while they don't exist
+     */
+    public World world() {
+        return world;
+    }
+
+    public StateMachine fighterStateMachine() {
+        return fighterStateMachine;
+    }
+
+    public MoveSet fighterMoves() {
+        return fighterMoves;
     }
 
     public Fighter player() {
@@ -0,0 +1,49 @@
+package com.pensatocode.sfs.ecs;
+
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * The animation of each state of an entity, indexed by state.
+ * The timing of the animations drives the state machine too (an attack ends when its animation finishes),
+ * so entities need one even when they are never rendered.
+ */
+public class AnimationSet {
+    private final Animation<TextureRegion>[] animations;
+    private final boolean[] looping;
+
+    public AnimationSet(int states) {
+        @SuppressWarnings("unchecked")
+        Animation<TextureRegion>[] array = (Animation<TextureRegion>[]) new Animation<?>[states];
+        animations = array;
+        looping = new boolean[states];
+    }
+
+    public AnimationSet set(int state, Animation<TextureRegion> animation, boolean loop) {
+        animations[state] = animation;
+        looping[state] = loop;
+        return this;
+    }
+
+    public TextureRegion getKeyFrame(int state, float stateTime) {
+        return animations[state].getKeyFrame(stateTime, looping[state]);
+    }
+
+    /**
+     * @return the index of the key frame shown at a state time, as getKeyFrame() picks it
+     */
+    public int getKeyFrameIndex(int state, float stateTime) {
+        Animation<TextureRegion> animation = animations[state];
+        int frames = animation.getKeyFrames().length;
+        int index = (int) (stateTime / animation.getFrameDuration());
+        return looping[state] ? index % frames : Math.min(index, frames - 1);
+    }
+
+    public float getFrameDuration(int state) {
+        return animations[state].getFrameDuration();
+    }
+
+    public boolean isFinished(int state, float stateTime) {
+        return animations[state].isAnimationFinished(stateTime);
+    }
+}
@@ -0,0 +1,194 @@
+package com.pensatocode.sfs.ecs;
+
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.utils.FixedPoint;
+
+import java.util.Arrays;
+
+/**
+ * Finds the attacks that connect and applies their damage.
+ * An attack connects when the attacker is in the active frames of its move, like a punch or a kick,
+ * and the defender is within contact distance. Each attack hits at most once, with the damage of its move,
+ * or its chip damage if blocked. A knockout ends the round, so once an entity is knocked out,
+ * the attacks left in the update, like the other half of a trade, don't land.
+ * The hits of the last update are kept, so the match can react to them (sounds, events, knockouts):
+ * every hit whose damage was applied is in there.
+ */
+public class CombatSystem {
+    private static final int ATTACKER = World.POSITION | World.STATE | World.COMBAT;
+    private static final int DEFENDER = World.POSITION | World.STATE | World.COMBAT | World.HEALTH;
+
+    // how close the fighters need to be to hit each other, in world units
+    public static final float CONTACT_DISTANCE_X = 7.5f;
+    public static final float CONTACT_DISTANCE_Y = 1.5f;
+    private static final int FIXED_CONTACT_DISTANCE_X = FixedPoint.fromFloat(CONTACT_DISTANCE_X);
+    private static final int FIXED_CONTACT_DISTANCE_Y = FixedPoint.fromFloat(CONTACT_DISTANCE_Y);
+
+    // hits of the last update
+    private int hitCount;
+    private int[] hitAttackers = new int[4];
+    private int[] hitDefenders = new int[4];
+    private int[] hitAttacks = new int[4];
+    private int[] hitMoves = new int[4];
+    private float[] hitDamages = new float[4];
+
+    public void update(World world) {
+        hitCount = 0;
+        int[] mask = world.mask;
+        int size = world.size;
+
+        for (int attacker = 0; attacker < size; attacker++) {
+            if ((mask[attacker] & ATTACKER) != ATTACKER || !isAttackActiveAt(world, attacker)) {
+                continue;
+            }
+            for (int defender = 0; defender < size; defender++) {
+                if (defender == attacker || (mask[defender] & DEFENDER) != DEFENDER
+                        || !areWithinContactDistanceAt(world, attacker, defender)) {
+                    continue;
+                }
+                MoveSet moveSet = world.moveSets[attacker];
+                int move = world.move[attacker];
+                float lifeBeforeHit = world.life[defender];
+                boolean knockedOut = hitAt(world, defender, moveSet.damage(move), moveSet.chipDamage(move));
+
+                // flag that contact has been made to deactivate the attack
+                world.madeContact[attacker] = true;
+                addHit(world.id(attacker), world.id(defender), world.state[attacker], move,
+                        lifeBeforeHit - world.life[defender]);
+                if (knockedOut) {
+                    return;
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * An attack is only active if it hasn't made contact yet,
+     * and its move is past the startup frames, but not past the active ones.
+     */
+    private static boolean isAttackActiveAt(World world, int slot) {
+        int move = world.move[slot];
+        if (world.madeContact[slot] || move == MoveSet.NONE
+                || !world.stateMachines[slot].hasFlag(world.state[slot], StateMachine.Flag.ATTACK)) {
+            return false;
+        }
+        return world.moveSets[slot].isActive(move, MoveSet.frames(world.stateTime[slot]));
+    }
+
+    /**
+     * Applies the damage of an attack to an entity:
+     * the full damage, or the chip damage if blocking, and none if invulnerable.
+     * Without life left, the entity loses; otherwise its state machine decides what the hit does.
+     *
+     * @return whether the entity was knocked out
+     */
+    private static boolean hitAt(World world, int slot, float damage, float chipDamage) {
+        StateMachine stateMachine = world.stateMachines[slot];
+        int state = world.state[slot];
+        if (stateMachine.hasFlag(state, StateMachine.Flag.INVULNERABLE)) {
+            return false;
+        }
+
+        float damageTaken = stateMachine.hasFlag(state, StateMachine.Flag.BLOCKING) ? chipDamage : damage;
+        boolean knockedOut;
+        if (world.fixedPoint) {
+            world.fixedLife[slot] = Math.max(0, world.fixedLife[slot] - FixedPoint.fromFloat(damageTaken));
+            world.life[slot] = FixedPoint.toFloat(world.fixedLife[slot]);
+            knockedOut = world.fixedLife[slot] == 0;
+        } else {
+            world.life[slot] -= damageTaken;
+            knockedOut = world.life[slot] <= 0f;
+            if (knockedOut) {
+                world.life[slot] = 0f;
+            }
+        }
+        if (knockedOut) {
+            world.fireAt(slot, StateMachine.Event.LOSE);
+        } else {
+            world.fireAt(slot, StateMachine.Event.HIT);
+        }
+        return knockedOut;
+    }
+
+    public static boolean isAttackActive(World world, int id) {
+        return isAttackActiveAt(world, world.slot(id));
+    }
+
+    /**
+     * Applies damage that doesn't come from a move, a fraction of which goes through when blocking.
+     */
+    public static void hit(World world, int id, float damage) {
+        hitAt(world, world.slot(id), damage, damage * Fighter.BLOCK_DAMAGE_FACTOR);
+    }
+
+    private static boolean areWithinContactDistanceAt(World world, int slot1, int slot2) {
+        if (world.fixedPoint) {
+            return Math.abs(world.fixedX[slot1] - world.fixedX[slot2]) <= FIXED_CONTACT_DISTANCE_X
+                    && Math.abs(world.fixedY[slot1] - world.fixedY[slot2]) <= FIXED_CONTACT_DISTANCE_Y;
+        }
+        return areWithinContactDistance(world.x[slot1], world.y[slot1], world.x[slot2], world.y[slot2]);
+    }
+
+    public static boolean areWithinContactDistance(float x1, float y1, float x2, float y2) {
+        return Math.abs(x1 - x2) <= CONTACT_DISTANCE_X && Math.abs(y1 - y2) <= CONTACT_DISTANCE_Y;
+    }
+
+    private void addHit(int attacker, int defender, int attack, int move, float damageDealt) {
+        if (hitCount == hitAttackers.length) {
+            hitAttackers = Arrays.copyOf(hitAttackers, hitCount * 2);
+            hitDefenders = Arrays.copyOf(hitDefenders, hitCount * 2);
+            hitAttacks = Arrays.copyOf(hitAttacks, hitCount * 2);
+            hitMoves = Arrays.copyOf(hitMoves, hitCount * 2);
+            hitDamages = Arrays.copyOf(hitDamages, hitCount * 2);
+        }
+        hitAttackers[hitCount] = attacker;
+        hitDefenders[hitCount] = defender;
+        hitAttacks[hitCount] = attack;
+        hitMoves[hitCount] = move;
+        hitDamages[hitCount] = damageDealt;
+        hitCount++;
+    }
+
+    /**
+     * @return the number of hits of the last update
+     */
+    public int hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the id of the entity that landed a hit
+     */
+    public int hitAttacker(int hit) {
+        return hitAttackers[hit];
+    }
+
+    /**
+     * @return the id of the entity that took a hit
+     */
+    public int hitDefender(int hit) {
+        return hitDefenders[hit];
+    }
+
+    /**
+     * @return the state of the attacker when the hit landed (a Fighter.State ordinal)
+     */
+    public int hitAttack(int hit) {
+        return hitAttacks[hit];
+    }
+
+    /**
+     * @return the move of the attacker that landed the hit, in the attacker's move set
+     */
+    public int hitMove(int hit) {
+        return hitMoves[hit];
+    }
+
+    /**
+     * @return the life the defender lost, less than the damage of the attack if it blocked
+     */
+    public float hitDamage(int hit) {
+        return hitDamages[hit];
+    }
+}
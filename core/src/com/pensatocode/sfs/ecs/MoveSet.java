@@ -0,0 +1,329 @@
+package com.pensatocode.sfs.ecs;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.util.Arrays;
+
+/**
+ * The moves an entity can do, as described in a data file like data/fighter_moves.json.
+ *
+ * Each move has its frame data, counted in frames of 1/60 of a second like fighting games do:
+ * startup frames before the attack can hit, active frames while it can, and recovery frames after it,
+ * until the fighter can act again. It also has the damage it does, and the chip damage it does when blocked.
+ *
+ * A move is triggered by an input sequence: the directions the entity moved in, relative to where it's facing,
+ * followed by a button, like down, down-forward, forward, punch.
+ * The inputs are fed one by one to an automaton compiled from the sequences of all the moves
+ * (a trie of the sequences, with links from each node to the longest suffix that's also in the trie,
+ * flattened into a table). Each input is a single array lookup, and the node it lands on already knows
+ * the longest move that just got completed, however many moves there are.
+ * The whole input history of an entity comes down to a node of the automaton and the time since the last input,
+ * two numbers that are cheap to save and restore.
+ */
+public class MoveSet {
+    /**
+     * The inputs of the move sequences. Directions are relative to the way the entity faces.
+     */
+    public enum Input {
+        UP, UP_FORWARD, FORWARD, DOWN_FORWARD, DOWN, DOWN_BACK, BACK, UP_BACK, PUNCH, KICK
+    }
+
+    // the length of a frame, the unit of the frame data
+    public static final float FRAME_TIME = 1f / 60f;
+
+    // no move, or no input
+    public static final int NONE = -1;
+
+    // the node of the automaton with no input history
+    public static final int START = 0;
+
+    private static final Input[] INPUTS = Input.values();
+    private static final int INPUT_COUNT = INPUTS.length;
+
+    // inputs of a sequence further apart than this are not part of the same move, in frames
+    private static final int DEFAULT_INPUT_WINDOW = 10;
+
+    // the frame data of each move
+    private final String[] names;
+    private final int[] startup;
+    private final int[] active;
+    private final int[] recovery;
+    private final float[] damage;
+    private final float[] chipDamage;
+    private final float inputWindow;
+
+    // the automaton: the node each node goes to on each input, and the move completed on each node
+    private final int[] next;
+    private final int[] completedMove;
+    // a hash of the tables, to tell a move set compiled from other data
+    private final int fingerprint;
+
+    private MoveSet(String[] names, int[] startup, int[] active, int[] recovery, float[] damage, float[] chipDamage,
+                    float inputWindow, int[] next, int[] completedMove) {
+        this.names = names;
+        this.startup = startup;
+        this.active = active;
+        this.recovery = recovery;
+        this.damage = damage;
+        this.chipDamage = chipDamage;
+        this.inputWindow = inputWindow;
+        this.next = next;
+        this.completedMove = completedMove;
+        int hash = Arrays.hashCode(names);
+        hash = 31 * hash + Arrays.hashCode(startup);
+        hash = 31 * hash + Arrays.hashCode(active);
+        hash = 31 * hash + Arrays.hashCode(recovery);
+        hash = 31 * hash + Arrays.hashCode(damage);
+        hash = 31 * hash + Arrays.hashCode(chipDamage);
+        hash = 31 * hash + Float.floatToIntBits(inputWindow);
+        hash = 31 * hash + Arrays.hashCode(next);
+        fingerprint = 31 * hash + Arrays.hashCode(completedMove);
+    }
+
+    /**
+     * Compiles a move file.
+     *
+     * @throws IllegalArgumentException if the file isn't a valid move set
+     */
+    public static MoveSet load(FileHandle file) {
+        try {
+            return compile(new JsonReader().parse(file));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file.path() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles a parsed move file.
+     *
+     * @throws IllegalArgumentException if it isn't a valid move set
+     */
+    public static MoveSet compile(JsonValue root) {
+        Array<String> errors = new Array<>();
+        JsonValue moves = root.get("moves");
+        int moveCount = moves == null ? 0 : moves.size;
+
+        String[] names = new String[moveCount];
+        int[] startup = new int[moveCount];
+        int[] active = new int[moveCount];
+        int[] recovery = new int[moveCount];
+        float[] damage = new float[moveCount];
+        float[] chipDamage = new float[moveCount];
+        int[][] sequences = new int[moveCount][];
+
+        int move = 0;
+        for (JsonValue entry = moves == null ? null : moves.child; entry != null; entry = entry.next, move++) {
+            names[move] = entry.getString("name", "move " + move);
+            startup[move] = entry.getInt("startup", 0);
+            active[move] = entry.getInt("active", 0);
+            recovery[move] = entry.getInt("recovery", 0);
+            damage[move] = entry.getFloat("damage", 0f);
+            chipDamage[move] = entry.getFloat("chip", 0f);
+            if (startup[move] < 0 || active[move] < 1 || recovery[move] < 0) {
+                errors.add(names[move] + " needs at least one active frame, and no negative frames");
+            }
+
+            JsonValue input = entry.get("input");
+            String[] inputNames = input == null ? new String[0] : input.asStringArray();
+            sequences[move] = new int[inputNames.length];
+            for (int i = 0; i < inputNames.length; i++) {
+                sequences[move][i] = parseInput(inputNames[i], errors);
+            }
+            if (inputNames.length == 0 || !isButton(sequences[move][inputNames.length - 1])) {
+                errors.add(names[move] + " must have an input sequence that ends with a button");
+            }
+            for (int other = 0; other < move; other++) {
+                if (Arrays.equals(sequences[other], sequences[move])) {
+                    errors.add(names[move] + " has the same input sequence as " + names[other]);
+                }
+            }
+        }
+
+        // every button must do something on its own
+        for (Input button : new Input[]{Input.PUNCH, Input.KICK}) {
+            boolean found = false;
+            for (int[] sequence : sequences) {
+                found |= sequence.length == 1 && sequence[0] == button.ordinal();
+            }
+            if (!found) {
+                errors.add("no move for " + button.name().toLowerCase() + " on its own");
+            }
+        }
+
+        if (errors.size > 0) {
+            throw new IllegalArgumentException("invalid move set: " + errors.toString("; "));
+        }
+
+        float inputWindow = root.getInt("inputWindow", DEFAULT_INPUT_WINDOW) * FRAME_TIME;
+        return buildAutomaton(names, startup, active, recovery, damage, chipDamage, inputWindow, sequences);
+    }
+
+    private static MoveSet buildAutomaton(String[] names, int[] startup, int[] active, int[] recovery,
+                                          float[] damage, float[] chipDamage, float inputWindow, int[][] sequences) {
+        // the trie of the sequences
+        int maxNodes = 1;
+        for (int[] sequence : sequences) {
+            maxNodes += sequence.length;
+        }
+        int[] next = new int[maxNodes * INPUT_COUNT];
+        Arrays.fill(next, NONE);
+        int[] completedMove = new int[maxNodes];
+        Arrays.fill(completedMove, NONE);
+        int[] depth = new int[maxNodes];
+        int nodeCount = 1;
+        for (int move = 0; move < sequences.length; move++) {
+            int node = START;
+            for (int input : sequences[move]) {
+                int cell = node * INPUT_COUNT + input;
+                if (next[cell] == NONE) {
+                    depth[nodeCount] = depth[node] + 1;
+                    next[cell] = nodeCount++;
+                }
+                node = next[cell];
+            }
+            completedMove[node] = move;
+        }
+
+        // breadth first, link each node to the longest suffix of its sequence that's also in the trie,
+        // and fill in the missing inputs with the ones of that suffix, so every input has somewhere to go.
+        // A node also completes the move of its suffix, if it doesn't complete a longer one of its own.
+        int[] suffix = new int[nodeCount];
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        for (int input = 0; input < INPUT_COUNT; input++) {
+            int child = next[input];
+            if (child == NONE) {
+                next[input] = START;
+            } else {
+                suffix[child] = START;
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            if (completedMove[node] == NONE) {
+                completedMove[node] = completedMove[suffix[node]];
+            }
+            for (int input = 0; input < INPUT_COUNT; input++) {
+                int cell = node * INPUT_COUNT + input;
+                int child = next[cell];
+                if (child == NONE) {
+                    next[cell] = next[suffix[node] * INPUT_COUNT + input];
+                } else {
+                    suffix[child] = next[suffix[node] * INPUT_COUNT + input];
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        return new MoveSet(names, startup, active, recovery, damage, chipDamage, inputWindow,
+                Arrays.copyOf(next, nodeCount * INPUT_COUNT), Arrays.copyOf(completedMove, nodeCount));
+    }
+
+    private static int parseInput(String name, Array<String> errors) {
+        for (Input input : INPUTS) {
+            if (input.name().equalsIgnoreCase(name)) {
+                return input.ordinal();
+            }
+        }
+        errors.add("unknown input " + name);
+        return NONE;
+    }
+
+    private static boolean isButton(int input) {
+        return input == Input.PUNCH.ordinal() || input == Input.KICK.ordinal();
+    }
+
+    /**
+     * @return the input of moving in a direction, relative to the way the entity faces, or NONE for no direction
+     */
+    public static int directionInput(float directionX, float directionY, int facing) {
+        float forward = directionX * facing;
+        if (directionY > 0f) {
+            return forward > 0f ? Input.UP_FORWARD.ordinal()
+                    : forward < 0f ? Input.UP_BACK.ordinal() : Input.UP.ordinal();
+        } else if (directionY < 0f) {
+            return forward > 0f ? Input.DOWN_FORWARD.ordinal()
+                    : forward < 0f ? Input.DOWN_BACK.ordinal() : Input.DOWN.ordinal();
+        }
+        return forward > 0f ? Input.FORWARD.ordinal() : forward < 0f ? Input.BACK.ordinal() : NONE;
+    }
+
+    /**
+     * @return the node an input takes the automaton to
+     */
+    public int next(int node, int input) {
+        return next[node * INPUT_COUNT + input];
+    }
+
+    /**
+     * @return the move whose input sequence was just completed on a node, or NONE
+     */
+    public int completedMove(int node) {
+        return completedMove[node];
+    }
+
+    /**
+     * @return how long the inputs of a sequence can be apart, in seconds
+     */
+    public float inputWindow() {
+        return inputWindow;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the number of nodes of the automaton
+     */
+    public int nodeCount() {
+        return completedMove.length;
+    }
+
+    /**
+     * @return a hash of the compiled move set, saved with the state of its entities so the moves and input nodes
+     *         aren't restored into a move set compiled from other data
+     */
+    public int fingerprint() {
+        return fingerprint;
+    }
+
+    public String name(int move) {
+        return names[move];
+    }
+
+    public float damage(int move) {
+        return damage[move];
+    }
+
+    public float chipDamage(int move) {
+        return chipDamage[move];
+    }
+
+    /**
+     * @return the number of frames that went by in a move, rounded to the nearest one,
+     *         so the rounding errors of adding up the frame times don't shift the frame data
+     */
+    public static int frames(float time) {
+        return (int) (time / FRAME_TIME + 0.5f);
+    }
+
+    /**
+     * @return whether a move can hit after a number of frames
+     */
+    public boolean isActive(int move, int frames) {
+        return frames > startup[move] && frames <= startup[move] + active[move];
+    }
+
+    /**
+     * @return whether a move is over after a number of frames, recovery included
+     */
+    public boolean isOver(int move, int frames) {
+        return frames >= startup[move] + active[move] + recovery[move];
+    }
+}
@@ -0,0 +1,45 @@
+package com.pensatocode.sfs.ecs;
+
+import com.pensatocode.sfs.utils.FixedPoint;
+
+/**
+ * Moves the entities in their movement direction, at their speed, in their own time (see World.timeScale).
+ * Entities with a state only move in the states flagged to move, like walking;
+ * entities without one, like projectiles, always move.
+ */
+public class MovementSystem {
+    private static final int REQUIRED = World.POSITION | World.MOTION;
+
+    public void update(World world, float deltaTime) {
+        int[] mask = world.mask;
+        int[] state = world.state;
+        StateMachine[] stateMachines = world.stateMachines;
+        float[] x = world.x;
+        float[] y = world.y;
+        float[] directionX = world.directionX;
+        float[] directionY = world.directionY;
+        float[] speed = world.speed;
+        boolean fixedPoint = world.fixedPoint;
+        int fixedDelta = FixedPoint.fromFloat(deltaTime);
+
+        for (int slot = 0, size = world.size; slot < size; slot++) {
+            int components = mask[slot];
+            if ((components & REQUIRED) != REQUIRED || ((components & World.STATE) != 0
+                    && !stateMachines[slot].hasFlag(state[slot], StateMachine.Flag.MOVES))) {
+                continue;
+            }
+            if (fixedPoint) {
+                int entityDelta = FixedPoint.mul(fixedDelta, world.fixedTimeScale[slot]);
+                int distance = FixedPoint.mul(world.fixedSpeed[slot], entityDelta);
+                world.fixedX[slot] += FixedPoint.mul(world.fixedDirectionX[slot], distance);
+                world.fixedY[slot] += FixedPoint.mul(world.fixedDirectionY[slot], distance);
+                x[slot] = FixedPoint.toFloat(world.fixedX[slot]);
+                y[slot] = FixedPoint.toFloat(world.fixedY[slot]);
+            } else {
+                float entityDelta = deltaTime * world.timeScale[slot];
+                x[slot] += directionX[slot] * speed[slot] * entityDelta;
+                y[slot] += directionY[slot] * speed[slot] * entityDelta;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.pensatocode.sfs.ecs;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.pensatocode.sfs.resources.GlobalVariables;
+
+import java.util.Arrays;
+
+/**
+ * Draws the current animation frame of the entities, facing their direction, in their color:
+ * a tint, or with the palette shader, their skin (see PaletteShader).
+ * Entities further back in the ring (higher up on screen) are drawn first, so the ones in front cover them.
+ * Entities out of the view of the camera are skipped, they'd only cost vertices and, when their texture
+ * is another one, a flush of the batch.
+ */
+public class RenderSystem {
+    private static final int REQUIRED = World.POSITION | World.STATE | World.RENDER;
+
+    // slots of the entities to draw, in drawing order
+    private int[] order = new int[8];
+
+    // entities drawn and skipped by the last render
+    private int drawn;
+    private int culled;
+
+    /**
+     * Draws the entities. The sprite batch must have begun.
+     */
+    public void render(World world, SpriteBatch batch) {
+        render(world, batch, null);
+    }
+
+    /**
+     * Draws the entities in view. The sprite batch must have begun.
+     *
+     * @param view the part of the world in view, in world units, or null to draw all of them
+     */
+    public void render(World world, SpriteBatch batch, Rectangle view) {
+        int count = sortByDepth(world);
+        drawn = 0;
+        culled = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = order[i];
+            TextureRegion currentFrame = world.animations[slot].getKeyFrame(
+                    world.renderState[slot], world.renderStateTime[slot]);
+
+            // flipping turns the sprite around its center, so its bounds stay the same whichever way it faces
+            float width = currentFrame.getRegionWidth() * GlobalVariables.WORLD_SCALE;
+            float height = currentFrame.getRegionHeight() * GlobalVariables.WORLD_SCALE;
+            if (view != null && (world.x[slot] >= view.x + view.width || world.x[slot] + width <= view.x
+                    || world.y[slot] >= view.y + view.height || world.y[slot] + height <= view.y)) {
+                culled++;
+                continue;
+            }
+            drawn++;
+
+            batch.setPackedColor(world.color[slot]);
+
+            // draw the current frame, flipped around its center when facing left
+            batch.draw(
+                    currentFrame,
+                    world.x[slot],
+                    world.y[slot],
+                    width * 0.5f,
+                    0,
+                    width,
+                    height,
+                    world.facing[slot],
+                    1,
+                    0
+            );
+        }
+    }
+
+    /**
+     * @return the number of entities the last render drew
+     */
+    public int drawn() {
+        return drawn;
+    }
+
+    /**
+     * @return the number of entities the last render skipped, out of view
+     */
+    public int culled() {
+        return culled;
+    }
+
+    /**
+     * Lists the entities to draw, from the highest y coordinate to the lowest.
+     * There are only a few entities on screen, so an insertion sort is enough.
+     *
+     * @return the number of entities to draw
+     */
+    private int sortByDepth(World world) {
+        if (order.length < world.size) {
+            order = Arrays.copyOf(order, world.size * 2);
+        }
+        float[] y = world.y;
+        int count = 0;
+        for (int slot = 0; slot < world.size; slot++) {
+            if ((world.mask[slot] & REQUIRED) != REQUIRED || world.animations[slot] == null) {
+                continue;
+            }
+            // when two entities are level, the one created last is drawn first
+            int i = count++;
+            while (i > 0 && y[order[i - 1]] <= y[slot]) {
+                order[i] = order[i - 1];
+                i--;
+            }
+            order[i] = slot;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,69 @@
+package com.pensatocode.sfs.ecs;
+
+import com.pensatocode.sfs.utils.FixedPoint;
+
+/**
+ * Keeps the entities within the bounds of the ring. The ring is drawn in perspective,
+ * so its left and right sides are slanted.
+ */
+public class RingSystem {
+    private static final int REQUIRED = World.POSITION | World.RING;
+
+    // bounds of the ring, in world units
+    public static final float RING_MIN_X = 7f;
+    public static final float RING_MAX_X = 60f;
+    public static final float RING_MIN_Y = 4f;
+    public static final float RING_MAX_Y = 22f;
+
+//    public static final float RING_SLOPE = (RING_MAX_Y - RING_MIN_Y) / (RING_MAX_X - RING_MIN_X);
+    public static final float RING_SLOPE = 3.16f;
+
+    // the same bounds in fixed point
+    private static final int FIXED_MIN_X = FixedPoint.fromFloat(RING_MIN_X);
+    private static final int FIXED_MAX_X = FixedPoint.fromFloat(RING_MAX_X);
+    private static final int FIXED_MIN_Y = FixedPoint.fromFloat(RING_MIN_Y);
+    private static final int FIXED_MAX_Y = FixedPoint.fromFloat(RING_MAX_Y);
+    private static final int FIXED_SLOPE = FixedPoint.fromFloat(RING_SLOPE);
+
+    public void update(World world) {
+        int[] mask = world.mask;
+        float[] x = world.x;
+        float[] y = world.y;
+
+        for (int slot = 0, size = world.size; slot < size; slot++) {
+            if ((mask[slot] & REQUIRED) != REQUIRED) {
+                continue;
+            }
+            if (world.fixedPoint) {
+                keepInRingFixed(world, slot);
+                continue;
+            }
+            if (y[slot] < RING_MIN_Y) {
+                y[slot] = RING_MIN_Y;
+            } else if (y[slot] > RING_MAX_Y) {
+                y[slot] = RING_MAX_Y;
+            }
+
+            if (x[slot] < y[slot] / RING_SLOPE + RING_MIN_X) {
+                x[slot] = y[slot] / RING_SLOPE + RING_MIN_X;
+            } else if (x[slot] > y[slot] / -RING_SLOPE + RING_MAX_X) {
+                x[slot] = y[slot] / -RING_SLOPE + RING_MAX_X;
+            }
+        }
+    }
+
+    private static void keepInRingFixed(World world, int slot) {
+        int y = Math.min(Math.max(world.fixedY[slot], FIXED_MIN_Y), FIXED_MAX_Y);
+        int x = world.fixedX[slot];
+        int slant = FixedPoint.div(y, FIXED_SLOPE);
+        if (x < slant + FIXED_MIN_X) {
+            x = slant + FIXED_MIN_X;
+        } else if (x > FIXED_MAX_X - slant) {
+            x = FIXED_MAX_X - slant;
+        }
+        world.fixedX[slot] = x;
+        world.fixedY[slot] = y;
+        world.x[slot] = FixedPoint.toFloat(x);
+        world.y[slot] = FixedPoint.toFloat(y);
+    }
+}
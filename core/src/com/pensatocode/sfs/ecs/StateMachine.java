@@ -0,0 +1,306 @@
+package com.pensatocode.sfs.ecs;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.util.Arrays;
+
+/**
+ * The states of an entity and how it goes from one to another, as described in a data file
+ * like data/fighter_states.json.
+ *
+ * The file lists the states, with their flags, and the transitions: from which states, on which event,
+ * to which state. A transition can have a guard, so it only applies while the entity is moving or standing still.
+ * When loaded, it's compiled into a table with a cell for each state, event and guard,
+ * so finding out what an event does is a single array lookup, instead of a chain of ifs in the code.
+ * Changing what a move can be cancelled into, or adding a transition, only takes editing the file.
+ *
+ * The file is validated when compiled: unknown names, conflicting transitions, states that can't be reached
+ * from the initial state and dead ends, states that never get back to it (other than the ones flagged final),
+ * are all rejected.
+ */
+public class StateMachine {
+    /**
+     * What can happen to an entity. The code fires the events; the data decides what they do.
+     */
+    public enum Event {
+        MOVE, STOP, BLOCK, RELEASE_BLOCK, PUNCH, KICK, HIT, ANIMATION_FINISHED, WIN, LOSE
+    }
+
+    /**
+     * What a state means to the systems.
+     */
+    public enum Flag {
+        // takes a fraction of the damage of the hits
+        BLOCKING,
+        // can't be hit at all
+        INVULNERABLE,
+        // can hit others, while its animation is in the active part
+        ATTACK,
+        // moves in its movement direction
+        MOVES,
+        // ends the round, so it doesn't need a way out
+        FINAL;
+
+        final int bit = 1 << ordinal();
+    }
+
+    // the result of an event that doesn't do anything in a state
+    public static final int NONE = -1;
+
+    private static final Event[] EVENTS = Event.values();
+    private static final Flag[] FLAGS = Flag.values();
+    private static final String ANY_STATE = "*";
+
+    // the guards of a transition: the entity is standing still, or moving
+    private static final int GUARDS = 2;
+    private static final int STILL = 0;
+    private static final int MOVING = 1;
+
+    private final int initialState;
+    private final int[] flags;
+    // the state each state goes to on each event, for each guard, or NONE
+    private final int[] transitions;
+    // a hash of the tables, to tell a state machine compiled from other data
+    private final int fingerprint;
+
+    private StateMachine(int initialState, int[] flags, int[] transitions) {
+        this.initialState = initialState;
+        this.flags = flags;
+        this.transitions = transitions;
+        fingerprint = 31 * (31 * initialState + Arrays.hashCode(flags)) + Arrays.hashCode(transitions);
+    }
+
+    /**
+     * Compiles a state machine file.
+     *
+     * @param states the states the entities know about, whose ordinals the compiled state machine uses
+     * @throws IllegalArgumentException if the file isn't a valid state machine
+     */
+    public static StateMachine load(FileHandle file, Enum<?>[] states) {
+        try {
+            return compile(new JsonReader().parse(file), states);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(file.path() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles a parsed state machine file.
+     *
+     * @param states the states the entities know about, whose ordinals the compiled state machine uses
+     * @throws IllegalArgumentException if it isn't a valid state machine
+     */
+    public static StateMachine compile(JsonValue root, Enum<?>[] states) {
+        Array<String> errors = new Array<>();
+        int stateCount = states.length;
+
+        // the states, and their flags
+        boolean[] declared = new boolean[stateCount];
+        int[] flags = new int[stateCount];
+        for (JsonValue state = root.getChild("states"); state != null; state = state.next) {
+            String name = state.getString("name", null);
+            int index = stateIndex(states, name, errors);
+            if (index == NONE) {
+                continue;
+            }
+            if (declared[index]) {
+                errors.add("state " + name + " is declared more than once");
+            }
+            declared[index] = true;
+            JsonValue stateFlags = state.get("flags");
+            if (stateFlags != null) {
+                for (String flag : stateFlags.asStringArray()) {
+                    flags[index] |= parseFlag(flag, errors);
+                }
+            }
+        }
+
+        int initialState = declaredStateIndex(states, declared, root.getString("initial", null), errors);
+
+        // the transitions, compiled into the table
+        int[] transitions = new int[stateCount * EVENTS.length * GUARDS];
+        Arrays.fill(transitions, NONE);
+        for (JsonValue transition = root.getChild("transitions"); transition != null;
+             transition = transition.next) {
+            Event event = parseEvent(transition.getString("on", null), errors);
+            int target = declaredStateIndex(states, declared, transition.getString("to", null), errors);
+            String guard = transition.getString("when", null);
+            int firstGuard = STILL;
+            int lastGuard = MOVING;
+            if ("moving".equals(guard)) {
+                firstGuard = MOVING;
+            } else if ("still".equals(guard)) {
+                lastGuard = STILL;
+            } else if (guard != null) {
+                errors.add("unknown guard " + guard);
+            }
+            JsonValue from = transition.get("from");
+            if (from == null) {
+                errors.add("transition on " + transition.getString("on", null) + " has no from states");
+                continue;
+            }
+            if (event == null || target == NONE) {
+                continue;
+            }
+
+            for (String source : from.asStringArray()) {
+                for (int state = 0; state < stateCount; state++) {
+                    if (ANY_STATE.equals(source) ? !declared[state] : !states[state].name().equals(source)) {
+                        continue;
+                    }
+                    for (int g = firstGuard; g <= lastGuard; g++) {
+                        int cell = cell(state, event, g);
+                        if (transitions[cell] != NONE && transitions[cell] != target) {
+                            errors.add("conflicting transitions from " + states[state] + " on " + event);
+                        }
+                        transitions[cell] = target;
+                    }
+                }
+                if (!ANY_STATE.equals(source)) {
+                    declaredStateIndex(states, declared, source, errors);
+                }
+            }
+        }
+
+        if (initialState != NONE) {
+            validate(states, declared, flags, transitions, initialState, errors);
+        }
+        if (errors.size > 0) {
+            throw new IllegalArgumentException("invalid state machine: " + errors.toString("; "));
+        }
+        return new StateMachine(initialState, flags, transitions);
+    }
+
+    /**
+     * Rejects the states that can't be reached from the initial state, and the dead ends an entity would get stuck in
+     * until the end of the round.
+     */
+    private static void validate(Enum<?>[] states, boolean[] declared, int[] flags, int[] transitions,
+                                 int initialState, Array<String> errors) {
+        int stateCount = states.length;
+        int cellsPerState = EVENTS.length * GUARDS;
+
+        // walk the transitions from the initial state
+        boolean[] reached = new boolean[stateCount];
+        int[] pending = new int[stateCount];
+        int pendingCount = 0;
+        reached[initialState] = true;
+        pending[pendingCount++] = initialState;
+        while (pendingCount > 0) {
+            int state = pending[--pendingCount];
+            for (int cell = state * cellsPerState; cell < (state + 1) * cellsPerState; cell++) {
+                int target = transitions[cell];
+                if (target != NONE && !reached[target]) {
+                    reached[target] = true;
+                    pending[pendingCount++] = target;
+                }
+            }
+        }
+
+        // walk the transitions backwards, to find the states an entity can get back to the initial state from,
+        // without ending the round on the way
+        boolean[] returns = new boolean[stateCount];
+        returns[initialState] = true;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int state = 0; state < stateCount; state++) {
+                if (returns[state] || !declared[state] || (flags[state] & Flag.FINAL.bit) != 0) {
+                    continue;
+                }
+                for (int cell = state * cellsPerState; cell < (state + 1) * cellsPerState; cell++) {
+                    if (transitions[cell] != NONE && returns[transitions[cell]]) {
+                        returns[state] = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        for (int state = 0; state < stateCount; state++) {
+            if (!declared[state]) {
+                continue;
+            }
+            if (!reached[state]) {
+                errors.add("state " + states[state] + " can't be reached from " + states[initialState]);
+            }
+            if (!returns[state] && (flags[state] & Flag.FINAL.bit) == 0) {
+                errors.add("state " + states[state] + " is a dead end: it never gets back to "
+                        + states[initialState] + ", and isn't final");
+            }
+        }
+    }
+
+    private static int cell(int state, Event event, int guard) {
+        return (state * EVENTS.length + event.ordinal()) * GUARDS + guard;
+    }
+
+    private static int stateIndex(Enum<?>[] states, String name, Array<String> errors) {
+        for (Enum<?> state : states) {
+            if (state.name().equals(name)) {
+                return state.ordinal();
+            }
+        }
+        errors.add("unknown state " + name);
+        return NONE;
+    }
+
+    private static int declaredStateIndex(Enum<?>[] states, boolean[] declared, String name, Array<String> errors) {
+        int index = stateIndex(states, name, errors);
+        if (index != NONE && !declared[index]) {
+            errors.add("state " + name + " isn't declared");
+        }
+        return index;
+    }
+
+    private static Event parseEvent(String name, Array<String> errors) {
+        for (Event event : EVENTS) {
+            if (event.name().equalsIgnoreCase(name)) {
+                return event;
+            }
+        }
+        errors.add("unknown event " + name);
+        return null;
+    }
+
+    private static int parseFlag(String name, Array<String> errors) {
+        for (Flag flag : FLAGS) {
+            if (flag.name().equalsIgnoreCase(name)) {
+                return flag.bit;
+            }
+        }
+        errors.add("unknown flag " + name);
+        return 0;
+    }
+
+    public int initialState() {
+        return initialState;
+    }
+
+    public int stateCount() {
+        return flags.length;
+    }
+
+    /**
+     * @return a hash of the compiled state machine, saved with the state of its entities so the state
+     *         isn't restored into a state machine compiled from other data, where its states mean something else
+     */
+    public int fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the state an event takes an entity to, or NONE if the event does nothing in that state
+     */
+    public int next(int state, Event event, boolean moving) {
+        return transitions[cell(state, event, moving ? MOVING : STILL)];
+    }
+
+    public boolean hasFlag(int state, Flag flag) {
+        return (flags[state] & flag.bit) != 0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.pensatocode.sfs.ecs;
+
+/**
+ * Ends the states that last as long as their animation, like getting hurt, or as long as their move, like attacks:
+ * the ones the state machine of the entity has a transition for when the animation finishes.
+ * Where they go depends on the state machine, usually walking if the entity has a movement direction,
+ * or back to idle otherwise.
+ * It runs after the movement system, so an entity doesn't move on the frame its attack ends.
+ */
+public class StateMachineSystem {
+    private static final int REQUIRED = World.STATE | World.MOTION;
+
+    public void update(World world) {
+        int[] mask = world.mask;
+        int[] state = world.state;
+        float[] stateTime = world.stateTime;
+        AnimationSet[] animations = world.animations;
+        StateMachine[] stateMachines = world.stateMachines;
+        int[] move = world.move;
+
+        for (int slot = 0, size = world.size; slot < size; slot++) {
+            if ((mask[slot] & REQUIRED) != REQUIRED || animations[slot] == null) {
+                continue;
+            }
+            int current = state[slot];
+            boolean moving = world.directionX[slot] != 0 || world.directionY[slot] != 0;
+            StateMachine stateMachine = stateMachines[slot];
+            int next = stateMachine.next(current, StateMachine.Event.ANIMATION_FINISHED, moving);
+            if (next == StateMachine.NONE) {
+                continue;
+            }
+            // an attack lasts as long as the frame data of its move says, whatever the length of its animation
+            boolean finished = (mask[slot] & World.COMBAT) != 0 && move[slot] != MoveSet.NONE
+                    && stateMachine.hasFlag(current, StateMachine.Flag.ATTACK)
+                    ? world.moveSets[slot].isOver(move[slot], MoveSet.frames(stateTime[slot]))
+                    : animations[slot].isFinished(current, stateTime[slot]);
+            if (finished) {
+                world.changeStateAt(slot, next);
+            }
+        }
+    }
+}
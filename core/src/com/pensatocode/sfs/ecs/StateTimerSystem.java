@@ -0,0 +1,54 @@
+package com.pensatocode.sfs.ecs;
+
+import com.pensatocode.sfs.utils.FixedPoint;
+
+/**
+ * Advances the state time of the entities, at the speed of their time scale,
+ * and takes a snapshot of their state for rendering.
+ * It also advances the time since the last input of the entities that fight, which decides
+ * whether their next input continues a move sequence.
+ */
+public class StateTimerSystem {
+    private static final int REQUIRED = World.STATE;
+
+    public void update(World world, float deltaTime) {
+        int[] mask = world.mask;
+        int[] state = world.state;
+        float[] stateTime = world.stateTime;
+        int[] renderState = world.renderState;
+        float[] renderStateTime = world.renderStateTime;
+        float[] inputTime = world.inputTime;
+        boolean fixedPoint = world.fixedPoint;
+        int fixedDelta = FixedPoint.fromFloat(deltaTime);
+
+        for (int slot = 0, size = world.size; slot < size; slot++) {
+            if ((mask[slot] & REQUIRED) != REQUIRED) {
+                continue;
+            }
+            boolean fights = (mask[slot] & World.COMBAT) != 0;
+            // the entity's own time, slowed down or frozen by its time scale
+            if (fixedPoint) {
+                int entityDelta = FixedPoint.mul(fixedDelta, world.fixedTimeScale[slot]);
+                world.fixedStateTime[slot] += entityDelta;
+                stateTime[slot] = FixedPoint.toFloat(world.fixedStateTime[slot]);
+                if (fights) {
+                    world.fixedInputTime[slot] += entityDelta;
+                    inputTime[slot] = FixedPoint.toFloat(world.fixedInputTime[slot]);
+                }
+            } else {
+                float entityDelta = deltaTime * world.timeScale[slot];
+                stateTime[slot] += entityDelta;
+                if (fights) {
+                    inputTime[slot] += entityDelta;
+                }
+            }
+
+            // only update the render state if delta time is not zero,
+            // so a paused game keeps showing the frame it was paused on
+            if (deltaTime > 0f) {
+                renderState[slot] = state[slot];
+                renderStateTime[slot] = stateTime[slot];
+            }
+        }
+    }
+}
@@ -0,0 +1,713 @@
+package com.pensatocode.sfs.ecs;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.utils.FixedPoint;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The entities of the game and their components.
+ *
+ * Components are stored as dense arrays of primitives, one array per field, instead of one object per entity.
+ * The data of all the entities sits side by side in memory, so the systems that update it run through
+ * their arrays in order, which is what the CPU caches like best.
+ * Each entity has a mask telling which components it has, and each system only touches the entities
+ * that have the components it needs: a prop with only a position and a sprite costs the fighting systems
+ * one mask check per frame.
+ *
+ * Entities are referred to by ids, which never change. Inside the world, entities live in slots,
+ * and when one is destroyed the last one takes its slot, so the arrays never have holes.
+ * The systems work with slots, everything else with ids.
+ *
+ * In fixed point mode, the numbers the simulation accumulates (positions, speeds, directions, timers and life)
+ * are kept as 16.16 fixed point ints (see FixedPoint), and the systems do their arithmetic on those,
+ * so the simulation gives the same bits on every platform. The float arrays then hold exact copies
+ * of the fixed point values, for rendering and for the code that only reads them.
+ */
+public class World {
+    // components, as bits of the mask of each entity
+    public static final int POSITION = 1;
+    public static final int MOTION = 1 << 1;
+    public static final int STATE = 1 << 2;
+    public static final int HEALTH = 1 << 3;
+    public static final int RING = 1 << 4;
+    public static final int COMBAT = 1 << 5;
+    public static final int RENDER = 1 << 6;
+    public static final int FIGHTER = POSITION | MOTION | STATE | HEALTH | RING | COMBAT | RENDER;
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int PACKED_INTS_PER_ENTITY = 15;
+    // what save() writes for each entity: 8 ints checked on restore, 20 other numbers of 4 bytes, and a byte
+    private static final int SAVED_BYTES_PER_ENTITY = 8 * 4 + 20 * 4 + 1;
+
+    // whether the simulation runs in fixed point
+    final boolean fixedPoint;
+
+    // number of entities, which are in slots 0 to size - 1
+    int size;
+    int[] mask = new int[INITIAL_CAPACITY];
+
+    // POSITION: where the entity stands, and which way it faces (1 is right, -1 is left)
+    float[] x = new float[INITIAL_CAPACITY];
+    float[] y = new float[INITIAL_CAPACITY];
+    int[] facing = new int[INITIAL_CAPACITY];
+
+    // MOTION: the direction the entity moves in, and how fast
+    float[] directionX = new float[INITIAL_CAPACITY];
+    float[] directionY = new float[INITIAL_CAPACITY];
+    float[] speed = new float[INITIAL_CAPACITY];
+
+    // STATE: the state the entity is in (a Fighter.State ordinal) and for how long,
+    // as well as the state shown on screen, which doesn't change while the game is paused,
+    // and the state machine that says where each event takes it
+    int[] state = new int[INITIAL_CAPACITY];
+    float[] stateTime = new float[INITIAL_CAPACITY];
+    int[] renderState = new int[INITIAL_CAPACITY];
+    float[] renderStateTime = new float[INITIAL_CAPACITY];
+    StateMachine[] stateMachines = new StateMachine[INITIAL_CAPACITY];
+
+    // HEALTH
+    float[] life = new float[INITIAL_CAPACITY];
+
+    // COMBAT: whether the current attack already hit something, the moves the entity knows,
+    // the one it's doing, and its input history: a node of the move automaton, and the time since the last input
+    boolean[] madeContact = new boolean[INITIAL_CAPACITY];
+    MoveSet[] moveSets = new MoveSet[INITIAL_CAPACITY];
+    int[] move = new int[INITIAL_CAPACITY];
+    int[] inputNode = new int[INITIAL_CAPACITY];
+    float[] inputTime = new float[INITIAL_CAPACITY];
+
+    // the fixed point values of the simulation, used in fixed point mode only
+    int[] fixedX = new int[INITIAL_CAPACITY];
+    int[] fixedY = new int[INITIAL_CAPACITY];
+    int[] fixedDirectionX = new int[INITIAL_CAPACITY];
+    int[] fixedDirectionY = new int[INITIAL_CAPACITY];
+    int[] fixedSpeed = new int[INITIAL_CAPACITY];
+    int[] fixedStateTime = new int[INITIAL_CAPACITY];
+    int[] fixedLife = new int[INITIAL_CAPACITY];
+    int[] fixedInputTime = new int[INITIAL_CAPACITY];
+
+    // the speed time goes at for the entity, 1 unless it's slowed down (below 1), sped up, or frozen (0):
+    // its state timers and its movement advance by the delta time times its scale
+    float[] timeScale = new float[INITIAL_CAPACITY];
+    int[] fixedTimeScale = new int[INITIAL_CAPACITY];
+
+    // RENDER: the animations of each state, and the color the entity is drawn with, packed into a float:
+    // a tint, or the palette of its skin (see Palettes.vertexColor)
+    AnimationSet[] animations = new AnimationSet[INITIAL_CAPACITY];
+    float[] color = new float[INITIAL_CAPACITY];
+
+    // ids never change, slots do when entities are destroyed
+    private int[] slotOfId = new int[INITIAL_CAPACITY];
+    private int[] idOfSlot = new int[INITIAL_CAPACITY];
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeIdCount;
+    private int nextId;
+
+    public World() {
+        this(false);
+    }
+
+    /**
+     * @param fixedPoint whether the simulation runs in fixed point, to be deterministic across platforms
+     */
+    public World(boolean fixedPoint) {
+        this.fixedPoint = fixedPoint;
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    /**
+     * Creates an entity with the given components, all set to zero.
+     *
+     * @return the id of the entity
+     */
+    public int create(int components) {
+        if (size == mask.length) {
+            grow(size * 2);
+        }
+        int id;
+        if (freeIdCount > 0) {
+            id = freeIds[--freeIdCount];
+        } else {
+            id = nextId++;
+            if (id == slotOfId.length) {
+                slotOfId = Arrays.copyOf(slotOfId, id * 2);
+                freeIds = Arrays.copyOf(freeIds, id * 2);
+            }
+        }
+
+        int slot = size++;
+        slotOfId[id] = slot;
+        idOfSlot[slot] = id;
+        mask[slot] = components;
+        clear(slot);
+        return id;
+    }
+
+    /**
+     * Removes an entity. The last entity moves to its slot, so the arrays stay dense.
+     */
+    public void destroy(int id) {
+        int slot = slotOfId[id];
+        int last = --size;
+        if (slot != last) {
+            copy(last, slot);
+            int movedId = idOfSlot[last];
+            slotOfId[movedId] = slot;
+            idOfSlot[slot] = movedId;
+        }
+        animations[last] = null;
+        stateMachines[last] = null;
+        moveSets[last] = null;
+        freeIds[freeIdCount++] = id;
+    }
+
+    private void clear(int slot) {
+        x[slot] = 0f;
+        y[slot] = 0f;
+        facing[slot] = 1;
+        directionX[slot] = 0f;
+        directionY[slot] = 0f;
+        speed[slot] = 0f;
+        state[slot] = 0;
+        stateTime[slot] = 0f;
+        renderState[slot] = 0;
+        renderStateTime[slot] = 0f;
+        stateMachines[slot] = null;
+        life[slot] = 0f;
+        madeContact[slot] = false;
+        moveSets[slot] = null;
+        move[slot] = MoveSet.NONE;
+        inputNode[slot] = MoveSet.START;
+        inputTime[slot] = 0f;
+        animations[slot] = null;
+        color[slot] = Color.WHITE_FLOAT_BITS;
+        fixedX[slot] = 0;
+        fixedY[slot] = 0;
+        fixedDirectionX[slot] = 0;
+        fixedDirectionY[slot] = 0;
+        fixedSpeed[slot] = 0;
+        fixedStateTime[slot] = 0;
+        fixedLife[slot] = 0;
+        fixedInputTime[slot] = 0;
+        timeScale[slot] = 1f;
+        fixedTimeScale[slot] = FixedPoint.ONE;
+    }
+
+    private void copy(int from, int to) {
+        mask[to] = mask[from];
+        x[to] = x[from];
+        y[to] = y[from];
+        facing[to] = facing[from];
+        directionX[to] = directionX[from];
+        directionY[to] = directionY[from];
+        speed[to] = speed[from];
+        state[to] = state[from];
+        stateTime[to] = stateTime[from];
+        renderState[to] = renderState[from];
+        renderStateTime[to] = renderStateTime[from];
+        stateMachines[to] = stateMachines[from];
+        life[to] = life[from];
+        madeContact[to] = madeContact[from];
+        moveSets[to] = moveSets[from];
+        move[to] = move[from];
+        inputNode[to] = inputNode[from];
+        inputTime[to] = inputTime[from];
+        animations[to] = animations[from];
+        color[to] = color[from];
+        fixedX[to] = fixedX[from];
+        fixedY[to] = fixedY[from];
+        fixedDirectionX[to] = fixedDirectionX[from];
+        fixedDirectionY[to] = fixedDirectionY[from];
+        fixedSpeed[to] = fixedSpeed[from];
+        fixedStateTime[to] = fixedStateTime[from];
+        fixedLife[to] = fixedLife[from];
+        fixedInputTime[to] = fixedInputTime[from];
+        timeScale[to] = timeScale[from];
+        fixedTimeScale[to] = fixedTimeScale[from];
+    }
+
+    private void grow(int capacity) {
+        mask = Arrays.copyOf(mask, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        facing = Arrays.copyOf(facing, capacity);
+        directionX = Arrays.copyOf(directionX, capacity);
+        directionY = Arrays.copyOf(directionY, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        state = Arrays.copyOf(state, capacity);
+        stateTime = Arrays.copyOf(stateTime, capacity);
+        renderState = Arrays.copyOf(renderState, capacity);
+        renderStateTime = Arrays.copyOf(renderStateTime, capacity);
+        stateMachines = Arrays.copyOf(stateMachines, capacity);
+        life = Arrays.copyOf(life, capacity);
+        madeContact = Arrays.copyOf(madeContact, capacity);
+        moveSets = Arrays.copyOf(moveSets, capacity);
+        move = Arrays.copyOf(move, capacity);
+        inputNode = Arrays.copyOf(inputNode, capacity);
+        inputTime = Arrays.copyOf(inputTime, capacity);
+        animations = Arrays.copyOf(animations, capacity);
+        color = Arrays.copyOf(color, capacity);
+        fixedX = Arrays.copyOf(fixedX, capacity);
+        fixedY = Arrays.copyOf(fixedY, capacity);
+        fixedDirectionX = Arrays.copyOf(fixedDirectionX, capacity);
+        fixedDirectionY = Arrays.copyOf(fixedDirectionY, capacity);
+        fixedSpeed = Arrays.copyOf(fixedSpeed, capacity);
+        fixedStateTime = Arrays.copyOf(fixedStateTime, capacity);
+        fixedLife = Arrays.copyOf(fixedLife, capacity);
+        fixedInputTime = Arrays.copyOf(fixedInputTime, capacity);
+        timeScale = Arrays.copyOf(timeScale, capacity);
+        fixedTimeScale = Arrays.copyOf(fixedTimeScale, capacity);
+        idOfSlot = Arrays.copyOf(idOfSlot, capacity);
+    }
+
+    /**
+     * @return the number of entities
+     */
+    public int size() {
+        return size;
+    }
+
+    int slot(int id) {
+        return slotOfId[id];
+    }
+
+    /**
+     * @return the id of the entity in a slot
+     */
+    public int id(int slot) {
+        return idOfSlot[slot];
+    }
+
+    public boolean has(int id, int components) {
+        return (mask[slotOfId[id]] & components) == components;
+    }
+
+    // accessors by id, for the code outside of the systems
+
+    public float getX(int id) {
+        return x[slotOfId[id]];
+    }
+
+    public float getY(int id) {
+        return y[slotOfId[id]];
+    }
+
+    public void setPosition(int id, float positionX, float positionY) {
+        int slot = slotOfId[id];
+        if (fixedPoint) {
+            fixedX[slot] = FixedPoint.fromFloat(positionX);
+            fixedY[slot] = FixedPoint.fromFloat(positionY);
+            x[slot] = FixedPoint.toFloat(fixedX[slot]);
+            y[slot] = FixedPoint.toFloat(fixedY[slot]);
+        } else {
+            x[slot] = positionX;
+            y[slot] = positionY;
+        }
+    }
+
+    public int getFacing(int id) {
+        return facing[slotOfId[id]];
+    }
+
+    public void setFacing(int id, int direction) {
+        facing[slotOfId[id]] = direction;
+    }
+
+    public float getDirectionX(int id) {
+        return directionX[slotOfId[id]];
+    }
+
+    public float getDirectionY(int id) {
+        return directionY[slotOfId[id]];
+    }
+
+    public void setDirection(int id, float x, float y) {
+        int slot = slotOfId[id];
+        if (fixedPoint) {
+            fixedDirectionX[slot] = FixedPoint.fromFloat(x);
+            fixedDirectionY[slot] = FixedPoint.fromFloat(y);
+            directionX[slot] = FixedPoint.toFloat(fixedDirectionX[slot]);
+            directionY[slot] = FixedPoint.toFloat(fixedDirectionY[slot]);
+        } else {
+            directionX[slot] = x;
+            directionY[slot] = y;
+        }
+    }
+
+    public void setSpeed(int id, float entitySpeed) {
+        int slot = slotOfId[id];
+        if (fixedPoint) {
+            fixedSpeed[slot] = FixedPoint.fromFloat(entitySpeed);
+            speed[slot] = FixedPoint.toFloat(fixedSpeed[slot]);
+        } else {
+            speed[slot] = entitySpeed;
+        }
+    }
+
+    public float getTimeScale(int id) {
+        return timeScale[slotOfId[id]];
+    }
+
+    /**
+     * Sets the speed time goes at for an entity: 1 is normal, 0.5 half as fast, 0 frozen.
+     */
+    public void setTimeScale(int id, float scale) {
+        int slot = slotOfId[id];
+        if (fixedPoint) {
+            fixedTimeScale[slot] = FixedPoint.fromFloat(scale);
+            timeScale[slot] = FixedPoint.toFloat(fixedTimeScale[slot]);
+        } else {
+            timeScale[slot] = scale;
+        }
+    }
+
+    public int getState(int id) {
+        return state[slotOfId[id]];
+    }
+
+    public float getStateTime(int id) {
+        return stateTime[slotOfId[id]];
+    }
+
+    /**
+     * Puts an entity in a new state, starting the state time over. Nothing happens if it's already in that state.
+     */
+    public void changeState(int id, int newState) {
+        changeStateAt(slotOfId[id], newState);
+    }
+
+    void changeStateAt(int slot, int newState) {
+        if (state[slot] != newState) {
+            state[slot] = newState;
+            stateTime[slot] = 0f;
+            fixedStateTime[slot] = 0;
+        }
+    }
+
+    /**
+     * Lets the state machine of an entity handle an event, changing its state if the event leads somewhere.
+     * Transitions can depend on whether the entity is moving.
+     *
+     * @return whether the state changed
+     */
+    public boolean fire(int id, StateMachine.Event event) {
+        return fireAt(slotOfId[id], event);
+    }
+
+    boolean fireAt(int slot, StateMachine.Event event) {
+        boolean moving = directionX[slot] != 0 || directionY[slot] != 0;
+        int next = stateMachines[slot].next(state[slot], event, moving);
+        if (next == StateMachine.NONE || next == state[slot]) {
+            return false;
+        }
+        changeStateAt(slot, next);
+        return true;
+    }
+
+    /**
+     * @return whether the current state of an entity has a flag
+     */
+    public boolean isIn(int id, StateMachine.Flag flag) {
+        int slot = slotOfId[id];
+        return stateMachines[slot].hasFlag(state[slot], flag);
+    }
+
+    public StateMachine getStateMachine(int id) {
+        return stateMachines[slotOfId[id]];
+    }
+
+    public void setStateMachine(int id, StateMachine stateMachine) {
+        stateMachines[slotOfId[id]] = stateMachine;
+    }
+
+    /**
+     * Puts an entity in a state, and shows it right away, even if the game is paused.
+     */
+    public void resetState(int id, int newState) {
+        int slot = slotOfId[id];
+        state[slot] = newState;
+        stateTime[slot] = 0f;
+        fixedStateTime[slot] = 0;
+        renderState[slot] = newState;
+        renderStateTime[slot] = 0f;
+    }
+
+    public float getLife(int id) {
+        return life[slotOfId[id]];
+    }
+
+    public void setLife(int id, float entityLife) {
+        int slot = slotOfId[id];
+        if (fixedPoint) {
+            fixedLife[slot] = FixedPoint.fromFloat(entityLife);
+            life[slot] = FixedPoint.toFloat(fixedLife[slot]);
+        } else {
+            life[slot] = entityLife;
+        }
+    }
+
+    public boolean hasMadeContact(int id) {
+        return madeContact[slotOfId[id]];
+    }
+
+    public void setMadeContact(int id, boolean contact) {
+        madeContact[slotOfId[id]] = contact;
+    }
+
+    public MoveSet getMoveSet(int id) {
+        return moveSets[slotOfId[id]];
+    }
+
+    public void setMoveSet(int id, MoveSet moveSet) {
+        moveSets[slotOfId[id]] = moveSet;
+    }
+
+    /**
+     * @return the move the entity is doing, or did last, or MoveSet.NONE
+     */
+    public int getMove(int id) {
+        return move[slotOfId[id]];
+    }
+
+    public void setMove(int id, int entityMove) {
+        move[slotOfId[id]] = entityMove;
+    }
+
+    /**
+     * Feeds an input to the move automaton of an entity. If it came too long after the previous one,
+     * the input history starts over.
+     *
+     * @return the move whose input sequence the input completed, or MoveSet.NONE
+     */
+    public int input(int id, int input) {
+        int slot = slotOfId[id];
+        MoveSet moveSet = moveSets[slot];
+        int node = inputTime[slot] > moveSet.inputWindow() ? MoveSet.START : inputNode[slot];
+        node = moveSet.next(node, input);
+        inputNode[slot] = node;
+        inputTime[slot] = 0f;
+        fixedInputTime[slot] = 0;
+        return moveSet.completedMove(node);
+    }
+
+    /**
+     * Forgets the input history of an entity, and the move it was doing.
+     */
+    public void resetInput(int id) {
+        int slot = slotOfId[id];
+        move[slot] = MoveSet.NONE;
+        inputNode[slot] = MoveSet.START;
+        inputTime[slot] = 0f;
+        fixedInputTime[slot] = 0;
+    }
+
+    public AnimationSet getAnimations(int id) {
+        return animations[slotOfId[id]];
+    }
+
+    public void setAnimations(int id, AnimationSet animationSet) {
+        animations[slotOfId[id]] = animationSet;
+    }
+
+    public void setColor(int id, Color entityColor) {
+        color[slotOfId[id]] = entityColor.toFloatBits();
+    }
+
+    /**
+     * Sets the color the entity is drawn with, already packed, like the palette of a skin (see Palettes.vertexColor).
+     */
+    public void setPackedColor(int id, float packedColor) {
+        color[slotOfId[id]] = packedColor;
+    }
+
+    /**
+     * @return the number of ints pack() writes
+     */
+    public int packedSize() {
+        return 1 + size * PACKED_INTS_PER_ENTITY;
+    }
+
+    /**
+     * Writes the simulation state of all the entities into an array of ints, to hash it.
+     * In fixed point mode it's the fixed point values, which are the same on every platform,
+     * otherwise the bits of the floats.
+     * The time scales aren't hashed themselves, only the times and positions they change.
+     *
+     * @return the offset after the last int written
+     */
+    public int pack(int[] snapshot, int offset) {
+        snapshot[offset++] = size;
+        for (int slot = 0; slot < size; slot++) {
+            snapshot[offset++] = idOfSlot[slot];
+            snapshot[offset++] = mask[slot];
+            snapshot[offset++] = facing[slot];
+            snapshot[offset++] = state[slot];
+            snapshot[offset++] = move[slot];
+            snapshot[offset++] = inputNode[slot];
+            snapshot[offset++] = madeContact[slot] ? 1 : 0;
+            if (fixedPoint) {
+                snapshot[offset++] = fixedX[slot];
+                snapshot[offset++] = fixedY[slot];
+                snapshot[offset++] = fixedDirectionX[slot];
+                snapshot[offset++] = fixedDirectionY[slot];
+                snapshot[offset++] = fixedSpeed[slot];
+                snapshot[offset++] = fixedStateTime[slot];
+                snapshot[offset++] = fixedLife[slot];
+                snapshot[offset++] = fixedInputTime[slot];
+            } else {
+                snapshot[offset++] = Float.floatToIntBits(x[slot]);
+                snapshot[offset++] = Float.floatToIntBits(y[slot]);
+                snapshot[offset++] = Float.floatToIntBits(directionX[slot]);
+                snapshot[offset++] = Float.floatToIntBits(directionY[slot]);
+                snapshot[offset++] = Float.floatToIntBits(speed[slot]);
+                snapshot[offset++] = Float.floatToIntBits(stateTime[slot]);
+                snapshot[offset++] = Float.floatToIntBits(life[slot]);
+                snapshot[offset++] = Float.floatToIntBits(inputTime[slot]);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Writes the simulation state of all the entities into a buffer, at its position:
+     * every number the systems update, floats and fixed point values alike, bit for bit.
+     * The state machines, moves and animations are data, not state, and are not saved,
+     * only their fingerprints, so the state isn't restored into other data.
+     * Each entity takes {@value #SAVED_BYTES_PER_ENTITY} bytes, what restore() checks first.
+     */
+    public void save(ByteBuffer buffer) {
+        buffer.putInt(size);
+        for (int slot = 0; slot < size; slot++) {
+            // what restore() checks, first
+            buffer.putInt(idOfSlot[slot]);
+            buffer.putInt(mask[slot]);
+            buffer.putInt(stateMachines[slot] == null ? 0 : stateMachines[slot].fingerprint());
+            buffer.putInt(moveSets[slot] == null ? 0 : moveSets[slot].fingerprint());
+            buffer.putInt(state[slot]);
+            buffer.putInt(renderState[slot]);
+            buffer.putInt(move[slot]);
+            buffer.putInt(inputNode[slot]);
+
+            buffer.putFloat(x[slot]);
+            buffer.putFloat(y[slot]);
+            buffer.putInt(facing[slot]);
+            buffer.putFloat(directionX[slot]);
+            buffer.putFloat(directionY[slot]);
+            buffer.putFloat(speed[slot]);
+            buffer.putFloat(stateTime[slot]);
+            buffer.putFloat(renderStateTime[slot]);
+            buffer.putFloat(life[slot]);
+            buffer.put((byte) (madeContact[slot] ? 1 : 0));
+            buffer.putFloat(inputTime[slot]);
+            buffer.putInt(fixedX[slot]);
+            buffer.putInt(fixedY[slot]);
+            buffer.putInt(fixedDirectionX[slot]);
+            buffer.putInt(fixedDirectionY[slot]);
+            buffer.putInt(fixedSpeed[slot]);
+            buffer.putInt(fixedStateTime[slot]);
+            buffer.putInt(fixedLife[slot]);
+            buffer.putInt(fixedInputTime[slot]);
+            buffer.putFloat(timeScale[slot]);
+            buffer.putInt(fixedTimeScale[slot]);
+        }
+    }
+
+    /**
+     * Reads back the state written by save(), from the position of a buffer.
+     * The world must have the same entities, in the same slots, as the one that was saved,
+     * like a world whose entities were created in the same order, with the same state machines and moves.
+     *
+     * The whole save is checked before anything is read into the world: a save that doesn't fit,
+     * or whose states, moves or input nodes are out of the tables, leaves the world as it was,
+     * instead of failing later, in a system.
+     *
+     * @throws IllegalArgumentException if the entities don't match
+     */
+    public void restore(ByteBuffer buffer) {
+        int start = buffer.position();
+        check(buffer);
+        buffer.position(start + 4);
+        for (int slot = 0; slot < size; slot++) {
+            // checked already
+            buffer.position(buffer.position() + 16);
+            state[slot] = buffer.getInt();
+            renderState[slot] = buffer.getInt();
+            move[slot] = buffer.getInt();
+            inputNode[slot] = buffer.getInt();
+
+            x[slot] = buffer.getFloat();
+            y[slot] = buffer.getFloat();
+            facing[slot] = buffer.getInt();
+            directionX[slot] = buffer.getFloat();
+            directionY[slot] = buffer.getFloat();
+            speed[slot] = buffer.getFloat();
+            stateTime[slot] = buffer.getFloat();
+            renderStateTime[slot] = buffer.getFloat();
+            life[slot] = buffer.getFloat();
+            madeContact[slot] = buffer.get() != 0;
+            inputTime[slot] = buffer.getFloat();
+            fixedX[slot] = buffer.getInt();
+            fixedY[slot] = buffer.getInt();
+            fixedDirectionX[slot] = buffer.getInt();
+            fixedDirectionY[slot] = buffer.getInt();
+            fixedSpeed[slot] = buffer.getInt();
+            fixedStateTime[slot] = buffer.getInt();
+            fixedLife[slot] = buffer.getInt();
+            fixedInputTime[slot] = buffer.getInt();
+            timeScale[slot] = buffer.getFloat();
+            fixedTimeScale[slot] = buffer.getInt();
+        }
+    }
+
+    /**
+     * Checks a save fits this world, without reading it into the world, leaving the position of the buffer alone.
+     *
+     * @throws IllegalArgumentException if it doesn't
+     */
+    private void check(ByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.remaining() < 4) {
+            throw new IllegalArgumentException("The saved world is cut short");
+        }
+        int savedSize = buffer.getInt(position);
+        if (savedSize != size) {
+            throw new IllegalArgumentException("The saved world has " + savedSize + " entities, this one " + size);
+        }
+        if (buffer.remaining() < 4 + (long) size * SAVED_BYTES_PER_ENTITY) {
+            throw new IllegalArgumentException("The saved world is cut short");
+        }
+        position += 4;
+        for (int slot = 0; slot < size; slot++, position += SAVED_BYTES_PER_ENTITY) {
+            if (buffer.getInt(position) != idOfSlot[slot] || buffer.getInt(position + 4) != mask[slot]) {
+                throw new IllegalArgumentException("The saved entity in slot " + slot + " isn't the same as this one");
+            }
+            StateMachine stateMachine = stateMachines[slot];
+            MoveSet moveSet = moveSets[slot];
+            if (buffer.getInt(position + 8) != (stateMachine == null ? 0 : stateMachine.fingerprint())
+                    || buffer.getInt(position + 12) != (moveSet == null ? 0 : moveSet.fingerprint())) {
+                throw new IllegalArgumentException("The saved entity in slot " + slot
+                        + " was saved with other states or moves");
+            }
+            if (stateMachine != null) {
+                checkIndex(buffer.getInt(position + 16), 0, stateMachine.stateCount(), "state", slot);
+                checkIndex(buffer.getInt(position + 20), 0, stateMachine.stateCount(), "state shown", slot);
+            }
+            if (moveSet != null) {
+                checkIndex(buffer.getInt(position + 24), MoveSet.NONE, moveSet.size(), "move", slot);
+                checkIndex(buffer.getInt(position + 28), 0, moveSet.nodeCount(), "input node", slot);
+            }
+        }
+    }
+
+    private static void checkIndex(int index, int min, int count, String name, int slot) {
+        if (index < min || index >= count) {
+            throw new IllegalArgumentException("The saved " + name + " " + index + " of the entity in slot " + slot
+                    + " is out of its table");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.pensatocode.sfs.events;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the events in a compact binary format (big-endian):
+ * <pre>
+ * header: int magic ('SFSE'), short version
+ * event:  byte type ordinal, long tick, byte fighter, float value, int detail
+ * </pre>
+ * Each event takes 18 bytes.
+ */
+public class BinaryFileSink implements GameEventSink {
+    public static final int MAGIC = 0x53465345;
+    public static final short VERSION = 2;
+
+    private final DataOutputStream output;
+
+    public BinaryFileSink(OutputStream output) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(output));
+        this.output.writeInt(MAGIC);
+        this.output.writeShort(VERSION);
+    }
+
+    @Override
+    public void write(GameEvent event) throws IOException {
+        output.writeByte(event.getType().ordinal());
+        output.writeLong(event.getTick());
+        output.writeByte(event.getFighter());
+        output.writeFloat(event.getValue());
+        output.writeInt(event.getDetail());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
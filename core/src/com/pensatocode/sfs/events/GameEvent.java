@@ -0,0 +1,97 @@
+package com.pensatocode.sfs.events;
+
+/**
+ * A gameplay event, as it is handed to the sinks by the {@link GameEventBus}.
+ * The bus reuses the same instance for every event it drains,
+ * so sinks must copy it (see {@link #set(GameEvent)}) if they want to keep it.
+ */
+public class GameEvent {
+    // fighter indexes
+    public static final int NO_FIGHTER = -1;
+    public static final int PLAYER = 0;
+    public static final int OPPONENT = 1;
+
+    public enum Type {
+        // a match has started
+        MATCH_START,
+        // a fighter got hit; value is the damage taken, detail is the attacker's Fighter.State ordinal
+        HIT,
+        // a fighter blocked a hit; value is the damage taken anyway, detail is the attacker's Fighter.State ordinal
+        BLOCK,
+        // a round is in progress; value is the round number
+        ROUND_START,
+        // the round timer has run out
+        TIME_UP,
+        // a fighter was knocked out; value is the time since the round started, in seconds
+        KO,
+        // a fighter won the round; value is the round number
+        ROUND_END,
+        // a fighter won the match; value is the time spent fighting, in seconds
+        MATCH_END,
+        // a fighter performed a gameplay action (move, attack or block); value is the time it took to reach
+        // the match, in milliseconds, detail is where it came from (see InputLatency)
+        INPUT,
+        PAUSE,
+        RESUME;
+
+        // values() creates a new array on every call, so keep one around
+        private static final Type[] VALUES = values();
+
+        public static Type fromOrdinal(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    private Type type;
+    private long tick;
+    private int fighter;
+    private float value;
+    private int detail;
+
+    public GameEvent set(Type type, long tick, int fighter, float value, int detail) {
+        this.type = type;
+        this.tick = tick;
+        this.fighter = fighter;
+        this.value = value;
+        this.detail = detail;
+        return this;
+    }
+
+    public GameEvent set(GameEvent event) {
+        return set(event.type, event.tick, event.fighter, event.value, event.detail);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the simulation tick of the match when the event happened
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return the fighter the event is about: {@link #PLAYER}, {@link #OPPONENT} or {@link #NO_FIGHTER}
+     */
+    public int getFighter() {
+        return fighter;
+    }
+
+    public float getValue() {
+        return value;
+    }
+
+    /**
+     * @return extra information about the event, depending on its type (0 if there is none)
+     */
+    public int getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return type + "@" + tick + "[fighter=" + fighter + ", value=" + value + ", detail=" + detail + "]";
+    }
+}
@@ -0,0 +1,187 @@
+package com.pensatocode.sfs.events;
+
+import com.badlogic.gdx.Gdx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Carries gameplay events from the game thread to the sinks, without ever blocking the game thread.
+ *
+ * Events are stored as primitives in a fixed-size ring buffer with a single producer (the render thread)
+ * and a single consumer (the background thread of the bus), so publishing an event
+ * doesn't lock, allocate or format anything. If the ring buffer is full, the event is dropped and counted.
+ * The background thread drains the buffer and hands the events to the sinks.
+ */
+public class GameEventBus {
+    private static final String TAG = "GameEventBus";
+    // how long the background thread sleeps when there are no events
+    private static final long IDLE_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final int mask;
+    private final int[] types;
+    private final long[] ticks;
+    private final int[] fighters;
+    private final float[] values;
+    private final int[] details;
+
+    // next slot to be read by the consumer
+    private final AtomicLong head = new AtomicLong();
+    // next slot to be written by the producer
+    private final AtomicLong tail = new AtomicLong();
+    // the producer's last known value of head, to avoid reading the atomic on every event
+    private long cachedHead;
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private final ArrayList<GameEventSink> sinks = new ArrayList<>();
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param capacity maximum number of events waiting to be drained, rounded up to a power of two
+     */
+    public GameEventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        types = new int[size];
+        ticks = new long[size];
+        fighters = new int[size];
+        values = new float[size];
+        details = new int[size];
+    }
+
+    /**
+     * Adds a sink. Sinks can only be added before the bus is started.
+     */
+    public void addSink(GameEventSink sink) {
+        if (thread != null) {
+            throw new IllegalStateException("Sinks must be added before the event bus is started");
+        }
+        sinks.add(sink);
+    }
+
+    public void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "game-events");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Publishes an event. Must always be called from the same thread (the render thread).
+     *
+     * @return false if the buffer was full and the event was dropped
+     */
+    public boolean publish(GameEvent.Type type, long tick, int fighter, float value, int detail) {
+        long currentTail = tail.get();
+        if (currentTail - cachedHead > mask) {
+            cachedHead = head.get();
+            if (currentTail - cachedHead > mask) {
+                droppedEvents.incrementAndGet();
+                return false;
+            }
+        }
+
+        int index = (int) currentTail & mask;
+        types[index] = type.ordinal();
+        ticks[index] = tick;
+        fighters[index] = fighter;
+        values[index] = value;
+        details[index] = detail;
+
+        // make the event visible to the consumer
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    public boolean publish(GameEvent.Type type, long tick, int fighter, float value) {
+        return publish(type, tick, fighter, value, 0);
+    }
+
+    public boolean publish(GameEvent.Type type, long tick) {
+        return publish(type, tick, GameEvent.NO_FIGHTER, 0f, 0);
+    }
+
+    public long droppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Stops the background thread after it has written the pending events, and closes the sinks.
+     */
+    public void dispose() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    private void drainLoop() {
+        GameEvent event = new GameEvent();
+        while (running) {
+            if (drain(event) == 0) {
+                LockSupport.parkNanos(IDLE_SLEEP_NANOS);
+            }
+        }
+
+        // write whatever is left before closing the sinks
+        drain(event);
+        for (GameEventSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "Failed to close game event sink", e);
+            }
+        }
+    }
+
+    private int drain(GameEvent event) {
+        long currentHead = head.get();
+        long currentTail = tail.get();
+        if (currentHead == currentTail) {
+            return 0;
+        }
+
+        for (long position = currentHead; position < currentTail; position++) {
+            int index = (int) position & mask;
+            event.set(GameEvent.Type.fromOrdinal(types[index]), ticks[index], fighters[index], values[index],
+                    details[index]);
+            for (int i = 0; i < sinks.size(); i++) {
+                try {
+                    sinks.get(i).write(event);
+                } catch (IOException e) {
+                    Gdx.app.error(TAG, "Failed to write game event", e);
+                }
+            }
+        }
+
+        // free the slots for the producer
+        head.lazySet(currentTail);
+
+        for (int i = 0; i < sinks.size(); i++) {
+            try {
+                sinks.get(i).flush();
+            } catch (IOException e) {
+                Gdx.app.error(TAG, "Failed to flush game event sink", e);
+            }
+        }
+        return (int) (currentTail - currentHead);
+    }
+}
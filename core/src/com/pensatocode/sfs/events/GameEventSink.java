@@ -0,0 +1,19 @@
+package com.pensatocode.sfs.events;
+
+import java.io.IOException;
+
+/**
+ * Destination of the gameplay events.
+ * All methods are called from the background thread of the {@link GameEventBus},
+ * so a sink may take its time (format strings, write files) without slowing down the game.
+ */
+public interface GameEventSink {
+    void write(GameEvent event) throws IOException;
+
+    /**
+     * Called after each batch of events has been written.
+     */
+    void flush() throws IOException;
+
+    void close() throws IOException;
+}
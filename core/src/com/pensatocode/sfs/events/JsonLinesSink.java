@@ -0,0 +1,47 @@
+package com.pensatocode.sfs.events;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Writes one JSON object per line, for instance:
+ * <pre>
+ * {"tick":1234,"type":"HIT","fighter":1,"value":5.0,"detail":3}
+ * </pre>
+ */
+public class JsonLinesSink implements GameEventSink {
+    private final Writer writer;
+
+    public JsonLinesSink(OutputStream output) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, Charset.forName("UTF-8")));
+    }
+
+    @Override
+    public void write(GameEvent event) throws IOException {
+        writer.write("{\"tick\":");
+        writer.write(Long.toString(event.getTick()));
+        writer.write(",\"type\":\"");
+        writer.write(event.getType().name());
+        writer.write("\",\"fighter\":");
+        writer.write(Integer.toString(event.getFighter()));
+        writer.write(",\"value\":");
+        writer.write(Float.toString(event.getValue()));
+        writer.write(",\"detail\":");
+        writer.write(Integer.toString(event.getDetail()));
+        writer.write("}\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,43 @@
+package com.pensatocode.sfs.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps copies of the events in memory, up to a maximum number of events.
+ * Meant for tools and checks that want to look at what happened in a match.
+ */
+public class MemorySink implements GameEventSink {
+    private final int maxEvents;
+    private final List<GameEvent> events = new ArrayList<>();
+
+    public MemorySink(int maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    @Override
+    public synchronized void write(GameEvent event) {
+        if (events.size() < maxEvents) {
+            events.add(new GameEvent().set(event));
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return a copy of the events received so far
+     */
+    public synchronized List<GameEvent> events() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,95 @@
+package com.pensatocode.sfs.input;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.controllers.Controller;
+import com.badlogic.gdx.controllers.ControllerAdapter;
+import com.badlogic.gdx.controllers.ControllerMapping;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * A gamepad, through gdx-controllers. The buttons and axes are read from the controller when the poller
+ * asks; the controller's events are only listened to for the time of the last change, to measure latency.
+ * A change also asks for a frame, so the paused and game over screens, which are only drawn on input,
+ * read it (see FramePacer).
+ * Its default bindings come from the controller's mapping, which knows where the standard buttons are
+ * on each backend (the codes differ between the desktop and Android).
+ */
+public class GdxControllerDevice extends ControllerAdapter implements InputDevice {
+    private final Controller controller;
+    private final InputBindings bindings;
+    private long lastChangeTime;
+
+    public GdxControllerDevice(Controller controller) {
+        this.controller = controller;
+        ControllerMapping mapping = controller.getMapping();
+        this.bindings = InputBindings.of(mapping.buttonA, mapping.buttonB, mapping.buttonX, mapping.buttonY,
+                mapping.buttonStart, mapping.buttonBack, mapping.buttonR1,
+                mapping.buttonDpadUp, mapping.buttonDpadDown, mapping.buttonDpadLeft, mapping.buttonDpadRight,
+                mapping.axisLeftX, mapping.axisLeftY);
+        controller.addListener(this);
+    }
+
+    public Controller controller() {
+        return controller;
+    }
+
+    /**
+     * Stops listening to the controller.
+     */
+    public void dispose() {
+        controller.removeListener(this);
+    }
+
+    @Override
+    public boolean buttonDown(Controller controller, int buttonCode) {
+        changed();
+        return false;
+    }
+
+    @Override
+    public boolean buttonUp(Controller controller, int buttonCode) {
+        changed();
+        return false;
+    }
+
+    @Override
+    public boolean axisMoved(Controller controller, int axisCode, float value) {
+        changed();
+        return false;
+    }
+
+    private void changed() {
+        lastChangeTime = TimeUtils.nanoTime();
+        Gdx.graphics.requestRendering();
+    }
+
+    @Override
+    public String name() {
+        return controller.getName();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return controller.isConnected();
+    }
+
+    @Override
+    public boolean isPressed(int button) {
+        return controller.getButton(button);
+    }
+
+    @Override
+    public float axis(int axis) {
+        return controller.getAxis(axis);
+    }
+
+    @Override
+    public long lastChangeTime() {
+        return lastChangeTime;
+    }
+
+    @Override
+    public InputBindings bindings() {
+        return bindings;
+    }
+}
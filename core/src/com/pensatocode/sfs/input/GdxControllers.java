@@ -0,0 +1,60 @@
+package com.pensatocode.sfs.input;
+
+import com.badlogic.gdx.controllers.Controller;
+import com.badlogic.gdx.controllers.ControllerAdapter;
+import com.badlogic.gdx.controllers.Controllers;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Keeps an input poller's devices in step with the gamepads gdx-controllers sees:
+ * the ones plugged in when it's attached, then the ones plugged in and unplugged while the game runs.
+ */
+public class GdxControllers extends ControllerAdapter {
+    private final InputPoller poller;
+    private final Array<GdxControllerDevice> devices = new Array<>();
+
+    public GdxControllers(InputPoller poller) {
+        this.poller = poller;
+    }
+
+    public void attach() {
+        for (Controller controller : Controllers.getControllers()) {
+            connected(controller);
+        }
+        Controllers.addListener(this);
+    }
+
+    public void detach() {
+        Controllers.removeListener(this);
+        for (GdxControllerDevice device : devices) {
+            poller.removeDevice(device);
+            device.dispose();
+        }
+        devices.clear();
+    }
+
+    @Override
+    public void connected(Controller controller) {
+        for (GdxControllerDevice device : devices) {
+            if (device.controller() == controller) {
+                return;
+            }
+        }
+        GdxControllerDevice device = new GdxControllerDevice(controller);
+        devices.add(device);
+        poller.addDevice(device);
+    }
+
+    @Override
+    public void disconnected(Controller controller) {
+        for (int i = 0; i < devices.size; i++) {
+            GdxControllerDevice device = devices.get(i);
+            if (device.controller() == controller) {
+                poller.removeDevice(device);
+                device.dispose();
+                devices.removeIndex(i);
+                return;
+            }
+        }
+    }
+}
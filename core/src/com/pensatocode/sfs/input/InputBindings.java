@@ -0,0 +1,187 @@
+package com.pensatocode.sfs.input;
+
+import java.util.Arrays;
+
+/**
+ * Which action each button and axis of an input device stands for, in plain int arrays indexed by the
+ * button or axis code, so reading a device is a loop over its buttons with an array lookup each,
+ * and rebinding a button is writing a slot.
+ * <pre>
+ * buttons[button]       action ordinal, or UNBOUND
+ * axes[axis * 2]        action ordinal when the axis is pushed toward -1, or UNBOUND
+ * axes[axis * 2 + 1]    action ordinal when the axis is pushed toward 1, or UNBOUND
+ * </pre>
+ * The tables grow to the largest code bound; Android gamepads have button codes above 100.
+ */
+public class InputBindings {
+    public static final int UNBOUND = -1;
+    // how far an axis must be pushed to count, sticks never rest exactly at 0
+    public static final float DEFAULT_DEAD_ZONE = 0.5f;
+
+    // the button codes of the standard (SDL) gamepad layout, which gdx-controllers uses on the desktop
+    public static final int STANDARD_A = 0;
+    public static final int STANDARD_B = 1;
+    public static final int STANDARD_X = 2;
+    public static final int STANDARD_Y = 3;
+    public static final int STANDARD_BACK = 4;
+    public static final int STANDARD_START = 6;
+    public static final int STANDARD_R1 = 10;
+    public static final int STANDARD_DPAD_UP = 11;
+    public static final int STANDARD_DPAD_DOWN = 12;
+    public static final int STANDARD_DPAD_LEFT = 13;
+    public static final int STANDARD_DPAD_RIGHT = 14;
+    public static final int STANDARD_AXIS_LEFT_X = 0;
+    public static final int STANDARD_AXIS_LEFT_Y = 1;
+
+    private int[] buttons = new int[0];
+    private int[] axes = new int[0];
+    private float deadZone = DEFAULT_DEAD_ZONE;
+
+    /**
+     * Binds a button to an action, in place of the one it had.
+     *
+     * @param action the action, or null to unbind the button
+     */
+    public void bindButton(int button, PlayerAction action) {
+        if (button < 0) {
+            // gdx-controllers gives -1 for a button the controller doesn't have
+            return;
+        }
+        if (button >= buttons.length) {
+            int size = buttons.length;
+            buttons = Arrays.copyOf(buttons, button + 1);
+            Arrays.fill(buttons, size, buttons.length, UNBOUND);
+        }
+        buttons[button] = action == null ? UNBOUND : action.ordinal();
+    }
+
+    /**
+     * Binds both directions of an axis, in place of the actions it had.
+     *
+     * @param negative the action toward -1, or null
+     * @param positive the action toward 1, or null
+     */
+    public void bindAxis(int axis, PlayerAction negative, PlayerAction positive) {
+        if (axis < 0) {
+            return;
+        }
+        if (axis * 2 >= axes.length) {
+            int size = axes.length;
+            axes = Arrays.copyOf(axes, axis * 2 + 2);
+            Arrays.fill(axes, size, axes.length, UNBOUND);
+        }
+        axes[axis * 2] = negative == null ? UNBOUND : negative.ordinal();
+        axes[axis * 2 + 1] = positive == null ? UNBOUND : positive.ordinal();
+    }
+
+    /**
+     * Makes a button the only one of an action, like when the player rebinds it:
+     * the action's other buttons are unbound, and the action the button had loses it. Axes are left alone.
+     */
+    public void rebindButton(PlayerAction action, int button) {
+        int ordinal = action.ordinal();
+        for (int i = 0; i < buttons.length; i++) {
+            if (buttons[i] == ordinal) {
+                buttons[i] = UNBOUND;
+            }
+        }
+        bindButton(button, action);
+    }
+
+    /**
+     * Unbinds every button and axis bound to an action.
+     */
+    public void unbind(PlayerAction action) {
+        int ordinal = action.ordinal();
+        for (int i = 0; i < buttons.length; i++) {
+            if (buttons[i] == ordinal) {
+                buttons[i] = UNBOUND;
+            }
+        }
+        for (int i = 0; i < axes.length; i++) {
+            if (axes[i] == ordinal) {
+                axes[i] = UNBOUND;
+            }
+        }
+    }
+
+    /**
+     * @return the action a button is bound to, or null
+     */
+    public PlayerAction buttonAction(int button) {
+        return button < 0 || button >= buttons.length || buttons[button] == UNBOUND
+                ? null : PlayerAction.of(buttons[button]);
+    }
+
+    /**
+     * @return one more than the largest button code bound
+     */
+    public int buttonCount() {
+        return buttons.length;
+    }
+
+    public void setDeadZone(float deadZone) {
+        this.deadZone = deadZone;
+    }
+
+    /**
+     * Reads the buttons and axes of a device.
+     *
+     * @return the mask of the actions held (see PlayerAction.bit())
+     */
+    public int actions(InputDevice device) {
+        int actions = 0;
+        for (int button = 0; button < buttons.length; button++) {
+            if (buttons[button] != UNBOUND && device.isPressed(button)) {
+                actions |= 1 << buttons[button];
+            }
+        }
+        for (int axis = 0; axis < axes.length / 2; axis++) {
+            int negative = axes[axis * 2];
+            int positive = axes[axis * 2 + 1];
+            if (negative == UNBOUND && positive == UNBOUND) {
+                continue;
+            }
+            float value = device.axis(axis);
+            if (value <= -deadZone && negative != UNBOUND) {
+                actions |= 1 << negative;
+            } else if (value >= deadZone && positive != UNBOUND) {
+                actions |= 1 << positive;
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * @return the bindings of the standard gamepad layout: the d-pad and the left stick move (down is positive
+     * on the stick's Y axis), X punches, A kicks, B and R1 block, Y confirms, start pauses, back goes back
+     */
+    public static InputBindings standard() {
+        return of(STANDARD_A, STANDARD_B, STANDARD_X, STANDARD_Y, STANDARD_START, STANDARD_BACK, STANDARD_R1,
+                STANDARD_DPAD_UP, STANDARD_DPAD_DOWN, STANDARD_DPAD_LEFT, STANDARD_DPAD_RIGHT,
+                STANDARD_AXIS_LEFT_X, STANDARD_AXIS_LEFT_Y);
+    }
+
+    /**
+     * @return the default bindings of a gamepad, from the codes of its buttons and axes
+     */
+    public static InputBindings of(int a, int b, int x, int y, int start, int back, int r1,
+                                   int dpadUp, int dpadDown, int dpadLeft, int dpadRight,
+                                   int axisLeftX, int axisLeftY) {
+        InputBindings bindings = new InputBindings();
+        bindings.bindButton(dpadLeft, PlayerAction.LEFT);
+        bindings.bindButton(dpadRight, PlayerAction.RIGHT);
+        bindings.bindButton(dpadUp, PlayerAction.UP);
+        bindings.bindButton(dpadDown, PlayerAction.DOWN);
+        bindings.bindAxis(axisLeftX, PlayerAction.LEFT, PlayerAction.RIGHT);
+        bindings.bindAxis(axisLeftY, PlayerAction.UP, PlayerAction.DOWN);
+        bindings.bindButton(x, PlayerAction.PUNCH);
+        bindings.bindButton(a, PlayerAction.KICK);
+        bindings.bindButton(b, PlayerAction.BLOCK);
+        bindings.bindButton(r1, PlayerAction.BLOCK);
+        bindings.bindButton(y, PlayerAction.CONFIRM);
+        bindings.bindButton(start, PlayerAction.PAUSE);
+        bindings.bindButton(back, PlayerAction.BACK);
+        return bindings;
+    }
+}
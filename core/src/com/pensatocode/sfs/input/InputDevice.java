@@ -0,0 +1,37 @@
+package com.pensatocode.sfs.input;
+
+/**
+ * A controller the player can fight with: buttons and axes, read whenever the input poller asks,
+ * rather than events pushed to the screen. Buttons and axes are the device's own codes;
+ * its bindings say which actions they stand for.
+ *
+ * GdxControllerDevice reads a gamepad through gdx-controllers; StubInputDevice is set by hand,
+ * to drive the poller without any hardware.
+ */
+public interface InputDevice {
+
+    String name();
+
+    /**
+     * @return false once the device is unplugged; a disconnected device reads as nothing pressed
+     */
+    boolean isConnected();
+
+    boolean isPressed(int button);
+
+    /**
+     * @return the position of an axis, from -1 to 1
+     */
+    float axis(int axis);
+
+    /**
+     * @return the time of the last change of a button or axis, in TimeUtils.nanoTime(),
+     * to measure how long it takes to reach the match
+     */
+    long lastChangeTime();
+
+    /**
+     * @return the remap table from the device's buttons and axes to actions, which can be changed at any time
+     */
+    InputBindings bindings();
+}
@@ -0,0 +1,94 @@
+package com.pensatocode.sfs.input;
+
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.events.GameEventBus;
+
+/**
+ * Measures how long the player's actions take to reach the match: from the input event, or the change
+ * of a polled device, to the update of the match that acts on it.
+ *
+ * Actions are noted when they're given to the match, and published on the next tick, right before the update,
+ * as INPUT events with the latency in milliseconds and the source, so the event log has the latency
+ * of every action, tick by tick, and the same actions are counted by the match telemetry.
+ * The running totals give the average and worst latency of each source, to compare them.
+ */
+public class InputLatency {
+    public static final int KEYBOARD = 0;
+    public static final int TOUCH = 1;
+    public static final int CONTROLLER = 2;
+    private static final int SOURCES = 3;
+    private static final String[] SOURCE_NAMES = {"keyboard", "touch", "controller"};
+
+    // a tick never has more actions than this, the ones over it aren't measured
+    private static final int MAX_PENDING = 64;
+
+    // the actions noted since the last tick
+    private final int[] pendingSources = new int[MAX_PENDING];
+    private final long[] pendingTimes = new long[MAX_PENDING];
+    private int pendingCount;
+
+    // by source
+    private final long[] totalLatency = new long[SOURCES];
+    private final long[] maxLatency = new long[SOURCES];
+    private final int[] actions = new int[SOURCES];
+
+    /**
+     * Notes an action given to the match.
+     *
+     * @param time when the input happened, in TimeUtils.nanoTime()
+     */
+    public void record(int source, long time) {
+        if (pendingCount < MAX_PENDING) {
+            pendingSources[pendingCount] = source;
+            pendingTimes[pendingCount] = time;
+            pendingCount++;
+        }
+    }
+
+    /**
+     * Publishes the actions noted since the last tick, right before the match is updated.
+     *
+     * @param now the time of the update, in TimeUtils.nanoTime()
+     */
+    public void publish(GameEventBus eventBus, long tick, long now) {
+        for (int i = 0; i < pendingCount; i++) {
+            int source = pendingSources[i];
+            // a device that doesn't know when it changed gives 0; its latency is unknown, not huge
+            long latency = pendingTimes[i] > 0L ? Math.max(0L, now - pendingTimes[i]) : 0L;
+            totalLatency[source] += latency;
+            maxLatency[source] = Math.max(maxLatency[source], latency);
+            actions[source]++;
+            eventBus.publish(GameEvent.Type.INPUT, tick, GameEvent.PLAYER, latency / 1000000f, source);
+        }
+        pendingCount = 0;
+    }
+
+    public void reset() {
+        pendingCount = 0;
+        for (int source = 0; source < SOURCES; source++) {
+            totalLatency[source] = 0L;
+            maxLatency[source] = 0L;
+            actions[source] = 0;
+        }
+    }
+
+    /**
+     * @return the average and worst latency of each source used since the last reset, for the log
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (int source = 0; source < SOURCES; source++) {
+            if (actions[source] == 0) {
+                continue;
+            }
+            if (summary.length() > 0) {
+                summary.append("; ");
+            }
+            summary.append(SOURCE_NAMES[source]).append(' ')
+                    .append(totalLatency[source] / actions[source] / 1000L).append(" us average, ")
+                    .append(maxLatency[source] / 1000L).append(" us at most, over ")
+                    .append(actions[source]).append(" actions");
+        }
+        return summary.length() == 0 ? "no actions" : summary.toString();
+    }
+}
@@ -0,0 +1,147 @@
+package com.pensatocode.sfs.input;
+
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.util.Arrays;
+
+/**
+ * A timed sequence of the inputs of one fighter, with the ticks they came at, counted from the start of the macro.
+ * It's recorded by MacroRecorder and played by MacroPlayer, on either fighter.
+ * The inputs of the match itself, like skipping the delay between rounds, are in it too, as they change the timing.
+ *
+ * Macros are saved as text, to be read, written by hand and kept in the repository as regression tests:
+ * <pre>
+ * # the rising punch came out as a plain punch
+ * duration 240
+ * checksum 5a1c0e3f
+ * 0 SKIP_ROUND_DELAY
+ * 30 MOVE_DOWN
+ * 34 MOVE_RIGHT
+ * </pre>
+ * The duration is the number of ticks the macro lasts. The checksum, optional, is the one of a fixed point match
+ * that played the macro from its start, at a fixed time step, for its duration (see the macroCheck task).
+ */
+public class InputMacro {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] ticks = new int[INITIAL_CAPACITY];
+    private byte[] inputs = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int duration;
+    private boolean hasChecksum;
+    private int checksum;
+
+    /**
+     * Adds an input, after the ones already in the macro.
+     */
+    public void add(int tick, MatchInput input) {
+        if (size > 0 && tick < ticks[size - 1]) {
+            throw new IllegalArgumentException("Input at tick " + tick + " is before the previous one");
+        }
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            inputs = Arrays.copyOf(inputs, size * 2);
+        }
+        ticks[size] = tick;
+        inputs[size] = (byte) input.ordinal();
+        size++;
+        duration = Math.max(duration, tick + 1);
+    }
+
+    public void clear() {
+        size = 0;
+        duration = 0;
+        hasChecksum = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int tick(int index) {
+        return ticks[index];
+    }
+
+    public MatchInput input(int index) {
+        return MatchInput.of(inputs[index]);
+    }
+
+    /**
+     * @return the number of ticks the macro lasts, at least up to its last input
+     */
+    public int duration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = Math.max(duration, size > 0 ? ticks[size - 1] + 1 : 0);
+    }
+
+    public boolean hasChecksum() {
+        return hasChecksum;
+    }
+
+    public int checksum() {
+        return checksum;
+    }
+
+    public void setChecksum(int checksum) {
+        this.checksum = checksum;
+        hasChecksum = true;
+    }
+
+    /**
+     * @return whether an input goes to the match rather than to a fighter
+     */
+    public static boolean isMatchInput(MatchInput input) {
+        return input == MatchInput.SKIP_ROUND_DELAY || input == MatchInput.START;
+    }
+
+    /**
+     * Reads a macro from its text, the format of format().
+     */
+    public static InputMacro parse(String text) {
+        InputMacro macro = new InputMacro();
+        int duration = 0;
+        String[] lines = text.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            try {
+                if (fields.length != 2) {
+                    throw new IllegalArgumentException("expected two fields");
+                }
+                if (fields[0].equals("duration")) {
+                    duration = Integer.parseInt(fields[1]);
+                } else if (fields[0].equals("checksum")) {
+                    macro.setChecksum((int) Long.parseLong(fields[1], 16));
+                } else {
+                    macro.add(Integer.parseInt(fields[0]), MatchInput.valueOf(fields[1]));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + " of the macro, \"" + line + "\": "
+                        + e.getMessage(), e);
+            }
+        }
+        macro.setDuration(duration);
+        return macro;
+    }
+
+    /**
+     * @return the text of the macro, which parse() reads back
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append("duration ").append(duration).append('\n');
+        if (hasChecksum) {
+            text.append("checksum ").append(String.format("%08x", checksum)).append('\n');
+        }
+        for (int i = 0; i < size; i++) {
+            text.append(ticks[i]).append(' ').append(input(i).name()).append('\n');
+        }
+        return text.toString();
+    }
+}
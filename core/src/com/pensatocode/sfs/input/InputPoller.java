@@ -0,0 +1,152 @@
+package com.pensatocode.sfs.input;
+
+import com.badlogic.gdx.utils.Array;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Match;
+
+import java.util.Arrays;
+
+/**
+ * Reads all the input devices once per tick, right before the match is updated, and gives the match
+ * the inputs for what changed since the last tick, like pressing and releasing the keys of the keyboard.
+ *
+ * The devices are merged: an action is held while any device holds it, so two gamepads, or a gamepad and
+ * the polled keyboard, don't stop each other's moves. Being read rather than pushed, the held actions are
+ * level-triggered: a direction held before the round starts moves the fighter as soon as it does,
+ * and blocking goes on after a pause if the button is still down. Attacks only go off when pressed.
+ *
+ * Nothing is created per tick; the state is a mask of actions per device (see PlayerAction.bit()).
+ */
+public class InputPoller {
+    private static final int INITIAL_DEVICES = 4;
+
+    private final Match match;
+    private final InputLatency latency;
+
+    private final Array<InputDevice> devices = new Array<>(false, INITIAL_DEVICES);
+    // by device: the latency source, and the actions it held at the last poll
+    private int[] deviceSources = new int[INITIAL_DEVICES];
+    private int[] deviceActions = new int[INITIAL_DEVICES];
+
+    // the actions held by any device, and the ones the match was given the start of and not yet the end
+    private int held;
+    private int applied;
+
+    public InputPoller(Match match, InputLatency latency) {
+        this.match = match;
+        this.latency = latency;
+    }
+
+    /**
+     * @param source the latency source of the device (see InputLatency)
+     */
+    public void addDevice(InputDevice device, int source) {
+        if (devices.contains(device, true)) {
+            return;
+        }
+        if (devices.size == deviceActions.length) {
+            deviceSources = Arrays.copyOf(deviceSources, devices.size * 2);
+            deviceActions = Arrays.copyOf(deviceActions, devices.size * 2);
+        }
+        deviceSources[devices.size] = source;
+        deviceActions[devices.size] = 0;
+        devices.add(device);
+    }
+
+    public void addDevice(InputDevice device) {
+        addDevice(device, InputLatency.CONTROLLER);
+    }
+
+    /**
+     * Removes a device; what it held is released at the next poll.
+     */
+    public void removeDevice(InputDevice device) {
+        int index = devices.indexOf(device, true);
+        if (index < 0) {
+            return;
+        }
+        // the array isn't ordered, the last device takes the removed one's place
+        int last = devices.size - 1;
+        deviceSources[index] = deviceSources[last];
+        deviceActions[index] = deviceActions[last];
+        devices.removeIndex(index);
+    }
+
+    public int deviceCount() {
+        return devices.size;
+    }
+
+    /**
+     * Reads the devices, and gives the match the inputs for the actions started and stopped since the last poll.
+     *
+     * @param fighting false while the game is paused or over: the fighter lets go of everything,
+     *                 and only the screen actions are read
+     * @return the screen actions pressed since the last poll (PAUSE, CONFIRM, BACK and MUSIC bits)
+     */
+    public int poll(boolean fighting) {
+        int actions = 0;
+        int changed = 0;
+        long changeTime = 0L;
+        int changeSource = InputLatency.CONTROLLER;
+        for (int i = 0; i < devices.size; i++) {
+            InputDevice device = devices.get(i);
+            int deviceHeld = device.isConnected() ? device.bindings().actions(device) : 0;
+            if (deviceHeld != deviceActions[i]) {
+                changed |= deviceHeld ^ deviceActions[i];
+                if (device.lastChangeTime() >= changeTime) {
+                    changeTime = device.lastChangeTime();
+                    changeSource = deviceSources[i];
+                }
+                deviceActions[i] = deviceHeld;
+            }
+            actions |= deviceHeld;
+        }
+        int pressed = actions & ~held;
+        held = actions;
+
+        // what the fighter should be doing now
+        int wanted = fighting ? actions & PlayerAction.MATCH_ACTIONS : 0;
+
+        // stop first, so moving from left to right in one tick ends up moving right
+        int stopped = applied & ~wanted;
+        for (int ordinal = 0; stopped != 0; ordinal++, stopped >>>= 1) {
+            if ((stopped & 1) != 0) {
+                match.input(GameEvent.PLAYER, PlayerAction.of(ordinal).release());
+                applied &= ~(1 << ordinal);
+            }
+        }
+
+        int started = wanted & ~applied;
+        for (int ordinal = 0; started != 0; ordinal++, started >>>= 1) {
+            if ((started & 1) == 0) {
+                continue;
+            }
+            int bit = 1 << ordinal;
+            PlayerAction action = PlayerAction.of(ordinal);
+            if ((bit & PlayerAction.MOVEMENT_ACTIONS) != 0 && match.getRoundState() != Match.RoundState.IN_PROGRESS) {
+                // like the keyboard, fighters only start moving while a round is in progress
+                continue;
+            }
+            if (action.release() == null && (pressed & bit) == 0) {
+                // an attack held down doesn't go off again
+                continue;
+            }
+            match.input(GameEvent.PLAYER, action.press());
+            if (action.release() != null) {
+                applied |= bit;
+            }
+            if ((changed & bit) != 0) {
+                latency.record(changeSource, changeTime);
+            }
+        }
+
+        return pressed & ~PlayerAction.MATCH_ACTIONS;
+    }
+
+    /**
+     * @return the actions held by any device at the last poll, as a mask
+     */
+    public int held() {
+        return held;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pensatocode.sfs.input;
+
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.SerializationException;
+
+/**
+ * Reads and writes the keyboard bindings, a JSON object with the keys of each action, by their libGDX names:
+ * <pre>
+ * { "LEFT": [ "Left", "A" ], "PUNCH": [ "Y" ], "CONFIRM": [ "Space" ] }
+ * </pre>
+ * The defaults are in data/key_bindings.json; the player's own, once a key is rebound, in the local files.
+ * Once read, they're an array from key code to action (see InputBindings), so a key event is a single lookup.
+ */
+public class KeyBindingsFile {
+    public static final String DEFAULT_KEY_BINDINGS_FILE = "data/key_bindings.json";
+
+    private KeyBindingsFile() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the file doesn't exist, can't be parsed,
+     *                                  or has an unknown action or key
+     */
+    public static InputBindings load(FileHandle file) {
+        if (!file.exists()) {
+            throw new IllegalArgumentException("No key bindings in " + file.path());
+        }
+        JsonValue root;
+        try {
+            root = new JsonReader().parse(file);
+        } catch (SerializationException e) {
+            throw new IllegalArgumentException("Can't parse the key bindings in " + file.path(), e);
+        }
+        InputBindings bindings = new InputBindings();
+        for (JsonValue action = root.child; action != null; action = action.next) {
+            PlayerAction playerAction = PlayerAction.valueOf(action.name);
+            for (JsonValue key = action.child; key != null; key = key.next) {
+                int keycode = Input.Keys.valueOf(key.asString());
+                if (keycode < 0) {
+                    throw new IllegalArgumentException("Unknown key \"" + key.asString() + "\" for " + action.name
+                            + " in " + file.path());
+                }
+                bindings.bindButton(keycode, playerAction);
+            }
+        }
+        return bindings;
+    }
+
+    public static void save(InputBindings bindings, FileHandle file) {
+        JsonValue root = new JsonValue(JsonValue.ValueType.object);
+        for (int i = 0; i < PlayerAction.count(); i++) {
+            PlayerAction action = PlayerAction.of(i);
+            JsonValue keys = new JsonValue(JsonValue.ValueType.array);
+            for (int keycode = 0; keycode < bindings.buttonCount(); keycode++) {
+                if (bindings.buttonAction(keycode) == action) {
+                    keys.addChild(new JsonValue(Input.Keys.toString(keycode)));
+                }
+            }
+            root.addChild(action.name(), keys);
+        }
+        file.writeString(root.prettyPrint(JsonWriter.OutputType.json, 0), false, "UTF-8");
+    }
+}
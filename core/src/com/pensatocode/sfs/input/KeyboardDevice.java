@@ -0,0 +1,54 @@
+package com.pensatocode.sfs.input;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+
+/**
+ * The keyboard as a polled device, with the key codes as button codes, for the polling mode
+ * (see GlobalVariables.POLL_KEYBOARD): its keys are read once per tick with the gamepads,
+ * instead of going through GameScreen.keyDown() and keyUp().
+ */
+public class KeyboardDevice implements InputDevice {
+    private final InputBindings bindings;
+
+    /**
+     * @param bindings the keyboard bindings, shared with the key events (see SfsGame.keyBindings())
+     */
+    public KeyboardDevice(InputBindings bindings) {
+        this.bindings = bindings;
+    }
+
+    @Override
+    public String name() {
+        return "Keyboard";
+    }
+
+    @Override
+    public boolean isConnected() {
+        return Gdx.input.isPeripheralAvailable(Input.Peripheral.HardwareKeyboard);
+    }
+
+    @Override
+    public boolean isPressed(int button) {
+        return Gdx.input.isKeyPressed(button);
+    }
+
+    @Override
+    public float axis(int axis) {
+        return 0f;
+    }
+
+    /**
+     * @return the time of the last input event, the keyboard's or not: the key states are updated
+     * as their events are processed, so a change read at the poll came with one of them, at the latest the last
+     */
+    @Override
+    public long lastChangeTime() {
+        return Gdx.input.getCurrentEventTime();
+    }
+
+    @Override
+    public InputBindings bindings() {
+        return bindings;
+    }
+}
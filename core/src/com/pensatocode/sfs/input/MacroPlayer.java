@@ -0,0 +1,74 @@
+package com.pensatocode.sfs.input;
+
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+/**
+ * Plays a macro on a fighter of a match: call update() right before every update of the match,
+ * and the inputs of the macro are given to the match at the ticks they were recorded at.
+ * A looping macro starts over once its duration is over, to repeat a combo in training.
+ *
+ * Played on a fixed point match from the same state, at the same time step, a macro ends in the same state
+ * every time, on every platform, so a macro is a regression test.
+ */
+public class MacroPlayer {
+    private final Match match;
+
+    private InputMacro macro;
+    private int fighter;
+    private boolean looping;
+    private boolean playing;
+    private long startTick;
+    private int next;
+
+    public MacroPlayer(Match match) {
+        this.match = match;
+    }
+
+    /**
+     * Starts playing a macro, from the next update of the match.
+     *
+     * @param fighter GameEvent.PLAYER or GameEvent.OPPONENT
+     */
+    public void play(InputMacro macro, int fighter, boolean looping) {
+        this.macro = macro;
+        this.fighter = fighter;
+        this.looping = looping;
+        playing = macro.duration() > 0;
+        startTick = match.getTick();
+        next = 0;
+    }
+
+    public void stop() {
+        playing = false;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * Gives the match the inputs of the macro due at its next update.
+     */
+    public void update() {
+        if (!playing) {
+            return;
+        }
+        int tick = (int) (match.getTick() - startTick);
+        if (tick >= macro.duration()) {
+            if (!looping) {
+                playing = false;
+                return;
+            }
+            startTick = match.getTick();
+            next = 0;
+            tick = 0;
+        }
+        while (next < macro.size() && macro.tick(next) <= tick) {
+            MatchInput input = macro.input(next);
+            match.input(InputMacro.isMatchInput(input) ? GameEvent.NO_FIGHTER : fighter, input);
+            next++;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.pensatocode.sfs.input;
+
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+/**
+ * Records the inputs of one fighter into a macro, with the tick each came at, from start() to stop().
+ * The inputs of the match, like skipping the delay between rounds, are recorded too; a new START ends the macro.
+ *
+ * Like the replay recorder, it goes in front of the match's recorder and passes everything on to it.
+ */
+public class MacroRecorder implements Match.Recorder {
+    private final Match match;
+    private final Match.Recorder next;
+    private final int fighter;
+
+    private InputMacro macro = new InputMacro();
+    private boolean recording;
+    private long startTick;
+
+    /**
+     * @param fighter GameEvent.PLAYER or GameEvent.OPPONENT
+     */
+    public MacroRecorder(Match match, int fighter) {
+        this.match = match;
+        this.fighter = fighter;
+        this.next = match.getRecorder();
+        match.setRecorder(this);
+    }
+
+    /**
+     * Starts a new macro, from the next update of the match.
+     */
+    public void start() {
+        macro = new InputMacro();
+        recording = true;
+        startTick = match.getTick();
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Stops recording.
+     *
+     * @return the macro, lasting up to the last update of the match
+     */
+    public InputMacro stop() {
+        if (recording) {
+            recording = false;
+            macro.setDuration((int) (match.getTick() - startTick));
+        }
+        return macro;
+    }
+
+    @Override
+    public void onInput(int fighter, MatchInput input) {
+        if (next != null) {
+            next.onInput(fighter, input);
+        }
+        if (!recording) {
+            return;
+        }
+        if (input == MatchInput.START) {
+            // the macro was of the match that just ended
+            stop();
+        } else if (fighter == this.fighter || (fighter == GameEvent.NO_FIGHTER && InputMacro.isMatchInput(input))) {
+            macro.add((int) (match.getTick() - startTick), input);
+        }
+    }
+
+    @Override
+    public void onUpdate(float deltaTime) {
+        if (next != null) {
+            next.onUpdate(deltaTime);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.pensatocode.sfs.input;
+
+import com.pensatocode.sfs.objects.MatchInput;
+
+/**
+ * What a button of an input device can be bound to: the player's gameplay actions, with the match inputs
+ * that start and stop them, and the actions of the game screen, which don't go to the match.
+ * An action held is a bit of a mask, so the state of a whole device fits in an int (see InputBindings).
+ */
+public enum PlayerAction {
+    LEFT(MatchInput.MOVE_LEFT, MatchInput.STOP_MOVING_LEFT),
+    RIGHT(MatchInput.MOVE_RIGHT, MatchInput.STOP_MOVING_RIGHT),
+    UP(MatchInput.MOVE_UP, MatchInput.STOP_MOVING_UP),
+    DOWN(MatchInput.MOVE_DOWN, MatchInput.STOP_MOVING_DOWN),
+    BLOCK(MatchInput.BLOCK, MatchInput.STOP_BLOCKING),
+    PUNCH(MatchInput.PUNCH, null),
+    KICK(MatchInput.KICK, null),
+    // pause or resume the game, like the P key
+    PAUSE(null, null),
+    // skip the round delay, play again or resume, like the space bar
+    CONFIRM(null, null),
+    // go back to the main menu when the game isn't running, like the escape key
+    BACK(null, null),
+    // turn the music on or off, like the M key
+    MUSIC(null, null);
+
+    private static final PlayerAction[] VALUES = values();
+
+    // the actions that go to the match, and the ones that move the fighter
+    public static final int MATCH_ACTIONS = LEFT.bit() | RIGHT.bit() | UP.bit() | DOWN.bit()
+            | BLOCK.bit() | PUNCH.bit() | KICK.bit();
+    public static final int MOVEMENT_ACTIONS = LEFT.bit() | RIGHT.bit() | UP.bit() | DOWN.bit();
+
+    private final MatchInput press;
+    private final MatchInput release;
+
+    PlayerAction(MatchInput press, MatchInput release) {
+        this.press = press;
+        this.release = release;
+    }
+
+    /**
+     * @return the match input sent when the action starts, or null for a screen action
+     */
+    public MatchInput press() {
+        return press;
+    }
+
+    /**
+     * @return the match input sent when the action stops, or null if it stops on its own, like a punch
+     */
+    public MatchInput release() {
+        return release;
+    }
+
+    /**
+     * @return the bit of the action in a mask of actions
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @return the action with an ordinal, without the copy values() makes
+     */
+    public static PlayerAction of(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown player action " + ordinal);
+        }
+        return VALUES[ordinal];
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pensatocode.sfs.input;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.Arrays;
+
+/**
+ * An input device without hardware: its buttons and axes are set by hand, by a test or a tool,
+ * and read by the input poller like a real gamepad's. It has the standard layout's bindings by default.
+ */
+public class StubInputDevice implements InputDevice {
+    private static final int BUTTONS = 32;
+    private static final int AXES = 8;
+
+    private final String name;
+    private final InputBindings bindings;
+    private final boolean[] buttons = new boolean[BUTTONS];
+    private final float[] axes = new float[AXES];
+    private boolean connected = true;
+    private long lastChangeTime;
+
+    public StubInputDevice(String name) {
+        this(name, InputBindings.standard());
+    }
+
+    public StubInputDevice(String name, InputBindings bindings) {
+        this.name = name;
+        this.bindings = bindings;
+    }
+
+    public void press(int button) {
+        buttons[button] = true;
+        lastChangeTime = TimeUtils.nanoTime();
+    }
+
+    public void release(int button) {
+        buttons[button] = false;
+        lastChangeTime = TimeUtils.nanoTime();
+    }
+
+    public void setAxis(int axis, float value) {
+        axes[axis] = value;
+        lastChangeTime = TimeUtils.nanoTime();
+    }
+
+    /**
+     * Releases every button and centers every axis.
+     */
+    public void reset() {
+        Arrays.fill(buttons, false);
+        Arrays.fill(axes, 0f);
+        lastChangeTime = TimeUtils.nanoTime();
+    }
+
+    public void setConnected(boolean connected) {
+        this.connected = connected;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public boolean isPressed(int button) {
+        return button < BUTTONS && buttons[button];
+    }
+
+    @Override
+    public float axis(int axis) {
+        return axis < AXES ? axes[axis] : 0f;
+    }
+
+    @Override
+    public long lastChangeTime() {
+        return lastChangeTime;
+    }
+
+    @Override
+    public InputBindings bindings() {
+        return bindings;
+    }
+}
@@ -0,0 +1,317 @@
+package com.pensatocode.sfs.input;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+import com.pensatocode.sfs.resources.GlobalVariables;
+
+import java.util.Arrays;
+
+/**
+ * On-screen controls for touch devices, from the MobileUI atlas: a joystick in the bottom left corner,
+ * and the punch, kick and block buttons in the bottom right one, next to the pause button.
+ *
+ * Every finger is followed on its own, by its pointer index, so the player can move and attack at the same time.
+ * A finger that lands on a control keeps it until it's lifted: dragging it around the joystick changes
+ * the direction, even off the joystick.
+ * Finding the control under a finger is a single lookup in a grid laid over the screen, filled in when the
+ * screen is resized, with the control each cell belongs to.
+ *
+ * The controls feed the match the same inputs as the keyboard (see GameScreen.keyDown()), through Match.input(),
+ * so replays and spectators get them too, and nothing is created per event.
+ * They're drawn with the sprite batch of the HUD, in the same pass.
+ */
+public class VirtualGamepad {
+    // controls
+    private static final byte NONE = 0;
+    private static final byte JOYSTICK = 1;
+    private static final byte PUNCH = 2;
+    private static final byte KICK = 3;
+    private static final byte BLOCK = 4;
+    private static final int CONTROLS = 5;
+
+    // libGDX follows up to 20 pointers
+    private static final int MAX_POINTERS = 20;
+    // cells of the lookup grid, in world units
+    private static final float CELL_SIZE = 0.5f;
+    // the controls can be touched a bit outside of their images, fingers aren't precise
+    private static final float TOUCH_SLOP = 1.2f;
+    // around the center of the joystick, no direction, as a fraction of its radius
+    private static final float DEAD_ZONE = 0.25f;
+    // sin(22.5 degrees): a direction counts when it's within 67.5 degrees of an axis, which splits the joystick in 8
+    private static final float AXIS_THRESHOLD = 0.383f;
+    private static final float MARGIN = 1.5f;
+    private static final float SPACING = 1f;
+    private static final Color RELEASED_COLOR = new Color(1f, 1f, 1f, 0.7f);
+    private static final Color PRESSED_COLOR = new Color(0.7f, 0.7f, 0.7f, 0.9f);
+
+    private final Match match;
+    private final InputLatency latency;
+
+    // the joystick images, by horizontal direction (left, none, right) and vertical direction (down, none, up)
+    private final TextureRegion[][] joystickRegions = new TextureRegion[3][3];
+    private final TextureRegion[] buttonRegions = new TextureRegion[CONTROLS];
+
+    // the layout, in world units
+    private final float[] controlX = new float[CONTROLS];
+    private final float[] controlY = new float[CONTROLS];
+    private final float[] controlSize = new float[CONTROLS];
+    private final float pauseButtonSize;
+
+    // the lookup grid, a control per cell
+    private byte[] grid = new byte[0];
+    private int gridColumns;
+    private int gridRows;
+
+    // the control each pointer holds, and how many pointers hold each one
+    private final byte[] pointerControls = new byte[MAX_POINTERS];
+    private final int[] holders = new int[CONTROLS];
+
+    // the direction of the joystick, and the one the match was given, -1, 0 or 1 on each axis
+    private int horizontal;
+    private int vertical;
+    private int appliedHorizontal;
+    private int appliedVertical;
+
+    /**
+     * @param pauseButtonSize the size of the pause button, in world units, to lay the buttons out next to it
+     */
+    public VirtualGamepad(Match match, InputLatency latency, TextureAtlas atlas, float pauseButtonSize) {
+        this.match = match;
+        this.latency = latency;
+        this.pauseButtonSize = pauseButtonSize;
+
+        joystickRegions[0][0] = atlas.findRegion("JoystickLeftDown");
+        joystickRegions[0][1] = atlas.findRegion("JoystickLeft");
+        joystickRegions[0][2] = atlas.findRegion("JoystickLeftUp");
+        joystickRegions[1][0] = atlas.findRegion("JoystickDown");
+        joystickRegions[1][1] = atlas.findRegion("Joystick");
+        joystickRegions[1][2] = atlas.findRegion("JoystickUp");
+        joystickRegions[2][0] = atlas.findRegion("JoystickRightDown");
+        joystickRegions[2][1] = atlas.findRegion("JoystickRight");
+        joystickRegions[2][2] = atlas.findRegion("JoystickRightUp");
+        buttonRegions[PUNCH] = atlas.findRegion("PunchButton");
+        buttonRegions[KICK] = atlas.findRegion("KickButton");
+        buttonRegions[BLOCK] = atlas.findRegion("BlockButton");
+
+        controlSize[JOYSTICK] = joystickRegions[1][1].getRegionWidth() * GlobalVariables.WORLD_SCALE;
+        for (int control = PUNCH; control < CONTROLS; control++) {
+            controlSize[control] = buttonRegions[control].getRegionWidth() * GlobalVariables.WORLD_SCALE;
+        }
+    }
+
+    /**
+     * Lays out the controls for the size of the world on screen, and fills in the lookup grid.
+     * Call it when the screen is resized.
+     */
+    public void layout(float worldWidth, float worldHeight) {
+        // the joystick in the bottom left corner
+        controlX[JOYSTICK] = MARGIN;
+        controlY[JOYSTICK] = MARGIN;
+
+        // kick and punch to the left of the pause button, block above them, between the two
+        controlX[KICK] = worldWidth - MARGIN - pauseButtonSize - SPACING - controlSize[KICK];
+        controlY[KICK] = MARGIN;
+        controlX[PUNCH] = controlX[KICK] - SPACING - controlSize[PUNCH];
+        controlY[PUNCH] = MARGIN;
+        controlX[BLOCK] = (controlX[PUNCH] + controlX[KICK] + controlSize[KICK] - controlSize[BLOCK]) / 2f;
+        controlY[BLOCK] = MARGIN + controlSize[KICK] + SPACING;
+
+        gridColumns = (int) Math.ceil(worldWidth / CELL_SIZE);
+        gridRows = (int) Math.ceil(worldHeight / CELL_SIZE);
+        if (grid.length < gridColumns * gridRows) {
+            grid = new byte[gridColumns * gridRows];
+        }
+        Arrays.fill(grid, NONE);
+        for (byte control = JOYSTICK; control < CONTROLS; control++) {
+            float radius = controlSize[control] / 2f * TOUCH_SLOP;
+            float centerX = controlX[control] + controlSize[control] / 2f;
+            float centerY = controlY[control] + controlSize[control] / 2f;
+            int firstColumn = Math.max(0, (int) ((centerX - radius) / CELL_SIZE));
+            int lastColumn = Math.min(gridColumns - 1, (int) ((centerX + radius) / CELL_SIZE));
+            int firstRow = Math.max(0, (int) ((centerY - radius) / CELL_SIZE));
+            int lastRow = Math.min(gridRows - 1, (int) ((centerY + radius) / CELL_SIZE));
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    float dx = (column + 0.5f) * CELL_SIZE - centerX;
+                    float dy = (row + 0.5f) * CELL_SIZE - centerY;
+                    if (dx * dx + dy * dy <= radius * radius) {
+                        grid[row * gridColumns + column] = control;
+                    }
+                }
+            }
+        }
+    }
+
+    private byte controlAt(float worldX, float worldY) {
+        int column = (int) (worldX / CELL_SIZE);
+        int row = (int) (worldY / CELL_SIZE);
+        if (worldX < 0f || worldY < 0f || column >= gridColumns || row >= gridRows) {
+            return NONE;
+        }
+        return grid[row * gridColumns + column];
+    }
+
+    /**
+     * @return true if the finger landed on a control, false to let the screen handle the touch
+     */
+    public boolean touchDown(int pointer, float worldX, float worldY) {
+        if (pointer >= MAX_POINTERS) {
+            return false;
+        }
+        byte control = controlAt(worldX, worldY);
+        if (control == NONE) {
+            return false;
+        }
+        pointerControls[pointer] = control;
+        holders[control]++;
+        switch (control) {
+            case JOYSTICK:
+                aim(worldX, worldY);
+                break;
+            case PUNCH:
+                action(MatchInput.PUNCH);
+                break;
+            case KICK:
+                action(MatchInput.KICK);
+                break;
+            case BLOCK:
+                // the first finger on the button starts blocking
+                if (holders[BLOCK] == 1) {
+                    action(MatchInput.BLOCK);
+                }
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the finger holds a control
+     */
+    public boolean touchDragged(int pointer, float worldX, float worldY) {
+        if (pointer >= MAX_POINTERS || pointerControls[pointer] == NONE) {
+            return false;
+        }
+        if (pointerControls[pointer] == JOYSTICK) {
+            aim(worldX, worldY);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the finger held a control
+     */
+    public boolean touchUp(int pointer) {
+        if (pointer >= MAX_POINTERS || pointerControls[pointer] == NONE) {
+            return false;
+        }
+        release(pointer);
+        return true;
+    }
+
+    /**
+     * Lets go of all the controls, like when the game is paused, so the fighter doesn't keep moving or blocking.
+     */
+    public void releaseAll() {
+        for (int pointer = 0; pointer < MAX_POINTERS; pointer++) {
+            if (pointerControls[pointer] != NONE) {
+                release(pointer);
+            }
+        }
+    }
+
+    private void release(int pointer) {
+        byte control = pointerControls[pointer];
+        pointerControls[pointer] = NONE;
+        holders[control]--;
+        if (control == JOYSTICK && holders[JOYSTICK] == 0) {
+            setDirection(0, 0);
+        } else if (control == BLOCK && holders[BLOCK] == 0) {
+            match.input(GameEvent.PLAYER, MatchInput.STOP_BLOCKING);
+        }
+    }
+
+    /**
+     * Points the joystick toward a touch, in one of 8 directions, or none near its center.
+     */
+    private void aim(float worldX, float worldY) {
+        float radius = controlSize[JOYSTICK] / 2f;
+        float dx = worldX - (controlX[JOYSTICK] + radius);
+        float dy = worldY - (controlY[JOYSTICK] + radius);
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length < radius * DEAD_ZONE) {
+            setDirection(0, 0);
+        } else {
+            float threshold = length * AXIS_THRESHOLD;
+            setDirection(dx > threshold ? 1 : dx < -threshold ? -1 : 0, dy > threshold ? 1 : dy < -threshold ? -1 : 0);
+        }
+    }
+
+    /**
+     * Stops moving in the directions the fighter no longer goes, and starts moving in the new ones,
+     * like releasing and pressing the arrow keys.
+     */
+    private void setDirection(int newHorizontal, int newVertical) {
+        horizontal = newHorizontal;
+        vertical = newVertical;
+
+        if (appliedHorizontal != horizontal) {
+            if (appliedHorizontal < 0) {
+                match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_LEFT);
+            } else if (appliedHorizontal > 0) {
+                match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_RIGHT);
+            }
+            appliedHorizontal = 0;
+        }
+        if (appliedVertical != vertical) {
+            if (appliedVertical < 0) {
+                match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_DOWN);
+            } else if (appliedVertical > 0) {
+                match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_UP);
+            }
+            appliedVertical = 0;
+        }
+
+        // like the keyboard, fighters only start moving while a round is in progress
+        if (match.getRoundState() != Match.RoundState.IN_PROGRESS) {
+            return;
+        }
+        if (appliedHorizontal != horizontal) {
+            action(horizontal < 0 ? MatchInput.MOVE_LEFT : MatchInput.MOVE_RIGHT);
+            appliedHorizontal = horizontal;
+        }
+        if (appliedVertical != vertical) {
+            action(vertical < 0 ? MatchInput.MOVE_DOWN : MatchInput.MOVE_UP);
+            appliedVertical = vertical;
+        }
+    }
+
+    private void action(MatchInput input) {
+        match.input(GameEvent.PLAYER, input);
+
+        // measure how long the touch takes to reach the match, like the keyboard's
+        latency.record(InputLatency.TOUCH, Gdx.input.getCurrentEventTime());
+    }
+
+    /**
+     * Draws the controls, between begin() and end() of the HUD's batch.
+     */
+    public void draw(SpriteBatch batch) {
+        batch.setColor(holders[JOYSTICK] > 0 ? PRESSED_COLOR : RELEASED_COLOR);
+        batch.draw(joystickRegions[horizontal + 1][vertical + 1],
+                controlX[JOYSTICK], controlY[JOYSTICK], controlSize[JOYSTICK], controlSize[JOYSTICK]);
+        for (int control = PUNCH; control < CONTROLS; control++) {
+            batch.setColor(holders[control] > 0 ? PRESSED_COLOR : RELEASED_COLOR);
+            batch.draw(buttonRegions[control], controlX[control], controlY[control],
+                    controlSize[control], controlSize[control]);
+        }
+        batch.setColor(Color.WHITE);
+    }
+}
@@ -0,0 +1,113 @@
+package com.pensatocode.sfs.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The spectator stream, in a single ring buffer shared by all the spectators.
+ *
+ * One thread appends the messages, each one copied once into the ring, whatever the number of spectators.
+ * The network thread sends every spectator its part of the ring straight from it, through a view of the ring
+ * that each connection keeps (a duplicate of the buffer: the same bytes, with its own position and limit),
+ * so nothing is copied or allocated per spectator.
+ *
+ * Positions are counted in bytes since the start of the stream, and only grow. The bytes of a position
+ * stay in the ring until capacity more bytes are appended. A reader further behind than the safe window
+ * (half the ring) has lost its data, or could lose it in the middle of sending it, and must give up.
+ * The writer publishes each message by moving a volatile position after copying it,
+ * so readers never see a message that isn't complete.
+ */
+final class BroadcastLog {
+    static final long NO_POSITION = -1L;
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer writerView;
+    private final int capacity;
+
+    // the end of the last message appended
+    private volatile long written;
+    // the start of the last snapshot appended
+    private volatile long lastSnapshot = NO_POSITION;
+
+    BroadcastLog(int capacity) {
+        this.capacity = capacity;
+        buffer = ByteBuffer.allocateDirect(capacity);
+        writerView = buffer.duplicate();
+    }
+
+    /**
+     * Appends a message, from the position to the limit of a buffer. Only one thread may append.
+     */
+    void append(ByteBuffer message, boolean snapshot) {
+        int length = message.remaining();
+        if (length > capacity / 2) {
+            throw new IllegalArgumentException("Message of " + length + " bytes doesn't fit the broadcast log");
+        }
+        long start = written;
+        int offset = (int) (start % capacity);
+        int limit = message.limit();
+        int firstPart = Math.min(length, capacity - offset);
+
+        // the message may wrap around the end of the ring
+        writerView.clear();
+        writerView.position(offset);
+        message.limit(message.position() + firstPart);
+        writerView.put(message);
+        message.limit(limit);
+        if (message.hasRemaining()) {
+            writerView.clear();
+            writerView.put(message);
+        }
+
+        if (snapshot) {
+            lastSnapshot = start;
+        }
+        written = start + length;
+    }
+
+    long written() {
+        return written;
+    }
+
+    long lastSnapshot() {
+        return lastSnapshot;
+    }
+
+    /**
+     * @return the oldest position that can still be read safely
+     */
+    long oldestSafePosition() {
+        return written - capacity / 2;
+    }
+
+    /**
+     * @return a view of the ring for a reader
+     */
+    ByteBuffer newView() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * Writes the stream from a position up to another one, or as much of it as the channel takes.
+     *
+     * @return the number of bytes written
+     */
+    int writeTo(WritableByteChannel channel, ByteBuffer view, long from, long to) throws IOException {
+        int total = 0;
+        while (from < to) {
+            int offset = (int) (from % capacity);
+            int length = (int) Math.min(to - from, capacity - offset);
+            view.clear();
+            view.limit(offset + length);
+            view.position(offset);
+            int count = channel.write(view);
+            total += count;
+            from += count;
+            if (count < length) {
+                break;
+            }
+        }
+        return total;
+    }
+}
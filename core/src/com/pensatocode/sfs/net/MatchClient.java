@@ -0,0 +1,202 @@
+package com.pensatocode.sfs.net;
+
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * A player of a match hosted by a match server, over UDP (see MatchServerProtocol).
+ *
+ * The server is authoritative: the player's inputs go to the server, and the match the player sees
+ * is a local copy that plays the stream of the server, inputs of both fighters included (see MatchSpectator).
+ * The player's own inputs show up once the server has applied them, a round trip later.
+ *
+ * The socket is non-blocking: poll() sends and receives whatever it can and returns right away,
+ * so it can be called once per frame from the render thread.
+ */
+public class MatchClient {
+    public enum State {
+        // waiting for the server to put the player in a match
+        JOINING,
+        PLAYING,
+        // the server had no room
+        BUSY,
+        ENDED
+    }
+
+    // how often JOIN is sent until the server answers, in milliseconds
+    private static final long JOIN_RETRY_MILLIS = 500L;
+
+    private final MatchSpectator spectator;
+    private final ByteBuffer datagram = ByteBuffer.allocate(MatchServerProtocol.MAX_DATAGRAM_SIZE);
+    private DatagramChannel channel;
+    private State state = State.ENDED;
+    private int matchId;
+    private int fighter = GameEvent.NO_FIGHTER;
+    private long lastSentMillis;
+
+    // the inputs not acknowledged yet, by sequence number
+    private final byte[] inputs = new byte[MatchServerProtocol.MAX_UNACKNOWLEDGED_INPUTS];
+    private int nextInputSequence;
+    private int acknowledgedSequence = -1;
+
+    /**
+     * @param match the local copy of the match, built like the ones of the server (see MatchSpectator)
+     */
+    public MatchClient(Match match) {
+        spectator = new MatchSpectator(match);
+    }
+
+    /**
+     * Asks a match server for a match.
+     */
+    public void connect(String host, int port) throws IOException {
+        close();
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(new InetSocketAddress(host, port));
+        state = State.JOINING;
+        nextInputSequence = 0;
+        acknowledgedSequence = -1;
+        sendType(MatchServerProtocol.JOIN);
+    }
+
+    /**
+     * Presses or releases a button of the player's fighter, sent to the server on the next poll().
+     *
+     * @return false if too many inputs are waiting for the server already, and this one was dropped
+     */
+    public boolean input(MatchInput input) {
+        if (state != State.PLAYING || nextInputSequence - (acknowledgedSequence + 1) >= inputs.length) {
+            return false;
+        }
+        inputs[nextInputSequence % inputs.length] = (byte) input.ordinal();
+        nextInputSequence++;
+        return true;
+    }
+
+    /**
+     * Plays what the server sent, and sends the inputs it hasn't acknowledged yet, again and again
+     * until it does.
+     */
+    public void poll() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        receive();
+
+        long now = System.currentTimeMillis();
+        if (state == State.JOINING && now - lastSentMillis >= JOIN_RETRY_MILLIS) {
+            sendType(MatchServerProtocol.JOIN);
+        } else if (state == State.PLAYING && (acknowledgedSequence < nextInputSequence - 1
+                || now - lastSentMillis >= MatchServerProtocol.KEEP_ALIVE_MILLIS)) {
+            sendInputs();
+        }
+    }
+
+    private void receive() throws IOException {
+        while (true) {
+            datagram.clear();
+            if (channel.receive(datagram) == null) {
+                return;
+            }
+            datagram.flip();
+            if (!datagram.hasRemaining()) {
+                continue;
+            }
+            byte type = datagram.get();
+            if (type == MatchServerProtocol.WELCOME && state == State.JOINING && datagram.remaining() >= 5) {
+                matchId = datagram.getInt();
+                fighter = datagram.get();
+                state = State.PLAYING;
+            } else if (type == MatchServerProtocol.BUSY && state == State.JOINING) {
+                state = State.BUSY;
+            } else if (type == MatchServerProtocol.ENDED) {
+                state = State.ENDED;
+            } else if (type == MatchServerProtocol.STREAM && state == State.PLAYING
+                    && datagram.remaining() >= 4 + SpectatorProtocol.HEADER_SIZE) {
+                int acknowledged = datagram.getInt();
+                if (acknowledged > acknowledgedSequence && acknowledged < nextInputSequence) {
+                    acknowledgedSequence = acknowledged;
+                }
+                spectator.onMessage(SpectatorProtocol.type(datagram), datagram);
+            }
+        }
+    }
+
+    private void sendInputs() throws IOException {
+        int first = acknowledgedSequence + 1;
+        int count = nextInputSequence - first;
+        datagram.clear();
+        datagram.put(MatchServerProtocol.INPUTS);
+        datagram.putInt(first);
+        datagram.put((byte) count);
+        for (int sequence = first; sequence < nextInputSequence; sequence++) {
+            datagram.put(inputs[sequence % inputs.length]);
+        }
+        datagram.flip();
+        send();
+    }
+
+    private void sendType(byte type) throws IOException {
+        datagram.clear();
+        datagram.put(type);
+        datagram.flip();
+        send();
+    }
+
+    private void send() throws IOException {
+        try {
+            channel.write(datagram);
+        } catch (IOException e) {
+            // nothing listening on the other side yet, or anymore: the datagram is lost like any other
+        }
+        lastSentMillis = System.currentTimeMillis();
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public int matchId() {
+        return matchId;
+    }
+
+    /**
+     * @return the fighter of the player, GameEvent.PLAYER or GameEvent.OPPONENT
+     */
+    public int fighter() {
+        return fighter;
+    }
+
+    /**
+     * @return what plays the stream of the server on the local copy of the match
+     */
+    public MatchSpectator spectator() {
+        return spectator;
+    }
+
+    public void close() {
+        if (channel != null) {
+            if (state == State.PLAYING) {
+                try {
+                    sendType(MatchServerProtocol.LEAVE);
+                } catch (IOException e) {
+                    // leaving anyway
+                }
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+            channel = null;
+        }
+        state = State.ENDED;
+    }
+}
@@ -0,0 +1,46 @@
+package com.pensatocode.sfs.net;
+
+/**
+ * The datagrams between players and a match server, over UDP. Each one starts with its type (byte).
+ *
+ * From the players:
+ * JOIN: asks for a match, sent again until the server answers.
+ * INPUTS: the sequence number of the first input (int), the number of inputs (byte), and the MatchInput ordinals
+ * (bytes). Every input not acknowledged yet is sent again in each datagram, so a lost one costs nothing
+ * but a little delay. With no inputs, it tells the server the player is still there.
+ * LEAVE: the player quits.
+ *
+ * From the server:
+ * WELCOME: the match id (int) and the fighter of the player (byte, a GameEvent fighter).
+ * BUSY: the server has no room for another match right now.
+ * STREAM: the sequence number of the last input of the player the server applied (int),
+ * followed by a message of the stream of the match (see SpectatorProtocol): every frame, and a snapshot
+ * now and then, to pick up again after a lost datagram.
+ * ENDED: the match is over, or was stopped.
+ */
+public final class MatchServerProtocol {
+    public static final int DEFAULT_PORT = 7778;
+
+    // from the players
+    public static final byte JOIN = 1;
+    public static final byte INPUTS = 2;
+    public static final byte LEAVE = 3;
+
+    // from the server
+    public static final byte WELCOME = 11;
+    public static final byte BUSY = 12;
+    public static final byte STREAM = 13;
+    public static final byte ENDED = 14;
+
+    // inputs of a player the server hasn't acknowledged yet, at most
+    public static final int MAX_UNACKNOWLEDGED_INPUTS = 64;
+    // big enough for a snapshot of a match
+    public static final int MAX_DATAGRAM_SIZE = 1400;
+    // no sign of a player for this long ends its match, in milliseconds
+    public static final long TIMEOUT_MILLIS = 10000L;
+    // how often a player says it's still there without inputs, in milliseconds
+    public static final long KEEP_ALIVE_MILLIS = 1000L;
+
+    private MatchServerProtocol() {
+    }
+}
@@ -0,0 +1,128 @@
+package com.pensatocode.sfs.net;
+
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Plays a spectator stream on a copy of the broadcast match, in lockstep with it.
+ *
+ * The match must be built like the broadcast one: fighters with the same state machine and moves,
+ * created in the same order, in the same world mode. It starts from the first snapshot of the stream,
+ * then plays each frame: the inputs, then the update, after which its checksum must be the one of the frame.
+ * If it isn't, the copy has desynced, and it waits for the next snapshot to pick up again.
+ * The same goes for a frame that never arrived, over a transport that can lose them.
+ */
+public class MatchSpectator implements SpectatorClient.Handler {
+    private final Match match;
+    // whether the match is in step with the stream: after a snapshot, until a desync
+    private boolean inSync;
+    private int sequence = -1;
+    private int frames;
+    private int snapshots;
+    private int desyncs;
+    private int gaps;
+
+    public MatchSpectator(Match match) {
+        this.match = match;
+    }
+
+    @Override
+    public void onMessage(byte type, ByteBuffer message) {
+        message.position(message.position() + SpectatorProtocol.HEADER_SIZE);
+        if (type == SpectatorProtocol.SNAPSHOT) {
+            // a match in step with the stream is already in that state
+            if (!inSync) {
+                sequence = message.getInt();
+                match.restore(message);
+                inSync = true;
+                snapshots++;
+            }
+        } else if (type == SpectatorProtocol.FRAME) {
+            int frameSequence = message.getInt();
+            if (!inSync || frameSequence <= sequence) {
+                // before the first snapshot, or already in it
+                return;
+            }
+            if (frameSequence != sequence + 1) {
+                // a gap in the stream: wait for a snapshot
+                inSync = false;
+                gaps++;
+                return;
+            }
+            float deltaTime = message.getFloat();
+            int checksum = message.getInt();
+            int inputCount = message.getShort();
+            for (int i = 0; i < inputCount; i++) {
+                int fighter = message.get();
+                match.input(fighter, MatchInput.of(message.get()));
+            }
+            match.update(deltaTime);
+            sequence = frameSequence;
+            frames++;
+            if (match.getChecksum() != checksum) {
+                inSync = false;
+                desyncs++;
+            }
+        }
+    }
+
+    /**
+     * Forgets the stream and the counts, to follow another stream from its first snapshot.
+     */
+    public void reset() {
+        inSync = false;
+        sequence = -1;
+        frames = 0;
+        snapshots = 0;
+        desyncs = 0;
+        gaps = 0;
+    }
+
+    public Match match() {
+        return match;
+    }
+
+    /**
+     * @return whether the match is in step with the stream
+     */
+    public boolean isInSync() {
+        return inSync;
+    }
+
+    /**
+     * @return the sequence number of the last frame played
+     */
+    public int sequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the number of frames played
+     */
+    public int frames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of snapshots restored
+     */
+    public int snapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return the number of times the match went out of step with the stream
+     */
+    public int desyncs() {
+        return desyncs;
+    }
+
+    /**
+     * @return the number of times frames were missing from the stream
+     */
+    public int gaps() {
+        return gaps;
+    }
+}
@@ -0,0 +1,129 @@
+package com.pensatocode.sfs.net;
+
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes a match as a stream of messages (see SpectatorProtocol): a frame per update, with the inputs
+ * applied before it, and now and then a snapshot of the whole match, to start following it from.
+ * Whoever follows the match gets the messages as they're encoded, in one reusable buffer,
+ * and sends them on: to spectators over TCP (SpectatorServer), or to players over UDP (the match server).
+ *
+ * The stream goes in front of the recorder the match already had, like a replay being recorded,
+ * and passes everything on to it.
+ */
+public class MatchStream implements Match.Recorder {
+
+    /**
+     * Gets the messages of the stream.
+     */
+    public interface Output {
+        /**
+         * @param message  the whole message, from the position to the limit of the buffer; only valid during the call
+         * @param snapshot whether it's a snapshot, where a new follower can start from
+         */
+        void onMessage(ByteBuffer message, boolean snapshot);
+    }
+
+    private static final int INITIAL_INPUT_CAPACITY = 16;
+
+    private final Match match;
+    private final Match.Recorder next;
+    private final int snapshotInterval;
+    private final Output output;
+    private final ByteBuffer message = ByteBuffer.allocate(SpectatorProtocol.MAX_MESSAGE_SIZE);
+
+    private int sequence = -1;
+    private int lastSnapshotSequence;
+    private boolean snapshotRequested = true;
+    private byte[] inputFighters = new byte[INITIAL_INPUT_CAPACITY];
+    private byte[] inputs = new byte[INITIAL_INPUT_CAPACITY];
+    private int inputCount;
+
+    /**
+     * Starts following a match, from its next update.
+     *
+     * @param snapshotInterval the frames between snapshots
+     */
+    public MatchStream(Match match, int snapshotInterval, Output output) {
+        this.match = match;
+        this.snapshotInterval = snapshotInterval;
+        this.output = output;
+        next = match.getRecorder();
+        match.setRecorder(this);
+    }
+
+    @Override
+    public void onInput(int fighter, MatchInput input) {
+        if (next != null) {
+            next.onInput(fighter, input);
+        }
+
+        if (inputCount == inputs.length) {
+            inputFighters = Arrays.copyOf(inputFighters, inputCount * 2);
+            inputs = Arrays.copyOf(inputs, inputCount * 2);
+        }
+        inputFighters[inputCount] = (byte) fighter;
+        inputs[inputCount] = (byte) input.ordinal();
+        inputCount++;
+
+        // a new match is where followers most want to join
+        if (input == MatchInput.START) {
+            snapshotRequested = true;
+        }
+    }
+
+    @Override
+    public void onUpdate(float deltaTime) {
+        if (next != null) {
+            next.onUpdate(deltaTime);
+        }
+
+        sequence++;
+        message.clear();
+        SpectatorProtocol.begin(message, SpectatorProtocol.FRAME);
+        message.putInt(sequence);
+        message.putFloat(deltaTime);
+        message.putInt(match.getChecksum());
+        message.putShort((short) inputCount);
+        for (int i = 0; i < inputCount; i++) {
+            message.put(inputFighters[i]);
+            message.put(inputs[i]);
+        }
+        inputCount = 0;
+        SpectatorProtocol.end(message, 0);
+        output.onMessage(message, false);
+
+        if (snapshotRequested || sequence - lastSnapshotSequence >= snapshotInterval) {
+            message.clear();
+            SpectatorProtocol.begin(message, SpectatorProtocol.SNAPSHOT);
+            message.putInt(sequence);
+            match.save(message);
+            SpectatorProtocol.end(message, 0);
+            output.onMessage(message, true);
+            lastSnapshotSequence = sequence;
+            snapshotRequested = false;
+        }
+    }
+
+    /**
+     * Adds a snapshot after the next frame.
+     */
+    public void requestSnapshot() {
+        snapshotRequested = true;
+    }
+
+    /**
+     * @return the sequence number of the last frame
+     */
+    public int sequence() {
+        return sequence;
+    }
+
+    public Match match() {
+        return match;
+    }
+}
@@ -0,0 +1,139 @@
+package com.pensatocode.sfs.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Receives a spectator stream (see SpectatorServer) and hands its messages to a handler,
+ * such as a MatchSpectator that plays them, or a SpectatorRelay that passes them on.
+ *
+ * The socket is non-blocking: poll() takes whatever has arrived and returns right away,
+ * so it can be called once per frame from the render thread.
+ */
+public class SpectatorClient {
+
+    /**
+     * Gets the messages of the stream, other than HELLO, which the client checks itself.
+     */
+    public interface Handler {
+        /**
+         * @param type    the type of the message, a SpectatorProtocol type
+         * @param message the whole message, header included, from the position to the limit of the buffer;
+         *                only valid during the call
+         */
+        void onMessage(byte type, ByteBuffer message);
+    }
+
+    private final Handler handler;
+    private final ByteBuffer received = ByteBuffer.allocate(2 * SpectatorProtocol.MAX_MESSAGE_SIZE);
+    private SocketChannel channel;
+    private boolean greeted;
+    private long bytesReceived;
+
+    public SpectatorClient(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Connects to a spectator server, waiting until the connection is made.
+     */
+    public void connect(String host, int port) throws IOException {
+        close();
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        channel.configureBlocking(false);
+        received.clear();
+        greeted = false;
+    }
+
+    public boolean isConnected() {
+        return channel != null;
+    }
+
+    /**
+     * Reads what has arrived and hands the complete messages to the handler.
+     *
+     * @return the number of messages handled
+     * @throws EOFException if the server closed the connection
+     * @throws IOException  if the connection failed, or the stream isn't a spectator stream
+     */
+    public int poll() throws IOException {
+        if (channel == null) {
+            return 0;
+        }
+        int messages = 0;
+        int count;
+        do {
+            count = channel.read(received);
+            if (count > 0) {
+                bytesReceived += count;
+            }
+            messages += handleMessages();
+        } while (count > 0);
+
+        if (count < 0) {
+            close();
+            throw new EOFException("The spectator server closed the connection");
+        }
+        return messages;
+    }
+
+    private int handleMessages() throws IOException {
+        received.flip();
+        int messages = 0;
+        while (received.remaining() >= SpectatorProtocol.HEADER_SIZE) {
+            int start = received.position();
+            int length = received.getInt(start);
+            if (length < 1 || length + 4 > SpectatorProtocol.MAX_MESSAGE_SIZE) {
+                close();
+                throw new IOException("Invalid spectator message of " + length + " bytes");
+            }
+            if (received.remaining() < length + 4) {
+                break;
+            }
+
+            int limit = received.limit();
+            received.limit(start + length + 4);
+            byte type = SpectatorProtocol.type(received);
+            if (type == SpectatorProtocol.HELLO) {
+                int version = received.getInt(start + SpectatorProtocol.HEADER_SIZE);
+                if (version != SpectatorProtocol.VERSION) {
+                    close();
+                    throw new IOException("Unsupported spectator protocol version " + version);
+                }
+                greeted = true;
+            } else if (!greeted) {
+                close();
+                throw new IOException("Not a spectator stream");
+            } else {
+                handler.onMessage(type, received);
+            }
+            received.limit(limit);
+            received.position(start + length + 4);
+            messages++;
+        }
+        received.compact();
+        return messages;
+    }
+
+    /**
+     * @return the bytes received since the client was created
+     */
+    public long bytesReceived() {
+        return bytesReceived;
+    }
+
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+            channel = null;
+        }
+    }
+}
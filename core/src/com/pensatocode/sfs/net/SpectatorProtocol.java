@@ -0,0 +1,67 @@
+package com.pensatocode.sfs.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The format of the spectator stream: a sequence of messages, each one an int with its length
+ * (not counting the int itself), a byte with its type, and its fields, in big endian.
+ *
+ * HELLO, the first message of every connection: the version of the protocol (int).
+ * FRAME, one per update of the match: its sequence number (int), the delta time of the update (float),
+ * the checksum of the match after it (int), the number of inputs applied before it (short),
+ * and each input: the fighter (byte, a GameEvent fighter) and the MatchInput ordinal (byte).
+ * SNAPSHOT, now and then: the sequence number of the last frame it includes (int),
+ * followed by the state of the match (see Match.save()).
+ *
+ * The stream is the same bytes for every spectator, so it's encoded once and sent to all of them.
+ */
+public final class SpectatorProtocol {
+    public static final int VERSION = 3;
+
+    // message types
+    public static final byte HELLO = 1;
+    public static final byte FRAME = 2;
+    public static final byte SNAPSHOT = 3;
+
+    // the length and the type
+    public static final int HEADER_SIZE = 5;
+    // the fighter and the input
+    public static final int INPUT_SIZE = 2;
+    // no message is bigger than this, header included
+    public static final int MAX_MESSAGE_SIZE = 64 * 1024;
+
+    private SpectatorProtocol() {
+    }
+
+    /**
+     * Starts a message at the position of a buffer, leaving room for its length.
+     */
+    static void begin(ByteBuffer buffer, byte type) {
+        buffer.putInt(0);
+        buffer.put(type);
+    }
+
+    /**
+     * Ends a message started at a position of a buffer, writing its length, and flips the buffer.
+     */
+    static void end(ByteBuffer buffer, int start) {
+        buffer.putInt(start, buffer.position() - start - 4);
+        buffer.limit(buffer.position());
+        buffer.position(start);
+    }
+
+    /**
+     * @return the type of the message at the position of a buffer
+     */
+    public static byte type(ByteBuffer message) {
+        return message.get(message.position() + 4);
+    }
+
+    static ByteBuffer hello() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4);
+        begin(buffer, HELLO);
+        buffer.putInt(VERSION);
+        end(buffer, 0);
+        return buffer;
+    }
+}
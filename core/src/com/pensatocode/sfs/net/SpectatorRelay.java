@@ -0,0 +1,59 @@
+package com.pensatocode.sfs.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Passes a spectator stream on to more spectators: a client of one spectator server,
+ * and a spectator server of its own, that sends out the same bytes it gets.
+ *
+ * It stands in for a relay service, so a match can be watched by more spectators than the player's
+ * connection could serve: the player sends the stream to a few relays, and the relays to everyone else.
+ * The relay doesn't play the match; its own spectators catch up from the snapshots it relays.
+ */
+public class SpectatorRelay implements SpectatorClient.Handler {
+    private final SpectatorClient upstream = new SpectatorClient(this);
+    private final SpectatorServer downstream;
+
+    /**
+     * @param port the port the relay's spectators connect to, or 0 for any free port (see port())
+     */
+    public SpectatorRelay(int port) throws IOException {
+        downstream = new SpectatorServer(port);
+    }
+
+    /**
+     * Connects to the server of the stream to relay, and starts serving spectators.
+     */
+    public void connect(String host, int port) throws IOException {
+        upstream.connect(host, port);
+        downstream.start();
+    }
+
+    /**
+     * Relays what has arrived. Call it regularly, like every frame.
+     *
+     * @return the number of messages relayed
+     */
+    public int poll() throws IOException {
+        return upstream.poll();
+    }
+
+    @Override
+    public void onMessage(byte type, ByteBuffer message) {
+        downstream.publish(message);
+    }
+
+    public int port() {
+        return downstream.port();
+    }
+
+    public SpectatorServer server() {
+        return downstream;
+    }
+
+    public void dispose() {
+        upstream.close();
+        downstream.dispose();
+    }
+}
@@ -0,0 +1,325 @@
+package com.pensatocode.sfs.net;
+
+import com.badlogic.gdx.Gdx;
+import com.pensatocode.sfs.objects.Match;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Broadcasts a match to spectators over TCP, as its inputs rather than as video:
+ * every update of the match becomes a frame with the inputs applied before it and its delta time,
+ * and the spectators play the same frames on their own copy of the match (see MatchSpectator).
+ * A few bytes per frame, whatever happens on screen.
+ *
+ * The stream is encoded once per frame (see MatchStream), into a ring buffer shared by all the connections
+ * (see BroadcastLog), and a single thread sends it to all the spectators with non-blocking sockets,
+ * each one at its own pace.
+ * Now and then the whole state of the match goes into the stream as a snapshot. A spectator that connects
+ * in the middle of a match starts from the last snapshot and plays the frames after it, so it catches up
+ * right away instead of needing the match from the start.
+ * A spectator that falls too far behind to ever catch up is disconnected; it can connect again
+ * and start over from the last snapshot, like a late joiner.
+ *
+ * The stream can come from a match (follow()), or from another stream (publish()), to relay it.
+ * For the spectators to stay in sync, the match must be deterministic on their platforms:
+ * across different devices, that means the fixed point simulation (see GlobalVariables.FIXED_POINT_SIMULATION).
+ */
+public class SpectatorServer implements MatchStream.Output {
+    private static final String TAG = "SpectatorServer";
+    // frames between snapshots, a couple of seconds at 60 updates per second
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 120;
+
+    // the stream kept in memory, minutes of frames
+    private static final int LOG_CAPACITY = 1 << 20;
+    private static final int BACKLOG = 256;
+    // how long the network thread waits for something to do before checking if it should stop
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final BroadcastLog log = new BroadcastLog(LOG_CAPACITY);
+    private final ByteBuffer hello = SpectatorProtocol.hello().asReadOnlyBuffer();
+    private final int snapshotInterval;
+
+    // owned by the network thread
+    private final ArrayList<Connection> connections = new ArrayList<>();
+    private final ByteBuffer discard = ByteBuffer.allocate(256);
+    private Thread thread;
+    private volatile boolean running;
+
+    // statistics, written by the network thread
+    private volatile int spectatorCount;
+    private volatile long bytesSent;
+    private volatile int droppedSpectators;
+
+    // owned by the thread that feeds the stream
+    private MatchStream stream;
+
+    /**
+     * Opens the server socket.
+     *
+     * @param port the port to listen on, or 0 for any free port (see port())
+     */
+    public SpectatorServer(int port) throws IOException {
+        this(port, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public SpectatorServer(int port, int snapshotInterval) throws IOException {
+        this.snapshotInterval = snapshotInterval;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(new InetSocketAddress(port), BACKLOG);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Starts accepting spectators and sending them the stream.
+     */
+    public void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                networkLoop();
+            }
+        }, "spectator-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Broadcasts a match: its inputs and updates, from now on. The updates must happen on the thread
+     * the match is followed from.
+     */
+    public void follow(Match match) {
+        stream = new MatchStream(match, snapshotInterval, this);
+    }
+
+    @Override
+    public void onMessage(ByteBuffer message, boolean snapshot) {
+        log.append(message, snapshot);
+        selector.wakeup();
+    }
+
+    /**
+     * Adds a message of another stream to this one, to relay it: frames and snapshots are sent on,
+     * the HELLO of the other stream is not, since every connection gets its own.
+     *
+     * @param message a whole message, from the position to the limit of the buffer
+     */
+    public void publish(ByteBuffer message) {
+        byte type = SpectatorProtocol.type(message);
+        if (type != SpectatorProtocol.HELLO) {
+            log.append(message, type == SpectatorProtocol.SNAPSHOT);
+            selector.wakeup();
+        }
+    }
+
+    private void networkLoop() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read((Connection) key.attachment());
+                    }
+                }
+                // send what's new to everyone: a wake up means there's a new frame,
+                // and a writable socket means a spectator can take more
+                for (int i = connections.size() - 1; i >= 0; i--) {
+                    send(connections.get(i));
+                }
+            }
+        } catch (IOException e) {
+            Gdx.app.error(TAG, "The spectator server stopped", e);
+        } finally {
+            for (int i = connections.size() - 1; i >= 0; i--) {
+                close(connections.get(i));
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel, hello.duplicate(), log.newView());
+            // start from the last snapshot, or wait for the next one
+            long snapshot = log.lastSnapshot();
+            connection.position = snapshot != BroadcastLog.NO_POSITION && snapshot >= log.oldestSafePosition()
+                    ? snapshot : log.written();
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+            spectatorCount = connections.size();
+        }
+    }
+
+    /**
+     * Spectators have nothing to say, but reading tells when they leave.
+     */
+    private void read(Connection connection) {
+        try {
+            int count;
+            do {
+                discard.clear();
+                count = connection.channel.read(discard);
+            } while (count > 0);
+            if (count < 0) {
+                close(connection);
+            }
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    private void send(Connection connection) {
+        try {
+            if (connection.hello.hasRemaining()) {
+                bytesSent += connection.channel.write(connection.hello);
+                if (connection.hello.hasRemaining()) {
+                    waitUntilWritable(connection, true);
+                    return;
+                }
+            }
+
+            long end = log.written();
+            if (connection.position < log.oldestSafePosition()) {
+                drop(connection);
+                return;
+            }
+            int count = log.writeTo(connection.channel, connection.view, connection.position, end);
+            // the ring may have been overwritten while it was being sent
+            if (connection.position < log.oldestSafePosition()) {
+                drop(connection);
+                return;
+            }
+            connection.position += count;
+            bytesSent += count;
+            waitUntilWritable(connection, connection.position < end);
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    private void waitUntilWritable(Connection connection, boolean writable) {
+        int interest = writable ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (connection.key.isValid() && connection.key.interestOps() != interest) {
+            connection.key.interestOps(interest);
+        }
+    }
+
+    private void drop(Connection connection) {
+        droppedSpectators++;
+        close(connection);
+    }
+
+    private void close(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // nothing else to do with it
+        }
+        connections.remove(connection);
+        spectatorCount = connections.size();
+    }
+
+    /**
+     * @return the number of spectators connected
+     */
+    public int spectatorCount() {
+        return spectatorCount;
+    }
+
+    /**
+     * @return the bytes sent to all the spectators so far
+     */
+    public long bytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return the number of spectators disconnected for falling too far behind
+     */
+    public int droppedSpectators() {
+        return droppedSpectators;
+    }
+
+    /**
+     * @return the sequence number of the last frame of the stream, if it comes from a match
+     */
+    public int sequence() {
+        return stream == null ? -1 : stream.sequence();
+    }
+
+    public void dispose() {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    /**
+     * A spectator, and how far it got in the stream.
+     */
+    private static class Connection {
+        final SocketChannel channel;
+        final ByteBuffer hello;
+        final ByteBuffer view;
+        SelectionKey key;
+        long position;
+
+        Connection(SocketChannel channel, ByteBuffer hello, ByteBuffer view) {
+            this.channel = channel;
+            this.hello = hello;
+            this.view = view;
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package com.pensatocode.sfs.objects;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.pensatocode.sfs.SfsGame;
+import com.pensatocode.sfs.ecs.AnimationSet;
+import com.pensatocode.sfs.ecs.CombatSystem;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
 import com.pensatocode.sfs.resources.Assets;
-import com.pensatocode.sfs.resources.GlobalVariables;
+import com.pensatocode.sfs.utils.Palettes;
 
 public class Fighter {
+    // the states of the fighters, and how they go from one to another
+    public static final String STATES_FILE = "data/fighter_states.json";
+    // the moves of the fighters, with their frame data and input sequences
+    public static final String MOVES_FILE = "data/fighter_moves.json";
+
     // number of frame rows and columns in each animation sprite sheet
-    private static final int FRAME_ROWS = 2;
-    private static final int FRAME_COLS = 3;
+    public static final int FRAME_ROWS = 2;
+    public static final int FRAME_COLS = 3;
 
     // how fast the fighter moves
     public static final float MOVEMENT_SPEED = 10f;
@@ -22,10 +34,8 @@ public class Fighter {
     // maximum life points
     public static final float MAX_LIFE = 15f; //100f;
 
-    // amount of damage each attack does
-    public static final float HIT_STRENGTH = 5f;
-
-    // factor to decrease damage when blocking
+    // factor to decrease damage when blocking, for the damage that doesn't come from a move,
+    // which says its own chip damage
     public static final float BLOCK_DAMAGE_FACTOR = 0.2f;
 
     // distinguish between fighters
@@ -37,15 +47,17 @@ public class Fighter {
         BLOCK, HURT, IDLE, KICK, LOSE, PUNCH, WALK, WIN
     }
 
-    private State state;
-    private float stateTime;
-    private State renderState;
-    private float renderStateTime;
+    // cached, since values() creates a new array on every call
+    private static final State[] STATES = State.values();
+
+    /**
+     * The fighter's data lives in the world, as an entity with the FIGHTER components,
+     * where the systems of the match update it. This class is a handle to it.
+     */
+    private final World world;
+    private final int entity;
+    // copy of the position handed out by getPosition()
     private final Vector2 position = new Vector2();
-    private final Vector2 movementDirection = new Vector2();
-    private float life;
-    private int facingDirection;
-    private boolean madeContact;
 
     // animations
     private Animation<TextureRegion> blockAnimation;
@@ -58,33 +70,88 @@ public class Fighter {
     private Animation<TextureRegion> winAnimation;
 
     public Fighter(SfsGame game, String name, Color color) {
+        this(game.world(), game.fighterStateMachine(), game.fighterMoves(), game.assets().manager(), name, color);
+    }
+
+    /**
+     * Creates a fighter without any textures.
+     * The animations keep their frame count and durations, so the fighter behaves exactly the same,
+     * but it can't be rendered. Useful for simulations that run without graphics, like headless matches.
+     */
+    public Fighter(World world, StateMachine stateMachine, MoveSet moves, String name, Color color) {
+        this(world, stateMachine, moves, null, name, color);
+    }
+
+    private Fighter(World world, StateMachine stateMachine, MoveSet moves, AssetManager manager,
+                    String name, Color color) {
+        this.world = world;
+        this.entity = world.create(World.FIGHTER);
+        world.setSpeed(entity, MOVEMENT_SPEED);
+        world.setStateMachine(entity, stateMachine);
+        world.setMoveSet(entity, moves);
         this.name = name;
-        this.color = color;
+        setColor(color);
 
         // initialize animations
-        initializeBlockAnimation(game.assets().manager());
-        initializeHurtAnimation(game.assets().manager());
-        initializeIdleAnimation(game.assets().manager());
-        initializeKickAnimation(game.assets().manager());
-        initializeLoseAnimation(game.assets().manager());
-        initializePunchAnimation(game.assets().manager());
-        initializeWalkAnimation(game.assets().manager());
-        initializeWinAnimation(game.assets().manager());
+        initializeBlockAnimation(manager);
+        initializeHurtAnimation(manager);
+        initializeIdleAnimation(manager);
+        initializeKickAnimation(manager);
+        initializeLoseAnimation(manager);
+        initializePunchAnimation(manager);
+        initializeWalkAnimation(manager);
+        initializeWinAnimation(manager);
+        world.setAnimations(entity, new AnimationSet(STATES.length)
+                .set(State.BLOCK.ordinal(), blockAnimation, true)
+                .set(State.HURT.ordinal(), hurtAnimation, false)
+                .set(State.IDLE.ordinal(), idleAnimation, true)
+                .set(State.KICK.ordinal(), kickAnimation, false)
+                .set(State.LOSE.ordinal(), loseAnimation, false)
+                .set(State.PUNCH.ordinal(), punchAnimation, false)
+                .set(State.WALK.ordinal(), walkAnimation, true)
+                .set(State.WIN.ordinal(), winAnimation, true));
+    }
+
+    /**
+     * Compiles the state machine of the fighters from the data file.
+     */
+    public static StateMachine loadStateMachine() {
+        return loadStateMachine(Gdx.files.internal(STATES_FILE));
+    }
+
+    public static StateMachine loadStateMachine(FileHandle file) {
+        return StateMachine.load(file, STATES);
+    }
+
+    /**
+     * Compiles the moves of the fighters from the data file.
+     */
+    public static MoveSet loadMoves() {
+        return MoveSet.load(Gdx.files.internal(MOVES_FILE));
     }
 
     public void getReady(float positionX, float positionY) {
         // set initial state
-        state = State.IDLE;
-        stateTime = 0f;
-        renderState = State.IDLE;
-        renderStateTime = 0f;
-        life = MAX_LIFE;
-        facingDirection = 1;
-        madeContact = false;
+        world.resetState(entity, world.getStateMachine(entity).initialState());
+        world.setLife(entity, MAX_LIFE);
+        world.setFacing(entity, 1);
+        world.setMadeContact(entity, false);
+        world.resetInput(entity);
 
         // set initial position
-        position.set(positionX, positionY);
-        movementDirection.set(0f, 0f);
+        world.setPosition(entity, positionX, positionY);
+        world.setDirection(entity, 0f, 0f);
+    }
+
+    public World world() {
+        return world;
+    }
+
+    /**
+     * @return the id of the fighter's entity in the world
+     */
+    public int entity() {
+        return entity;
     }
 
     public String getName() {
@@ -101,309 +168,267 @@ public class Fighter {
 
     public void setColor(Color color) {
         this.color = color;
+        world.setColor(entity, color);
+    }
+
+    /**
+     * Dresses the fighter in a skin, to be drawn by the palette shader instead of tinted with its color,
+     * until the color changes.
+     */
+    public void setSkin(int palette) {
+        world.setPackedColor(entity, Palettes.vertexColor(palette));
+    }
+
+    public State getState() {
+        return STATES[world.getState(entity)];
     }
 
+    /**
+     * @return the time the fighter has been in its state, in seconds
+     */
+    public float getStateTime() {
+        return world.getStateTime(entity);
+    }
+
+    /**
+     * @return the index of the frame of the state's animation the fighter is at
+     */
+    public int getKeyFrameIndex() {
+        return world.getAnimations(entity).getKeyFrameIndex(world.getState(entity), world.getStateTime(entity));
+    }
+
+    /**
+     * @return a copy of the fighter's position; changing it doesn't move the fighter
+     */
     public Vector2 getPosition() {
-        return position;
+        return position.set(world.getX(entity), world.getY(entity));
     }
 
     public float getLife() {
-        return life;
+        return world.getLife(entity);
+    }
+
+    /**
+     * Sets the fighter's life, between 0 and MAX_LIFE, outside of any hit, as the training mode does.
+     */
+    public void setLife(float life) {
+        world.setLife(entity, MathUtils.clamp(life, 0f, MAX_LIFE));
+    }
+
+    /**
+     * Slows down or speeds up the fighter's own time, its animations and its walk: 1 is normal, 0 frozen.
+     */
+    public void setTimeScale(float scale) {
+        world.setTimeScale(entity, scale);
+    }
+
+    public float getTimeScale() {
+        return world.getTimeScale(entity);
     }
 
     public void faceLeft() {
-        facingDirection = -1;
+        world.setFacing(entity, -1);
     }
 
     public void faceRight() {
-        facingDirection = 1;
+        world.setFacing(entity, 1);
     }
 
-    private void changeState(State newState) {
-        if (state != newState) {
-            state = newState;
-            stateTime = 0f;
-        }
+    // what each action does depends on the state the fighter is in, as described by its state machine
+    private boolean fire(StateMachine.Event event) {
+        return world.fire(entity, event);
     }
 
     private void setMovement(float x, float y) {
-        movementDirection.set(x, y);
-        if (state == State.WALK && x == 0f && y == 0f) {
-            changeState(State.IDLE);
-        } else if (state == State.IDLE && (x != 0f || y != 0f)) {
-            changeState(State.WALK);
+        // a new direction is an input of the move sequences
+        if (x != world.getDirectionX(entity) || y != world.getDirectionY(entity)) {
+            int input = MoveSet.directionInput(x, y, world.getFacing(entity));
+            if (input != MoveSet.NONE) {
+                world.input(entity, input);
+            }
         }
+        world.setDirection(entity, x, y);
+        fire(x != 0f || y != 0f ? StateMachine.Event.MOVE : StateMachine.Event.STOP);
     }
 
     public void moveLeft() {
-        setMovement(-1, movementDirection.y);
+        setMovement(-1, world.getDirectionY(entity));
     }
 
     public void moveRight() {
-        setMovement(1, movementDirection.y);
+        setMovement(1, world.getDirectionY(entity));
     }
 
     public void moveUp() {
-        setMovement(movementDirection.x, 1);
+        setMovement(world.getDirectionX(entity), 1);
     }
 
     public void moveDown() {
-        setMovement(movementDirection.x, -1);
+        setMovement(world.getDirectionX(entity), -1);
     }
 
     public void stopMovingLeft() {
-        if (movementDirection.x == -1) {
-            setMovement(0, movementDirection.y);
+        if (world.getDirectionX(entity) == -1) {
+            setMovement(0, world.getDirectionY(entity));
         }
     }
 
     public void stopMovingRight() {
-        if (movementDirection.x == 1) {
-            setMovement(0, movementDirection.y);
+        if (world.getDirectionX(entity) == 1) {
+            setMovement(0, world.getDirectionY(entity));
         }
     }
 
     public void stopMovingUp() {
-        if (movementDirection.y == 1) {
-            setMovement(movementDirection.x, 0);
+        if (world.getDirectionY(entity) == 1) {
+            setMovement(world.getDirectionX(entity), 0);
         }
     }
 
     public void stopMovingDown() {
-        if (movementDirection.y == -1) {
-            setMovement(movementDirection.x, 0);
+        if (world.getDirectionY(entity) == -1) {
+            setMovement(world.getDirectionX(entity), 0);
         }
     }
     public void block() {
-        if (state == State.IDLE || state == State.WALK) {
-            changeState(State.BLOCK);
-        }
+        fire(StateMachine.Event.BLOCK);
     }
 
     public void stopBlocking() {
-        if (state != State.BLOCK) {
-            return;
-        }
-        // if the movement direction is set, start walking;
-        // otherwise go to idle
-        if (movementDirection.x != 0 || movementDirection.y != 0) {
-            changeState(State.WALK);
-        } else {
-            changeState(State.IDLE);
-        }
+        // usually: if the movement direction is set, start walking; otherwise go to idle
+        fire(StateMachine.Event.RELEASE_BLOCK);
     }
 
     public boolean isBlocking() {
-        return state == State.BLOCK;
+        return world.isIn(entity, StateMachine.Flag.BLOCKING);
     }
 
     public void punch() {
-        if (state == State.IDLE || state == State.WALK) {
-            changeState(State.PUNCH);
-        }
-
-        // just started attacking, so contact has not been made yet
-        madeContact = false;
+        attack(MoveSet.Input.PUNCH, StateMachine.Event.PUNCH);
     }
 
     public void kick() {
-        if (state == State.IDLE || state == State.WALK) {
-            changeState(State.KICK);
+        attack(MoveSet.Input.KICK, StateMachine.Event.KICK);
+    }
+
+    private void attack(MoveSet.Input button, StateMachine.Event event) {
+        // the button completes the longest move sequence the last inputs make, or at least the button's own move
+        int move = world.input(entity, button.ordinal());
+        if (fire(event)) {
+            world.setMove(entity, move);
         }
 
         // just started attacking, so contact has not been made yet
-        madeContact = false;
+        world.setMadeContact(entity, false);
+    }
+
+    /**
+     * @return the move the fighter is doing, or did last, in its move set, or MoveSet.NONE
+     */
+    public int getMove() {
+        return world.getMove(entity);
+    }
+
+    /**
+     * @return the damage of the move the fighter is doing, or did last, or 0 if none
+     */
+    public float getMoveDamage() {
+        int move = getMove();
+        return move == MoveSet.NONE ? 0f : world.getMoveSet(entity).damage(move);
     }
 
     public void makeContact() {
-        madeContact = true;
+        world.setMadeContact(entity, true);
     }
 
     public boolean hasMadeContact() {
-        return madeContact;
+        return world.hasMadeContact(entity);
     }
 
     public boolean isAttacking() {
-        return state == State.PUNCH || state == State.KICK;
+        return world.isIn(entity, StateMachine.Flag.ATTACK);
     }
 
     public boolean isAttackActive() {
         // the attack is only active if the fighter has not made contact yet
         // and the attack animation has not just started or is almost finished
-        if (hasMadeContact()) {
-            return false;
-        } else if (state == State.PUNCH) {
-            return stateTime > punchAnimation.getFrameDuration() * 0.33f
-                    && stateTime < punchAnimation.getFrameDuration() * 0.66f;
-        } else if (state == State.KICK) {
-            return stateTime > kickAnimation.getFrameDuration() * 0.33f
-                    && stateTime < kickAnimation.getFrameDuration() * 0.66f;
-        } else {
-            return false;
-        }
+        return CombatSystem.isAttackActive(world, entity);
     }
 
     public void getHit(float damage) {
-        if (state == State.HURT || state == State.WIN || state == State.LOSE) {
-            return;
-        }
-
         // reduce life by the full damage amount, or a fraction of it if blocking
-        life -= state == State.BLOCK ? damage * BLOCK_DAMAGE_FACTOR : damage;
-        if (life <= 0f) {
-           // if no life left, lose the game
-            lose();
-        } else if (state != State.BLOCK) {
-            changeState(State.HURT);
-        }
+        CombatSystem.hit(world, entity, damage);
     }
 
     public void lose() {
-        changeState(State.LOSE);
-        life = 0f;
+        fire(StateMachine.Event.LOSE);
+        world.setLife(entity, 0f);
     }
 
     public boolean hasLost() {
-        return state == State.LOSE;
+        return getState() == State.LOSE;
     }
 
     public void win() {
-        changeState(State.WIN);
-    }
-
-    public void render(SpriteBatch batch) {
-        // get the current frame of animation for the current state
-        TextureRegion currentFrame;
-        switch (renderState) {
-            case BLOCK:
-                currentFrame = blockAnimation.getKeyFrame(renderStateTime, true);
-                break;
-            case HURT:
-                currentFrame = hurtAnimation.getKeyFrame(renderStateTime, false);
-                break;
-            case IDLE:
-                currentFrame = idleAnimation.getKeyFrame(renderStateTime, true);
-                break;
-            case KICK:
-                currentFrame = kickAnimation.getKeyFrame(renderStateTime, false);
-                break;
-            case LOSE:
-                currentFrame = loseAnimation.getKeyFrame(renderStateTime, false);
-                break;
-            case PUNCH:
-                currentFrame = punchAnimation.getKeyFrame(renderStateTime, false);
-                break;
-            case WALK:
-                currentFrame = walkAnimation.getKeyFrame(renderStateTime, true);
-                break;
-            case WIN:
-                currentFrame = winAnimation.getKeyFrame(renderStateTime, true);
-                break;
-            default:
-                currentFrame = idleAnimation.getKeyFrame(renderStateTime, true);
-                break;
-        }
-
-        batch.setColor(color);
-
-        // draw the current frame
-        batch.draw(
-                currentFrame,
-                position.x,
-                position.y,
-                currentFrame.getRegionWidth() * 0.5f * GlobalVariables.WORLD_SCALE,
-                0,
-                currentFrame.getRegionWidth() * GlobalVariables.WORLD_SCALE,
-                currentFrame.getRegionHeight() * GlobalVariables.WORLD_SCALE,
-                facingDirection,
-                1,
-                0
-        );
-
-    }
-
-    public void update(float deltaTime) {
-        // increment the state time by delta time
-        stateTime += deltaTime;
-
-        // only update the render state if delta time is not zero
-        if (deltaTime > 0f) {
-            renderState = state;
-            renderStateTime = stateTime;
-        }
-
-        // update the state
-        if (state == State.WALK) {
-            // if the fighter is walking, move in the direction of the movement direction vector
-            position.x += movementDirection.x * MOVEMENT_SPEED * deltaTime;
-            position.y += movementDirection.y * MOVEMENT_SPEED * deltaTime;
-        } else if ((state == State.PUNCH && punchAnimation.isAnimationFinished(stateTime))
-        || (state == State.KICK && kickAnimation.isAnimationFinished(stateTime))
-        || (state == State.HURT && hurtAnimation.isAnimationFinished(stateTime))) {
-            // if the animation has finished and the movement direction is set, start walking;
-            // otherwise, go to idle
-            if (movementDirection.x != 0 || movementDirection.y != 0) {
-                changeState(State.WALK);
-            } else {
-                changeState(State.IDLE);
-            }
-        }
+        fire(StateMachine.Event.WIN);
     }
 
     private void initializeBlockAnimation(AssetManager manager) {
-        Texture spriteSheet = manager.get(Assets.BLOCK_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        TextureRegion[] frames = getAnimationFrames(manager, Assets.BLOCK_SPRITE_SHEET);
         blockAnimation = new Animation<>(0.05f, frames);
     }
 
     private void initializeHurtAnimation(AssetManager manager) {
-        Texture spriteSheet = manager.get(Assets.HURT_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        TextureRegion[] frames = getAnimationFrames(manager, Assets.HURT_SPRITE_SHEET);
         hurtAnimation = new Animation<>(0.03f, frames);
     }
 
     private void initializeIdleAnimation(AssetManager manager) {
-        Texture spriteSheet = manager.get(Assets.IDLE_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        TextureRegion[] frames = getAnimationFrames(manager, Assets.IDLE_SPRITE_SHEET);
         idleAnimation = new Animation<>(0.1f, frames);
     }
 
     private void initializeKickAnimation(AssetManager manager) {
-        Texture spriteSheet = manager.get(Assets.KICK_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        TextureRegion[] frames = getAnimationFrames(manager, Assets.KICK_SPRITE_SHEET);
         kickAnimation = new Animation<>(0.05f, frames);
     }
 
     private void initializeLoseAnimation(AssetManager manager) {
-        Texture spriteSheet = manager.get(Assets.LOSE_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        TextureRegion[] frames = getAnimationFrames(manager, Assets.LOSE_SPRITE_SHEET);
         loseAnimation = new Animation<>(0.05f, frames);
     }
 
     private void initializePunchAnimation(AssetManager manager) {
-        Texture spriteSheet = manager.get(Assets.PUNCH_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        TextureRegion[] frames = getAnimationFrames(manager, Assets.PUNCH_SPRITE_SHEET);
         punchAnimation = new Animation<>(0.05f, frames);
     }
 
     private void initializeWalkAnimation(AssetManager manager) {
-        Texture spriteSheet = manager.get(Assets.WALK_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        TextureRegion[] frames = getAnimationFrames(manager, Assets.WALK_SPRITE_SHEET);
         walkAnimation = new Animation<>(0.08f, frames);
     }
 
     private void initializeWinAnimation(AssetManager manager) {
-        Texture spriteSheet = manager.get(Assets.WIN_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        TextureRegion[] frames = getAnimationFrames(manager, Assets.WIN_SPRITE_SHEET);
         winAnimation = new Animation<>(0.05f, frames);
     }
 
-    private TextureRegion[] getAnimationFrames(Texture spriteSheet) {
+    private TextureRegion[] getAnimationFrames(AssetManager manager, String spriteSheetAsset) {
+        TextureRegion[] frames = new TextureRegion[FRAME_COLS * FRAME_ROWS];
+
+        // without an asset manager, use empty frames that only keep the animation timing
+        if (manager == null) {
+            for (int i = 0; i < frames.length; i++) {
+                frames[i] = new TextureRegion();
+            }
+            return frames;
+        }
+
+        Texture spriteSheet = manager.get(spriteSheetAsset);
         TextureRegion[][] tmp = TextureRegion.split(
                 spriteSheet,
                 spriteSheet.getWidth() / FRAME_COLS,
                 spriteSheet.getHeight() / FRAME_ROWS);
-        TextureRegion[] frames = new TextureRegion[FRAME_COLS * FRAME_ROWS];
         int index = 0;
         for (int row = 0; row < FRAME_ROWS; row++) {
             for (int col = 0; col < FRAME_COLS; col++) {
@@ -0,0 +1,590 @@
+package com.pensatocode.sfs.objects;
+
+import com.badlogic.gdx.math.Vector2;
+import com.pensatocode.sfs.ecs.CombatSystem;
+import com.pensatocode.sfs.ecs.MovementSystem;
+import com.pensatocode.sfs.ecs.RingSystem;
+import com.pensatocode.sfs.ecs.StateMachineSystem;
+import com.pensatocode.sfs.ecs.StateTimerSystem;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.events.GameEventBus;
+import com.pensatocode.sfs.utils.Checksum;
+import com.pensatocode.sfs.utils.ChecksumRing;
+import com.pensatocode.sfs.utils.FixedPoint;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The simulation of a match between the player and the opponent: rounds, round timer,
+ * ring boundaries and combat. The fighters are updated by the systems of their world (see World).
+ * It has no rendering or audio dependencies, so the same code runs in the game screen
+ * and in headless tools.
+ * When the world of the fighters runs in fixed point, so do the timers of the match.
+ * After each tick, a rolling checksum of the state goes into a ring, to compare runs and find
+ * where they diverged (see ChecksumRing).
+ * Inputs that go through input() and every update can be followed by a recorder, and the whole state
+ * can be saved and restored, which is all another copy of the match needs to play along (see the net package).
+ */
+public class Match {
+
+    /**
+     * Receives the gameplay moments that the match can't handle by itself,
+     * such as playing sounds.
+     */
+    public interface Listener {
+        void onHit(Fighter attacker, Fighter defender);
+
+        void onRoundWon();
+
+        void onRoundLost();
+    }
+
+    /**
+     * Follows everything that moves the match: the inputs, in order, and the updates between them.
+     * Another copy of the match, restored from a save of this one, that gets the same inputs and updates,
+     * ends up in the same state.
+     */
+    public interface Recorder {
+        /**
+         * Called after an input was applied.
+         *
+         * @param fighter GameEvent.PLAYER, GameEvent.OPPONENT, or GameEvent.NO_FIGHTER for the inputs of the match
+         */
+        void onInput(int fighter, MatchInput input);
+
+        /**
+         * Called after each update, with its delta time, once the checksum of the tick is known.
+         */
+        void onUpdate(float deltaTime);
+    }
+
+    // rounds
+    public enum RoundState {
+        STARTING,
+        IN_PROGRESS,
+        ENDING
+    }
+
+    // without the copy values() makes at every restore
+    private static final RoundState[] ROUND_STATES = RoundState.values();
+
+    public static final float START_ROUND_DELAY = 2f;
+    public static final float END_ROUND_DELAY = 2f;
+    public static final int MAX_ROUNDS = 3;
+    public static final float MAX_ROUND_TIME = 99.99f;
+
+    // ticks whose checksums are kept, a few seconds of play
+    public static final int CHECKSUM_RING_CAPACITY = 256;
+    // ints of the state of the match itself in the snapshot
+    private static final int PACKED_MATCH_INTS = 8;
+
+    // fighters
+    private static final float PLAYER_START_POSITION_X = 16f;
+    private static final float OPPONENT_START_POSITION_X = 51f;
+    private static final float FIGHTER_START_POSITION_Y = 15f;
+
+    private final Fighter player;
+    private final Fighter opponent;
+    private final Listener listener;
+
+    // the fighters are entities of this world, updated by the systems
+    private final World world;
+    private final StateTimerSystem stateTimerSystem = new StateTimerSystem();
+    private final MovementSystem movementSystem = new MovementSystem();
+    private final StateMachineSystem stateMachineSystem = new StateMachineSystem();
+    private final RingSystem ringSystem = new RingSystem();
+    private final CombatSystem combatSystem = new CombatSystem();
+    private GameEventBus eventBus;
+    private Recorder recorder;
+
+    private RoundState roundState;
+    private float roundStateTime;
+    private int currentRound;
+    private int roundsWon = 0;
+    private int roundsLost = 0;
+    private float roundTime = MAX_ROUND_TIME;
+    private float roundTimer = MAX_ROUND_TIME;
+    private boolean over;
+    private long tick;
+    private float fightingTime;
+
+    // in fixed point mode, the timers are kept in fixed point, and the floats above are exact copies of them
+    private final boolean fixedPoint;
+    private int fixedRoundStateTime;
+    private int fixedRoundTimer;
+    private int fixedFightingTime;
+
+    // the state packed into ints to hash it, and the rolling checksums of the last ticks
+    private int[] snapshot = new int[0];
+    private int checksum;
+    private final ChecksumRing checksums = new ChecksumRing(CHECKSUM_RING_CAPACITY);
+
+    public Match(Fighter player, Fighter opponent, Listener listener) {
+        if (player.world() != opponent.world()) {
+            throw new IllegalArgumentException("The fighters of a match must be in the same world");
+        }
+        this.player = player;
+        this.opponent = opponent;
+        this.listener = listener;
+        this.world = player.world();
+        this.fixedPoint = world.isFixedPoint();
+    }
+
+    /**
+     * Sets the bus the match publishes its events to (hits, blocks, rounds and knockouts).
+     */
+    public void setEventBus(GameEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    public GameEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Sets the recorder that follows the inputs and updates of the match, or null for none.
+     */
+    public void setRecorder(Recorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public Recorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Applies an input to the match, and passes it on to the recorder.
+     *
+     * @param fighter GameEvent.PLAYER or GameEvent.OPPONENT for the buttons of a fighter,
+     *                ignored for SKIP_ROUND_DELAY and START
+     */
+    public void input(int fighter, MatchInput input) {
+        Fighter target = fighter == GameEvent.OPPONENT ? opponent : player;
+        switch (input) {
+            case MOVE_LEFT: target.moveLeft(); break;
+            case MOVE_RIGHT: target.moveRight(); break;
+            case MOVE_UP: target.moveUp(); break;
+            case MOVE_DOWN: target.moveDown(); break;
+            case STOP_MOVING_LEFT: target.stopMovingLeft(); break;
+            case STOP_MOVING_RIGHT: target.stopMovingRight(); break;
+            case STOP_MOVING_UP: target.stopMovingUp(); break;
+            case STOP_MOVING_DOWN: target.stopMovingDown(); break;
+            case BLOCK: target.block(); break;
+            case STOP_BLOCKING: target.stopBlocking(); break;
+            case PUNCH: target.punch(); break;
+            case KICK: target.kick(); break;
+            case SKIP_ROUND_DELAY: skipRoundDelay(); break;
+            case START: start(); break;
+            default: break;
+        }
+        if (recorder != null) {
+            recorder.onInput(fighter, input);
+        }
+    }
+
+    public void start() {
+        over = false;
+        roundsWon = 0;
+        roundsLost = 0;
+        setFightingTime(0f);
+        checksum = 0;
+        checksums.clear();
+        publishEvent(GameEvent.Type.MATCH_START, GameEvent.NO_FIGHTER, 0f, 0);
+
+        // start the first round
+        currentRound = 1;
+        startRound();
+    }
+
+    private void startRound() {
+        // initialize the fighters
+        player.getReady(PLAYER_START_POSITION_X, FIGHTER_START_POSITION_Y);
+        opponent.getReady(OPPONENT_START_POSITION_X, FIGHTER_START_POSITION_Y);
+
+        // set the round state
+        roundState = RoundState.STARTING;
+        setRoundStateTime(0f);
+        setRoundTimer(roundTime);
+    }
+
+    private void endRound() {
+        // end the round
+        roundState = RoundState.ENDING;
+        setRoundStateTime(0f);
+    }
+
+    private void winRound() {
+        // player wins the round
+        player.win();
+        opponent.lose();
+        roundsWon++;
+        listener.onRoundWon();
+        publishEvent(GameEvent.Type.ROUND_END, GameEvent.PLAYER, currentRound, 0);
+
+        // end the round
+        endRound();
+    }
+
+    private void loseRound() {
+        // player loses the round
+        player.lose();
+        opponent.win();
+        roundsLost++;
+        listener.onRoundLost();
+        publishEvent(GameEvent.Type.ROUND_END, GameEvent.OPPONENT, currentRound, 0);
+
+        // end the round
+        endRound();
+    }
+
+    /**
+     * Puts the fighters back where a round starts them, in their first state, but with the life they had.
+     * It's a training control: the match doesn't go through an input, so recorders don't see it.
+     */
+    public void resetPositions() {
+        float playerLife = player.getLife();
+        float opponentLife = opponent.getLife();
+        player.getReady(PLAYER_START_POSITION_X, FIGHTER_START_POSITION_Y);
+        opponent.getReady(OPPONENT_START_POSITION_X, FIGHTER_START_POSITION_Y);
+        player.setLife(playerLife);
+        opponent.setLife(opponentLife);
+    }
+
+    /**
+     * Skips the delay of a starting or ending round.
+     */
+    public void skipRoundDelay() {
+        if (roundState == RoundState.STARTING) {
+            setRoundStateTime(START_ROUND_DELAY);
+        } else if (roundState == RoundState.ENDING) {
+            setRoundStateTime(END_ROUND_DELAY);
+        }
+    }
+
+    /**
+     * Sets how long the rounds last, MAX_ROUND_TIME by default, from the next round on,
+     * or from this one if it hasn't started yet. It isn't saved with the match:
+     * whoever follows or replays it must set the same.
+     */
+    public void setRoundTime(float roundTime) {
+        this.roundTime = roundTime;
+        if (roundState == RoundState.STARTING) {
+            setRoundTimer(roundTime);
+        }
+    }
+
+    private void setRoundStateTime(float time) {
+        fixedRoundStateTime = FixedPoint.fromFloat(time);
+        roundStateTime = fixedPoint ? FixedPoint.toFloat(fixedRoundStateTime) : time;
+    }
+
+    private void setRoundTimer(float time) {
+        fixedRoundTimer = FixedPoint.fromFloat(time);
+        roundTimer = fixedPoint ? FixedPoint.toFloat(fixedRoundTimer) : time;
+    }
+
+    private void setFightingTime(float time) {
+        fixedFightingTime = FixedPoint.fromFloat(time);
+        fightingTime = fixedPoint ? FixedPoint.toFloat(fixedFightingTime) : time;
+    }
+
+    private void publishEvent(GameEvent.Type type, int fighter, float value, int detail) {
+        if (eventBus != null) {
+            eventBus.publish(type, tick, fighter, value, detail);
+        }
+    }
+
+    public void update(float deltaTime) {
+        // count the ticks that moved the simulation forward
+        if (deltaTime > 0f) {
+            tick++;
+        }
+        int fixedDelta = FixedPoint.fromFloat(deltaTime);
+
+        if (roundState == RoundState.STARTING && roundStateTime >= START_ROUND_DELAY) {
+            // if the starting delay is over, start the round
+            roundState = RoundState.IN_PROGRESS;
+            setRoundStateTime(0f);
+            publishEvent(GameEvent.Type.ROUND_START, GameEvent.NO_FIGHTER, currentRound, 0);
+        } else if (roundState == RoundState.ENDING && roundStateTime >= END_ROUND_DELAY) {
+            // if the end round delay has been reached and player has won or lost more than
+            // half of the rounds, end the match; otherwise, start a new round
+            if (roundsWon > MAX_ROUNDS / 2 || roundsLost > MAX_ROUNDS / 2) {
+                if (!over) {
+                    publishEvent(GameEvent.Type.MATCH_END,
+                            roundsWon > roundsLost ? GameEvent.PLAYER : GameEvent.OPPONENT, fightingTime, 0);
+                }
+                over = true;
+            } else {
+                currentRound++;
+                startRound();
+            }
+        } else {
+            // otherwise, increment the round state time by delta time
+            if (fixedPoint) {
+                fixedRoundStateTime += fixedDelta;
+                roundStateTime = FixedPoint.toFloat(fixedRoundStateTime);
+            } else {
+                roundStateTime += deltaTime;
+            }
+        }
+
+        // update the fighters: timers, movement, then the states that end with their animation
+        stateTimerSystem.update(world, deltaTime);
+        movementSystem.update(world, deltaTime);
+        stateMachineSystem.update(world);
+
+        // make sure the fighters are facing each other
+        if (player.getPosition().x <= opponent.getPosition().x) {
+            player.faceRight();
+            opponent.faceLeft();
+        } else {
+            player.faceLeft();
+            opponent.faceRight();
+        }
+
+        // keep the fighters within the bounds of the ring
+        ringSystem.update(world);
+
+        if (roundState == RoundState.IN_PROGRESS) {
+            // if the round is in progress, decrease the round timer by delta time
+            if (fixedPoint) {
+                fixedRoundTimer -= fixedDelta;
+                fixedFightingTime += fixedDelta;
+                roundTimer = FixedPoint.toFloat(fixedRoundTimer);
+                fightingTime = FixedPoint.toFloat(fixedFightingTime);
+            } else {
+                roundTimer -= deltaTime;
+                fightingTime += deltaTime;
+            }
+
+            if (roundTimer <= 0f) {
+                // if the round timer has reached zero, end the round
+                publishEvent(GameEvent.Type.TIME_UP, GameEvent.NO_FIGHTER, 0f, 0);
+                if (player.getLife() >= opponent.getLife()) {
+                    winRound();
+                } else {
+                    loseRound();
+                }
+            }
+
+            // land the attacks of fighters within contact distance, unless the time just ran out
+            if (roundState == RoundState.IN_PROGRESS) {
+                landHits();
+            }
+        }
+
+        // hash the state of the tick, chained to the checksum of the tick before
+        if (deltaTime > 0f) {
+            int length = pack();
+            checksum = Checksum.xxHash32(snapshot, length, checksum);
+            checksums.record(tick, checksum);
+        }
+
+        if (recorder != null) {
+            recorder.onUpdate(deltaTime);
+        }
+    }
+
+    /**
+     * Lands the attacks that connect, and reports every one of them. A knockout is the last hit of the update
+     * (see CombatSystem), so the round is decided once they're all reported.
+     */
+    private void landHits() {
+        combatSystem.update(world);
+        for (int i = 0; i < combatSystem.hitCount(); i++) {
+            Fighter attacker = fighter(combatSystem.hitAttacker(i));
+            Fighter defender = fighter(combatSystem.hitDefender(i));
+            listener.onHit(attacker, defender);
+            publishEvent(defender.isBlocking() ? GameEvent.Type.BLOCK : GameEvent.Type.HIT,
+                    eventFighter(defender), combatSystem.hitDamage(i), combatSystem.hitAttack(i));
+
+            // check if the defender is knocked out
+            if (defender.hasLost()) {
+                publishEvent(GameEvent.Type.KO, eventFighter(defender), roundTime - roundTimer, 0);
+                if (defender == opponent) {
+                    winRound();
+                } else {
+                    loseRound();
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs the state of the match and the world into the snapshot.
+     *
+     * @return the number of ints written
+     */
+    private int pack() {
+        int size = PACKED_MATCH_INTS + world.packedSize();
+        if (snapshot.length < size) {
+            snapshot = new int[size];
+        }
+        snapshot[0] = roundState.ordinal();
+        snapshot[1] = currentRound;
+        snapshot[2] = roundsWon;
+        snapshot[3] = roundsLost;
+        snapshot[4] = over ? 1 : 0;
+        snapshot[5] = fixedPoint ? fixedRoundStateTime : Float.floatToIntBits(roundStateTime);
+        snapshot[6] = fixedPoint ? fixedRoundTimer : Float.floatToIntBits(roundTimer);
+        snapshot[7] = fixedPoint ? fixedFightingTime : Float.floatToIntBits(fightingTime);
+        return world.pack(snapshot, PACKED_MATCH_INTS);
+    }
+
+    /**
+     * Writes the whole simulation state of the match and its fighters into a buffer, at its position.
+     * Only the state is saved: a match restoring it must have been built the same way,
+     * with fighters of the same state machine and moves, in the same world mode.
+     */
+    public void save(ByteBuffer buffer) {
+        buffer.put((byte) roundState.ordinal());
+        buffer.putInt(currentRound);
+        buffer.putInt(roundsWon);
+        buffer.putInt(roundsLost);
+        buffer.put((byte) (over ? 1 : 0));
+        buffer.putLong(tick);
+        buffer.putFloat(roundStateTime);
+        buffer.putFloat(roundTimer);
+        buffer.putFloat(fightingTime);
+        buffer.putInt(fixedRoundStateTime);
+        buffer.putInt(fixedRoundTimer);
+        buffer.putInt(fixedFightingTime);
+        buffer.putInt(checksum);
+        world.save(buffer);
+    }
+
+    /**
+     * Reads back the state written by save(), from the position of a buffer.
+     * The checksums start over from the tick of the save.
+     * A state that doesn't fit this match leaves it as it was.
+     *
+     * @throws IllegalArgumentException if the state doesn't fit this match
+     */
+    public void restore(ByteBuffer buffer) {
+        int state = buffer.get();
+        if (state < 0 || state >= ROUND_STATES.length) {
+            throw new IllegalArgumentException("Unknown round state " + state);
+        }
+        int savedRound = buffer.getInt();
+        if (savedRound < 1 || savedRound > MAX_ROUNDS) {
+            throw new IllegalArgumentException("No round " + savedRound + " in a match");
+        }
+        int savedRoundsWon = buffer.getInt();
+        int savedRoundsLost = buffer.getInt();
+        boolean savedOver = buffer.get() != 0;
+        long savedTick = buffer.getLong();
+        float savedRoundStateTime = buffer.getFloat();
+        float savedRoundTimer = buffer.getFloat();
+        float savedFightingTime = buffer.getFloat();
+        int savedFixedRoundStateTime = buffer.getInt();
+        int savedFixedRoundTimer = buffer.getInt();
+        int savedFixedFightingTime = buffer.getInt();
+        int savedChecksum = buffer.getInt();
+        // checks the whole world before changing anything, so the match is only changed once it fits
+        world.restore(buffer);
+
+        roundState = ROUND_STATES[state];
+        currentRound = savedRound;
+        roundsWon = savedRoundsWon;
+        roundsLost = savedRoundsLost;
+        over = savedOver;
+        tick = savedTick;
+        roundStateTime = savedRoundStateTime;
+        roundTimer = savedRoundTimer;
+        fightingTime = savedFightingTime;
+        fixedRoundStateTime = savedFixedRoundStateTime;
+        fixedRoundTimer = savedFixedRoundTimer;
+        fixedFightingTime = savedFixedFightingTime;
+        checksum = savedChecksum;
+        checksums.clear();
+        checksums.record(tick, checksum);
+    }
+
+    private Fighter fighter(int entity) {
+        return entity == player.entity() ? player : opponent;
+    }
+
+    private int eventFighter(Fighter fighter) {
+        return fighter == player ? GameEvent.PLAYER : GameEvent.OPPONENT;
+    }
+
+    public boolean areWithinContactDistance(Vector2 position1, Vector2 position2) {
+        // determine if the fighters are within contact distance
+        return CombatSystem.areWithinContactDistance(position1.x, position1.y, position2.x, position2.y);
+    }
+
+    public World world() {
+        return world;
+    }
+
+    public Fighter player() {
+        return player;
+    }
+
+    public Fighter opponent() {
+        return opponent;
+    }
+
+    public RoundState getRoundState() {
+        return roundState;
+    }
+
+    public float getRoundStateTime() {
+        return roundStateTime;
+    }
+
+    public int getCurrentRound() {
+        return currentRound;
+    }
+
+    public int getRoundsWon() {
+        return roundsWon;
+    }
+
+    public int getRoundsLost() {
+        return roundsLost;
+    }
+
+    public float getRoundTimer() {
+        return roundTimer;
+    }
+
+    /**
+     * @return the number of updates that moved the simulation forward since the game started
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return the rolling checksum of the state of the match and its fighters, as of the last tick;
+     *         in fixed point mode, the same inputs give the same checksums on every platform
+     */
+    public int getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return the checksums of the last ticks, by tick (see getTick())
+     */
+    public ChecksumRing getChecksums() {
+        return checksums;
+    }
+
+    /**
+     * @return the time spent in rounds in progress since the match started, in seconds
+     */
+    public float getFightingTime() {
+        return fightingTime;
+    }
+
+    /**
+     * @return true once a fighter has won more than half of the rounds
+     * and the end round delay is over
+     */
+    public boolean isOver() {
+        return over;
+    }
+}
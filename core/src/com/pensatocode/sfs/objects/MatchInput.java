@@ -0,0 +1,36 @@
+package com.pensatocode.sfs.objects;
+
+/**
+ * Everything that can be done to a match from outside of it: the buttons of the fighters,
+ * skipping the delay between rounds, and starting a new match.
+ * Going through Match.input() with these, instead of calling the fighters directly,
+ * lets the inputs be recorded and played back on another copy of the match (see Match.Recorder).
+ */
+public enum MatchInput {
+    MOVE_LEFT,
+    MOVE_RIGHT,
+    MOVE_UP,
+    MOVE_DOWN,
+    STOP_MOVING_LEFT,
+    STOP_MOVING_RIGHT,
+    STOP_MOVING_UP,
+    STOP_MOVING_DOWN,
+    BLOCK,
+    STOP_BLOCKING,
+    PUNCH,
+    KICK,
+    SKIP_ROUND_DELAY,
+    START;
+
+    private static final MatchInput[] VALUES = values();
+
+    /**
+     * @return the input with an ordinal, without the copy values() makes
+     */
+    public static MatchInput of(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown match input " + ordinal);
+        }
+        return VALUES[ordinal];
+    }
+}
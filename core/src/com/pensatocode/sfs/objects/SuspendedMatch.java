@@ -0,0 +1,197 @@
+package com.pensatocode.sfs.objects;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.resources.GlobalVariables;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * A match in progress, saved when the game goes to the background, so it can go on where it was
+ * if the system kills the game before the player comes back to it.
+ * The save is a small binary file, written by hand in a buffer allocated once, so it takes a fraction
+ * of a millisecond, well within the time the system gives a paused app:
+ * <pre>
+ * int   magic ('SFSM')
+ * short version
+ * byte  difficulty
+ * byte  world mode (1 for fixed point)
+ * 2 x   (short name length, name in UTF-8, int color in RGBA8888), for the player and the opponent
+ * int   length of the match state, then the match state, written by Match.save()
+ * int   CRC32 of everything before it
+ * </pre>
+ * The file is written next to the save and moved over it, so there's always a whole save or the previous one.
+ * It isn't forced to the disk: a killed app doesn't lose what it wrote, and a save torn by a power cut
+ * fails its CRC, and the game simply starts at the main menu.
+ */
+public class SuspendedMatch {
+    public static final int MAGIC = 0x5346534D;
+    public static final short VERSION = 3;
+
+    // a match state takes a few hundred bytes
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final GlobalVariables.Difficulty[] DIFFICULTIES = GlobalVariables.Difficulty.values();
+
+    private final File file;
+    private final File temporary;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final Color color = new Color();
+    private GlobalVariables.Difficulty difficulty = GlobalVariables.Difficulty.EASY;
+
+    public SuspendedMatch(File file) {
+        this.file = file;
+        this.temporary = new File(file.getPath() + ".tmp");
+    }
+
+    /**
+     * @return whether there's a saved match to go on with
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Saves a match in progress, replacing the previous save.
+     */
+    public void save(Match match, GlobalVariables.Difficulty difficulty) throws IOException {
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put((byte) difficulty.ordinal());
+        buffer.put((byte) (match.world().isFixedPoint() ? 1 : 0));
+        putFighter(match.player());
+        putFighter(match.opponent());
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+        match.save(buffer);
+        buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+        crc.reset();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create the save directory " + parent);
+        }
+        try (FileOutputStream output = new FileOutputStream(temporary)) {
+            FileChannel channel = output.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void putFighter(Fighter fighter) {
+        byte[] name = fighter.getName().getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putInt(Color.rgba8888(fighter.getColor()));
+    }
+
+    /**
+     * Puts a match, and its fighters' names and colors, back in the saved state.
+     * A save that can't be read, or doesn't fit the match, is deleted.
+     *
+     * @return false if there was no save, or it couldn't be restored
+     */
+    public boolean restore(Match match) {
+        if (!file.exists()) {
+            return false;
+        }
+        try {
+            read();
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IllegalArgumentException("not a match save, or an unsupported version");
+            }
+            int difficultyIndex = buffer.get();
+            if (difficultyIndex < 0 || difficultyIndex >= DIFFICULTIES.length) {
+                throw new IllegalArgumentException("unknown difficulty " + difficultyIndex);
+            }
+            if ((buffer.get() != 0) != match.world().isFixedPoint()) {
+                throw new IllegalArgumentException("saved in another world mode");
+            }
+            String playerName = getName();
+            int playerColor = buffer.getInt();
+            String opponentName = getName();
+            int opponentColor = buffer.getInt();
+            int length = buffer.getInt();
+            buffer.limit(buffer.position() + length);
+            match.restore(buffer);
+
+            difficulty = DIFFICULTIES[difficultyIndex];
+            match.player().setName(playerName);
+            Color.rgba8888ToColor(color, playerColor);
+            match.player().setColor(new Color(color));
+            match.opponent().setName(opponentName);
+            Color.rgba8888ToColor(color, opponentColor);
+            match.opponent().setColor(new Color(color));
+            return true;
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            // a broken save is no use, start over without it
+            clear();
+            return false;
+        }
+    }
+
+    /**
+     * Reads the save into the buffer, checking its CRC.
+     */
+    private void read() throws IOException {
+        buffer.clear();
+        try (FileInputStream input = new FileInputStream(file)) {
+            FileChannel channel = input.getChannel();
+            if (channel.size() > BUFFER_SIZE || channel.size() < 4) {
+                throw new IOException("A match save of " + channel.size() + " bytes can't be right");
+            }
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+        }
+        buffer.flip();
+        int end = buffer.limit() - 4;
+        crc.reset();
+        crc.update(buffer.array(), 0, end);
+        if (buffer.getInt(end) != (int) crc.getValue()) {
+            throw new IOException("The match save is corrupted");
+        }
+        buffer.limit(end);
+    }
+
+    private String getName() {
+        int length = buffer.getShort();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("broken name");
+        }
+        String name = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return name;
+    }
+
+    /**
+     * @return the difficulty of the last match restored
+     */
+    public GlobalVariables.Difficulty difficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Deletes the save, once the match is over or left.
+     */
+    public void clear() {
+        file.delete();
+        temporary.delete();
+    }
+}
@@ -0,0 +1,77 @@
+package com.pensatocode.sfs.profile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The career of a fighter: the totals of all the matches the player fought with it.
+ */
+public class FighterStats {
+    private int matches;
+    private int wins;
+    private int roundsWon;
+    private int roundsLost;
+    private float fightingTime;
+
+    void add(MatchResult result) {
+        matches++;
+        if (result.isWin()) {
+            wins++;
+        }
+        roundsWon += result.roundsWon;
+        roundsLost += result.roundsLost;
+        fightingTime += result.fightingTime;
+    }
+
+    void set(FighterStats other) {
+        matches = other.matches;
+        wins = other.wins;
+        roundsWon = other.roundsWon;
+        roundsLost = other.roundsLost;
+        fightingTime = other.fightingTime;
+    }
+
+    void write(DataOutput output) throws IOException {
+        output.writeInt(matches);
+        output.writeInt(wins);
+        output.writeInt(roundsWon);
+        output.writeInt(roundsLost);
+        output.writeFloat(fightingTime);
+    }
+
+    void read(DataInput input) throws IOException {
+        matches = input.readInt();
+        wins = input.readInt();
+        roundsWon = input.readInt();
+        roundsLost = input.readInt();
+        fightingTime = input.readFloat();
+    }
+
+    public int getMatches() {
+        return matches;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getLosses() {
+        return matches - wins;
+    }
+
+    public int getRoundsWon() {
+        return roundsWon;
+    }
+
+    public int getRoundsLost() {
+        return roundsLost;
+    }
+
+    /**
+     * @return the time spent in rounds in progress, in seconds
+     */
+    public float getFightingTime() {
+        return fightingTime;
+    }
+}
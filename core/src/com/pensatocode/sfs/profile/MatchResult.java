@@ -0,0 +1,46 @@
+package com.pensatocode.sfs.profile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The result of a match, as kept in the match history of the profile.
+ */
+public class MatchResult {
+    // when the match ended, in milliseconds since the epoch
+    public final long time;
+    public final String fighter;
+    public final String opponent;
+    public final int roundsWon;
+    public final int roundsLost;
+    // the time spent in rounds in progress, in seconds
+    public final float fightingTime;
+
+    public MatchResult(long time, String fighter, String opponent, int roundsWon, int roundsLost, float fightingTime) {
+        this.time = time;
+        this.fighter = fighter;
+        this.opponent = opponent;
+        this.roundsWon = roundsWon;
+        this.roundsLost = roundsLost;
+        this.fightingTime = fightingTime;
+    }
+
+    public boolean isWin() {
+        return roundsWon > roundsLost;
+    }
+
+    void write(DataOutput output) throws IOException {
+        output.writeLong(time);
+        output.writeUTF(fighter);
+        output.writeUTF(opponent);
+        output.writeByte(roundsWon);
+        output.writeByte(roundsLost);
+        output.writeFloat(fightingTime);
+    }
+
+    static MatchResult read(DataInput input) throws IOException {
+        return new MatchResult(input.readLong(), input.readUTF(), input.readUTF(),
+                input.readUnsignedByte(), input.readUnsignedByte(), input.readFloat());
+    }
+}
@@ -0,0 +1,395 @@
+package com.pensatocode.sfs.profile;
+
+import com.badlogic.gdx.utils.LongArray;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The files of the profile: an append-only log of records, and an index that saves reading it.
+ *
+ * The log is a header followed by records, each one framed with its length and a CRC32,
+ * so a record cut short by a crash is found and dropped at the next start, along with anything after it.
+ * <pre>
+ * header: int magic ('SFSP'), short version, short unused, long generation
+ * record: int length (of the type and the payload), byte type, payload, int CRC32 (of the type and the payload)
+ * </pre>
+ * The index is a checkpoint of the log: the state its records add up to (see ProfileState) and the offset
+ * of every match record, as of a point in the log. Starting up reads the index and only the records after it,
+ * instead of the whole log. The index names the generation of the log it was made from; the compaction, which
+ * rewrites the log without the overwritten settings, starts a new generation, so an index of the old log
+ * is never taken for one of the new log.
+ * Both the index and the compacted log are written to a temporary file first, then moved over the old one,
+ * so a crash leaves either the old file or the new one, never half of one.
+ */
+class ProfileLog {
+    static final byte MATCH = 1;
+    static final byte SETTING = 2;
+
+    private static final int LOG_MAGIC = 0x53465350;
+    private static final int INDEX_MAGIC = 0x53465349;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    // the length before a record and the CRC after it
+    private static final int RECORD_OVERHEAD = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final File logFile;
+    private final File indexFile;
+    private final CRC32 crc = new CRC32();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long generation;
+    // the end of the last whole record
+    private long end;
+
+    ProfileLog(File logFile, File indexFile) {
+        this.logFile = logFile;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Opens the log, creating it if needed, and loads it into a state and the offsets of the matches:
+     * from the index, then the records after it.
+     */
+    void open(ProfileState state, LongArray matchOffsets) throws IOException {
+        File parent = logFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create the profile directory " + parent);
+        }
+        file = new RandomAccessFile(logFile, "rw");
+        channel = file.getChannel();
+        if (channel.size() < HEADER_SIZE) {
+            generation = System.currentTimeMillis();
+            writeHeader(channel, generation);
+            channel.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0L);
+            if (header.getInt(0) != LOG_MAGIC || header.getShort(4) != VERSION) {
+                throw new IOException("Not a profile log (or unsupported version): " + logFile);
+            }
+            generation = header.getLong(8);
+        }
+
+        long from = readIndex(state, matchOffsets);
+        if (from < 0L) {
+            // no index for this log: read all of it
+            state.set(new ProfileState());
+            matchOffsets.clear();
+            from = HEADER_SIZE;
+        }
+        end = replay(from, state, matchOffsets);
+        if (end < channel.size()) {
+            // the end of a record that was being written when the game stopped
+            channel.truncate(end);
+            channel.force(true);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(LOG_MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) 0);
+        header.putLong(generation);
+        header.flip();
+        channel.write(header, 0L);
+    }
+
+    /**
+     * Applies the records from an offset to the end of the log, or to the first one that isn't whole.
+     *
+     * @return the end of the last whole record
+     */
+    private long replay(long from, ProfileState state, LongArray matchOffsets) throws IOException {
+        channel.position(from);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        long offset = from;
+        byte[] record = new byte[256];
+        try {
+            while (true) {
+                int length = input.readInt();
+                if (length < 1 || length > MAX_RECORD_SIZE) {
+                    return offset;
+                }
+                if (record.length < length) {
+                    record = new byte[length];
+                }
+                input.readFully(record, 0, length);
+                int checksum = input.readInt();
+                crc.reset();
+                crc.update(record, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return offset;
+                }
+                apply(record, length, offset, state, matchOffsets);
+                offset += RECORD_OVERHEAD + length;
+            }
+        } catch (EOFException e) {
+            return offset;
+        }
+    }
+
+    private static void apply(byte[] record, int length, long offset, ProfileState state, LongArray matchOffsets)
+            throws IOException {
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(record, 1, length - 1));
+        if (record[0] == MATCH) {
+            state.apply(MatchResult.read(payload));
+            matchOffsets.add(offset);
+        } else if (record[0] == SETTING) {
+            state.apply(payload.readUTF(), payload.readUTF());
+        }
+    }
+
+    /**
+     * Encodes a match record.
+     */
+    static byte[] encode(MatchResult result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(MATCH);
+        result.write(output);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes a setting record.
+     */
+    static byte[] encode(String key, String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(SETTING);
+        output.writeUTF(key);
+        output.writeUTF(value);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Appends records, and waits until they're on the disk.
+     *
+     * @param offsets receives the offset of each record
+     */
+    void append(byte[][] records, int count, long[] offsets) throws IOException {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            size += RECORD_OVERHEAD + records[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        long offset = end;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = offset;
+            offset += frame(buffer, records[i]);
+        }
+        buffer.flip();
+        long position = end;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+        end = position;
+    }
+
+    private int frame(ByteBuffer buffer, byte[] record) {
+        crc.reset();
+        crc.update(record, 0, record.length);
+        buffer.putInt(record.length);
+        buffer.put(record);
+        buffer.putInt((int) crc.getValue());
+        return RECORD_OVERHEAD + record.length;
+    }
+
+    /**
+     * Reads the match record at an offset.
+     */
+    MatchResult readMatch(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        channel.read(length, offset);
+        ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+        while (record.hasRemaining()) {
+            if (channel.read(record, offset + 4 + record.position()) < 0) {
+                throw new EOFException("The match record at " + offset + " is cut short");
+            }
+        }
+        byte[] bytes = record.array();
+        if (bytes[0] != MATCH) {
+            throw new IOException("No match record at " + offset);
+        }
+        return MatchResult.read(new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1)));
+    }
+
+    /**
+     * Rewrites the log with its match records and the latest value of each setting, in a new generation,
+     * and writes the index of the new log.
+     *
+     * @param matchOffsets the offsets of the matches, replaced by the ones in the new log
+     */
+    void compact(ProfileState state, LongArray matchOffsets) throws IOException {
+        File temporary = new File(logFile.getPath() + TEMPORARY_SUFFIX);
+        long newGeneration = Math.max(generation + 1, System.currentTimeMillis());
+        LongArray newOffsets = new LongArray(matchOffsets.size);
+        ProfileState newState = new ProfileState();
+
+        try (RandomAccessFile output = new RandomAccessFile(temporary, "rw")) {
+            output.setLength(0L);
+            FileChannel outputChannel = output.getChannel();
+            writeHeader(outputChannel, newGeneration);
+            long position = HEADER_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORD_SIZE + RECORD_OVERHEAD);
+            for (int i = 0; i < matchOffsets.size; i++) {
+                MatchResult result = readMatch(matchOffsets.get(i));
+                buffer.clear();
+                frame(buffer, encode(result));
+                buffer.flip();
+                newOffsets.add(position);
+                newState.apply(result);
+                while (buffer.hasRemaining()) {
+                    position += outputChannel.write(buffer, position);
+                }
+            }
+            for (Map.Entry<String, String> setting : state.settings.entrySet()) {
+                buffer.clear();
+                frame(buffer, encode(setting.getKey(), setting.getValue()));
+                buffer.flip();
+                newState.apply(setting.getKey(), setting.getValue());
+                while (buffer.hasRemaining()) {
+                    position += outputChannel.write(buffer, position);
+                }
+            }
+            outputChannel.force(true);
+        }
+
+        // switch to the new log
+        channel.close();
+        Files.move(temporary.toPath(), logFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        file = new RandomAccessFile(logFile, "rw");
+        channel = file.getChannel();
+        generation = newGeneration;
+        end = channel.size();
+        state.set(newState);
+        matchOffsets.clear();
+        matchOffsets.addAll(newOffsets);
+        writeIndex(state, matchOffsets);
+    }
+
+    /**
+     * Writes the index of the log as it is now.
+     */
+    void writeIndex(ProfileState state, LongArray matchOffsets) throws IOException {
+        File temporary = new File(indexFile.getPath() + TEMPORARY_SUFFIX);
+        try (FileOutputStream stream = new FileOutputStream(temporary)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream), new CRC32());
+            DataOutputStream output = new DataOutputStream(checked);
+            output.writeInt(INDEX_MAGIC);
+            output.writeShort(VERSION);
+            output.writeLong(generation);
+            output.writeLong(end);
+            state.write(output);
+            // the offsets only grow, so they're stored as differences, most of them a couple of bytes
+            output.writeInt(matchOffsets.size);
+            long previous = 0L;
+            for (int i = 0; i < matchOffsets.size; i++) {
+                writeVarLong(output, matchOffsets.get(i) - previous);
+                previous = matchOffsets.get(i);
+            }
+            output.flush();
+            output.writeInt((int) checked.getChecksum().getValue());
+            output.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary.toPath(), indexFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the index, if it's whole and was made from this log.
+     *
+     * @return the offset of the log it covers, or -1 if there's no usable index
+     */
+    private long readIndex(ProfileState state, LongArray matchOffsets) {
+        if (!indexFile.exists()) {
+            return -1L;
+        }
+        try (FileInputStream stream = new FileInputStream(indexFile)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(stream), new CRC32());
+            DataInputStream input = new DataInputStream(checked);
+            if (input.readInt() != INDEX_MAGIC || input.readShort() != VERSION || input.readLong() != generation) {
+                return -1L;
+            }
+            long covered = input.readLong();
+            if (covered < HEADER_SIZE || covered > channel.size()) {
+                return -1L;
+            }
+            state.read(input);
+            int matchCount = input.readInt();
+            matchOffsets.clear();
+            matchOffsets.ensureCapacity(matchCount);
+            long offset = 0L;
+            for (int i = 0; i < matchCount; i++) {
+                offset += readVarLong(input);
+                matchOffsets.add(offset);
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (input.readInt() != expected) {
+                return -1L;
+            }
+            return covered;
+        } catch (IOException e) {
+            // a broken index only costs a full read of the log
+            return -1L;
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7fL) != 0L) {
+            output.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid number in the profile index");
+    }
+
+    long end() {
+        return end;
+    }
+
+    void close() throws IOException {
+        if (file != null) {
+            file.close();
+            file = null;
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.pensatocode.sfs.profile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What the records of the profile log add up to: the latest value of each setting,
+ * the stats of each fighter, and how many matches and records there are.
+ * It's small however many matches were played, which is what keeps the startup fast.
+ */
+class ProfileState {
+    final LinkedHashMap<String, String> settings = new LinkedHashMap<>();
+    final LinkedHashMap<String, FighterStats> stats = new LinkedHashMap<>();
+    int matchCount;
+    // setting records in the log, the ones overwritten since are garbage for the compaction
+    int settingRecords;
+
+    void apply(MatchResult result) {
+        FighterStats fighterStats = stats.get(result.fighter);
+        if (fighterStats == null) {
+            fighterStats = new FighterStats();
+            stats.put(result.fighter, fighterStats);
+        }
+        fighterStats.add(result);
+        matchCount++;
+    }
+
+    void apply(String key, String value) {
+        settings.put(key, value);
+        settingRecords++;
+    }
+
+    /**
+     * @return the setting records that were overwritten by later ones
+     */
+    int supersededRecords() {
+        return settingRecords - settings.size();
+    }
+
+    void set(ProfileState other) {
+        settings.clear();
+        settings.putAll(other.settings);
+        stats.clear();
+        for (Map.Entry<String, FighterStats> entry : other.stats.entrySet()) {
+            FighterStats copy = new FighterStats();
+            copy.set(entry.getValue());
+            stats.put(entry.getKey(), copy);
+        }
+        matchCount = other.matchCount;
+        settingRecords = other.settingRecords;
+    }
+
+    void write(DataOutput output) throws IOException {
+        output.writeInt(matchCount);
+        output.writeInt(settingRecords);
+        output.writeInt(settings.size());
+        for (Map.Entry<String, String> entry : settings.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeUTF(entry.getValue());
+        }
+        output.writeInt(stats.size());
+        for (Map.Entry<String, FighterStats> entry : stats.entrySet()) {
+            output.writeUTF(entry.getKey());
+            entry.getValue().write(output);
+        }
+    }
+
+    void read(DataInput input) throws IOException {
+        settings.clear();
+        stats.clear();
+        matchCount = input.readInt();
+        settingRecords = input.readInt();
+        int settingCount = input.readInt();
+        for (int i = 0; i < settingCount; i++) {
+            settings.put(input.readUTF(), input.readUTF());
+        }
+        int fighterCount = input.readInt();
+        for (int i = 0; i < fighterCount; i++) {
+            String fighter = input.readUTF();
+            FighterStats fighterStats = new FighterStats();
+            fighterStats.read(input);
+            stats.put(fighter, fighterStats);
+        }
+    }
+}
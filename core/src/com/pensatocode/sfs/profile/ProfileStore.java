@@ -0,0 +1,273 @@
+package com.pensatocode.sfs.profile;
+
+import com.badlogic.gdx.utils.LongArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The player's profile, kept across restarts: the match history, the stats of each fighter,
+ * and the settings, like whether the music is on.
+ *
+ * Everything is stored in an append-only log (see ProfileLog). Changes are applied to the state in memory
+ * right away, so the game reads them back at once, and queued for a background thread, which appends them
+ * to the log in batches, once a second or so. The render thread never waits for the disk.
+ * Reading the history of a match is the exception: it reads the disk, through the offset of the match
+ * in the index kept in memory (a number per match).
+ *
+ * Now and then the background thread also writes the index of the log, so the next start only reads
+ * the records after it, and compacts the log once enough settings were overwritten.
+ */
+public class ProfileStore {
+    // settings
+    public static final String MUSIC_ENABLED = "musicEnabled";
+    public static final String SOUNDS_ENABLED = "soundsEnabled";
+    public static final String DIFFICULTY = "difficulty";
+
+    private static final String LOG_FILE = "profile.log";
+    private static final String INDEX_FILE = "profile.idx";
+    private static final long FLUSH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    // records appended between two indexes, so a start never has many records to read
+    private static final int RECORDS_PER_INDEX = 256;
+    // overwritten settings in the log before it's compacted
+    private static final int MAX_SUPERSEDED_RECORDS = 256;
+    private static final int INITIAL_QUEUE_CAPACITY = 16;
+
+    private final ProfileLog log;
+
+    // what the game sees: up to date with every change, written or not
+    private final ProfileState live = new ProfileState();
+
+    // what's in the log, owned by the writer thread, and the offsets of the matches in it
+    private final ProfileState written = new ProfileState();
+    private final LongArray matchOffsets = new LongArray();
+    private int recordsSinceIndex;
+
+    // the changes waiting to be written, and the ones being written
+    private final Object lock = new Object();
+    private ArrayList<Object> queue = new ArrayList<>(INITIAL_QUEUE_CAPACITY);
+    private ArrayList<Object> batch = new ArrayList<>(INITIAL_QUEUE_CAPACITY);
+    private boolean writing;
+    private Thread thread;
+    private volatile boolean running;
+    private IOException writeError;
+
+    /**
+     * Opens the profile in a directory, creating it if needed.
+     */
+    public ProfileStore(File directory) throws IOException {
+        log = new ProfileLog(new File(directory, LOG_FILE), new File(directory, INDEX_FILE));
+        log.open(written, matchOffsets);
+        live.set(written);
+    }
+
+    /**
+     * Starts writing the changes in the background.
+     */
+    public void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "profile-store");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void recordMatch(MatchResult result) {
+        live.apply(result);
+        enqueue(result);
+    }
+
+    public void putSetting(String key, String value) {
+        if (value.equals(live.settings.get(key))) {
+            return;
+        }
+        live.apply(key, value);
+        enqueue(new String[]{key, value});
+    }
+
+    public void putBoolean(String key, boolean value) {
+        putSetting(key, Boolean.toString(value));
+    }
+
+    public String getSetting(String key, String defaultValue) {
+        String value = live.settings.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = live.settings.get(key);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    /**
+     * @return the stats of a fighter, or null if the player never fought with it
+     */
+    public FighterStats stats(String fighter) {
+        return live.stats.get(fighter);
+    }
+
+    public int matchCount() {
+        return live.matchCount;
+    }
+
+    /**
+     * Reads a match of the history from the disk, writing the queued changes first if needed.
+     *
+     * @param number the number of the match, from 0 for the first one
+     */
+    public MatchResult match(int number) throws IOException {
+        if (number < 0 || number >= live.matchCount) {
+            throw new IllegalArgumentException("No match " + number + " in the history");
+        }
+        flush();
+        synchronized (log) {
+            return log.readMatch(matchOffsets.get(number));
+        }
+    }
+
+    private void enqueue(Object change) {
+        synchronized (lock) {
+            queue.add(change);
+        }
+    }
+
+    /**
+     * Waits until every change so far is on the disk.
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            if (thread == null || !running) {
+                writeQueued();
+            } else {
+                lock.notifyAll();
+                while (!queue.isEmpty() || writing) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while writing the profile", e);
+                    }
+                }
+            }
+            if (writeError != null) {
+                IOException error = writeError;
+                writeError = null;
+                throw error;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            synchronized (lock) {
+                if (queue.isEmpty()) {
+                    try {
+                        lock.wait(FLUSH_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            writeQueued();
+        }
+    }
+
+    /**
+     * Appends the queued changes to the log, and writes the index or compacts the log when it's time.
+     */
+    private void writeQueued() {
+        synchronized (lock) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            ArrayList<Object> swap = batch;
+            batch = queue;
+            queue = swap;
+            writing = true;
+        }
+
+        try {
+            byte[][] records = new byte[batch.size()][];
+            for (int i = 0; i < records.length; i++) {
+                Object change = batch.get(i);
+                if (change instanceof MatchResult) {
+                    records[i] = ProfileLog.encode((MatchResult) change);
+                } else {
+                    String[] setting = (String[]) change;
+                    records[i] = ProfileLog.encode(setting[0], setting[1]);
+                }
+            }
+            long[] offsets = new long[records.length];
+            synchronized (log) {
+                log.append(records, records.length, offsets);
+                for (int i = 0; i < records.length; i++) {
+                    Object change = batch.get(i);
+                    if (change instanceof MatchResult) {
+                        written.apply((MatchResult) change);
+                        matchOffsets.add(offsets[i]);
+                    } else {
+                        String[] setting = (String[]) change;
+                        written.apply(setting[0], setting[1]);
+                    }
+                }
+                recordsSinceIndex += records.length;
+
+                if (written.supersededRecords() > MAX_SUPERSEDED_RECORDS) {
+                    log.compact(written, matchOffsets);
+                    recordsSinceIndex = 0;
+                } else if (recordsSinceIndex >= RECORDS_PER_INDEX) {
+                    log.writeIndex(written, matchOffsets);
+                    recordsSinceIndex = 0;
+                }
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                writeError = e;
+            }
+        } finally {
+            batch.clear();
+            synchronized (lock) {
+                writing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining changes and the index, and closes the files.
+     */
+    public void dispose() {
+        running = false;
+        if (thread != null) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        writeQueued();
+        try {
+            synchronized (log) {
+                if (recordsSinceIndex > 0) {
+                    log.writeIndex(written, matchOffsets);
+                }
+                log.close();
+            }
+        } catch (IOException e) {
+            // the log has everything, the next start reads more of it
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.pensatocode.sfs.replay;
+
+import com.badlogic.gdx.utils.LongArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Many replays in one large file, read through memory mapping: listing, filtering and playing them
+ * reads the archive where it is, in the page cache, without copying it into the heap.
+ * <pre>
+ * header:     int magic ('SFSR'), short version, short entry size, int entries per page, int replays,
+ *             long offset of the last index page, padded to {@value #HEADER_SIZE} bytes
+ * index page: long offset of the next index page (0 for none), then {@value #ENTRIES_PER_PAGE} ReplayEntry records
+ * replay:     the frames and keyframes of a match, then the offsets of its keyframes (see ReplayRecorder)
+ * </pre>
+ * The first index page comes right after the header, the others are added among the replays as the archive grows,
+ * each linked from the one before. Only the offsets of the pages are kept in memory, a number for every
+ * thousand replays, so an entry is found with a division, and a hundred thousand replays are listed
+ * by reading a hundred pages of the file.
+ *
+ * The file is mapped in segments of {@value #SEGMENT_SIZE} bytes, which is as large as a single mapping gets
+ * comfortable, and nothing written to the file crosses from a segment into the next, so a replay or a page
+ * is always a plain slice of one mapping.
+ *
+ * Appending only ever adds to the end of the file: the replay and its entry are written and forced to the disk
+ * before the count in the header includes them, so a crash loses at most the replays being written.
+ * Replays are appended by a background thread (see start()), read from the game thread.
+ */
+public class ReplayArchive {
+    public static final int MAGIC = 0x53465352;
+    public static final short VERSION = 3;
+
+    /**
+     * Receives the entries of a scan. The entry instance is reused for the whole scan.
+     */
+    public interface Visitor {
+        void visit(int index, ReplayEntry entry);
+    }
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_REPLAYS = 12;
+    private static final int HEADER_LAST_PAGE = 16;
+    private static final int ENTRIES_PER_PAGE = 1024;
+    private static final int PAGE_HEADER_SIZE = 8;
+    private static final int PAGE_SIZE = PAGE_HEADER_SIZE + ENTRIES_PER_PAGE * ReplayEntry.SIZE;
+    private static final int SEGMENT_BITS = 28;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int INITIAL_QUEUE_CAPACITY = 16;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+
+    // the offsets of the index pages, added under the map lock, and the number of replays,
+    // published to the readers last
+    private final LongArray pages = new LongArray();
+    private volatile int size;
+
+    // where the next write goes, owned by the writer
+    private long end;
+    private final ByteBuffer pageHeader = ByteBuffer.allocate(PAGE_HEADER_SIZE);
+    private final ByteBuffer headerField = ByteBuffer.allocate(8);
+
+    // the mapped segments of the file, for the readers
+    private final Object mapLock = new Object();
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    // the replays waiting to be appended, as pairs of data and entry, and the ones being appended
+    private final Object lock = new Object();
+    private ArrayList<ByteBuffer> queue = new ArrayList<>(INITIAL_QUEUE_CAPACITY);
+    private ArrayList<ByteBuffer> batch = new ArrayList<>(INITIAL_QUEUE_CAPACITY);
+    private boolean writing;
+    private Thread thread;
+    private volatile boolean running;
+    private IOException writeError;
+
+    /**
+     * Opens an archive, creating it if needed.
+     *
+     * @throws IOException if the file can't be opened, or isn't an archive
+     */
+    public ReplayArchive(File file) throws IOException {
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create the replay directory " + parent);
+        }
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        try {
+            if (channel.size() == 0L) {
+                create();
+            } else {
+                load();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void create() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) ReplayEntry.SIZE);
+        header.putInt(ENTRIES_PER_PAGE);
+        header.putInt(0);
+        header.putLong(HEADER_SIZE);
+        header.clear();
+        writeFully(header, 0L);
+        end = HEADER_SIZE;
+        addPage(allocate(PAGE_SIZE));
+        channel.force(true);
+    }
+
+    private void load() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0L);
+        if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getShort(4) != VERSION
+                || header.getShort(6) != ReplayEntry.SIZE || header.getInt(8) != ENTRIES_PER_PAGE) {
+            throw new IOException("Not a replay archive (or unsupported version): " + file);
+        }
+        int replays = header.getInt(HEADER_REPLAYS);
+
+        // follow the links between the index pages
+        long page = HEADER_SIZE;
+        while (page != 0L) {
+            pages.add(page);
+            pageHeader.clear();
+            readFully(pageHeader, page);
+            page = pageHeader.getLong(0);
+        }
+        if (replays < 0 || (long) pages.size * ENTRIES_PER_PAGE < replays) {
+            throw new IOException("The index of the replay archive is broken: " + file);
+        }
+
+        // anything after the last replay in the header, and the last index page, was left over by a crash,
+        // and is written over
+        end = pages.peek() + PAGE_SIZE;
+        if (replays > 0) {
+            ByteBuffer last = ByteBuffer.allocate(ReplayEntry.SIZE);
+            int index = replays - 1;
+            readFully(last, pages.get(index / ENTRIES_PER_PAGE) + PAGE_HEADER_SIZE
+                    + (long) (index % ENTRIES_PER_PAGE) * ReplayEntry.SIZE);
+            ReplayEntry entry = new ReplayEntry().set(last, 0);
+            long replayEnd = entry.blockOffset() + entry.blockLength();
+            if (last.hasRemaining() || replayEnd > channel.size()) {
+                throw new IOException("The replay archive is shorter than its index: " + file);
+            }
+            end = Math.max(end, replayEnd);
+        }
+        size = replays;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * @return the number of replays in the archive
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Points an entry to a replay of the archive.
+     *
+     * @param index the index of the replay, from 0 for the first one appended
+     * @return the entry
+     */
+    public ReplayEntry entry(int index, ReplayEntry entry) throws IOException {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("No replay " + index + " in the archive");
+        }
+        synchronized (mapLock) {
+            return locate(index, entry);
+        }
+    }
+
+    /**
+     * Goes through the entries of all the replays, in the order they were appended.
+     * Only the index pages are read, a replay's frames are left alone.
+     *
+     * @return the number of entries visited
+     */
+    public int scan(Visitor visitor) throws IOException {
+        int count = size;
+        ReplayEntry entry = new ReplayEntry();
+        synchronized (mapLock) {
+            for (int index = 0; index < count; index++) {
+                visitor.visit(index, locate(index, entry));
+            }
+        }
+        return count;
+    }
+
+    private ReplayEntry locate(int index, ReplayEntry entry) throws IOException {
+        long position = pages.get(index / ENTRIES_PER_PAGE) + PAGE_HEADER_SIZE
+                + (long) (index % ENTRIES_PER_PAGE) * ReplayEntry.SIZE;
+        return entry.set(map(position, ReplayEntry.SIZE), (int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * @return the data of a replay, a slice of the mapped archive
+     */
+    ByteBuffer data(ReplayEntry entry) throws IOException {
+        long position = entry.blockOffset();
+        int length = entry.blockLength();
+        synchronized (mapLock) {
+            ByteBuffer data = map(position, length).duplicate();
+            int start = (int) (position & SEGMENT_MASK);
+            data.limit(start + length);
+            data.position(start);
+            return data.slice();
+        }
+    }
+
+    /**
+     * @return the mapped segment with a range of the file in it, mapping it again if the file grew into the range
+     */
+    private MappedByteBuffer map(long position, int length) throws IOException {
+        int segment = (int) (position >>> SEGMENT_BITS);
+        if (segment >= segments.length) {
+            segments = Arrays.copyOf(segments, segment + 1);
+        }
+        MappedByteBuffer mapped = segments[segment];
+        long needed = (position & SEGMENT_MASK) + length;
+        if (mapped == null || mapped.capacity() < needed) {
+            long start = (long) segment << SEGMENT_BITS;
+            long mappedSize = Math.min(SEGMENT_SIZE, channel.size() - start);
+            if (mappedSize < needed) {
+                throw new IOException("The replay archive is shorter than its index: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, mappedSize);
+            segments[segment] = mapped;
+        }
+        return mapped;
+    }
+
+    /**
+     * Starts appending the replays in the background.
+     */
+    public void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "replay-archive");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a replay to be appended; written right away if the archive wasn't started.
+     *
+     * @param data  the frames and keyframes, from the position to the limit
+     * @param entry the entry of the replay, written by ReplayEntry.write()
+     */
+    void append(ByteBuffer data, ByteBuffer entry) {
+        synchronized (lock) {
+            queue.add(data);
+            queue.add(entry);
+            lock.notifyAll();
+        }
+        if (thread == null) {
+            writeQueued();
+        }
+    }
+
+    /**
+     * Queues a copy of a replay of another archive, to gather replays from several archives in one.
+     */
+    public void copy(ReplayArchive source, int index) throws IOException {
+        ReplayEntry sourceEntry = source.entry(index, new ReplayEntry());
+        ByteBuffer entry = ByteBuffer.allocate(ReplayEntry.SIZE);
+        for (int i = 0; i < ReplayEntry.SIZE; i++) {
+            entry.put(i, sourceEntry.byteAt(i));
+        }
+        append(source.data(sourceEntry), entry);
+    }
+
+    /**
+     * Waits until every replay queued so far is in the archive.
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            while (!queue.isEmpty() || writing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing the replays", e);
+                }
+            }
+            if (writeError != null) {
+                IOException error = writeError;
+                writeError = null;
+                throw error;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            synchronized (lock) {
+                if (queue.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            writeQueued();
+        }
+    }
+
+    /**
+     * Appends the queued replays: their data and entries first, then, once they're on the disk,
+     * the count in the header that makes them part of the archive.
+     */
+    private void writeQueued() {
+        synchronized (lock) {
+            if (queue.isEmpty() || writing) {
+                return;
+            }
+            ArrayList<ByteBuffer> swap = batch;
+            batch = queue;
+            queue = swap;
+            writing = true;
+        }
+
+        try {
+            int count = size;
+            for (int i = 0; i < batch.size(); i += 2) {
+                ByteBuffer data = batch.get(i);
+                ByteBuffer entry = batch.get(i + 1);
+                long offset = allocate(data.remaining());
+                writeFully(data, offset);
+
+                // a new index page when the last one is full
+                if (count / ENTRIES_PER_PAGE == pages.size) {
+                    addPage(allocate(PAGE_SIZE));
+                }
+                ReplayEntry.setBlockOffset(entry, 0, offset);
+                entry.clear();
+                writeFully(entry, pages.get(count / ENTRIES_PER_PAGE) + PAGE_HEADER_SIZE
+                        + (long) (count % ENTRIES_PER_PAGE) * ReplayEntry.SIZE);
+                count++;
+            }
+            channel.force(false);
+            writeHeaderField(HEADER_REPLAYS, count, false);
+            size = count;
+        } catch (IOException | IllegalArgumentException e) {
+            synchronized (lock) {
+                writeError = e instanceof IOException ? (IOException) e
+                        : new IOException("Can't append a replay: " + e.getMessage(), e);
+            }
+        } finally {
+            batch.clear();
+            synchronized (lock) {
+                writing = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return where to write a number of bytes at the end of the file, at the start of the next segment
+     *         if they wouldn't fit in the current one
+     */
+    private long allocate(int length) {
+        if (length > SEGMENT_SIZE) {
+            throw new IllegalArgumentException("A replay of " + length + " bytes doesn't fit in a segment");
+        }
+        if ((end >>> SEGMENT_BITS) != ((end + length - 1) >>> SEGMENT_BITS)) {
+            end = ((end >>> SEGMENT_BITS) + 1) << SEGMENT_BITS;
+        }
+        long offset = end;
+        end += length;
+        return offset;
+    }
+
+    /**
+     * Writes an empty index page and links it from the last one.
+     */
+    private void addPage(long page) throws IOException {
+        // the page is sized up front, so mapping it never reads past the end of the file
+        ByteBuffer last = ByteBuffer.allocate(1);
+        writeFully(last, page + PAGE_SIZE - 1);
+        pageHeader.clear();
+        pageHeader.putLong(0, 0L);
+        writeFully(pageHeader, page);
+        if (pages.size > 0) {
+            pageHeader.clear();
+            pageHeader.putLong(0, page);
+            writeFully(pageHeader, pages.peek());
+        }
+        writeHeaderField(HEADER_LAST_PAGE, page, true);
+        // the readers look the pages up while the writer adds them
+        synchronized (mapLock) {
+            pages.add(page);
+        }
+    }
+
+    private void writeHeaderField(int position, long value, boolean isLong) throws IOException {
+        headerField.clear();
+        if (isLong) {
+            headerField.putLong(value);
+        } else {
+            headerField.putInt((int) value);
+        }
+        headerField.flip();
+        writeFully(headerField, position);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Appends the queued replays and closes the file.
+     */
+    public void dispose() {
+        running = false;
+        if (thread != null) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        writeQueued();
+        try {
+            channel.force(true);
+            randomAccessFile.close();
+        } catch (IOException e) {
+            // the replays were already forced to the disk
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.pensatocode.sfs.replay;
+
+import com.pensatocode.sfs.resources.GlobalVariables;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The entry of a replay in the index of an archive (see ReplayArchive): where its data is,
+ * and what a list of replays shows and filters on, in a fixed-size record of {@link #SIZE} bytes:
+ * <pre>
+ * long  offset of the replay data in the archive
+ * int   length of the replay data
+ * int   frames
+ * int   frames between keyframes
+ * int   keyframes
+ * long  end time (milliseconds since the epoch)
+ * float fighting time, in seconds
+ * byte  difficulty
+ * byte  winner (GameEvent.PLAYER or GameEvent.OPPONENT)
+ * byte  rounds won
+ * byte  rounds lost
+ * 20 x byte player name, in ASCII, padded with zeros
+ * 20 x byte opponent name, in ASCII, padded with zeros
+ * </pre>
+ * An entry reads its fields straight from the archive, where it points to, so the same instance
+ * can go through the whole index without creating objects; only player() and opponent() create strings.
+ */
+public class ReplayEntry {
+    public static final int SIZE = 80;
+    public static final int NAME_SIZE = 20;
+
+    private static final int BLOCK_OFFSET = 0;
+    private static final int BLOCK_LENGTH = 8;
+    private static final int FRAMES = 12;
+    private static final int KEYFRAME_INTERVAL = 16;
+    private static final int KEYFRAMES = 20;
+    private static final int TIME = 24;
+    private static final int FIGHTING_TIME = 32;
+    private static final int DIFFICULTY = 36;
+    private static final int WINNER = 37;
+    private static final int ROUNDS_WON = 38;
+    private static final int ROUNDS_LOST = 39;
+    private static final int PLAYER = 40;
+    private static final int OPPONENT = PLAYER + NAME_SIZE;
+
+    private static final GlobalVariables.Difficulty[] DIFFICULTIES = GlobalVariables.Difficulty.values();
+
+    private ByteBuffer buffer;
+    private int base;
+
+    /**
+     * Points the entry to a record in a buffer.
+     */
+    ReplayEntry set(ByteBuffer buffer, int base) {
+        this.buffer = buffer;
+        this.base = base;
+        return this;
+    }
+
+    /**
+     * Writes a new entry at the position of a buffer, advancing it by {@link #SIZE} bytes.
+     * The offset of the data is left at zero, the archive fills it in when it appends the replay.
+     */
+    static void write(ByteBuffer buffer, int blockLength, int frames, int keyframeInterval, int keyframes, long time,
+                      float fightingTime, GlobalVariables.Difficulty difficulty, int winner, int roundsWon,
+                      int roundsLost, String player, String opponent) {
+        buffer.putLong(0L);
+        buffer.putInt(blockLength);
+        buffer.putInt(frames);
+        buffer.putInt(keyframeInterval);
+        buffer.putInt(keyframes);
+        buffer.putLong(time);
+        buffer.putFloat(fightingTime);
+        buffer.put((byte) difficulty.ordinal());
+        buffer.put((byte) winner);
+        buffer.put((byte) roundsWon);
+        buffer.put((byte) roundsLost);
+        writeName(buffer, player);
+        writeName(buffer, opponent);
+    }
+
+    private static void writeName(ByteBuffer buffer, String name) {
+        for (int i = 0; i < NAME_SIZE; i++) {
+            char c = i < name.length() ? name.charAt(i) : 0;
+            buffer.put(c < 128 ? (byte) c : (byte) '?');
+        }
+    }
+
+    static void setBlockOffset(ByteBuffer buffer, int base, long offset) {
+        buffer.putLong(base + BLOCK_OFFSET, offset);
+    }
+
+    byte byteAt(int offset) {
+        return buffer.get(base + offset);
+    }
+
+    long blockOffset() {
+        return buffer.getLong(base + BLOCK_OFFSET);
+    }
+
+    int blockLength() {
+        return buffer.getInt(base + BLOCK_LENGTH);
+    }
+
+    public int frames() {
+        return buffer.getInt(base + FRAMES);
+    }
+
+    public int keyframeInterval() {
+        return buffer.getInt(base + KEYFRAME_INTERVAL);
+    }
+
+    public int keyframes() {
+        return buffer.getInt(base + KEYFRAMES);
+    }
+
+    public long time() {
+        return buffer.getLong(base + TIME);
+    }
+
+    public float fightingTime() {
+        return buffer.getFloat(base + FIGHTING_TIME);
+    }
+
+    public GlobalVariables.Difficulty difficulty() {
+        return DIFFICULTIES[buffer.get(base + DIFFICULTY)];
+    }
+
+    public int winner() {
+        return buffer.get(base + WINNER);
+    }
+
+    public int roundsWon() {
+        return buffer.get(base + ROUNDS_WON);
+    }
+
+    public int roundsLost() {
+        return buffer.get(base + ROUNDS_LOST);
+    }
+
+    public String player() {
+        return readName(base + PLAYER);
+    }
+
+    public String opponent() {
+        return readName(base + OPPONENT);
+    }
+
+    /**
+     * @return whether the player or the opponent is the fighter with this name, compared without creating strings
+     */
+    public boolean hasFighter(String name) {
+        return nameEquals(base + PLAYER, name) || nameEquals(base + OPPONENT, name);
+    }
+
+    public boolean isPlayer(String name) {
+        return nameEquals(base + PLAYER, name);
+    }
+
+    private String readName(int offset) {
+        int length = 0;
+        while (length < NAME_SIZE && buffer.get(offset + length) != 0) {
+            length++;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) buffer.get(offset + i);
+        }
+        return new String(chars);
+    }
+
+    private boolean nameEquals(int offset, String name) {
+        int length = Math.min(name.length(), NAME_SIZE);
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (buffer.get(offset + i) != (c < 128 ? (byte) c : (byte) '?')) {
+                return false;
+            }
+        }
+        return length == NAME_SIZE || buffer.get(offset + length) == 0;
+    }
+}
@@ -0,0 +1,147 @@
+package com.pensatocode.sfs.replay;
+
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Plays the replays of an archive in a match, frame by frame, or jumping to any frame.
+ * The match must be built like the recorded one: fighters of the same state machine and moves,
+ * in the same world mode (see Match.save()).
+ *
+ * Seeking restores the closest keyframe before the frame and plays the frames in between,
+ * straight from the mapped archive, so it takes about the same time wherever the frame is.
+ * Every frame played is checked against the checksum recorded with it; a replay that plays out differently
+ * than the match it was recorded from, like a float match on another platform, counts desyncs.
+ */
+public class ReplayPlayer {
+    private final ReplayArchive archive;
+    private final Match match;
+    private final ReplayEntry entry = new ReplayEntry();
+
+    private ByteBuffer data;
+    private int frames;
+    private int keyframeInterval;
+    private int keyframeTable;
+    // the last frame played, and where the next one is in the data
+    private int frame;
+    private int position;
+    private int desyncs;
+
+    public ReplayPlayer(ReplayArchive archive, Match match) {
+        this.archive = archive;
+        this.match = match;
+    }
+
+    /**
+     * Loads a replay of the archive, at its first frame: the match right after its start.
+     */
+    public void load(int index) throws IOException {
+        archive.entry(index, entry);
+        data = archive.data(entry);
+        frames = entry.frames();
+        keyframeInterval = entry.keyframeInterval();
+        keyframeTable = data.limit() - entry.keyframes() * 4;
+        desyncs = 0;
+        restoreKeyframe(0);
+    }
+
+    /**
+     * Puts the match in the state it was in after a frame of the replay.
+     *
+     * @param target the frame, from 0 for the start of the match to frames()
+     */
+    public void seek(int target) {
+        if (data == null) {
+            throw new IllegalStateException("No replay loaded");
+        }
+        if (target < 0 || target > frames) {
+            throw new IllegalArgumentException("No frame " + target + " in a replay of " + frames + " frames");
+        }
+
+        // keep playing if the frame is ahead and no keyframe is closer to it
+        int keyframe = target / keyframeInterval;
+        if (target < frame || keyframe > frame / keyframeInterval) {
+            restoreKeyframe(keyframe);
+        }
+        while (frame < target) {
+            step();
+        }
+    }
+
+    private void restoreKeyframe(int keyframe) {
+        int offset = data.getInt(keyframeTable + keyframe * 4);
+        int length = data.getInt(offset);
+        data.limit(offset + 4 + length);
+        data.position(offset + 4);
+        match.restore(data);
+        data.limit(data.capacity());
+        frame = keyframe * keyframeInterval;
+        position = offset + 4 + length;
+    }
+
+    /**
+     * Plays the next frame of the replay: its inputs, then its update.
+     *
+     * @return false if the replay was already over
+     */
+    public boolean step() {
+        if (data == null || frame >= frames) {
+            return false;
+        }
+        float deltaTime = data.getFloat(position);
+        int checksum = data.getInt(position + 4);
+        int inputs = data.getShort(position + 8);
+        position += 10;
+        for (int i = 0; i < inputs; i++) {
+            match.input(data.get(position), MatchInput.of(data.get(position + 1)));
+            position += 2;
+        }
+        match.update(deltaTime);
+        frame++;
+        if (match.getChecksum() != checksum) {
+            desyncs++;
+        }
+
+        // step over the keyframe that follows every keyframeInterval frames
+        if (frame % keyframeInterval == 0) {
+            position += 4 + data.getInt(position);
+        }
+        return true;
+    }
+
+    /**
+     * @return the entry of the loaded replay, valid until the next load()
+     */
+    public ReplayEntry entry() {
+        return entry;
+    }
+
+    /**
+     * @return the last frame played, from 0 for the start of the match
+     */
+    public int frame() {
+        return frame;
+    }
+
+    public int frames() {
+        return frames;
+    }
+
+    public boolean isOver() {
+        return frame >= frames;
+    }
+
+    /**
+     * @return the frames whose checksum didn't match the recorded one
+     */
+    public int desyncs() {
+        return desyncs;
+    }
+
+    public Match match() {
+        return match;
+    }
+}
@@ -0,0 +1,172 @@
+package com.pensatocode.sfs.replay;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+import com.pensatocode.sfs.resources.GlobalVariables;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Records the matches played in a Match into a replay archive, from each START to the end of the match.
+ * <pre>
+ * keyframe: int length, then the match saved by Match.save()
+ * frame:    float delta time, int checksum, short inputs, then (byte fighter, byte input) per input
+ * </pre>
+ * A replay is keyframe 0, saved right after the start, then its frames, with another keyframe after every
+ * {@code keyframeInterval} frames, and at the end the offsets of its keyframes, an int each.
+ * Any frame of the replay is a keyframe restored and at most {@code keyframeInterval - 1} frames played away.
+ *
+ * The recorder goes in front of the one the match already had, like the spectator server's, and passes
+ * everything on to it. Only a finished match ends up in the archive; a new START drops the one in progress.
+ */
+public class ReplayRecorder implements Match.Recorder {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 60;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    // room for a keyframe, which takes a few hundred bytes
+    private static final int KEYFRAME_RESERVE = 16 * 1024;
+    private static final int FRAME_SIZE = 10;
+    private static final int INITIAL_INPUT_CAPACITY = 16;
+
+    private final Match match;
+    private final Match.Recorder next;
+    private final ReplayArchive archive;
+    private final int keyframeInterval;
+    private GlobalVariables.Difficulty difficulty = GlobalVariables.Difficulty.EASY;
+
+    // the replay being recorded
+    private boolean recording;
+    private ByteBuffer data = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private final IntArray keyframes = new IntArray();
+    private int frames;
+    private byte[] inputFighters = new byte[INITIAL_INPUT_CAPACITY];
+    private byte[] inputs = new byte[INITIAL_INPUT_CAPACITY];
+    private int inputCount;
+
+    public ReplayRecorder(Match match, ReplayArchive archive) {
+        this(match, archive, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Starts recording the matches, from the next START.
+     *
+     * @param keyframeInterval the frames between keyframes
+     */
+    public ReplayRecorder(Match match, ReplayArchive archive, int keyframeInterval) {
+        this.match = match;
+        this.next = match.getRecorder();
+        this.archive = archive;
+        this.keyframeInterval = keyframeInterval;
+        match.setRecorder(this);
+    }
+
+    /**
+     * Sets the difficulty the next matches are played at, for their entries in the archive.
+     */
+    public void setDifficulty(GlobalVariables.Difficulty difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    @Override
+    public void onInput(int fighter, MatchInput input) {
+        if (next != null) {
+            next.onInput(fighter, input);
+        }
+
+        if (input == MatchInput.START) {
+            // a new match, the replay starts from the state right after the start
+            recording = true;
+            data.clear();
+            keyframes.clear();
+            frames = 0;
+            inputCount = 0;
+            writeKeyframe();
+        } else if (recording) {
+            if (inputCount == inputs.length) {
+                inputFighters = Arrays.copyOf(inputFighters, inputCount * 2);
+                inputs = Arrays.copyOf(inputs, inputCount * 2);
+            }
+            inputFighters[inputCount] = (byte) fighter;
+            inputs[inputCount] = (byte) input.ordinal();
+            inputCount++;
+        }
+    }
+
+    @Override
+    public void onUpdate(float deltaTime) {
+        if (next != null) {
+            next.onUpdate(deltaTime);
+        }
+        if (!recording) {
+            return;
+        }
+
+        ensureCapacity(FRAME_SIZE + inputCount * 2);
+        data.putFloat(deltaTime);
+        data.putInt(match.getChecksum());
+        data.putShort((short) inputCount);
+        for (int i = 0; i < inputCount; i++) {
+            data.put(inputFighters[i]);
+            data.put(inputs[i]);
+        }
+        inputCount = 0;
+        frames++;
+        if (frames % keyframeInterval == 0) {
+            writeKeyframe();
+        }
+
+        if (match.isOver()) {
+            finish();
+        }
+    }
+
+    private void writeKeyframe() {
+        ensureCapacity(KEYFRAME_RESERVE);
+        int start = data.position();
+        keyframes.add(start);
+        data.putInt(0);
+        match.save(data);
+        data.putInt(start, data.position() - start - 4);
+    }
+
+    /**
+     * Adds the keyframe offsets and the entry, and hands the replay to the archive, which writes it in the background.
+     * The buffer goes with it, the next replay gets a new one.
+     */
+    private void finish() {
+        recording = false;
+        ensureCapacity(keyframes.size * 4);
+        for (int i = 0; i < keyframes.size; i++) {
+            data.putInt(keyframes.get(i));
+        }
+        data.flip();
+
+        ByteBuffer entry = ByteBuffer.allocate(ReplayEntry.SIZE);
+        int winner = match.getRoundsWon() > match.getRoundsLost() ? GameEvent.PLAYER : GameEvent.OPPONENT;
+        ReplayEntry.write(entry, data.limit(), frames, keyframeInterval, keyframes.size, System.currentTimeMillis(),
+                match.getFightingTime(), difficulty, winner, match.getRoundsWon(), match.getRoundsLost(),
+                match.player().getName(), match.opponent().getName());
+        entry.flip();
+        archive.append(data, entry);
+        data = ByteBuffer.allocate(Math.max(INITIAL_CAPACITY, data.capacity()));
+    }
+
+    /**
+     * Drops the replay being recorded, for a match that won't be finished.
+     */
+    public void cancel() {
+        recording = false;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (data.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(data.capacity() * 2, data.position() + bytes));
+            data.flip();
+            larger.put(data);
+            data = larger;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.pensatocode.sfs.replay;
+
+import com.pensatocode.sfs.events.GameEventBus;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps the last few seconds of a match in memory, to play them again, like the knockout in slow motion.
+ *
+ * It's a replay in rings of a fixed size, allocated once: the delta time and the inputs of the last
+ * {@code capacity} updates, and a keyframe, the match saved by Match.save(), every {@code keyframeInterval}
+ * updates. Recording overwrites the oldest updates, so the memory it takes is the same however long the match
+ * goes on, and recording doesn't allocate.
+ *
+ * Playing back doesn't need a simulation of its own: the live state of the match is saved aside,
+ * a keyframe is restored into the match, and the recorded updates are played on it, with their inputs,
+ * until it's back where it was, and the live state is restored. Meanwhile, the match is detached from its
+ * recorders and its event bus, which have already seen all of it once.
+ *
+ * The recorder goes in front of the one the match already had, and passes everything on to it.
+ */
+public class RollingReplay implements Match.Recorder {
+    // room for a save of the match, which takes a few hundred bytes with two fighters
+    private static final int KEYFRAME_SIZE = 2 * 1024;
+    // inputs kept on average per update; there's rarely more than one
+    private static final int INPUTS_PER_UPDATE = 4;
+
+    private final Match match;
+    private final Match.Recorder next;
+    private final int capacity;
+    private final int keyframeInterval;
+
+    // the updates, by number modulo the capacity: their delta time, and where their inputs start
+    private final float[] deltas;
+    private final long[] inputStarts;
+    // the inputs, by number modulo their capacity, a fighter and an input each
+    private final byte[] inputFighters;
+    private final byte[] inputValues;
+    // the keyframes, and the number of the update each was saved before, -1 for none
+    private final ByteBuffer[] keyframes;
+    private final long[] keyframeUpdates;
+    private int nextKeyframe;
+    private long lastKeyframeUpdate;
+    private boolean keyframeDue;
+
+    // the updates and inputs recorded so far, and the oldest update that can still be played
+    private long updates;
+    private long inputs;
+    private long oldest;
+
+    // playback
+    private final ByteBuffer live = ByteBuffer.allocate(KEYFRAME_SIZE);
+    private Match.Recorder detachedRecorder;
+    private GameEventBus detachedEventBus;
+    private boolean playing;
+    private long playbackUpdate;
+    private long playbackEnd;
+    private float playbackTime;
+
+    /**
+     * @param capacity         the number of updates kept, paused ones included
+     * @param keyframeInterval updates between keyframes: fewer take more memory, but start the playback
+     *                         closer to the time asked for
+     */
+    public RollingReplay(Match match, int capacity, int keyframeInterval) {
+        this.match = match;
+        this.next = match.getRecorder();
+        this.capacity = capacity;
+        this.keyframeInterval = keyframeInterval;
+        deltas = new float[capacity];
+        inputStarts = new long[capacity];
+        inputFighters = new byte[capacity * INPUTS_PER_UPDATE];
+        inputValues = new byte[capacity * INPUTS_PER_UPDATE];
+        keyframes = new ByteBuffer[capacity / keyframeInterval + 2];
+        keyframeUpdates = new long[keyframes.length];
+        for (int i = 0; i < keyframes.length; i++) {
+            keyframes[i] = ByteBuffer.allocate(KEYFRAME_SIZE);
+        }
+        match.setRecorder(this);
+        clear();
+    }
+
+    /**
+     * Forgets what was recorded, for when the match jumps to another state without an input,
+     * like a restored save. Recording goes on from the current state.
+     */
+    public void clear() {
+        oldest = updates;
+        inputStarts[(int) (updates % capacity)] = inputs;
+        for (int i = 0; i < keyframeUpdates.length; i++) {
+            keyframeUpdates[i] = -1L;
+        }
+        // at the end of the next update, the match may not even have started yet
+        keyframeDue = true;
+    }
+
+    @Override
+    public void onInput(int fighter, MatchInput input) {
+        if (input == MatchInput.START) {
+            // a new match, the last one isn't worth playing again
+            clear();
+        } else {
+            int index = (int) (inputs % inputFighters.length);
+            inputFighters[index] = (byte) fighter;
+            inputValues[index] = (byte) input.ordinal();
+            inputs++;
+
+            // too many inputs for the ring, drop the oldest updates that still refer to the overwritten ones
+            while (oldest < updates && inputs - inputStarts[(int) (oldest % capacity)] > inputFighters.length) {
+                oldest++;
+            }
+        }
+        if (next != null) {
+            next.onInput(fighter, input);
+        }
+    }
+
+    @Override
+    public void onUpdate(float deltaTime) {
+        deltas[(int) (updates % capacity)] = deltaTime;
+        updates++;
+
+        // the next update takes the slot of the oldest one
+        if (updates - oldest >= capacity) {
+            oldest = updates - capacity + 1;
+        }
+        inputStarts[(int) (updates % capacity)] = inputs;
+        if (keyframeDue || updates - lastKeyframeUpdate >= keyframeInterval) {
+            saveKeyframe();
+        }
+        if (next != null) {
+            next.onUpdate(deltaTime);
+        }
+    }
+
+    private void saveKeyframe() {
+        ByteBuffer keyframe = keyframes[nextKeyframe];
+        keyframe.clear();
+        match.save(keyframe);
+        keyframe.flip();
+        keyframeUpdates[nextKeyframe] = updates;
+        nextKeyframe = (nextKeyframe + 1) % keyframes.length;
+        lastKeyframeUpdate = updates;
+        keyframeDue = false;
+    }
+
+    /**
+     * Starts playing back the last seconds recorded, from the keyframe closest to them, or from the oldest one.
+     *
+     * @return false if nothing was recorded yet
+     */
+    public boolean startPlayback(float seconds) {
+        if (playing) {
+            return true;
+        }
+
+        // the update the playback should start at
+        long target = updates;
+        float time = 0f;
+        while (target > oldest && time < seconds) {
+            target--;
+            time += deltas[(int) (target % capacity)];
+        }
+
+        // and the last keyframe before it, or if it's gone, the oldest one after it
+        int keyframe = -1;
+        int later = -1;
+        for (int i = 0; i < keyframes.length; i++) {
+            long update = keyframeUpdates[i];
+            if (update < oldest || update >= updates) {
+                continue;
+            }
+            if (update <= target) {
+                if (keyframe < 0 || update > keyframeUpdates[keyframe]) {
+                    keyframe = i;
+                }
+            } else if (later < 0 || update < keyframeUpdates[later]) {
+                later = i;
+            }
+        }
+        if (keyframe < 0) {
+            keyframe = later;
+        }
+        if (keyframe < 0) {
+            return false;
+        }
+
+        // keep the live state aside, and replay without being recorded or published again
+        live.clear();
+        match.save(live);
+        live.flip();
+        detachedRecorder = match.getRecorder();
+        detachedEventBus = match.getEventBus();
+        match.setRecorder(null);
+        match.setEventBus(null);
+
+        restore(keyframes[keyframe]);
+        playbackUpdate = keyframeUpdates[keyframe];
+        playbackEnd = updates;
+        playbackTime = 0f;
+        playing = true;
+        return true;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * Plays the recorded updates whose time has come, then, once they're all played, brings the live match back.
+     * Slow motion is a scaled down delta time (see TimeScale).
+     *
+     * @param deltaTime the time the playback goes forward by, in seconds
+     * @return false once the playback is over
+     */
+    public boolean updatePlayback(float deltaTime) {
+        if (!playing) {
+            return false;
+        }
+        playbackTime += deltaTime;
+        while (playbackUpdate < playbackEnd) {
+            int slot = (int) (playbackUpdate % capacity);
+            float delta = deltas[slot];
+            if (delta > playbackTime) {
+                return true;
+            }
+            playbackTime -= delta;
+
+            // the inputs that came before the update, then the update
+            long end = inputStarts[(int) ((playbackUpdate + 1) % capacity)];
+            for (long input = inputStarts[slot]; input < end; input++) {
+                int index = (int) (input % inputFighters.length);
+                match.input(inputFighters[index], MatchInput.of(inputValues[index]));
+            }
+            match.update(delta);
+            playbackUpdate++;
+        }
+        stopPlayback();
+        return false;
+    }
+
+    /**
+     * Stops the playback, and puts the match back in its live state.
+     */
+    public void stopPlayback() {
+        if (!playing) {
+            return;
+        }
+        restore(live);
+        match.setRecorder(detachedRecorder);
+        match.setEventBus(detachedEventBus);
+        detachedRecorder = null;
+        detachedEventBus = null;
+        playing = false;
+    }
+
+    private void restore(ByteBuffer state) {
+        state.rewind();
+        match.restore(state);
+    }
+
+    /**
+     * @return the number of updates that can be played back
+     */
+    public int size() {
+        return (int) (updates - oldest);
+    }
+}
@@ -0,0 +1,69 @@
+package com.pensatocode.sfs.resources;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A named set of assets that are loaded and unloaded together, such as everything the menus need.
+ * The manifest lists the assets of the group, and {@link Assets} keeps track of
+ * how many users the group has, whether it is loaded and roughly how much memory it takes.
+ */
+public class AssetGroup {
+    public enum State {
+        UNLOADED,
+        LOADING,
+        LOADED
+    }
+
+    private final String name;
+    private final Array<AssetDescriptor<?>> manifest = new Array<>();
+
+    // bookkeeping done by Assets
+    int referenceCount;
+    State state = State.UNLOADED;
+    long estimatedBytes;
+    long lastReleaseTime;
+
+    public AssetGroup(String name) {
+        this.name = name;
+    }
+
+    public <T> AssetGroup add(String fileName, Class<T> type) {
+        manifest.add(new AssetDescriptor<>(fileName, type));
+        return this;
+    }
+
+    public <T> AssetGroup add(String fileName, Class<T> type, AssetLoaderParameters<T> parameters) {
+        manifest.add(new AssetDescriptor<>(fileName, type, parameters));
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Array<AssetDescriptor<?>> getManifest() {
+        return manifest;
+    }
+
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the memory taken by the group the last time it was loaded, in bytes (0 if it never was)
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
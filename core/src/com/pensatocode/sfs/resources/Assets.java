@@ -1,24 +1,63 @@
 package com.pensatocode.sfs.resources;
 
+import com.badlogic.gdx.assets.AssetDescriptor;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.assets.loaders.FileHandleResolver;
 import com.badlogic.gdx.assets.loaders.TextureLoader;
 import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGeneratorLoader;
 import com.badlogic.gdx.graphics.g2d.freetype.FreetypeFontLoader;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
 
 public class Assets {
     // asset manager
     private final AssetManager manager;
 
+    /**
+     * Notified right before a group is unloaded to stay within the memory budget,
+     * so whatever still holds on to its assets can let them go.
+     */
+    public interface EvictionListener {
+        void onGroupEvicted(AssetGroup group);
+    }
+
+    // memory the loaded groups may take before unused ones are evicted
+    public static final long DEFAULT_MEMORY_BUDGET = 96L * 1024L * 1024L;
+
+    // asset groups
+    private final Array<AssetGroup> groups = new Array<>();
+    // fonts and audio, needed all the time
+    private final AssetGroup bootGroup = registerGroup(new AssetGroup("boot"));
+    private final AssetGroup menuGroup = registerGroup(new AssetGroup("menu"));
+    private final AssetGroup gameplayGroup = registerGroup(new AssetGroup("gameplay"));
+
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private EvictionListener evictionListener;
+    // compressed variants of the textures, picked for the GPU the game runs on
+    private final TextureVariants textureVariants;
+
     public Assets() {
         this.manager = new AssetManager();
+
+        // load textures from their compressed variants when the texture pipeline created them
+        this.textureVariants = new TextureVariants();
+        manager.setLoader(Texture.class, new TextureLoader(textureVariants));
+
+        // fill in the manifests of the groups
+        buildFonts();
+        buildAudio();
+        buildMenuAssets();
+        buildGameplayAssets();
     }
 
     // scene textures
@@ -35,9 +74,24 @@ public class Assets {
     public static final String WIN_SPRITE_SHEET = "sprites/WinSpriteSheet.png";
     public static final String LOSE_SPRITE_SHEET = "sprites/LoseSpriteSheet.png";
 
+    // textures the texture pipeline creates compressed variants for, see TextureVariants
+    public static final String[] COMPRESSED_TEXTURES = {
+            BACKGROUND_TEXTURE,
+            FRONT_ROPES_TEXTURE,
+            IDLE_SPRITE_SHEET,
+            WALK_SPRITE_SHEET,
+            PUNCH_SPRITE_SHEET,
+            KICK_SPRITE_SHEET,
+            HURT_SPRITE_SHEET,
+            BLOCK_SPRITE_SHEET,
+            WIN_SPRITE_SHEET,
+            LOSE_SPRITE_SHEET
+    };
+
     // gameplay atlas
     public static final String GAMEPLAY_BUTTONS_ATLAS = "textures/GameplayButtons.atlas";
     public static final String BLOOD_ATLAS = "textures/Blood.atlas";
+    public static final String MOBILE_UI_ATLAS = "textures/MobileUI.atlas";
 
     // fonts
     public static final String ROBOTO_REGULAR = "fonts/Roboto-Regular.ttf";
@@ -66,15 +120,217 @@ public class Assets {
     // menu assets
     public static final String MENU_ITEMS_ATLAS = "textures/MenuItems.atlas";
 
-    public void load() {
-        // load gameplay assets
-        loadGameplayAssets();
-        // load fonts
-        loadFonts();
-        // load audio assets
-        loadAudio();
-        // load menu assets
-//        loadMenuAssets();
+    /**
+     * Starts loading a group in the background, if it isn't loaded or loading already,
+     * without taking a reference to it. Nothing is preloaded if the group is known not to fit in the memory budget.
+     */
+    public void preload(AssetGroup group) {
+        if (group.state != AssetGroup.State.UNLOADED) {
+            return;
+        }
+        if (group.estimatedBytes > 0L && estimatedBytes() + group.estimatedBytes > memoryBudget) {
+            return;
+        }
+        queue(group);
+        // an unused group can be evicted as soon as it is loaded, so count it as released now
+        group.lastReleaseTime = TimeUtils.nanoTime();
+    }
+
+    /**
+     * Takes a reference to a group, and makes sure it is loaded, blocking until it is if needed.
+     */
+    public void acquire(AssetGroup group) {
+        group.referenceCount++;
+        if (group.state == AssetGroup.State.UNLOADED) {
+            queue(group);
+        }
+        if (group.state == AssetGroup.State.LOADING) {
+            for (AssetDescriptor<?> descriptor : group.getManifest()) {
+                manager.finishLoadingAsset(descriptor.fileName);
+            }
+            loaded(group);
+        }
+    }
+
+    /**
+     * Gives back a reference to a group. A group without references stays loaded,
+     * so it can be used again right away, until it has to be evicted to stay within the memory budget.
+     */
+    public void release(AssetGroup group) {
+        if (group.referenceCount == 0) {
+            throw new IllegalStateException("Asset group " + group + " released more times than acquired");
+        }
+        group.referenceCount--;
+        if (group.referenceCount == 0) {
+            group.lastReleaseTime = TimeUtils.nanoTime();
+            evictUnused();
+        }
+    }
+
+    public boolean isLoaded(AssetGroup group) {
+        return group.state == AssetGroup.State.LOADED;
+    }
+
+    /**
+     * Continues loading the queued groups for at most the given time. Call it once per frame.
+     *
+     * @return true if nothing is left to load
+     */
+    public boolean update(int millis) {
+        boolean finished = manager.update(millis);
+        for (int i = 0; i < groups.size; i++) {
+            AssetGroup group = groups.get(i);
+            if (group.state == AssetGroup.State.LOADING && isManifestLoaded(group)) {
+                loaded(group);
+                evictUnused();
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Sets how much memory the loaded groups may take, in bytes.
+     * Groups without references are evicted, least recently used first, until the loaded groups fit.
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evictUnused();
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return the memory taken by all loaded groups, in bytes
+     */
+    public long estimatedBytes() {
+        long bytes = 0L;
+        for (int i = 0; i < groups.size; i++) {
+            if (groups.get(i).state == AssetGroup.State.LOADED) {
+                bytes += groups.get(i).estimatedBytes;
+            }
+        }
+        return bytes;
+    }
+
+    public void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Registers another group, for instance the assets of a fighter skin.
+     */
+    public AssetGroup registerGroup(AssetGroup group) {
+        groups.add(group);
+        return group;
+    }
+
+    private void queue(AssetGroup group) {
+        for (AssetDescriptor<?> descriptor : group.getManifest()) {
+            manager.load(descriptor);
+        }
+        group.state = AssetGroup.State.LOADING;
+    }
+
+    private boolean isManifestLoaded(AssetGroup group) {
+        for (AssetDescriptor<?> descriptor : group.getManifest()) {
+            if (!manager.isLoaded(descriptor.fileName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void loaded(AssetGroup group) {
+        group.state = AssetGroup.State.LOADED;
+        group.estimatedBytes = 0L;
+        for (AssetDescriptor<?> descriptor : group.getManifest()) {
+            // the size of a compressed texture depends on its format, but it's about the size of its file
+            FileHandle variantFile = descriptor.type == Texture.class
+                    ? textureVariants.variantFile(descriptor.fileName) : null;
+            group.estimatedBytes += variantFile != null
+                    ? variantFile.length() : estimateBytes(manager.get(descriptor));
+        }
+    }
+
+    private void evictUnused() {
+        while (estimatedBytes() > memoryBudget) {
+            // find the unused group that was released the longest time ago
+            AssetGroup leastRecentlyUsed = null;
+            for (int i = 0; i < groups.size; i++) {
+                AssetGroup group = groups.get(i);
+                if (group.state == AssetGroup.State.LOADED && group.referenceCount == 0
+                        && (leastRecentlyUsed == null || group.lastReleaseTime < leastRecentlyUsed.lastReleaseTime)) {
+                    leastRecentlyUsed = group;
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                // everything that is loaded is in use
+                return;
+            }
+            evict(leastRecentlyUsed);
+        }
+    }
+
+    private void evict(AssetGroup group) {
+        // let the users of the assets drop them first
+        if (evictionListener != null) {
+            evictionListener.onGroupEvicted(group);
+        }
+        // the asset manager counts references per asset, so assets shared with other groups stay loaded
+        for (AssetDescriptor<?> descriptor : group.getManifest()) {
+            manager.unload(descriptor.fileName);
+        }
+        group.state = AssetGroup.State.UNLOADED;
+    }
+
+    /**
+     * Estimates the memory taken by an asset: the texture memory for textures, atlases and fonts.
+     */
+    private static long estimateBytes(Object asset) {
+        if (asset instanceof Texture) {
+            return estimateBytes((Texture) asset);
+        } else if (asset instanceof TextureAtlas) {
+            long bytes = 0L;
+            for (Texture texture : ((TextureAtlas) asset).getTextures()) {
+                bytes += estimateBytes(texture);
+            }
+            return bytes;
+        } else if (asset instanceof BitmapFont) {
+            long bytes = 0L;
+            for (TextureRegion region : ((BitmapFont) asset).getRegions()) {
+                bytes += estimateBytes(region.getTexture());
+            }
+            return bytes;
+        }
+        return 0L;
+    }
+
+    private static long estimateBytes(Texture texture) {
+        // compressed textures have no pixel format, their size is counted from their files
+        if (texture.getTextureData().getType() == TextureData.TextureDataType.Custom) {
+            return 0L;
+        }
+        int bytesPerPixel;
+        switch (texture.getTextureData().getFormat()) {
+            case Alpha:
+            case Intensity:
+                bytesPerPixel = 1;
+                break;
+            case LuminanceAlpha:
+            case RGB565:
+            case RGBA4444:
+                bytesPerPixel = 2;
+                break;
+            case RGB888:
+                bytesPerPixel = 3;
+                break;
+            default:
+                bytesPerPixel = 4;
+                break;
+        }
+        return (long) texture.getWidth() * texture.getHeight() * bytesPerPixel;
     }
 
     public void dispose() {
@@ -85,8 +341,20 @@ public class Assets {
         return manager;
     }
 
+    public AssetGroup bootGroup() {
+        return bootGroup;
+    }
+
+    public AssetGroup menuGroup() {
+        return menuGroup;
+    }
+
+    public AssetGroup gameplayGroup() {
+        return gameplayGroup;
+    }
+
     /**
-     *  Loads all the assets needed for the gameplay screen.
+     *  Lists all the assets needed for the gameplay screen.
      *
      *  LibGDX Texture Filters:
      *  Defines the algorithm to use when the texture is scaled up or down.
@@ -98,25 +366,21 @@ public class Assets {
      *  Linear: Uses the weighted average of the four pixels closest to the sampling point.
      *  MipMap: Uses mipmaps to select the correct level-of-detail of the texture.
      */
-    private void loadGameplayAssets() {
+    private void buildGameplayAssets() {
         // set texture filters
         TextureLoader.TextureParameter param = new TextureLoader.TextureParameter();
         param.minFilter = Texture.TextureFilter.Linear;
         param.magFilter = Texture.TextureFilter.Linear;
 
-        // Scene
-        manager.load(BACKGROUND_TEXTURE, Texture.class, param);
-        manager.load(FRONT_ROPES_TEXTURE, Texture.class, param);
+        // compressed variants come with their mipmaps, which keep scaled down textures from shimmering
+        TextureLoader.TextureParameter mipMapParam = new TextureLoader.TextureParameter();
+        mipMapParam.minFilter = Texture.TextureFilter.MipMapLinearNearest;
+        mipMapParam.magFilter = Texture.TextureFilter.Linear;
 
-        // Sprite Sheets
-        manager.load(IDLE_SPRITE_SHEET, Texture.class, param);
-        manager.load(WALK_SPRITE_SHEET, Texture.class, param);
-        manager.load(PUNCH_SPRITE_SHEET, Texture.class, param);
-        manager.load(KICK_SPRITE_SHEET, Texture.class, param);
-        manager.load(HURT_SPRITE_SHEET, Texture.class, param);
-        manager.load(BLOCK_SPRITE_SHEET, Texture.class, param);
-        manager.load(WIN_SPRITE_SHEET, Texture.class, param);
-        manager.load(LOSE_SPRITE_SHEET, Texture.class, param);
+        // Scene and Sprite Sheets
+        for (String fileName : COMPRESSED_TEXTURES) {
+            gameplayGroup.add(fileName, Texture.class, textureVariants.hasMipMaps(fileName) ? mipMapParam : param);
+        }
 
         // Texture Atlases
         // Atlases already contain information about the texture filters
@@ -125,11 +389,12 @@ public class Assets {
         // see: https://github.com/crashinvaders/gdx-texture-packer-gui
         // or: https://www.leshylabs.com/apps/sstool/
 
-        manager.load(GAMEPLAY_BUTTONS_ATLAS, TextureAtlas.class);
-        manager.load(BLOOD_ATLAS, TextureAtlas.class);
+        gameplayGroup.add(GAMEPLAY_BUTTONS_ATLAS, TextureAtlas.class);
+        gameplayGroup.add(BLOOD_ATLAS, TextureAtlas.class);
+        gameplayGroup.add(MOBILE_UI_ATLAS, TextureAtlas.class);
     }
 
-    private void loadFonts() {
+    private void buildFonts() {
         FileHandleResolver resolver = new InternalFileHandleResolver();
         manager.setLoader(FreeTypeFontGenerator.class, new FreeTypeFontGeneratorLoader(resolver));
         manager.setLoader(BitmapFont.class, ".ttf", new FreetypeFontLoader(resolver));
@@ -141,7 +406,7 @@ public class Assets {
         smallFont.fontParameters.size = 32;
         smallFont.fontParameters.minFilter = Texture.TextureFilter.Linear;
         smallFont.fontParameters.magFilter = Texture.TextureFilter.Linear;
-        manager.load(SMALL_FONT, BitmapFont.class, smallFont);
+        bootGroup.add(SMALL_FONT, BitmapFont.class, smallFont);
 
         // load the medium font
         FreetypeFontLoader.FreeTypeFontLoaderParameter mediumFont =
@@ -151,7 +416,7 @@ public class Assets {
         mediumFont.fontParameters.borderWidth = 4;
         mediumFont.fontParameters.minFilter = Texture.TextureFilter.Linear;
         mediumFont.fontParameters.magFilter = Texture.TextureFilter.Linear;
-        manager.load(MEDIUM_FONT, BitmapFont.class, mediumFont);
+        bootGroup.add(MEDIUM_FONT, BitmapFont.class, mediumFont);
 
         // load the large font
         FreetypeFontLoader.FreeTypeFontLoaderParameter largeFont =
@@ -161,19 +426,19 @@ public class Assets {
         largeFont.fontParameters.borderWidth = 6;
         largeFont.fontParameters.minFilter = Texture.TextureFilter.Linear;
         largeFont.fontParameters.magFilter = Texture.TextureFilter.Linear;
-        manager.load(LARGE_FONT, BitmapFont.class, largeFont);
+        bootGroup.add(LARGE_FONT, BitmapFont.class, largeFont);
     }
 
-    private void loadAudio() {
-        manager.load(BLOCK_SOUND, Sound.class);
-        manager.load(BOO_SOUND, Sound.class);
-        manager.load(CHEER_SOUND, Sound.class);
-        manager.load(CLICK_SOUND, Sound.class);
-        manager.load(HIT_SOUND, Sound.class);
-        manager.load(MUSIC, Music.class);
+    private void buildAudio() {
+        bootGroup.add(BLOCK_SOUND, Sound.class);
+        bootGroup.add(BOO_SOUND, Sound.class);
+        bootGroup.add(CHEER_SOUND, Sound.class);
+        bootGroup.add(CLICK_SOUND, Sound.class);
+        bootGroup.add(HIT_SOUND, Sound.class);
+        bootGroup.add(MUSIC, Music.class);
     }
 
-    private void loadMenuAssets() {
-        manager.load(MENU_ITEMS_ATLAS, TextureAtlas.class);
+    private void buildMenuAssets() {
+        menuGroup.add(MENU_ITEMS_ATLAS, TextureAtlas.class);
     }
 }
@@ -73,6 +73,10 @@ public class AudioManager {
         }
     }
 
+    public boolean isMusicEnabled() {
+        return musicEnabled;
+    }
+
     public void playMusic() {
         // if music is enabled and not playing, start playing it
         if (musicEnabled && !music.isPlaying()) {
@@ -97,6 +101,10 @@ public class AudioManager {
         soundsEnabled = false;
     }
 
+    public boolean isSoundsEnabled() {
+        return soundsEnabled;
+    }
+
     public void playSound(String soundAsset) {
         // if sounds are enabled, play the sound
         if (soundsEnabled) {
@@ -0,0 +1,55 @@
+package com.pensatocode.sfs.resources;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+import com.pensatocode.sfs.utils.Palettes;
+
+/**
+ * A fighter the player can choose, as described in data/fighter_choices.json.
+ *
+ * Its skin is the palette of its color: black to the color, which looks like the sprite tinted with it.
+ * The palette can also be given, as key colors, in "paletteValues": an index and its red, green and blue
+ * values, for each key, like [0, 0.1, 0, 0, 128, 0.5, 0.2, 0.2, 255, 1, 0.2, 0.2] (see Palettes).
+ */
+public class FighterChoice {
+    public static final String FIGHTER_CHOICES_FILE = "data/fighter_choices.json";
+
+    // filled in by the JSON parser
+    public String name;
+    public float[] colorValues;
+    public float[] paletteValues;
+
+    public Color color() {
+        return new Color(colorValues[0], colorValues[1], colorValues[2], 1f);
+    }
+
+    /**
+     * Adds the palette of the fighter's skin.
+     *
+     * @return the palette
+     */
+    public int addPalette(Palettes palettes) {
+        if (paletteValues == null) {
+            return palettes.addRamp(color());
+        }
+        if (paletteValues.length % 4 != 0) {
+            throw new IllegalArgumentException("The palette of " + name + " needs an index and 3 color values per key");
+        }
+        int[] indices = new int[paletteValues.length / 4];
+        Color[] colors = new Color[indices.length];
+        for (int key = 0; key < indices.length; key++) {
+            indices[key] = (int) paletteValues[key * 4];
+            colors[key] = new Color(paletteValues[key * 4 + 1], paletteValues[key * 4 + 2],
+                    paletteValues[key * 4 + 3], 1f);
+        }
+        return palettes.add(color(), indices, colors);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Array<FighterChoice> loadAll() {
+        Json json = new Json();
+        return json.fromJson(Array.class, FighterChoice.class, Gdx.files.internal(FIGHTER_CHOICES_FILE));
+    }
+}
@@ -13,6 +13,44 @@ public class GlobalVariables {
     public static final float MIN_WORLD_HEIGHT = WORLD_HEIGHT * 0.8f;
     public static final float WORLD_SCALE = 0.05f;
 
+    // rendering
+    // time a frame should take to keep 60 FPS, in seconds
+    public static final float FRAME_BUDGET = 1f / 60f;
+    // lower the resolution of the gameplay scene when frames take longer than the budget
+    public static final boolean DYNAMIC_RESOLUTION = true;
+    // draw the fighters in the colors of their skin's palette (see PaletteShader), instead of tinting them;
+    // the most skins there can be, the height of the palette texture
+    public static final boolean PALETTE_SKINS = true;
+    public static final int MAX_SKINS = 256;
+
+    // simulation
+    // run the match in fixed point, so it plays out the same on every platform, as lockstep and replays need
+    public static final boolean FIXED_POINT_SIMULATION = false;
+
+    // network
+    // broadcast the matches to spectators, who play them from their inputs (see SpectatorServer)
+    public static final boolean SPECTATOR_BROADCAST = false;
+    public static final int SPECTATOR_PORT = 7777;
+
+    // input
+    // the on-screen controls are shown on touch screens; show them on the desktop too, to try them with the mouse
+    public static final boolean VIRTUAL_GAMEPAD_ON_DESKTOP = false;
+    // gamepads are always read once per tick; read the keyboard that way too, instead of its key events
+    public static final boolean POLL_KEYBOARD = false;
+    // record the player's inputs of every match as a macro in macros/, to turn a bug into a regression test
+    public static final boolean RECORD_MACROS = false;
+
+    // training
+    // play training matches: the frame data and hitboxes are drawn, and the function keys reset the fighters,
+    // set their life and slow down or step time (see TrainingMode); turned off, none of it is compiled in
+    public static final boolean TRAINING_MODE = false;
+
+    // replays
+    // record every finished match into the replay archive (see ReplayArchive)
+    public static final boolean RECORD_REPLAYS = true;
+    // play the last seconds before each knockout again, in slow motion (see RollingReplay)
+    public static final boolean KO_REPLAYS = true;
+
     // colors
     public static final Color GOLD = new Color(0.94f, 0.85f, 0.32f, 1f);
 
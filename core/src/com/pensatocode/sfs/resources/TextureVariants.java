@@ -0,0 +1,92 @@
+package com.pensatocode.sfs.resources;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Picks, at load time, which variant of the textures the GPU should get.
+ *
+ * The texture pipeline (see the compressTextures task of the desktop project) writes two variants
+ * of each texture listed in {@link Assets#COMPRESSED_TEXTURES}, as KTX files with all their mipmaps:
+ * <ul>
+ *     <li>ETC2: RGBA8 with EAC alpha, or RGB8 for opaque textures, 4 to 8 times smaller than RGBA8888.
+ *     Only GPUs that support OpenGL ES 3.0 (or desktop GPUs with ES 3 compatibility) can decode it.</li>
+ *     <li>16 bit: RGBA4444, or RGB565 for opaque textures like the background, half the size of RGBA8888.
+ *     Every GPU supports it.</li>
+ * </ul>
+ * As a file handle resolver, it gives the texture loader the chosen variant of a PNG file when there is one,
+ * and the PNG file itself otherwise, so the rest of the game keeps using the PNG file names.
+ */
+public class TextureVariants implements FileHandleResolver {
+    public enum Variant {
+        ETC2("compressed/etc2/"),
+        SIXTEEN_BIT("compressed/16bit/"),
+        ORIGINAL("");
+
+        private final String directory;
+
+        Variant(String directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * @return the path of this variant of a PNG texture
+         */
+        public String path(String fileName) {
+            if (this == ORIGINAL) {
+                return fileName;
+            }
+            return directory + fileName.substring(0, fileName.length() - ".png".length()) + ".ktx";
+        }
+    }
+
+    private final Variant variant;
+    private final boolean mipMapsSupported;
+
+    public TextureVariants() {
+        this.variant = chooseVariant();
+        // OpenGL ES 2.0 can't use mipmaps with textures whose sizes aren't powers of two
+        this.mipMapsSupported = Gdx.graphics.isGL30Available()
+                || Gdx.app.getType() == Application.ApplicationType.Desktop;
+    }
+
+    private static Variant chooseVariant() {
+        boolean mobile = Gdx.app.getType() == Application.ApplicationType.Android
+                || Gdx.app.getType() == Application.ApplicationType.iOS;
+        if ((mobile && Gdx.graphics.isGL30Available())
+                || Gdx.graphics.supportsExtension("GL_ARB_ES3_compatibility")) {
+            return Variant.ETC2;
+        }
+        return Variant.SIXTEEN_BIT;
+    }
+
+    public Variant variant() {
+        return variant;
+    }
+
+    /**
+     * @return the chosen variant of a texture, or null if the pipeline didn't create one
+     */
+    public FileHandle variantFile(String fileName) {
+        if (variant == Variant.ORIGINAL || !fileName.endsWith(".png")) {
+            return null;
+        }
+        FileHandle file = Gdx.files.internal(variant.path(fileName));
+        return file.exists() ? file : null;
+    }
+
+    /**
+     * @return true if the texture will be loaded from a variant with mipmaps that the GPU can use
+     */
+    public boolean hasMipMaps(String fileName) {
+        return mipMapsSupported && variantFile(fileName) != null;
+    }
+
+    @Override
+    public FileHandle resolve(String fileName) {
+        FileHandle file = variantFile(fileName);
+        return file != null ? file : Gdx.files.internal(fileName);
+    }
+}
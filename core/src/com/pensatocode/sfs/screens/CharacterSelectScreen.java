@@ -0,0 +1,148 @@
+package com.pensatocode.sfs.screens;
+
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import com.pensatocode.sfs.SfsGame;
+import com.pensatocode.sfs.resources.Assets;
+import com.pensatocode.sfs.resources.FighterChoice;
+
+public class CharacterSelectScreen extends MenuScreen {
+    private static final float MARGIN = 2f;
+    private static final float ARROW_SPACING = 1.5f;
+
+    private final Array<FighterChoice> fighterChoices;
+    // fighter colors are created once, together with the choices
+    private final Array<Color> fighterColors = new Array<>();
+    private int selectedFighter;
+
+    private final Sprite backButtonSprite;
+    private final Sprite fighterDisplayBackgroundSprite;
+    private final Sprite fighterDisplaySprite;
+    private final Sprite previousButtonSprite;
+    private final Sprite nextButtonSprite;
+    private final Sprite playGameButtonSprite;
+
+    public CharacterSelectScreen(SfsGame game) {
+        super(game);
+
+        // load the fighters the player can choose from
+        fighterChoices = FighterChoice.loadAll();
+        for (FighterChoice choice : fighterChoices) {
+            fighterColors.add(choice.color());
+        }
+
+        // create the sprites
+        backButtonSprite = createSprite("BackButton");
+        fighterDisplayBackgroundSprite = createSprite("FighterDisplayBackground");
+        fighterDisplaySprite = createSprite("FighterDisplay");
+        nextButtonSprite = createSprite("TriangleButton");
+        previousButtonSprite = createSprite("TriangleButton");
+        previousButtonSprite.setFlip(true, false);
+        playGameButtonSprite = createSprite("PlayGameButton");
+    }
+
+    @Override
+    protected void renderMenu() {
+        game.batch().setColor(Color.WHITE);
+
+        // draw the back button in the top left corner
+        backButtonSprite.setPosition(MARGIN, viewport.getWorldHeight() - MARGIN - backButtonSprite.getHeight());
+        backButtonSprite.draw(game.batch());
+
+        // draw the title
+        mediumFont.draw(game.batch(), "CHOOSE YOUR FIGHTER",
+                viewport.getWorldWidth() / 2f,
+                viewport.getWorldHeight() - MARGIN,
+                0, Align.center, false);
+
+        // draw the selected fighter, with its color, on top of the display background
+        fighterDisplayBackgroundSprite.setPosition(
+                viewport.getWorldWidth() / 2f - fighterDisplayBackgroundSprite.getWidth() / 2f,
+                viewport.getWorldHeight() / 2f - fighterDisplayBackgroundSprite.getHeight() / 2f);
+        fighterDisplayBackgroundSprite.draw(game.batch());
+        fighterDisplaySprite.setPosition(
+                viewport.getWorldWidth() / 2f - fighterDisplaySprite.getWidth() / 2f,
+                fighterDisplayBackgroundSprite.getY() + fighterDisplayBackgroundSprite.getHeight() / 2f
+                        - fighterDisplaySprite.getHeight() / 2f + MARGIN / 2f);
+        fighterDisplaySprite.setColor(fighterColors.get(selectedFighter));
+        fighterDisplaySprite.draw(game.batch());
+        smallFont.draw(game.batch(), fighterChoices.get(selectedFighter).name,
+                viewport.getWorldWidth() / 2f,
+                fighterDisplayBackgroundSprite.getY() + MARGIN,
+                0, Align.center, false);
+
+        // draw the arrows to change the fighter on both sides of the display
+        float arrowPositionY = fighterDisplayBackgroundSprite.getY()
+                + fighterDisplayBackgroundSprite.getHeight() / 2f - nextButtonSprite.getHeight() / 2f;
+        previousButtonSprite.setPosition(
+                fighterDisplayBackgroundSprite.getX() - ARROW_SPACING - previousButtonSprite.getWidth(),
+                arrowPositionY);
+        previousButtonSprite.draw(game.batch());
+        nextButtonSprite.setPosition(
+                fighterDisplayBackgroundSprite.getX() + fighterDisplayBackgroundSprite.getWidth() + ARROW_SPACING,
+                arrowPositionY);
+        nextButtonSprite.draw(game.batch());
+
+        // draw the play button at the bottom
+        playGameButtonSprite.setPosition(
+                viewport.getWorldWidth() / 2f - playGameButtonSprite.getWidth() / 2f,
+                MARGIN);
+        playGameButtonSprite.draw(game.batch());
+    }
+
+    @Override
+    protected void touched(float worldX, float worldY) {
+        if (backButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
+            goBack();
+        } else if (previousButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
+            selectFighter(selectedFighter - 1);
+        } else if (nextButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
+            selectFighter(selectedFighter + 1);
+        } else if (playGameButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
+            startGame();
+        }
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        if (keycode == Input.Keys.LEFT || keycode == Input.Keys.A) {
+            selectFighter(selectedFighter - 1);
+        } else if (keycode == Input.Keys.RIGHT || keycode == Input.Keys.D) {
+            selectFighter(selectedFighter + 1);
+        } else if (keycode == Input.Keys.ENTER || keycode == Input.Keys.SPACE) {
+            startGame();
+        } else if (keycode == Input.Keys.ESCAPE || keycode == Input.Keys.BACKSPACE) {
+            goBack();
+        }
+        return true;
+    }
+
+    private void selectFighter(int index) {
+        // wrap around the list of fighters
+        selectedFighter = (index + fighterChoices.size) % fighterChoices.size;
+        game.audioManager().playSound(Assets.CLICK_SOUND);
+    }
+
+    private void goBack() {
+        game.audioManager().playSound(Assets.CLICK_SOUND);
+        game.screenManager().show(ScreenManager.ScreenId.MAIN_MENU);
+    }
+
+    private void startGame() {
+        game.audioManager().playSound(Assets.CLICK_SOUND);
+
+        // make sure the fighters exist, then dress them up as the chosen fighter and a random opponent
+        game.screenManager().prepare(ScreenManager.ScreenId.GAME);
+        int opponentFighter = (selectedFighter + MathUtils.random(1, fighterChoices.size - 1)) % fighterChoices.size;
+        game.player().setName(fighterChoices.get(selectedFighter).name);
+        game.player().setColor(fighterColors.get(selectedFighter));
+        game.opponent().setName(fighterChoices.get(opponentFighter).name);
+        game.opponent().setColor(fighterColors.get(opponentFighter));
+
+        game.screenManager().show(ScreenManager.ScreenId.GAME);
+    }
+}
@@ -4,6 +4,7 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
@@ -12,17 +13,49 @@ import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.pensatocode.sfs.SfsGame;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.RenderSystem;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.input.GdxControllers;
+import com.pensatocode.sfs.input.InputLatency;
+import com.pensatocode.sfs.input.InputPoller;
+import com.pensatocode.sfs.input.InputMacro;
+import com.pensatocode.sfs.input.KeyboardDevice;
+import com.pensatocode.sfs.input.MacroRecorder;
+import com.pensatocode.sfs.input.PlayerAction;
+import com.pensatocode.sfs.input.VirtualGamepad;
 import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+import com.pensatocode.sfs.profile.FighterStats;
+import com.pensatocode.sfs.profile.MatchResult;
+import com.pensatocode.sfs.profile.ProfileStore;
+import com.pensatocode.sfs.replay.ReplayRecorder;
+import com.pensatocode.sfs.replay.RollingReplay;
 import com.pensatocode.sfs.resources.Assets;
 import com.pensatocode.sfs.resources.GlobalVariables;
+import com.pensatocode.sfs.training.TrainingMode;
+import com.pensatocode.sfs.training.TrainingOverlay;
+import com.pensatocode.sfs.utils.CameraController;
+import com.pensatocode.sfs.utils.DynamicResolution;
+import com.pensatocode.sfs.utils.FramePacer;
+import com.pensatocode.sfs.utils.PaletteShader;
+import com.pensatocode.sfs.utils.Palettes;
+import com.pensatocode.sfs.utils.TimeScale;
+import com.pensatocode.sfs.utils.TransientPools;
 
-public class GameScreen implements Screen, InputProcessor {
+import java.io.IOException;
+
+public class GameScreen implements Screen, InputProcessor, Match.Listener {
 
     private final SfsGame game;
 
@@ -47,34 +80,70 @@ public class GameScreen implements Screen, InputProcessor {
      */
     private final ExtendViewport viewport;
 
+    // the camera of the ring and the fighters, which follows the fight; the viewport's one stays put for the HUD
+    private final OrthographicCamera sceneCamera;
+    private final CameraController cameraController;
+    // the size of the fighters' sprites, in world units, for the camera to frame them
+    private float fighterWidth;
+    private float fighterHeight;
+    // the camera shakes on the heavy hits, like the rising punch and the sweeping kick, less so when blocked,
+    // and closes in on the fighter knocked out
+    private static final float HEAVY_HIT_DAMAGE = 8f;
+    private static final float HEAVY_HIT_SHAKE = 0.6f;
+    private static final float BLOCKED_HIT_SHAKE = 0.25f;
+    private static final float KO_SHAKE = 1f;
+    private static final float KO_FOCUS_TIME = 1.5f;
+
+    // renders the scene at a lower resolution when the GPU can't keep up, null if turned off
+    private final DynamicResolution dynamicResolution;
+
     // game
     private GlobalVariables.Difficulty difficulty = GlobalVariables.Difficulty.EASY;
 
     private enum GameState {
         RUNNING,
         PAUSED,
-        GAME_OVER
+        GAME_OVER,
+        // the knockout played again in slow motion, while the match waits
+        KO_REPLAY
     }
 
     private GameState gameState;
 
-    // rounds
-    private enum RoundState {
-        STARTING,
-        IN_PROGRESS,
-        ENDING
-    }
-
-    private RoundState roundState;
-    private float roundStateTime;
-    private static final float START_ROUND_DELAY = 2f;
-    private static final float END_ROUND_DELAY = 2f;
-    private int currentRound;
-    private static final int MAX_ROUNDS = 3;
-    private int roundsWon = 0;
-    private int roundsLost = 0;
-    private static final float MAX_ROUND_TIME = 99.99f;
-    private float roundTimer = MAX_ROUND_TIME;
+    // rounds, ring and combat
+    private final Match match;
+    // records the finished matches into the replay archive, if there's one
+    private ReplayRecorder replayRecorder;
+    // and the player's inputs, as macros for regression tests
+    private MacroRecorder macroRecorder;
+    private static final String MACRO_DIRECTORY = "macros/";
+    // the last seconds of the match, to play the knockouts again
+    private RollingReplay koReplay;
+    private boolean koReplayPending;
+    // updates of the match kept for the knockout replays: 10 seconds of steps
+    private static final int KO_REPLAY_CAPACITY = 600;
+    private static final int KO_REPLAY_KEYFRAME_INTERVAL = 30;
+    private static final float KO_REPLAY_SECONDS = 2f;
+    private static final float KO_REPLAY_SPEED = 0.4f;
+    // the clock of the match: slow motion and the short freezes on impact
+    private final TimeScale timeScale = new TimeScale();
+    // the match goes in fixed steps of a frame of the frame data, however long the frames drawn take,
+    // so an attack active for one frame can't be stepped over; the time not stepped yet, and the most steps a frame
+    // catches up on, so a slow frame doesn't make the next ones slower still
+    private float stepTime;
+    private static final int MAX_STEPS_PER_FRAME = 4;
+    private static final float HIT_STOP = 0.06f;
+    private static final float KO_HIT_STOP = 0.3f;
+    // the on-screen controls, on touch screens
+    private VirtualGamepad virtualGamepad;
+    // the gamepads, and the keyboard in the polling mode, read once per tick
+    private final InputPoller inputPoller;
+    private final InputLatency inputLatency = new InputLatency();
+    private final GdxControllers controllers;
+    private final RenderSystem renderSystem = new RenderSystem();
+    // the training controls and the frame data, only in the training mode
+    private TrainingMode trainingMode;
+    private TrainingOverlay trainingOverlay;
     private static final float CRITICAL_ROUND_TIME = 10f;
     private static final Color CRITICAL_ROUND_TIME_COLOR = Color.RED;
 
@@ -88,23 +157,29 @@ public class GameScreen implements Screen, InputProcessor {
     private static final Color HEALTH_BAR_COLOR = Color.RED;
     private static final Color HEALTH_BAR_BACKGROUND_COLOR = GlobalVariables.GOLD;
 
+    // HUD texts are built once and reused, instead of concatenating new strings every frame
+    private static final String[] ROUND_TIMER_TEXTS = new String[100];
+    private static final String[] ROUND_TEXTS = new String[Match.MAX_ROUNDS + 1];
+
+    static {
+        for (int i = 0; i < ROUND_TIMER_TEXTS.length; i++) {
+            ROUND_TIMER_TEXTS[i] = String.format("%02d", i);
+        }
+        for (int i = 0; i < ROUND_TEXTS.length; i++) {
+            ROUND_TEXTS[i] = "ROUND " + i;
+        }
+    }
+
+    private String winsText;
+    private int winsTextRoundsWon = -1;
+    private int winsTextRoundsLost = -1;
+
+    // the player's record with the fighter, from the profile, shown when the game is over
+    private String careerText = "";
+
     // background/ring
     private Texture backgroundTexture;
     private Texture frontRopesTexture;
-    private static final float RING_MIN_X = 7f;
-    private static final float RING_MAX_X = 60f;
-    private static final float RING_MIN_Y = 4f;
-    private static final float RING_MAX_Y = 22f;
-
-//    private static final float RING_SLOPE = (RING_MAX_Y - RING_MIN_Y) / (RING_MAX_X - RING_MIN_X);
-    private static final float RING_SLOPE = 3.16f;
-
-    // fighters
-    private static final float PLAYER_START_POSITION_X = 16f;
-    private static final float OPPONENT_START_POSITION_X = 51f;
-    private static final float FIGHTER_START_POSITION_Y = 15f;
-    private static final float FIGHTER_CONTACT_DISTANCE_X = 7.5f;
-    private static final float FIGHTER_CONTACT_DISTANCE_Y = 1.5f;
 
     // buttons
     private Sprite playAgainButtonSprite;
@@ -131,6 +206,10 @@ public class GameScreen implements Screen, InputProcessor {
                 GlobalVariables.WORLD_HEIGHT,
                 camera
         );
+        sceneCamera = new OrthographicCamera();
+        cameraController = new CameraController(sceneCamera, GlobalVariables.WORLD_WIDTH, GlobalVariables.WORLD_HEIGHT);
+        dynamicResolution = GlobalVariables.DYNAMIC_RESOLUTION
+                ? new DynamicResolution(GlobalVariables.FRAME_BUDGET) : null;
 
         // create the game area
         createGameArea();
@@ -140,12 +219,56 @@ public class GameScreen implements Screen, InputProcessor {
 
         // create the buttons
         createButtons();
+
+        // create the match between the player and the opponent
+        match = new Match(game.player(), game.opponent(), this);
+        match.setEventBus(game.eventBus());
+
+        // the training controls change the match outside of its inputs, so it can't be played again from them
+        if (GlobalVariables.TRAINING_MODE) {
+            trainingMode = new TrainingMode(match);
+            trainingOverlay = new TrainingOverlay(trainingMode, match);
+        }
+        if (game.spectatorServer() != null && !GlobalVariables.TRAINING_MODE) {
+            game.spectatorServer().follow(match);
+        }
+
+        // and record it for the replays
+        if (game.replays() != null && !GlobalVariables.TRAINING_MODE) {
+            replayRecorder = new ReplayRecorder(match, game.replays());
+        }
+        if (GlobalVariables.RECORD_MACROS && !GlobalVariables.TRAINING_MODE) {
+            macroRecorder = new MacroRecorder(match, GameEvent.PLAYER);
+        }
+        if (GlobalVariables.KO_REPLAYS && !GlobalVariables.TRAINING_MODE) {
+            koReplay = new RollingReplay(match, KO_REPLAY_CAPACITY, KO_REPLAY_KEYFRAME_INTERVAL);
+        }
+
+        // let the player fight on touch screens
+        if (Gdx.input.isPeripheralAvailable(Input.Peripheral.MultitouchScreen)
+                || GlobalVariables.VIRTUAL_GAMEPAD_ON_DESKTOP) {
+            virtualGamepad = new VirtualGamepad(match, inputLatency,
+                    game.assets().manager().get(Assets.MOBILE_UI_ATLAS, TextureAtlas.class),
+                    pauseButtonSprite.getWidth());
+        }
+
+        // and with gamepads, and in the polling mode the keyboard, read before every update of the match
+        inputPoller = new InputPoller(match, inputLatency);
+        controllers = new GdxControllers(inputPoller);
+        if (GlobalVariables.POLL_KEYBOARD) {
+            inputPoller.addDevice(new KeyboardDevice(game.keyBindings()), InputLatency.KEYBOARD);
+        }
     }
 
     private void createGameArea() {
         this.backgroundTexture = game.assets().manager().get(Assets.BACKGROUND_TEXTURE);
         this.frontRopesTexture = game.assets().manager().get(Assets.FRONT_ROPES_TEXTURE);
 
+        // all the sprite sheets have frames of the same size
+        Texture idleSpriteSheet = game.assets().manager().get(Assets.IDLE_SPRITE_SHEET);
+        fighterWidth = idleSpriteSheet.getWidth() / Fighter.FRAME_COLS * GlobalVariables.WORLD_SCALE;
+        fighterHeight = idleSpriteSheet.getHeight() / Fighter.FRAME_ROWS * GlobalVariables.WORLD_SCALE;
+
         // change the texture filter to avoid blurry sprites (for background and front ropes only)
 //        backgroundTexture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
     }
@@ -204,27 +327,67 @@ public class GameScreen implements Screen, InputProcessor {
     public void show() {
         // process user input
         Gdx.input.setInputProcessor(this);
+        controllers.attach();
+
+        // go on with the match the game was in when it was killed in the background, paused,
+        // or play a new one at the difficulty the player chose last
+        if (game.suspendedMatch().restore(match)) {
+            // dress the fighters in the skins of the colors they were saved with
+            applySkins();
+            // the match jumped to the save, what came before isn't worth playing again
+            if (koReplay != null) {
+                koReplay.clear();
+            }
+            difficulty = game.suspendedMatch().difficulty();
+            setGameState(GameState.PAUSED);
+            game.audioManager().pauseMusic();
+            return;
+        }
+        difficulty = game.difficulty();
+        if (replayRecorder != null) {
+            replayRecorder.setDifficulty(difficulty);
+        }
 
-        // start the game
+        // dress the fighters in the skins of the colors they were given, and start the game
+        applySkins();
         startGame();
 
         //game.opponent().block();
     }
 
+    private void setGameState(GameState gameState) {
+        this.gameState = gameState;
+
+        // fingers left on the controls don't keep the fighter moving or blocking once the game stops
+        if (gameState != GameState.RUNNING && virtualGamepad != null) {
+            virtualGamepad.releaseAll();
+        }
+
+        // only a running game or a replay moves, paused and game over screens are drawn again only on input
+        game.framePacer().setMode(gameState == GameState.RUNNING || gameState == GameState.KO_REPLAY
+                ? FramePacer.Mode.ACTIVE : FramePacer.Mode.IDLE);
+    }
+
     private void startGame() {
         // set the game state
-        gameState = GameState.RUNNING;
-        roundsWon = 0;
-        roundsLost = 0;
-
-        // start the first round
-        currentRound = 1;
-        startRound();
+        setGameState(GameState.RUNNING);
+
+        // start the match, the save of the last one is no use anymore
+        match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        game.suspendedMatch().clear();
+        inputLatency.reset();
+        timeScale.reset();
+        stepTime = 0f;
+        koReplayPending = false;
+        if (macroRecorder != null) {
+            macroRecorder.start();
+        }
     }
 
     private void pauseGame() {
         // set the game state
-        gameState = GameState.PAUSED;
+        setGameState(GameState.PAUSED);
+        game.eventBus().publish(GameEvent.Type.PAUSE, match.getTick());
 
         // pause game sounds and music
         game.audioManager().pauseAllGameSounds();
@@ -233,54 +396,60 @@ public class GameScreen implements Screen, InputProcessor {
 
     private void resumeGame() {
         // set the game state
-        gameState = GameState.RUNNING;
+        setGameState(GameState.RUNNING);
+        game.eventBus().publish(GameEvent.Type.RESUME, match.getTick());
 
         // resume game sounds and music (if it's enabled)
         game.audioManager().resumeAllGameSounds();
         game.audioManager().playMusic();
     }
 
-    private void startRound() {
-        // initialize the fighters
-        game.player().getReady(PLAYER_START_POSITION_X, FIGHTER_START_POSITION_Y);
-        game.opponent().getReady(OPPONENT_START_POSITION_X, FIGHTER_START_POSITION_Y);
+    @Override
+    public void onHit(Fighter attacker, Fighter defender) {
+        // freeze the fight for a moment on impact, longer on the knockout, which is then played again
+        timeScale.hitStop(defender.hasLost() ? KO_HIT_STOP : HIT_STOP);
+        if (defender.hasLost() && koReplay != null && gameState == GameState.RUNNING) {
+            koReplayPending = true;
+        }
 
-        // set the round state
-        roundState = RoundState.STARTING;
-        roundStateTime = 0f;
-        roundTimer = MAX_ROUND_TIME;
-    }
+        // shake the camera on the heavy hits, and close in on the knockout, in the replay too
+        if (defender.hasLost()) {
+            cameraController.shake(KO_SHAKE);
+            Vector2 position = defender.getPosition();
+            cameraController.focus(position.x + fighterWidth * 0.5f, position.y + fighterHeight * 0.5f,
+                    KO_FOCUS_TIME);
+        } else if (attacker.getMoveDamage() >= HEAVY_HIT_DAMAGE) {
+            cameraController.shake(defender.isBlocking() ? BLOCKED_HIT_SHAKE : HEAVY_HIT_SHAKE);
+        }
 
-    private void endRound() {
-        // end the round
-        roundState = RoundState.ENDING;
-        roundStateTime = 0f;
+        if (defender.isBlocking()) {
+            // if the defender is blocking, play block sound
+            game.audioManager().playSound(Assets.BLOCK_SOUND);
+        } else {
+            // otherwise, play hit sound
+            game.audioManager().playSound(Assets.HIT_SOUND);
+        }
     }
 
-    private void winRound() {
-        // player wins the round
-        game.player().win();
-        game.opponent().lose();
-        roundsWon++;
+    @Override
+    public void onRoundWon() {
+        // the crowd already cheered the knockout being played again
+        if (gameState == GameState.KO_REPLAY) {
+            return;
+        }
 
         // play cheer sound
         game.audioManager().playSound(Assets.CHEER_SOUND);
-
-        // end the round
-        endRound();
     }
 
-    private void loseRound() {
-        // player loses the round
-        game.player().lose();
-        game.opponent().win();
-        roundsLost++;
+    @Override
+    public void onRoundLost() {
+        if (gameState == GameState.KO_REPLAY) {
+            return;
+        }
 
         // play boo sound
         game.audioManager().playSound(Assets.BOO_SOUND);
-
-        // end the round
-        endRound();
     }
 
     @Override
@@ -290,57 +459,100 @@ public class GameScreen implements Screen, InputProcessor {
         // when the background texture is not fully opaque or when the viewport is letterboxed
         ScreenUtils.clear(0, 0, 0, 1);
 
+        // read the gamepads, which may pause the game or leave the screen
+        if (pollInput()) {
+            return;
+        }
+
         // update the game
         // delta time should be zero when the game is paused
-        update(gameState == GameState.RUNNING ? delta : 0f);
+        float deltaTime = gameState == GameState.RUNNING ? delta : 0f;
+        if (GlobalVariables.TRAINING_MODE) {
+            // in training, time may be slowed down or frozen
+            deltaTime = trainingMode.timeStep(deltaTime);
+        }
+        if (gameState == GameState.KO_REPLAY) {
+            updateKoReplay(delta);
+        } else {
+            // slowed down, or frozen on impact
+            update(timeScale.apply(deltaTime));
+        }
 
-        // set the sprite batch amd the shape renderer to use the viewport's camera
-        game.batch().setProjectionMatrix(viewport.getCamera().combined);
-        game.shapeRenderer().setProjectionMatrix(viewport.getCamera().combined);
+        // move the camera of the scene, in real time, so it still glides during a hit-stop or the replay
+        followFighters();
+        cameraController.update(gameState == GameState.PAUSED ? 0f : delta);
+
+        // set the sprite batch and the shape renderer to use the scene's camera
+        game.batch().setProjectionMatrix(sceneCamera.combined);
+        game.shapeRenderer().setProjectionMatrix(sceneCamera.combined);
+
+        // draw the scene into the dynamic resolution frame buffer, if there is one
+        if (dynamicResolution != null) {
+            dynamicResolution.update(delta);
+            dynamicResolution.begin();
+        }
 
         // begin drawing
         game.batch().begin();
 
-        // draw background
+        // draw the part of the background in view
         game.batch().setColor(Color.WHITE);
-        game.batch().draw(
-                backgroundTexture,
-                0,
-                0,
-                backgroundTexture.getWidth() * GlobalVariables.WORLD_SCALE,
-                backgroundTexture.getHeight() * GlobalVariables.WORLD_SCALE
-        );
+        cameraController.drawInView(game.batch(), backgroundTexture, GlobalVariables.WORLD_SCALE);
 
         // draw the fighters
         renderFighters();
 
-        // draw the front ropes
+        // draw the front ropes, if they're in view
         game.batch().setColor(Color.WHITE);
-        game.batch().draw(
-                frontRopesTexture,
-                0,
-                0,
-                frontRopesTexture.getWidth() * GlobalVariables.WORLD_SCALE,
-                frontRopesTexture.getHeight() * GlobalVariables.WORLD_SCALE
-        );
+        cameraController.drawInView(game.batch(), frontRopesTexture, GlobalVariables.WORLD_SCALE);
+
+        // stretch the scene over the screen, then draw the HUD on top of it at full resolution, so texts stay sharp
+        if (dynamicResolution != null) {
+            game.batch().end();
+            dynamicResolution.end(viewport, game.batch());
+            game.batch().begin();
+        }
+
+        // the HUD doesn't move with the scene, it's drawn with the viewport's camera
+        game.batch().setProjectionMatrix(viewport.getCamera().combined);
+        game.shapeRenderer().setProjectionMatrix(viewport.getCamera().combined);
 
         // draw the HUD
         renderHUD();
 
+        // and in training, the frame data and the hitboxes
+        if (GlobalVariables.TRAINING_MODE) {
+            trainingOverlay.draw(game.batch(), game.shapeRenderer(), smallFont, sceneCamera.combined,
+                    viewport.getWorldWidth(), viewport.getWorldHeight());
+        }
+
         // draw the pause button
         renderPauseButton();
 
+        // draw the on-screen controls
+        if (virtualGamepad != null && gameState != GameState.GAME_OVER) {
+            virtualGamepad.draw(game.batch());
+        }
+
         // if the game is over, draw the game over overlay
         if (gameState == GameState.GAME_OVER) {
             // draw the game over overlay
             renderGameOverOverlay();
         } else {
             // if the round is starting, draw the start round text
-            if (roundState == RoundState.STARTING) {
+            if (match.getRoundState() == Match.RoundState.STARTING) {
                 // draw the start round text
                 renderStartRoundText();
             }
 
+            // if the knockout is being played again, say so
+            if (gameState == GameState.KO_REPLAY) {
+                mediumFont.draw(game.batch(), "REPLAY",
+                        viewport.getWorldWidth() / 2f,
+                        viewport.getWorldHeight() * 0.75f,
+                        0, Align.center, false);
+            }
+
             // if the game is paused, draw the pause overlay
             if (gameState == GameState.PAUSED) {
                 // draw the pause overlay
@@ -353,39 +565,68 @@ public class GameScreen implements Screen, InputProcessor {
     }
 
     private void renderFighters() {
-        // use the y coordinate of the fighters' position to determine which one is in front
-        if (game.player().getPosition().y > game.opponent().getPosition().y) {
-            // draw the player
-            game.player().render(game.batch());
-            // draw the opponent
-            game.opponent().render(game.batch());
-        } else {
-            // draw the opponent
-            game.opponent().render(game.batch());
-            // draw the player
-            game.player().render(game.batch());
+        // the fighters further back in the ring are drawn first, and the ones out of view not at all,
+        // in their skins, whatever they are, in the same draw call when they share a sprite sheet
+        PaletteShader paletteShader = game.paletteShader();
+        if (paletteShader != null) {
+            paletteShader.begin(game.batch());
+        }
+        renderSystem.render(match.world(), game.batch(), cameraController.view());
+        if (paletteShader != null) {
+            paletteShader.end(game.batch());
         }
     }
 
+    private void applySkins() {
+        PaletteShader paletteShader = game.paletteShader();
+        if (paletteShader == null) {
+            return;
+        }
+        applySkin(game.player());
+        applySkin(game.opponent());
+        paletteShader.update();
+    }
+
+    private void applySkin(Fighter fighter) {
+        // a color no fighter choice has, like one from an older save, gets a palette of its own, if there's room
+        Palettes palettes = game.palettes();
+        int palette = palettes.find(fighter.getColor());
+        if (palette < 0) {
+            if (palettes.size() == palettes.capacity()) {
+                Gdx.app.error("GameScreen", "No room for the palette of " + fighter.getName() + ", using the first one");
+                palette = 0;
+            } else {
+                palette = palettes.addRamp(fighter.getColor());
+            }
+        }
+        fighter.setSkin(palette);
+    }
+
+    private void followFighters() {
+        Vector2 player = match.player().getPosition();
+        Vector2 opponent = match.opponent().getPosition();
+        cameraController.follow(player.x, player.y, opponent.x, opponent.y, fighterWidth, fighterHeight);
+    }
+
     private void renderHUD() {
         float HUDMargin = 1f;
 
         // draw the rounds won to lost ratio
-        smallFont.draw(game.batch(), "WINS: " + roundsWon + " - " + roundsLost,
+        smallFont.draw(game.batch(), getWinsText(),
                 HUDMargin,
                 GlobalVariables.WORLD_HEIGHT - HUDMargin);
 
         // draw the difficulty setting
-        String text = "DIFFICULTY: ";
+        String text;
         switch (difficulty) {
             case EASY:
-                text += "EASY";
+                text = "DIFFICULTY: EASY";
                 break;
             case MEDIUM:
-                text += "MEDIUM";
+                text = "DIFFICULTY: MEDIUM";
                 break;
             case HARD: default:
-                text += "HARD";
+                text = "DIFFICULTY: HARD";
                 break;
         }
         smallFont.draw(game.batch(), text,
@@ -453,20 +694,33 @@ public class GameScreen implements Screen, InputProcessor {
                 fighterNamePositionY, 0, Align.right, false);
 
         // draw the round timer
-        if (roundTimer < CRITICAL_ROUND_TIME) {
+        if (match.getRoundTimer() < CRITICAL_ROUND_TIME) {
             mediumFont.setColor(CRITICAL_ROUND_TIME_COLOR);
         }
-        mediumFont.draw(game.batch(), String.format("%02d", (int) roundTimer),
+        int roundTimerSeconds = MathUtils.clamp((int) match.getRoundTimer(), 0, ROUND_TIMER_TEXTS.length - 1);
+        mediumFont.draw(game.batch(), ROUND_TIMER_TEXTS[roundTimerSeconds],
                 viewport.getWorldWidth() / 2f - mediumFont.getSpaceXadvance() * 2.3f,
                 viewport.getWorldHeight() - HUDMargin,
                 0, Align.left, false);
         mediumFont.setColor(DEFAULT_FONT_COLOR);
     }
 
+    private String getWinsText() {
+        // only build a new text when the score changes
+        if (winsTextRoundsWon != match.getRoundsWon() || winsTextRoundsLost != match.getRoundsLost()) {
+            winsTextRoundsWon = match.getRoundsWon();
+            winsTextRoundsLost = match.getRoundsLost();
+            winsText = "WINS: " + winsTextRoundsWon + " - " + winsTextRoundsLost;
+        }
+        return winsText;
+    }
+
     private void renderStartRoundText() {
         String text;
-        if (roundStateTime < START_ROUND_DELAY * 0.5f) {
-            text = "ROUND " + currentRound;
+        if (match.getRoundStateTime() < Match.START_ROUND_DELAY * 0.5f) {
+            text = match.getCurrentRound() < ROUND_TEXTS.length
+                    ? ROUND_TEXTS[match.getCurrentRound()]
+                    : "ROUND " + match.getCurrentRound();
         } else {
             text = "FIGHT!";
         }
@@ -517,12 +771,18 @@ public class GameScreen implements Screen, InputProcessor {
         playAgainButtonSprite.draw(game.batch());
 
         // draw the text
-        String text = roundsWon > roundsLost ? "YOU WIN!" : "YOU LOSE!";
+        String text = match.getRoundsWon() > match.getRoundsLost() ? "YOU WIN!" : "YOU LOSE!";
         largeFont.draw(game.batch(), text,
                 viewport.getWorldWidth() / 2f,
                 playAgainButtonSprite.getY() + playAgainButtonSprite.getHeight()
                         + textMarginBottom + largeFont.getCapHeight(),
                 0, Align.center, false);
+
+        // and the player's record with the fighter, below the buttons
+        smallFont.draw(game.batch(), careerText,
+                viewport.getWorldWidth() / 2f,
+                mainMenuButtonSprite.getY() - textMarginBottom,
+                0, Align.center, false);
     }
 
     private void renderPauseOverlay() {
@@ -566,108 +826,135 @@ public class GameScreen implements Screen, InputProcessor {
                 0, Align.center, false);
     }
 
-    private void update(float deltaTime) {
-        if (roundState == RoundState.STARTING && roundStateTime >= START_ROUND_DELAY) {
-            // if the starting delay is over, start the round
-            roundState = RoundState.IN_PROGRESS;
-            roundStateTime = 0f;
-        } else if (roundState == RoundState.ENDING && roundStateTime >= END_ROUND_DELAY) {
-            // if the end round delay has been reached and player has won or lost more than
-            // half of the rounds, end the game; otherwise, start a new round
-            if (roundsWon > MAX_ROUNDS / 2 || roundsLost > MAX_ROUNDS / 2) {
-                gameState = GameState.GAME_OVER;
+    /**
+     * Reads the polled devices, once per frame, right before the match is updated,
+     * and does what their screen buttons ask, like the keys in keyDown().
+     *
+     * @return true if the game went to another screen
+     */
+    private boolean pollInput() {
+        int actions = inputPoller.poll(gameState == GameState.RUNNING);
+        if ((actions & PlayerAction.CONFIRM.bit()) != 0) {
+            confirm();
+        } else if ((actions & PlayerAction.PAUSE.bit()) != 0) {
+            if (gameState == GameState.GAME_OVER) {
+                // start is the button of a gamepad that's pressed to play again
+                confirm();
             } else {
-                currentRound++;
-                startRound();
+                togglePause();
             }
-        } else {
-            // otherwise, increment the round state time by delta time
-            roundStateTime += deltaTime;
+        } else if ((actions & PlayerAction.BACK.bit()) != 0 && gameState != GameState.RUNNING) {
+            goToMainMenu();
+            return true;
         }
-
-        // update the fighters
-        game.player().update(deltaTime);
-        game.opponent().update(deltaTime);
-
-        // make sure the fighters are facing each other
-        if (game.player().getPosition().x <= game.opponent().getPosition().x) {
-            game.player().faceRight();
-            game.opponent().faceLeft();
-        } else {
-            game.player().faceLeft();
-            game.opponent().faceRight();
+        if ((actions & PlayerAction.MUSIC.bit()) != 0) {
+            game.toggleMusic();
         }
+        return false;
+    }
 
-        // keep the fighter within the bound of the ring
-        keepFighterInRing(game.player().getPosition());
-        keepFighterInRing(game.opponent().getPosition());
+    private void update(float deltaTime) {
+        // the player's actions since the last update reach the match now, log how long they took
+        inputLatency.publish(game.eventBus(), match.getTick(), TimeUtils.nanoTime());
+
+        // update the match, a step at a time
+        stepTime += deltaTime;
+        int steps = 0;
+        // once a hit lands, its hit-stop holds the steps left until it's over
+        while (stepTime >= MoveSet.FRAME_TIME && steps < MAX_STEPS_PER_FRAME && !timeScale.isStopped()) {
+            match.update(MoveSet.FRAME_TIME);
+            stepTime -= MoveSet.FRAME_TIME;
+            steps++;
+        }
+        if (steps == MAX_STEPS_PER_FRAME) {
+            // too far behind to catch up, let the rest go
+            stepTime = Math.min(stepTime, MoveSet.FRAME_TIME);
+        }
 
-        if (roundState == RoundState.IN_PROGRESS) {
-            // if the round is in progress, decrease the round timer by delta time
-            roundTimer -= deltaTime;
+        // once the knockout has sunk in, play it again
+        if (koReplayPending && !timeScale.isStopped()) {
+            koReplayPending = false;
+            startKoReplay();
+        }
 
-            if (roundTimer <= 0f) {
-                // if the round timer has reached zero, end the round
-                if (game.player().getLife() >= game.opponent().getLife()) {
-                    winRound();
-                } else {
-                    loseRound();
-                }
+        // if the match is over, so is the game
+        if (match.isOver() && gameState != GameState.GAME_OVER) {
+            setGameState(GameState.GAME_OVER);
+            game.suspendedMatch().clear();
+            if (!GlobalVariables.TRAINING_MODE) {
+                recordMatch();
             }
+            saveMacro();
+            Gdx.app.debug("GameScreen", "Input latency: " + inputLatency.summary());
+        }
+    }
 
-            // check if the fighters are within contact distance
-            if (areWithinContactDistance(game.player().getPosition(), game.opponent().getPosition())) {
-                if (game.player().isAttackActive()) {
-                    // if the fighters are within contact distance and the player is attacking,
-                    // the opponent gets hit
-                    game.opponent().getHit(Fighter.HIT_STRENGTH);
-                    System.out.println("Opponent hit: " + game.opponent().getLife());
-                    if (game.opponent().isBlocking()) {
-                        // if the opponent is blocking, play block sound
-                        game.audioManager().playSound(Assets.BLOCK_SOUND);
-                    } else {
-                        // otherwise, play hit sound
-                        game.audioManager().playSound(Assets.HIT_SOUND);
-                    }
-
-                    // flag that contact has been made to deactivate the player's attack
-                    game.player().makeContact();
-
-                    // check if the opponent is knocked out
-                    if (game.opponent().hasLost()) {
-                        // if opponent has lost, player wins the round
-                        winRound();
-                    }
-                }
-            }
+    private void startKoReplay() {
+        // let go of the buttons held in the live match, the replay doesn't take any input
+        setGameState(GameState.KO_REPLAY);
+        inputPoller.poll(false);
+        if (!koReplay.startPlayback(KO_REPLAY_SECONDS)) {
+            setGameState(GameState.RUNNING);
+            return;
         }
+        timeScale.reset();
+        timeScale.setScale(KO_REPLAY_SPEED);
     }
 
-    private void keepFighterInRing(Vector2 position) {
-        if (position.y < RING_MIN_Y) {
-            position.y = RING_MIN_Y;
-        } else if (position.y > RING_MAX_Y) {
-            position.y = RING_MAX_Y;
+    private void updateKoReplay(float delta) {
+        // the replay plays the recorded updates in slow motion, and is over once it's back to the live match
+        if (!koReplay.updatePlayback(timeScale.apply(delta))) {
+            endKoReplay();
         }
+    }
+
+    private void endKoReplay() {
+        koReplay.stopPlayback();
+        timeScale.reset();
+        setGameState(GameState.RUNNING);
+    }
 
-        if (position.x < position.y / RING_SLOPE + RING_MIN_X) {
-            position.x = position.y / RING_SLOPE + RING_MIN_X;
-        } else if (position.x > position.y / -RING_SLOPE + RING_MAX_X) {
-            position.x = position.y / -RING_SLOPE + RING_MAX_X;
+    private void saveMacro() {
+        if (macroRecorder == null || !macroRecorder.isRecording()) {
+            return;
+        }
+        InputMacro macro = macroRecorder.stop();
+        FileHandle file = Gdx.files.local(MACRO_DIRECTORY + System.currentTimeMillis() + ".macro");
+        try {
+            file.writeString("# " + game.player().getName() + " against " + game.opponent().getName() + "\n"
+                    + macro.format(), false, "UTF-8");
+            Gdx.app.log("GameScreen", "Saved the player's inputs to " + file.path());
+        } catch (GdxRuntimeException e) {
+            Gdx.app.error("GameScreen", "Couldn't save the player's inputs", e);
         }
     }
 
-    private boolean areWithinContactDistance(Vector2 position1, Vector2 position2) {
-        // determine if the fighters are within contact distance
-        float xDistance = Math.abs(position1.x - position2.x);
-        float yDistance = Math.abs(position1.y - position2.y);
-        return xDistance <= FIGHTER_CONTACT_DISTANCE_X && yDistance <= FIGHTER_CONTACT_DISTANCE_Y;
+    private void recordMatch() {
+        // add the match to the player's history, which survives restarts
+        ProfileStore profile = game.profile();
+        if (profile == null) {
+            careerText = "";
+            return;
+        }
+        String fighter = game.player().getName();
+        profile.recordMatch(new MatchResult(System.currentTimeMillis(), fighter, game.opponent().getName(),
+                match.getRoundsWon(), match.getRoundsLost(), match.getFightingTime()));
+        FighterStats stats = profile.stats(fighter);
+        careerText = "CAREER: " + stats.getWins() + " WINS - " + stats.getLosses() + " LOSSES";
     }
 
     @Override
     public void resize(int width, int height) {
         // update the viewport with the new screen size
         viewport.update(width, height, true);
+        followFighters();
+        cameraController.resize(viewport.getWorldWidth(), viewport.getWorldHeight());
+        if (virtualGamepad != null) {
+            virtualGamepad.layout(viewport.getWorldWidth(), viewport.getWorldHeight());
+        }
+        if (dynamicResolution != null) {
+            dynamicResolution.resize(viewport);
+        }
     }
 
     /**
@@ -678,11 +965,21 @@ public class GameScreen implements Screen, InputProcessor {
      */
     @Override
     public void pause() {
+        // back to the live match, to pause and save it
+        if (gameState == GameState.KO_REPLAY) {
+            endKoReplay();
+        }
+
         // if the game is running, pause it
         if (gameState == GameState.RUNNING) {
             pauseGame();
         }
 
+        // save the match in progress, in case the system kills the game in the background
+        if (gameState == GameState.PAUSED) {
+            saveMatch();
+        }
+
         // pause the music
         game.audioManager().pauseMusic();
     }
@@ -701,92 +998,139 @@ public class GameScreen implements Screen, InputProcessor {
         game.audioManager().playMusic();
     }
 
+    private void saveMatch() {
+        long start = TimeUtils.nanoTime();
+        try {
+            game.suspendedMatch().save(match, difficulty);
+            Gdx.app.debug("GameScreen", "Saved the match in " + (TimeUtils.nanoTime() - start) / 1000L + " us");
+        } catch (IOException e) {
+            Gdx.app.error("GameScreen", "Couldn't save the match", e);
+        }
+    }
+
+    private void goToMainMenu() {
+        // the match is left, there's nothing to go on with
+        game.suspendedMatch().clear();
+        game.screenManager().show(ScreenManager.ScreenId.MAIN_MENU);
+    }
+
     @Override
     public void hide() {
+        controllers.detach();
+
+        // leave the match live, in case the screen comes back to it
+        if (koReplay != null) {
+            koReplay.stopPlayback();
+        }
 
+        // don't leave any game sounds playing in the menus
+        game.audioManager().stopAllGameSounds();
     }
 
     @Override
     public void dispose() {
-
+        if (dynamicResolution != null) {
+            dynamicResolution.dispose();
+        }
     }
 
     @Override
     public boolean keyDown(int keycode) {
-        if (keycode == Input.Keys.SPACE) {
-            if (gameState == GameState.RUNNING) {
-                // if the game is running and the space bar is pressed, skip any round delays
-                if (roundState == RoundState.STARTING) {
-                    roundStateTime = START_ROUND_DELAY;
-                } else if (roundState == RoundState.ENDING) {
-                    roundStateTime = END_ROUND_DELAY;
+        // the training controls come first, on keys no action is bound to
+        if (GlobalVariables.TRAINING_MODE && trainingMode.keyDown(keycode)) {
+            return true;
+        }
+
+        // what the key stands for, in the bindings the player may have changed
+        PlayerAction action = game.keyBindings().buttonAction(keycode);
+        if (action == null) {
+            return true;
+        }
+
+        // in the polling mode, the keyboard is read with the gamepads (see pollInput())
+        if (GlobalVariables.POLL_KEYBOARD && action != PlayerAction.MUSIC) {
+            return true;
+        }
+
+        switch (action) {
+            case CONFIRM:
+                confirm();
+                break;
+            case PAUSE:
+                togglePause();
+                break;
+            case BACK:
+                // if the game is paused or over and the escape key is pressed, go back to the main menu
+                if (gameState != GameState.RUNNING) {
+                    goToMainMenu();
                 }
-            } else if (gameState == GameState.GAME_OVER) {
-                // if the game is over and the space bar is pressed, restart the game
-                startGame();
-            } else {
-                // if the game is paused and the space bar is pressed, resume the game
-                resumeGame();
-            }
-        } else if ((gameState == GameState.RUNNING || gameState == GameState.PAUSED) && keycode == Input.Keys.P) {
-            // if the game is running or paused and the P key is pressed, pause or resume the game
-            if (gameState == GameState.RUNNING) {
-                pauseGame();
-            } else {
-                resumeGame();
-            }
-        } else if (keycode == Input.Keys.M) {
-            // toggle the music on or off
-            game.audioManager().toggleMusic();
-        } else {
-            if (roundState == RoundState.IN_PROGRESS) {
-                // check if player has pressed a horizontal movement key
-                if (keycode == Input.Keys.LEFT || keycode == Input.Keys.A) {
-                    game.player().moveLeft();
-                } else if (keycode == Input.Keys.RIGHT || keycode == Input.Keys.D) {
-                    game.player().moveRight();
+                break;
+            case MUSIC:
+                // toggle the music on or off
+                game.toggleMusic();
+                break;
+            default:
+                // the player only starts moving while a round is in progress, but can always block and attack
+                if ((action.bit() & PlayerAction.MOVEMENT_ACTIONS) != 0
+                        && match.getRoundState() != Match.RoundState.IN_PROGRESS) {
+                    break;
                 }
-                // check if player has pressed a vertical movement key
-                if (keycode == Input.Keys.UP || keycode == Input.Keys.W) {
-                    game.player().moveUp();
-                } else if (keycode == Input.Keys.DOWN || keycode == Input.Keys.S) {
-                    game.player().moveDown();
+                // the replay doesn't take any input
+                if (gameState == GameState.KO_REPLAY) {
+                    break;
                 }
-            }
+                match.input(GameEvent.PLAYER, action.press());
 
-            // check if the player has pressed a block or attack key
-            if (keycode == Input.Keys.I) {
-                game.player().block();
-            } else if (keycode == Input.Keys.Y) {
-                game.player().punch();
-            } else if (keycode == Input.Keys.U) {
-                game.player().kick();
-            }
+                // measure how long the key takes to reach the match, for the input latency log
+                inputLatency.record(InputLatency.KEYBOARD, Gdx.input.getCurrentEventTime());
+                break;
         }
 
         // returning true indicates to libgdx that the key press has been handled by ourselves
         return true;
     }
 
+    /**
+     * The space bar, or the confirm button of a gamepad.
+     */
+    private void confirm() {
+        if (gameState == GameState.KO_REPLAY) {
+            // skip the replay
+            endKoReplay();
+        } else if (gameState == GameState.RUNNING) {
+            // if the game is running and the space bar is pressed, skip any round delays
+            match.input(GameEvent.NO_FIGHTER, MatchInput.SKIP_ROUND_DELAY);
+        } else if (gameState == GameState.GAME_OVER) {
+            // if the game is over and the space bar is pressed, restart the game
+            startGame();
+        } else {
+            // if the game is paused and the space bar is pressed, resume the game
+            resumeGame();
+        }
+    }
+
+    /**
+     * The P key, or the start button of a gamepad.
+     */
+    private void togglePause() {
+        // if the game is running or paused and the P key is pressed, pause or resume the game
+        if (gameState == GameState.RUNNING) {
+            pauseGame();
+        } else if (gameState == GameState.PAUSED) {
+            resumeGame();
+        }
+    }
+
     @Override
     public boolean keyUp(int keycode) {
-        // if player has released the movement key, stop moving in that direction
-        // check if player has pressed a horizontal movement key
-        if (keycode == Input.Keys.LEFT || keycode == Input.Keys.A) {
-            game.player().stopMovingLeft();
-        } else if (keycode == Input.Keys.RIGHT || keycode == Input.Keys.D) {
-            game.player().stopMovingRight();
-        }
-        // check if player has pressed a vertical movement key
-        if (keycode == Input.Keys.UP || keycode == Input.Keys.W) {
-            game.player().stopMovingUp();
-        } else if (keycode == Input.Keys.DOWN || keycode == Input.Keys.S) {
-            game.player().stopMovingDown();
+        PlayerAction action = game.keyBindings().buttonAction(keycode);
+        if (action == null || GlobalVariables.POLL_KEYBOARD || gameState == GameState.KO_REPLAY) {
+            return true;
         }
 
-        // if player has released the block key, stop blocking
-        if (keycode == Input.Keys.I) {
-            game.player().stopBlocking();
+        // if player has released a movement or block key, stop moving in that direction, or blocking
+        if (action.release() != null) {
+            match.input(GameEvent.PLAYER, action.release());
         }
 
         return true;
@@ -810,41 +1154,55 @@ public class GameScreen implements Screen, InputProcessor {
     @Override
     public boolean touchDown(int screenX, int screenY, int pointer, int button) {
         // convert the touch coordinates to world coordinates
-        Vector3 position = new Vector3(screenX, screenY, 0);
-        viewport.getCamera().unproject(position, viewport.getScreenX(), viewport.getScreenY(),
-                viewport.getScreenWidth(), viewport.getScreenHeight());
+        Vector3 position = unproject(screenX, screenY);
 
-        if (gameState == GameState.RUNNING) {
-            if (pauseButtonSprite.getBoundingRectangle().contains(position.x, position.y)) {
+        try {
+            // a finger on the on-screen controls fights, anywhere else it works the buttons
+            if (gameState != GameState.RUNNING || virtualGamepad == null
+                    || !virtualGamepad.touchDown(pointer, position.x, position.y)) {
+                handleTouchDown(position.x, position.y);
+            }
+        } finally {
+            TransientPools.free(position);
+        }
+
+        // returning true indicates to LibGdx that the event was handled by ourselves
+        return true;
+    }
+
+    private void handleTouchDown(float worldX, float worldY) {
+        if (gameState == GameState.KO_REPLAY) {
+            // a touch anywhere skips the replay
+            endKoReplay();
+        } else if (gameState == GameState.RUNNING) {
+            if (pauseButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
                 // if the game is running and the pause button has been pressed, pause the game
                 pauseGame();
                 // play click sound
                 game.audioManager().playSound(Assets.CLICK_SOUND);
-            } else if (roundState == RoundState.STARTING) {
-                // if the round is starting and the screen is touched, skip the start round delay
-                roundStateTime = START_ROUND_DELAY;
-            } else if (roundState == RoundState.ENDING) {
-                // if the round is ending and the screen is touched, skip the end round delay
-                roundStateTime = END_ROUND_DELAY;
+            } else {
+                // if the round is starting or ending and the screen is touched, skip the round delay
+                match.input(GameEvent.NO_FIGHTER, MatchInput.SKIP_ROUND_DELAY);
             }
         } else {
-            if (gameState == GameState.GAME_OVER
-                    && playAgainButtonSprite.getBoundingRectangle().contains(position.x, position.y)) {
+            if (mainMenuButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
+                // if the game is paused or over and the main menu button has been pressed, go to the main menu
+                game.audioManager().playSound(Assets.CLICK_SOUND);
+                goToMainMenu();
+            } else if (gameState == GameState.GAME_OVER
+                    && playAgainButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
                 // if the game is over and the play again button has been pressed, restart the game
                 startGame();
                 // play click sound
                 game.audioManager().playSound(Assets.CLICK_SOUND);
             } else if (gameState == GameState.PAUSED
-                    && continueButtonSprite.getBoundingRectangle().contains(position.x, position.y)) {
+                    && continueButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
                 // if the game is paused and the continue button has been pressed, continue the game
                 resumeGame();
                 // play click sound
                 game.audioManager().playSound(Assets.CLICK_SOUND);
             }
         }
-
-        // returning true indicates to LibGdx that the event was handled by ourselves
-        return true;
     }
 
     /**
@@ -859,7 +1217,8 @@ public class GameScreen implements Screen, InputProcessor {
      */
     @Override
     public boolean touchUp(int screenX, int screenY, int pointer, int button) {
-        return false;
+        // let go of the control the finger held, if any
+        return virtualGamepad != null && virtualGamepad.touchUp(pointer);
     }
 
     /**
@@ -873,7 +1232,27 @@ public class GameScreen implements Screen, InputProcessor {
      */
     @Override
     public boolean touchDragged(int screenX, int screenY, int pointer) {
-        return false;
+        if (virtualGamepad == null || gameState != GameState.RUNNING) {
+            return false;
+        }
+
+        // move the joystick with the finger that holds it
+        Vector3 position = unproject(screenX, screenY);
+        try {
+            return virtualGamepad.touchDragged(pointer, position.x, position.y);
+        } finally {
+            TransientPools.free(position);
+        }
+    }
+
+    /**
+     * @return the world coordinates of a point of the screen, in a pooled vector to give back to TransientPools
+     */
+    private Vector3 unproject(int screenX, int screenY) {
+        Vector3 position = TransientPools.obtainVector3().set(screenX, screenY, 0);
+        viewport.getCamera().unproject(position, viewport.getScreenX(), viewport.getScreenY(),
+                viewport.getScreenWidth(), viewport.getScreenHeight());
+        return position;
     }
 
     /**
@@ -0,0 +1,79 @@
+package com.pensatocode.sfs.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.pensatocode.sfs.SfsGame;
+import com.pensatocode.sfs.resources.Assets;
+
+public class MainMenuScreen extends MenuScreen {
+    private static final float LOGO_MARGIN_TOP = 2f;
+    private static final float BUTTON_SPACING = 1f;
+
+    private final Sprite logoSprite;
+    private final Sprite playGameButtonSprite;
+    private final Sprite quitGameButtonSprite;
+
+    public MainMenuScreen(SfsGame game) {
+        super(game);
+
+        // create the sprites
+        logoSprite = createSprite("Logo");
+        playGameButtonSprite = createSprite("PlayGameButton");
+        quitGameButtonSprite = createSprite("QuitGameButton");
+    }
+
+    @Override
+    protected void renderMenu() {
+        game.batch().setColor(Color.WHITE);
+
+        // draw the logo at the top
+        logoSprite.setPosition(
+                viewport.getWorldWidth() / 2f - logoSprite.getWidth() / 2f,
+                viewport.getWorldHeight() - LOGO_MARGIN_TOP - logoSprite.getHeight());
+        logoSprite.draw(game.batch());
+
+        // draw the buttons below the logo
+        playGameButtonSprite.setPosition(
+                viewport.getWorldWidth() / 2f - playGameButtonSprite.getWidth() / 2f,
+                logoSprite.getY() - BUTTON_SPACING * 2f - playGameButtonSprite.getHeight());
+        playGameButtonSprite.draw(game.batch());
+        quitGameButtonSprite.setPosition(
+                viewport.getWorldWidth() / 2f - quitGameButtonSprite.getWidth() / 2f,
+                playGameButtonSprite.getY() - BUTTON_SPACING - quitGameButtonSprite.getHeight());
+        quitGameButtonSprite.draw(game.batch());
+    }
+
+    @Override
+    protected void touched(float worldX, float worldY) {
+        if (playGameButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
+            playGame();
+        } else if (quitGameButtonSprite.getBoundingRectangle().contains(worldX, worldY)) {
+            quitGame();
+        }
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        if (keycode == Input.Keys.ENTER || keycode == Input.Keys.SPACE) {
+            playGame();
+        } else if (keycode == Input.Keys.ESCAPE) {
+            quitGame();
+        } else if (keycode == Input.Keys.M) {
+            // toggle the music on or off
+            game.toggleMusic();
+        }
+        return true;
+    }
+
+    private void playGame() {
+        game.audioManager().playSound(Assets.CLICK_SOUND);
+        game.screenManager().show(ScreenManager.ScreenId.CHARACTER_SELECT);
+    }
+
+    private void quitGame() {
+        game.audioManager().playSound(Assets.CLICK_SOUND);
+        Gdx.app.exit();
+    }
+}
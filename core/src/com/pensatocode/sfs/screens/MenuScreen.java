@@ -0,0 +1,178 @@
+package com.pensatocode.sfs.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.viewport.ExtendViewport;
+import com.pensatocode.sfs.SfsGame;
+import com.pensatocode.sfs.resources.Assets;
+import com.pensatocode.sfs.resources.GlobalVariables;
+import com.pensatocode.sfs.utils.FramePacer;
+import com.pensatocode.sfs.utils.TransientPools;
+
+/**
+ * Base class of the menu screens.
+ * It sets up the camera, viewport and fonts the same way the game screen does,
+ * and converts touches to world coordinates, so the menus only have to lay out and draw their items.
+ * All sprites are created once, in the constructor, so showing a menu again costs nothing.
+ */
+public abstract class MenuScreen implements Screen, InputProcessor {
+    protected final SfsGame game;
+    protected final OrthographicCamera camera;
+    protected final ExtendViewport viewport;
+    protected final TextureAtlas menuItemsAtlas;
+    protected final BitmapFont smallFont;
+    protected final BitmapFont mediumFont;
+
+    protected MenuScreen(SfsGame game) {
+        this.game = game;
+
+        // set up the camera and the viewport
+        camera = new OrthographicCamera();
+        viewport = new ExtendViewport(
+                GlobalVariables.WORLD_WIDTH,
+                GlobalVariables.MIN_WORLD_HEIGHT,
+                GlobalVariables.WORLD_WIDTH,
+                GlobalVariables.WORLD_HEIGHT,
+                camera
+        );
+
+        // get the menu items and the fonts from the asset manager
+        menuItemsAtlas = game.assets().manager().get(Assets.MENU_ITEMS_ATLAS);
+        smallFont = game.assets().manager().get(Assets.SMALL_FONT);
+        smallFont.getData().setScale(GlobalVariables.WORLD_SCALE);
+        smallFont.setUseIntegerPositions(false);
+        mediumFont = game.assets().manager().get(Assets.MEDIUM_FONT);
+        mediumFont.getData().setScale(GlobalVariables.WORLD_SCALE);
+        mediumFont.setUseIntegerPositions(false);
+    }
+
+    /**
+     * Creates a sprite from a region of the menu items atlas, sized in world units.
+     */
+    protected Sprite createSprite(String regionName) {
+        Sprite sprite = new Sprite(menuItemsAtlas.findRegion(regionName));
+        sprite.setSize(
+                sprite.getWidth() * GlobalVariables.WORLD_SCALE,
+                sprite.getHeight() * GlobalVariables.WORLD_SCALE
+        );
+        return sprite;
+    }
+
+    /**
+     * Draws the menu. The sprite batch has already begun.
+     */
+    protected abstract void renderMenu();
+
+    /**
+     * Called when the screen is touched or clicked.
+     *
+     * @param worldX the x coordinate, in world units
+     * @param worldY the y coordinate, in world units
+     */
+    protected abstract void touched(float worldX, float worldY);
+
+    @Override
+    public void show() {
+        // process user input
+        Gdx.input.setInputProcessor(this);
+
+        // the music may have been paused during the game
+        game.audioManager().playMusic();
+
+        // menus don't move, so they are drawn again only on input
+        game.framePacer().setMode(FramePacer.Mode.IDLE);
+    }
+
+    @Override
+    public void render(float delta) {
+        // clear the screen with black
+        ScreenUtils.clear(0, 0, 0, 1);
+
+        // set the sprite batch to use the viewport's camera
+        viewport.apply();
+        game.batch().setProjectionMatrix(viewport.getCamera().combined);
+
+        game.batch().begin();
+        renderMenu();
+        game.batch().end();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        // update the viewport with the new screen size
+        viewport.update(width, height, true);
+    }
+
+    @Override
+    public void pause() {
+    }
+
+    @Override
+    public void resume() {
+    }
+
+    @Override
+    public void hide() {
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        return false;
+    }
+
+    @Override
+    public boolean keyUp(int keycode) {
+        return false;
+    }
+
+    @Override
+    public boolean keyTyped(char character) {
+        return false;
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        // convert the touch coordinates to world coordinates
+        Vector3 position = TransientPools.obtainVector3().set(screenX, screenY, 0);
+        viewport.getCamera().unproject(position, viewport.getScreenX(), viewport.getScreenY(),
+                viewport.getScreenWidth(), viewport.getScreenHeight());
+
+        try {
+            touched(position.x, position.y);
+        } finally {
+            TransientPools.free(position);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        return false;
+    }
+
+    @Override
+    public boolean touchDragged(int screenX, int screenY, int pointer) {
+        return false;
+    }
+
+    @Override
+    public boolean mouseMoved(int screenX, int screenY) {
+        return false;
+    }
+
+    @Override
+    public boolean scrolled(float amountX, float amountY) {
+        return false;
+    }
+}
@@ -0,0 +1,170 @@
+package com.pensatocode.sfs.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.pensatocode.sfs.SfsGame;
+import com.pensatocode.sfs.resources.AssetGroup;
+import com.pensatocode.sfs.resources.Assets;
+
+/**
+ * Creates the screens of the game, keeps them cached and switches between them.
+ *
+ * Each screen uses an asset group: the shown screen holds a reference to its group,
+ * and the group of the screen most likely to come next is preloaded in the background.
+ * Screens are built ahead of time, one per frame, as soon as their assets are loaded.
+ * As long as a screen's assets are not evicted, it is never rebuilt and its assets are never reloaded,
+ * so switching screens only costs the hide() and show() calls. Each switch is measured,
+ * and a warning is logged if it took longer than a frame.
+ * When a group is evicted to stay within the memory budget, the screens using it are dropped,
+ * and rebuilt the next time they are needed.
+ */
+public class ScreenManager implements Assets.EvictionListener {
+    public enum ScreenId {
+        MAIN_MENU,
+        CHARACTER_SELECT,
+        GAME
+    }
+
+    // time the asset manager may spend loading in the background on each frame
+    private static final int LOADING_BUDGET_MILLIS = 4;
+    // one frame at 60 FPS
+    private static final long TRANSITION_BUDGET_NANOS = 16666667L;
+    private static final String TAG = "ScreenManager";
+    // values() creates a new array on every call, so keep one around
+    private static final ScreenId[] SCREEN_IDS = ScreenId.values();
+
+    private final SfsGame game;
+    private final Screen[] screens = new Screen[SCREEN_IDS.length];
+    private long lastTransitionNanos;
+    private ScreenId currentScreenId;
+
+    public ScreenManager(SfsGame game) {
+        this.game = game;
+        game.assets().setEvictionListener(this);
+    }
+
+    /**
+     * @return the asset group a screen needs, besides the boot group that is always loaded
+     */
+    private AssetGroup assetGroup(ScreenId id) {
+        return id == ScreenId.GAME ? game.assets().gameplayGroup() : game.assets().menuGroup();
+    }
+
+    /**
+     * @return the asset group of the screens most likely to be shown after the given one
+     */
+    private AssetGroup nextAssetGroup(ScreenId id) {
+        return id == ScreenId.GAME ? game.assets().menuGroup() : game.assets().gameplayGroup();
+    }
+
+    /**
+     * Continues loading the assets in the background, and builds the next screen that isn't built yet
+     * as soon as its assets are ready. Call it once per frame.
+     *
+     * @return true if there is still work to do on the next frames
+     */
+    public boolean update() {
+        boolean loaded = game.assets().update(LOADING_BUDGET_MILLIS);
+
+        // build at most one screen per frame, to avoid a long frame
+        for (ScreenId id : SCREEN_IDS) {
+            if (screens[id.ordinal()] == null && game.assets().isLoaded(assetGroup(id))) {
+                prepare(id);
+                return true;
+            }
+        }
+        return !loaded;
+    }
+
+    /**
+     * Makes sure a screen is built, building it right away (and finishing to load its assets) if needed.
+     */
+    public Screen prepare(ScreenId id) {
+        Screen screen = screens[id.ordinal()];
+        if (screen == null) {
+            // hold on to the assets while building, in case they still have to be loaded
+            AssetGroup group = assetGroup(id);
+            game.assets().acquire(group);
+            screen = build(id);
+            // the new screen may be shown before the window is resized again
+            screen.resize(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+            screens[id.ordinal()] = screen;
+            game.assets().release(group);
+        }
+        return screen;
+    }
+
+    private Screen build(ScreenId id) {
+        switch (id) {
+            case MAIN_MENU:
+                return new MainMenuScreen(game);
+            case CHARACTER_SELECT:
+                return new CharacterSelectScreen(game);
+            case GAME: default:
+                game.createFighters();
+                return new GameScreen(game);
+        }
+    }
+
+    /**
+     * Switches to a screen, building it first if it isn't built yet.
+     */
+    public void show(ScreenId id) {
+        long start = TimeUtils.nanoTime();
+
+        // take the assets of the new screen before giving back the ones of the current screen,
+        // so assets both screens use are never unloaded
+        game.assets().acquire(assetGroup(id));
+        Screen screen = prepare(id);
+        game.setScreen(screen);
+        if (currentScreenId != null) {
+            game.assets().release(assetGroup(currentScreenId));
+        }
+        currentScreenId = id;
+        lastTransitionNanos = TimeUtils.nanoTime() - start;
+
+        // get the assets of the next screen ready in the background
+        game.assets().preload(nextAssetGroup(id));
+
+        if (lastTransitionNanos > TRANSITION_BUDGET_NANOS) {
+            Gdx.app.error(TAG, "Switching to " + id + " took " + lastTransitionNanos / 1000000L + " ms");
+        } else {
+            Gdx.app.debug(TAG, "Switched to " + id + " in " + lastTransitionNanos / 1000L + " us");
+        }
+    }
+
+    /**
+     * @return how long the last switch between screens took, in nanoseconds
+     */
+    public long lastTransitionNanos() {
+        return lastTransitionNanos;
+    }
+
+    @Override
+    public void onGroupEvicted(AssetGroup group) {
+        // drop the screens that use the group, they are rebuilt when needed
+        for (ScreenId id : SCREEN_IDS) {
+            if (screens[id.ordinal()] != null && assetGroup(id) == group) {
+                screens[id.ordinal()].dispose();
+                screens[id.ordinal()] = null;
+                if (id == ScreenId.GAME) {
+                    game.disposeFighters();
+                }
+            }
+        }
+    }
+
+    public GameScreen gameScreen() {
+        return (GameScreen) screens[ScreenId.GAME.ordinal()];
+    }
+
+    public void dispose() {
+        for (int i = 0; i < screens.length; i++) {
+            if (screens[i] != null) {
+                screens[i].dispose();
+                screens[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.pensatocode.sfs.telemetry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Telemetry of a single match, stored in a fixed-size binary record of {@link #SIZE} bytes:
+ * <pre>
+ * long  end time (milliseconds since the epoch)
+ * byte  winner (GameEvent.PLAYER or GameEvent.OPPONENT)
+ * byte  rounds
+ * byte  time-ups
+ * byte  knockouts
+ * float fighting time, in seconds
+ * float sum of the times to knockout, in seconds
+ * int   player inputs
+ * 4 x (short hits, float damage), one per attack kind
+ * </pre>
+ */
+public class MatchRecord {
+    public static final int SIZE = 48;
+
+    // attack kinds
+    public static final int PUNCH = 0;
+    public static final int PUNCH_BLOCKED = 1;
+    public static final int KICK = 2;
+    public static final int KICK_BLOCKED = 3;
+    public static final int ATTACK_KINDS = 4;
+
+    long endTime;
+    int winner;
+    int rounds;
+    int timeUps;
+    int knockouts;
+    float fightingTime;
+    float knockoutTime;
+    int inputs;
+    final int[] hits = new int[ATTACK_KINDS];
+    final float[] damage = new float[ATTACK_KINDS];
+
+    public void reset() {
+        endTime = 0L;
+        winner = 0;
+        rounds = 0;
+        timeUps = 0;
+        knockouts = 0;
+        fightingTime = 0f;
+        knockoutTime = 0f;
+        inputs = 0;
+        for (int i = 0; i < ATTACK_KINDS; i++) {
+            hits[i] = 0;
+            damage[i] = 0f;
+        }
+    }
+
+    public MatchRecord set(MatchRecord record) {
+        endTime = record.endTime;
+        winner = record.winner;
+        rounds = record.rounds;
+        timeUps = record.timeUps;
+        knockouts = record.knockouts;
+        fightingTime = record.fightingTime;
+        knockoutTime = record.knockoutTime;
+        inputs = record.inputs;
+        System.arraycopy(record.hits, 0, hits, 0, ATTACK_KINDS);
+        System.arraycopy(record.damage, 0, damage, 0, ATTACK_KINDS);
+        return this;
+    }
+
+    /**
+     * Writes the record at the buffer's position, advancing it by {@link #SIZE} bytes.
+     */
+    public void write(ByteBuffer buffer) {
+        buffer.putLong(endTime);
+        buffer.put((byte) winner);
+        buffer.put((byte) rounds);
+        buffer.put((byte) timeUps);
+        buffer.put((byte) knockouts);
+        buffer.putFloat(fightingTime);
+        buffer.putFloat(knockoutTime);
+        buffer.putInt(inputs);
+        for (int i = 0; i < ATTACK_KINDS; i++) {
+            buffer.putShort((short) Math.min(hits[i], Short.MAX_VALUE));
+            buffer.putFloat(damage[i]);
+        }
+    }
+
+    /**
+     * Reads the record at the given offset, without changing the buffer's position.
+     */
+    public MatchRecord read(ByteBuffer buffer, int offset) {
+        endTime = buffer.getLong(offset);
+        winner = buffer.get(offset + 8);
+        rounds = buffer.get(offset + 9);
+        timeUps = buffer.get(offset + 10);
+        knockouts = buffer.get(offset + 11);
+        fightingTime = buffer.getFloat(offset + 12);
+        knockoutTime = buffer.getFloat(offset + 16);
+        inputs = buffer.getInt(offset + 20);
+        for (int i = 0; i < ATTACK_KINDS; i++) {
+            hits[i] = buffer.getShort(offset + 24 + i * 6);
+            damage[i] = buffer.getFloat(offset + 26 + i * 6);
+        }
+        return this;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public int getTimeUps() {
+        return timeUps;
+    }
+
+    public int getKnockouts() {
+        return knockouts;
+    }
+
+    public float getFightingTime() {
+        return fightingTime;
+    }
+
+    public float getKnockoutTime() {
+        return knockoutTime;
+    }
+
+    public int getInputs() {
+        return inputs;
+    }
+
+    public int getHits(int attackKind) {
+        return hits[attackKind];
+    }
+
+    public float getDamage(int attackKind) {
+        return damage[attackKind];
+    }
+}
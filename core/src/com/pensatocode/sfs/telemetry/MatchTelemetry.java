@@ -0,0 +1,106 @@
+package com.pensatocode.sfs.telemetry;
+
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.events.GameEventSink;
+import com.pensatocode.sfs.objects.Fighter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the telemetry of each match from the gameplay events.
+ * It runs as a sink of the {@link com.pensatocode.sfs.events.GameEventBus}, so collecting telemetry
+ * costs the game thread nothing beyond publishing the events.
+ * The current match is aggregated in place, and finished matches are kept in memory
+ * until enough of them have piled up, or enough time has passed, to be appended to the store.
+ */
+public class MatchTelemetry implements GameEventSink {
+    // finished matches kept in memory before writing them, at most
+    private static final int MAX_PENDING_RECORDS = 32;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final TelemetryStore store;
+    private final MatchRecord current = new MatchRecord();
+    private final MatchRecord[] pending = new MatchRecord[MAX_PENDING_RECORDS];
+    private int pendingCount;
+    private long lastWriteTime = System.nanoTime();
+    private boolean inMatch;
+
+    public MatchTelemetry(TelemetryStore store) {
+        this.store = store;
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = new MatchRecord();
+        }
+    }
+
+    @Override
+    public void write(GameEvent event) throws IOException {
+        switch (event.getType()) {
+            case MATCH_START:
+                current.reset();
+                inMatch = true;
+                break;
+            case HIT:
+            case BLOCK:
+                if (inMatch) {
+                    boolean kick = event.getDetail() == Fighter.State.KICK.ordinal();
+                    boolean blocked = event.getType() == GameEvent.Type.BLOCK;
+                    int attackKind = kick
+                            ? (blocked ? MatchRecord.KICK_BLOCKED : MatchRecord.KICK)
+                            : (blocked ? MatchRecord.PUNCH_BLOCKED : MatchRecord.PUNCH);
+                    current.hits[attackKind]++;
+                    current.damage[attackKind] += event.getValue();
+                }
+                break;
+            case TIME_UP:
+                current.timeUps++;
+                break;
+            case KO:
+                current.knockouts++;
+                current.knockoutTime += event.getValue();
+                break;
+            case ROUND_END:
+                current.rounds++;
+                break;
+            case INPUT:
+                if (event.getFighter() == GameEvent.PLAYER) {
+                    current.inputs++;
+                }
+                break;
+            case MATCH_END:
+                if (inMatch) {
+                    current.winner = event.getFighter();
+                    current.fightingTime = event.getValue();
+                    current.endTime = System.currentTimeMillis();
+                    pending[pendingCount++].set(current);
+                    inMatch = false;
+                    if (pendingCount == pending.length) {
+                        writePending();
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // called after every batch of events, but only write to the disk every now and then
+        if (pendingCount > 0 && System.nanoTime() - lastWriteTime >= FLUSH_INTERVAL_NANOS) {
+            writePending();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writePending();
+    }
+
+    private void writePending() throws IOException {
+        int count = pendingCount;
+        pendingCount = 0;
+        lastWriteTime = System.nanoTime();
+        store.append(pending, count);
+    }
+}
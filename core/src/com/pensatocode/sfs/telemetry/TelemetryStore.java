@@ -0,0 +1,132 @@
+package com.pensatocode.sfs.telemetry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Local file store for the match telemetry.
+ * The file is a header followed by fixed-size {@link MatchRecord}s, and is only ever appended to.
+ * Fixed-size records let a scan decode matches straight from a large buffer,
+ * without parsing or creating objects, so millions of matches can be summarized in a fraction of a second.
+ * <pre>
+ * header: int magic ('SFST'), short version, short record size
+ * </pre>
+ */
+public class TelemetryStore {
+    public static final int MAGIC = 0x53465354;
+    public static final short VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    // records read from the disk at a time while scanning
+    private static final int SCAN_BATCH = 16 * 1024;
+
+    /**
+     * Receives each record of a scan. The record instance is reused for the whole scan.
+     */
+    public interface Visitor {
+        void visit(MatchRecord record);
+    }
+
+    private final File file;
+
+    public TelemetryStore(File file) {
+        this.file = file;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Appends the first {@code count} records to the store, creating the file if needed.
+     */
+    public void append(MatchRecord[] records, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create the telemetry directory " + parent);
+        }
+
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = output.getChannel();
+            // a partial record, or header, at the end was being written when the game stopped:
+            // cut it off, so the new records line up with the others
+            long size = channel.size();
+            boolean newFile = size < HEADER_SIZE;
+            long end = newFile ? 0L : HEADER_SIZE + (size - HEADER_SIZE) / MatchRecord.SIZE * MatchRecord.SIZE;
+            if (end < size) {
+                channel.truncate(end);
+            }
+            channel.position(end);
+
+            ByteBuffer buffer = ByteBuffer.allocate((newFile ? HEADER_SIZE : 0) + count * MatchRecord.SIZE);
+            if (newFile) {
+                buffer.putInt(MAGIC);
+                buffer.putShort(VERSION);
+                buffer.putShort((short) MatchRecord.SIZE);
+            }
+            for (int i = 0; i < count; i++) {
+                records[i].write(buffer);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads every record in the store, in the order they were appended.
+     *
+     * @return the number of records read
+     */
+    public long scan(Visitor visitor) throws IOException {
+        if (!file.exists()) {
+            return 0L;
+        }
+
+        try (FileInputStream input = new FileInputStream(file)) {
+            FileChannel channel = input.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            if (header.position() < HEADER_SIZE) {
+                return 0L;
+            }
+            if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION
+                    || header.getShort(6) != MatchRecord.SIZE) {
+                throw new IOException("Not a telemetry store (or unsupported version): " + file);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SCAN_BATCH * MatchRecord.SIZE);
+            MatchRecord record = new MatchRecord();
+            long count = 0L;
+            while (true) {
+                buffer.clear();
+                readFully(channel, buffer);
+                int records = buffer.position() / MatchRecord.SIZE;
+                for (int i = 0; i < records; i++) {
+                    visitor.visit(record.read(buffer, i * MatchRecord.SIZE));
+                }
+                count += records;
+                // a partial record at the end is left over by a crash while appending, the next append cuts it off
+                if (buffer.hasRemaining()) {
+                    return count;
+                }
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return;
+            }
+        }
+    }
+}
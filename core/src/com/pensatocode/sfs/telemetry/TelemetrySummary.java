@@ -0,0 +1,79 @@
+package com.pensatocode.sfs.telemetry;
+
+import com.pensatocode.sfs.events.GameEvent;
+
+import java.util.Locale;
+
+/**
+ * Running totals over any number of matches, updated one {@link MatchRecord} at a time.
+ */
+public class TelemetrySummary implements TelemetryStore.Visitor {
+    private static final String[] ATTACK_KIND_NAMES = {"punch", "punch (blocked)", "kick", "kick (blocked)"};
+
+    private long matches;
+    private long playerWins;
+    private long rounds;
+    private long timeUps;
+    private long knockouts;
+    private double fightingTime;
+    private double knockoutTime;
+    private long inputs;
+    private final long[] hits = new long[MatchRecord.ATTACK_KINDS];
+    private final double[] damage = new double[MatchRecord.ATTACK_KINDS];
+
+    @Override
+    public void visit(MatchRecord record) {
+        matches++;
+        if (record.winner == GameEvent.PLAYER) {
+            playerWins++;
+        }
+        rounds += record.rounds;
+        timeUps += record.timeUps;
+        knockouts += record.knockouts;
+        fightingTime += record.fightingTime;
+        knockoutTime += record.knockoutTime;
+        inputs += record.inputs;
+        for (int i = 0; i < MatchRecord.ATTACK_KINDS; i++) {
+            hits[i] += record.hits[i];
+            damage[i] += record.damage[i];
+        }
+    }
+
+    public long matches() {
+        return matches;
+    }
+
+    /**
+     * @return player actions per minute of fighting
+     */
+    public double actionsPerMinute() {
+        return fightingTime > 0.0 ? inputs / (fightingTime / 60.0) : 0.0;
+    }
+
+    public double averageTimeToKnockout() {
+        return knockouts > 0L ? knockoutTime / knockouts : 0.0;
+    }
+
+    public double timeUpRate() {
+        return rounds > 0L ? (double) timeUps / rounds : 0.0;
+    }
+
+    public double averageDamage(int attackKind) {
+        return hits[attackKind] > 0L ? damage[attackKind] / hits[attackKind] : 0.0;
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "matches: %d (player won %.1f%%)%n",
+                matches, matches > 0L ? playerWins * 100.0 / matches : 0.0));
+        report.append(String.format(Locale.ROOT, "rounds: %d, knockouts: %d, time-ups: %d (%.1f%% of rounds)%n",
+                rounds, knockouts, timeUps, timeUpRate() * 100.0));
+        report.append(String.format(Locale.ROOT, "average time to knockout: %.2f s%n", averageTimeToKnockout()));
+        report.append(String.format(Locale.ROOT, "player actions per minute: %.1f%n", actionsPerMinute()));
+        for (int i = 0; i < MatchRecord.ATTACK_KINDS; i++) {
+            report.append(String.format(Locale.ROOT, "%-16s hits: %d, total damage: %.1f, average damage: %.2f%n",
+                    ATTACK_KIND_NAMES[i], hits[i], damage[i], averageDamage(i)));
+        }
+        return report.toString();
+    }
+}
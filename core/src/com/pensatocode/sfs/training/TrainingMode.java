@@ -0,0 +1,128 @@
+package com.pensatocode.sfs.training;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.resources.GlobalVariables;
+
+/**
+ * The controls of the training mode (see GlobalVariables.TRAINING_MODE), on the function keys,
+ * which no action is bound to:
+ * <pre>
+ * F1       put the fighters back where the round started them
+ * F2 / F3  lower / raise the player's life by 1, or by 10 with shift
+ * F4 / F5  lower / raise the opponent's life the same way
+ * F6 / F7  slow down / speed up time, from full speed to an eighth of it
+ * F8       freeze or unfreeze time
+ * F9       move a frozen match by one tick
+ * F10      show or hide the frame data and hitboxes (see TrainingOverlay)
+ * F11      put the opponent in slow motion, at half speed, or back to normal
+ * </pre>
+ * The controls change the match outside of its inputs, so a training match isn't recorded nor broadcast.
+ */
+public class TrainingMode {
+    // the speeds time can go at, full speed first
+    private static final float[] TIME_SCALES = {1f, 0.5f, 0.25f, 0.125f};
+    private static final String[] TIME_SCALE_TEXTS = {"x1", "x1/2", "x1/4", "x1/8"};
+    private static final float LIFE_STEP = 1f;
+    private static final float LARGE_LIFE_STEP = 10f;
+    private static final float SLOW_OPPONENT_TIME_SCALE = 0.5f;
+
+    private final Match match;
+
+    private int timeScale;
+    private boolean frozen;
+    private boolean stepping;
+    private boolean overlayVisible = true;
+
+    public TrainingMode(Match match) {
+        this.match = match;
+    }
+
+    /**
+     * Handles a training key.
+     *
+     * @return whether the key was a training control, in which case it does nothing else
+     */
+    public boolean keyDown(int keycode) {
+        boolean shift = Gdx.input.isKeyPressed(Input.Keys.SHIFT_LEFT) || Gdx.input.isKeyPressed(Input.Keys.SHIFT_RIGHT);
+        float lifeStep = shift ? LARGE_LIFE_STEP : LIFE_STEP;
+        switch (keycode) {
+            case Input.Keys.F1:
+                match.resetPositions();
+                return true;
+            case Input.Keys.F2:
+                changeLife(match.player(), -lifeStep);
+                return true;
+            case Input.Keys.F3:
+                changeLife(match.player(), lifeStep);
+                return true;
+            case Input.Keys.F4:
+                changeLife(match.opponent(), -lifeStep);
+                return true;
+            case Input.Keys.F5:
+                changeLife(match.opponent(), lifeStep);
+                return true;
+            case Input.Keys.F6:
+                timeScale = Math.min(timeScale + 1, TIME_SCALES.length - 1);
+                return true;
+            case Input.Keys.F7:
+                timeScale = Math.max(timeScale - 1, 0);
+                return true;
+            case Input.Keys.F8:
+                frozen = !frozen;
+                stepping = false;
+                return true;
+            case Input.Keys.F9:
+                // only a frozen match is moved tick by tick
+                stepping = frozen;
+                return true;
+            case Input.Keys.F10:
+                overlayVisible = !overlayVisible;
+                return true;
+            case Input.Keys.F11:
+                // only the opponent's own time, the player goes on at full speed
+                Fighter opponent = match.opponent();
+                opponent.setTimeScale(opponent.getTimeScale() == 1f ? SLOW_OPPONENT_TIME_SCALE : 1f);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void changeLife(Fighter fighter, float change) {
+        fighter.setLife(fighter.getLife() + change);
+    }
+
+    /**
+     * @param deltaTime the time since the last frame, in seconds
+     * @return the time to update the match by: scaled down when time is slowed,
+     * zero while it's frozen, except for one tick when a step was asked for
+     */
+    public float timeStep(float deltaTime) {
+        if (!frozen) {
+            return deltaTime * TIME_SCALES[timeScale];
+        }
+        if (stepping) {
+            stepping = false;
+            return GlobalVariables.FRAME_BUDGET;
+        }
+        return 0f;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * @return the speed of time, like "x1/4", a constant text
+     */
+    public String timeScaleText() {
+        return TIME_SCALE_TEXTS[timeScale];
+    }
+
+    public boolean isOverlayVisible() {
+        return overlayVisible;
+    }
+}
@@ -0,0 +1,120 @@
+package com.pensatocode.sfs.training;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Align;
+import com.pensatocode.sfs.ecs.CombatSystem;
+import com.pensatocode.sfs.ecs.RingSystem;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+
+/**
+ * Draws the frame data of the fighters in the training mode: their state, how long they've been in it,
+ * the frame of its animation and whether their attack can land, and over the ring the hitboxes:
+ * the region around each fighter where the other one is within contact distance,
+ * and the bounds the ring keeps the fighters in. The bounds hold the position of a fighter,
+ * the bottom left corner of its sprite, so that's the corner to watch.
+ *
+ * All the lines go in one pass of the shape renderer, and the texts in the sprite batch that draws the HUD.
+ * The texts are built in a reused buffer, so the overlay doesn't allocate.
+ */
+public class TrainingOverlay {
+    private static final Color RING_COLOR = Color.YELLOW;
+    private static final Color CONTACT_COLOR = Color.CYAN;
+    private static final Color ACTIVE_ATTACK_COLOR = Color.RED;
+    private static final float POSITION_MARK_SIZE = 0.5f;
+    private static final float MARGIN = 1f;
+    // the texts go below the health bars
+    private static final float TEXT_TOP = 8f;
+
+    private final TrainingMode trainingMode;
+    private final Match match;
+    private final StringBuilder text = new StringBuilder(64);
+    private final Matrix4 hudProjection = new Matrix4();
+
+    public TrainingOverlay(TrainingMode trainingMode, Match match) {
+        this.trainingMode = trainingMode;
+        this.match = match;
+    }
+
+    /**
+     * Draws the overlay, in world units. The sprite batch must have begun, and it's begun again when it returns;
+     * both it and the shape renderer must use the camera of the HUD. The hitboxes are drawn over the scene,
+     * which the camera moves (see CameraController), with its projection.
+     */
+    public void draw(SpriteBatch batch, ShapeRenderer shapeRenderer, BitmapFont font, Matrix4 sceneProjection,
+                     float worldWidth, float worldHeight) {
+        if (!trainingMode.isOverlayVisible()) {
+            return;
+        }
+
+        batch.end();
+        hudProjection.set(shapeRenderer.getProjectionMatrix());
+        shapeRenderer.setProjectionMatrix(sceneProjection);
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
+        drawRingBounds(shapeRenderer);
+        drawContactRegion(shapeRenderer, match.player());
+        drawContactRegion(shapeRenderer, match.opponent());
+        shapeRenderer.end();
+        shapeRenderer.setProjectionMatrix(hudProjection);
+        batch.begin();
+
+        float top = worldHeight - TEXT_TOP;
+        drawFrameData(batch, font, match.player(), MARGIN, top, Align.left);
+        drawFrameData(batch, font, match.opponent(), worldWidth - MARGIN, top, Align.right);
+
+        // and how fast time goes
+        text.setLength(0);
+        text.append("TIME ").append(trainingMode.timeScaleText());
+        if (trainingMode.isFrozen()) {
+            text.append(" FROZEN (F9 STEPS)");
+        }
+        text.append("  TICK ").append(match.getTick());
+        font.draw(batch, text, worldWidth / 2f, top, 0, Align.center, false);
+    }
+
+    private void drawRingBounds(ShapeRenderer shapeRenderer) {
+        // the corners of the trapezoid RingSystem keeps the positions in: its sides are slanted by the perspective
+        float bottomLeft = RingSystem.RING_MIN_Y / RingSystem.RING_SLOPE + RingSystem.RING_MIN_X;
+        float bottomRight = RingSystem.RING_MIN_Y / -RingSystem.RING_SLOPE + RingSystem.RING_MAX_X;
+        float topLeft = RingSystem.RING_MAX_Y / RingSystem.RING_SLOPE + RingSystem.RING_MIN_X;
+        float topRight = RingSystem.RING_MAX_Y / -RingSystem.RING_SLOPE + RingSystem.RING_MAX_X;
+
+        shapeRenderer.setColor(RING_COLOR);
+        shapeRenderer.line(bottomLeft, RingSystem.RING_MIN_Y, bottomRight, RingSystem.RING_MIN_Y);
+        shapeRenderer.line(bottomRight, RingSystem.RING_MIN_Y, topRight, RingSystem.RING_MAX_Y);
+        shapeRenderer.line(topRight, RingSystem.RING_MAX_Y, topLeft, RingSystem.RING_MAX_Y);
+        shapeRenderer.line(topLeft, RingSystem.RING_MAX_Y, bottomLeft, RingSystem.RING_MIN_Y);
+    }
+
+    private void drawContactRegion(ShapeRenderer shapeRenderer, Fighter fighter) {
+        // the other fighter's position inside this box is within contact distance, red while the attack can land
+        float x = fighter.getPosition().x;
+        float y = fighter.getPosition().y;
+        shapeRenderer.setColor(fighter.isAttackActive() ? ACTIVE_ATTACK_COLOR : CONTACT_COLOR);
+        shapeRenderer.rect(x - CombatSystem.CONTACT_DISTANCE_X, y - CombatSystem.CONTACT_DISTANCE_Y,
+                CombatSystem.CONTACT_DISTANCE_X * 2f, CombatSystem.CONTACT_DISTANCE_Y * 2f);
+
+        // and the position itself
+        shapeRenderer.line(x - POSITION_MARK_SIZE, y, x + POSITION_MARK_SIZE, y);
+        shapeRenderer.line(x, y - POSITION_MARK_SIZE, x, y + POSITION_MARK_SIZE);
+    }
+
+    private void drawFrameData(SpriteBatch batch, BitmapFont font, Fighter fighter, float x, float y, int align) {
+        text.setLength(0);
+        text.append(fighter.getState().name())
+                .append(' ').append((int) (fighter.getStateTime() * 1000f)).append("MS")
+                .append(" FRAME ").append(fighter.getKeyFrameIndex());
+        font.draw(batch, text, x, y, 0, align, false);
+
+        text.setLength(0);
+        text.append("LIFE ").append((int) Math.ceil(fighter.getLife()));
+        if (fighter.isAttackActive()) {
+            text.append(" ATTACK ACTIVE");
+        }
+        font.draw(batch, text, x, y - font.getLineHeight(), 0, align, false);
+    }
+}
@@ -0,0 +1,257 @@
+package com.pensatocode.sfs.utils;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+
+/**
+ * Moves the camera of the gameplay scene: it frames both fighters, zooming in as they get closer,
+ * shakes on heavy hits, and closes in on the fighter knocked out.
+ *
+ * The camera glides to where it should be instead of jumping there, a little closer every frame,
+ * and never shows anything past the edges of the scene, the background. At full zoom, with the fighters apart,
+ * it shows the scene like a fixed camera would, anchored to its bottom; the more it zooms in,
+ * the more it centers on the fighters.
+ * <pre>
+ * cameraController.follow(player x, player y, opponent x, opponent y, sprite width, sprite height);
+ * cameraController.update(delta);
+ * ... draw the scene with the camera, skipping what's out of cameraController.view() ...
+ * </pre>
+ * The HUD is drawn with a camera of its own, so it doesn't move. Nothing here allocates.
+ */
+public class CameraController {
+    // the closest the camera gets while following, as a fraction of the whole view, and on a knockout
+    public static final float MIN_ZOOM = 0.6f;
+    public static final float KO_ZOOM = 0.45f;
+    // room around the fighters, in world units: half a fighter on the sides, and a bit above their heads
+    private static final float MARGIN_X = 10f;
+    private static final float MARGIN_Y = 4f;
+    // how fast the camera catches up with its target: the fraction left after one second is e^-speed
+    private static final float FOLLOW_SPEED = 4f;
+    private static final float KO_FOLLOW_SPEED = 8f;
+    // screen shake: the offset at full trauma, in world units, the zoom it takes to keep the shake
+    // within the scene, and how much trauma fades per second
+    private static final float MAX_SHAKE_OFFSET = 1.2f;
+    private static final float SHAKE_ZOOM = 0.04f;
+    private static final float TRAUMA_DECAY = 1.5f;
+
+    private final OrthographicCamera camera;
+    private final float sceneWidth;
+    private final float sceneHeight;
+
+    // the size of the view at full zoom, from the viewport
+    private float viewWidth;
+    private float viewHeight;
+
+    // where the camera is, and where it's going
+    private float x;
+    private float y;
+    private float zoom = 1f;
+    private float targetX;
+    private float targetY;
+    private float targetZoom = 1f;
+
+    // shake, from 0 to 1, its effect growing with the square of it
+    private float trauma;
+    // the knockout close-up, and the time it has left
+    private float focusX;
+    private float focusY;
+    private float focusTime;
+
+    // the part of the scene in view, shake included
+    private final Rectangle view = new Rectangle();
+    // the texels of the last texture cropped to the view, from its top left corner, like a texture region
+    private int cropX;
+    private int cropY;
+    private int cropWidth;
+    private int cropHeight;
+
+    /**
+     * @param sceneWidth  the width of the scene the camera moves over, in world units
+     * @param sceneHeight its height
+     */
+    public CameraController(OrthographicCamera camera, float sceneWidth, float sceneHeight) {
+        this.camera = camera;
+        this.sceneWidth = sceneWidth;
+        this.sceneHeight = sceneHeight;
+    }
+
+    /**
+     * Sets the size of the view at full zoom, the world size of the viewport. Call it when the screen is resized.
+     */
+    public void resize(float worldWidth, float worldHeight) {
+        viewWidth = worldWidth;
+        viewHeight = worldHeight;
+        camera.viewportWidth = worldWidth;
+        camera.viewportHeight = worldHeight;
+        snap();
+    }
+
+    /**
+     * Aims the camera at two fighters, from the boxes of their sprites.
+     */
+    public void follow(float x1, float y1, float x2, float y2, float width, float height) {
+        float left = Math.min(x1, x2) - MARGIN_X + width * 0.5f;
+        float right = Math.max(x1, x2) + MARGIN_X + width * 0.5f;
+        float bottom = Math.min(y1, y2);
+        float top = Math.max(y1, y2) + height + MARGIN_Y;
+
+        // just close enough to keep both in view
+        targetZoom = MathUtils.clamp(Math.max((right - left) / viewWidth, (top - bottom) / viewHeight),
+                MIN_ZOOM, 1f);
+        targetX = (left + right) * 0.5f;
+
+        // anchored to the bottom of the scene at full zoom, centered on the fighters when zoomed in
+        float zoomedIn = (1f - targetZoom) / (1f - MIN_ZOOM);
+        targetY = MathUtils.lerp(viewHeight * targetZoom * 0.5f, (bottom + top) * 0.5f, zoomedIn);
+    }
+
+    /**
+     * Shakes the camera, more so when it's already shaking.
+     *
+     * @param amount from 0 to 1, 1 being the heaviest hit
+     */
+    public void shake(float amount) {
+        trauma = Math.min(1f, trauma + amount);
+    }
+
+    /**
+     * Closes in on a point for a while, like a fighter knocked out, instead of following the fighters.
+     */
+    public void focus(float pointX, float pointY, float duration) {
+        focusX = pointX;
+        focusY = pointY;
+        focusTime = duration;
+    }
+
+    /**
+     * Puts the camera where it should be at once, without shake, like at the start of a round.
+     */
+    public void snap() {
+        trauma = 0f;
+        focusTime = 0f;
+        x = targetX;
+        y = targetY;
+        zoom = targetZoom;
+        update(0f);
+    }
+
+    /**
+     * Moves the camera a step closer to its target, and updates it.
+     *
+     * @param deltaTime real time, not the time of the match, so the camera still moves while the match is frozen
+     */
+    public void update(float deltaTime) {
+        float goalX = targetX;
+        float goalY = targetY;
+        float goalZoom = targetZoom;
+        float speed = FOLLOW_SPEED;
+        if (focusTime > 0f) {
+            focusTime -= deltaTime;
+            goalX = focusX;
+            goalY = focusY;
+            goalZoom = KO_ZOOM;
+            speed = KO_FOLLOW_SPEED;
+        }
+
+        // glide: the same fraction of the way every second, whatever the frame rate
+        float step = 1f - (float) Math.exp(-speed * deltaTime);
+        x += (goalX - x) * step;
+        y += (goalY - y) * step;
+        zoom += (goalZoom - zoom) * step;
+
+        // shake around that, zoomed in a bit more so the shake doesn't show past the edges
+        float shake = trauma * trauma;
+        trauma = Math.max(0f, trauma - TRAUMA_DECAY * deltaTime);
+        float shakenZoom = zoom * (1f - SHAKE_ZOOM * shake);
+        float shakenX = x + MAX_SHAKE_OFFSET * shake * MathUtils.random(-1f, 1f);
+        float shakenY = y + MAX_SHAKE_OFFSET * shake * MathUtils.random(-1f, 1f);
+
+        // and keep the view within the scene
+        float halfWidth = viewWidth * shakenZoom * 0.5f;
+        float halfHeight = viewHeight * shakenZoom * 0.5f;
+        shakenX = clampToScene(shakenX, halfWidth, sceneWidth);
+        shakenY = clampToScene(shakenY, halfHeight, sceneHeight);
+
+        camera.position.set(shakenX, shakenY, 0f);
+        camera.zoom = shakenZoom;
+        // the culling goes by the view, the frustum isn't needed
+        camera.update(false);
+        view.set(shakenX - halfWidth, shakenY - halfHeight, halfWidth * 2f, halfHeight * 2f);
+    }
+
+    private static float clampToScene(float center, float halfSize, float sceneSize) {
+        // a view larger than the scene stays anchored to its start, like the fixed camera was
+        if (halfSize * 2f >= sceneSize) {
+            return halfSize;
+        }
+        return MathUtils.clamp(center, halfSize, sceneSize - halfSize);
+    }
+
+    /**
+     * @return the part of the scene in view, in world units, until the next update
+     */
+    public Rectangle view() {
+        return view;
+    }
+
+    /**
+     * @return whether a box in the scene is at least partly in view
+     */
+    public boolean isVisible(float boxX, float boxY, float width, float height) {
+        return boxX < view.x + view.width && boxX + width > view.x
+                && boxY < view.y + view.height && boxY + height > view.y;
+    }
+
+    /**
+     * Draws the part of a texture laid at the origin of the scene, like the background, that's in view.
+     * The GPU clips what's out of the screen before shading it, so this doesn't save any pixels,
+     * but the quad, and the part of the texture it reads from, shrink with the zoom.
+     *
+     * @param scale the world units per texel
+     */
+    public void drawInView(SpriteBatch batch, Texture texture, float scale) {
+        if (!crop(texture.getWidth(), texture.getHeight(), scale)) {
+            return;
+        }
+        batch.draw(texture,
+                cropX * scale, (texture.getHeight() - cropY - cropHeight) * scale,
+                cropWidth * scale, cropHeight * scale,
+                cropX, cropY, cropWidth, cropHeight,
+                false, false);
+    }
+
+    /**
+     * Finds the texels of a texture laid at the origin of the scene that are in view, whole texels,
+     * so the cropped texture lines up with the whole one. They're read with croppedWidth() and croppedHeight().
+     *
+     * @param scale the world units per texel
+     * @return false if none are
+     */
+    public boolean crop(int textureWidth, int textureHeight, float scale) {
+        int left = MathUtils.clamp(MathUtils.floor(view.x / scale), 0, textureWidth);
+        int right = MathUtils.clamp(MathUtils.ceil((view.x + view.width) / scale), 0, textureWidth);
+        // texture rows go down from the top, world units go up from the bottom
+        int top = MathUtils.clamp(textureHeight - MathUtils.ceil((view.y + view.height) / scale), 0, textureHeight);
+        int bottom = MathUtils.clamp(textureHeight - MathUtils.floor(view.y / scale), 0, textureHeight);
+        cropX = left;
+        cropY = top;
+        cropWidth = right - left;
+        cropHeight = bottom - top;
+        return cropWidth > 0 && cropHeight > 0;
+    }
+
+    public int croppedWidth() {
+        return cropWidth;
+    }
+
+    public int croppedHeight() {
+        return cropHeight;
+    }
+
+    public float zoom() {
+        return zoom;
+    }
+}
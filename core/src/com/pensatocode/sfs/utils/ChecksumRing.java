@@ -0,0 +1,118 @@
+package com.pensatocode.sfs.utils;
+
+/**
+ * The checksums of the last ticks of a simulation, to compare runs of the same match:
+ * two replays, two peers, or a replay and the live game.
+ *
+ * The checksums are meant to be rolling, each one hashing the state of its tick and the checksum before it,
+ * so a single matching checksum means all the ticks before it matched too, and once two runs diverge,
+ * their checksums never match again. That's what lets firstDivergence() find the tick where two runs
+ * went apart with a binary search.
+ */
+public class ChecksumRing {
+    public static final long NO_TICK = -1L;
+
+    // results of verify()
+    public enum Verification {
+        // the checksums are the same
+        MATCH,
+        // the checksums are different
+        DESYNC,
+        // the tick isn't in the ring: not played yet, or too old
+        UNKNOWN
+    }
+
+    private final int[] checksums;
+    private long oldestTick = NO_TICK;
+    private int count;
+
+    public ChecksumRing(int capacity) {
+        checksums = new int[capacity];
+    }
+
+    public void clear() {
+        oldestTick = NO_TICK;
+        count = 0;
+    }
+
+    /**
+     * Records the checksum of a tick. Ticks are expected one after the other;
+     * after a gap, the ring starts over from the new tick.
+     */
+    public void record(long tick, int checksum) {
+        if (count == 0 || tick != newestTick() + 1) {
+            oldestTick = tick;
+            count = 0;
+        } else if (count == checksums.length) {
+            oldestTick++;
+            count--;
+        }
+        checksums[index(tick)] = checksum;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long oldestTick() {
+        return oldestTick;
+    }
+
+    public long newestTick() {
+        return count == 0 ? NO_TICK : oldestTick + count - 1;
+    }
+
+    public boolean contains(long tick) {
+        return count > 0 && tick >= oldestTick && tick <= newestTick();
+    }
+
+    /**
+     * @return the checksum of a tick, which must be in the ring
+     */
+    public int get(long tick) {
+        if (!contains(tick)) {
+            throw new IllegalArgumentException("Tick " + tick + " isn't in the ring");
+        }
+        return checksums[index(tick)];
+    }
+
+    /**
+     * Compares the checksum of a tick from another run, like the one a peer sent.
+     */
+    public Verification verify(long tick, int checksum) {
+        if (!contains(tick)) {
+            return Verification.UNKNOWN;
+        }
+        return checksums[index(tick)] == checksum ? Verification.MATCH : Verification.DESYNC;
+    }
+
+    /**
+     * Finds the first tick where two runs have different checksums, among the ticks both rings have.
+     * If the two runs already differ on the oldest tick they share, that's the tick returned,
+     * although they may have diverged before it.
+     *
+     * @return the first tick with different checksums, or NO_TICK if all the ticks both rings have match
+     */
+    public long firstDivergence(ChecksumRing other) {
+        long from = Math.max(oldestTick, other.oldestTick);
+        long to = Math.min(newestTick(), other.newestTick());
+        if (count == 0 || other.count == 0 || from > to || get(to) == other.get(to)) {
+            return NO_TICK;
+        }
+        // the last tick differs: find the first one that does
+        while (from < to) {
+            long middle = from + (to - from) / 2;
+            if (get(middle) == other.get(middle)) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    private int index(long tick) {
+        return (int) (tick % checksums.length);
+    }
+}
@@ -0,0 +1,195 @@
+package com.pensatocode.sfs.utils;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.HdpiUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.viewport.Viewport;
+
+/**
+ * Renders a scene into an offscreen frame buffer at a resolution that follows the frame time,
+ * and then draws it stretched over the viewport.
+ *
+ * When frames take longer than the budget, the scene is rendered at a lower resolution, down to half of it.
+ * When there is headroom again, the resolution goes back up, one step at a time.
+ * The frame buffer is as big as the viewport on screen, and only a part of it is used when the scale is lower,
+ * so it never has to be created again while the game runs. The camera and the world units stay the same,
+ * only the number of pixels the scene is rendered with changes.
+ * <pre>
+ * dynamicResolution.update(delta);
+ * dynamicResolution.begin();
+ * ... draw the scene ...
+ * dynamicResolution.end(viewport, batch);
+ * ... draw the HUD at full resolution ...
+ * </pre>
+ */
+public class DynamicResolution implements Disposable {
+    // the scene is never rendered with less than half of the pixels on each axis
+    public static final float MIN_SCALE = 0.5f;
+    private static final float SCALE_STEP = 0.1f;
+    private static final int MAX_STEPS_DOWN = Math.round((1f - MIN_SCALE) / SCALE_STEP);
+
+    // frames slower than the budget by this much lower the resolution
+    private static final float OVER_BUDGET_FACTOR = 1.1f;
+    // frames within this much of the budget let a higher resolution be tried.
+    // with vertical sync, frames take the budget whether the GPU is busy or not,
+    // so the only way to find out if there is headroom is to try, and back off if it didn't work
+    private static final float HEADROOM_FACTOR = 1.02f;
+    // weight of the last frame in the smoothed frame time
+    private static final float SMOOTHING = 0.1f;
+    // time to wait after a change before lowering the resolution again, and before trying to raise it
+    private static final float LOWER_COOLDOWN = 0.5f;
+    private static final float MIN_RAISE_DELAY = 2f;
+    private static final float MAX_RAISE_DELAY = 32f;
+
+    private final float frameBudget;
+    private FrameBuffer frameBuffer;
+    private final TextureRegion frameRegion = new TextureRegion();
+    private final Matrix4 projection = new Matrix4();
+    private final Matrix4 savedProjection = new Matrix4();
+
+    // how many steps below full resolution the scene is rendered at
+    private int stepsDown;
+    private float smoothedFrameTime;
+    private float timeSinceChange;
+    // raising the resolution right after lowering it would keep going back and forth,
+    // so the delay doubles every time a raise had to be undone
+    private float raiseDelay = MIN_RAISE_DELAY;
+    private boolean lastChangeWasRaise;
+
+    /**
+     * @param frameBudget the time a frame should take, in seconds, usually 1/60
+     */
+    public DynamicResolution(float frameBudget) {
+        this.frameBudget = frameBudget;
+        this.smoothedFrameTime = frameBudget;
+    }
+
+    /**
+     * Creates the frame buffer again, as big as the viewport on screen. Call it after updating the viewport.
+     */
+    public void resize(Viewport viewport) {
+        int width = HdpiUtils.toBackBufferX(viewport.getScreenWidth());
+        int height = HdpiUtils.toBackBufferY(viewport.getScreenHeight());
+        if (frameBuffer != null) {
+            if (frameBuffer.getWidth() == width && frameBuffer.getHeight() == height) {
+                return;
+            }
+            frameBuffer.dispose();
+            frameBuffer = null;
+        }
+        // a minimized window has no size
+        if (width > 0 && height > 0) {
+            // the scene is opaque, so there is no need for an alpha channel, nor for a depth buffer in 2D
+            frameBuffer = new FrameBuffer(Pixmap.Format.RGB888, width, height, false);
+            frameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        }
+    }
+
+    /**
+     * Adjusts the resolution to the time the last frame took. Call it once per frame, before {@link #begin}.
+     */
+    public void update(float delta) {
+        // ignore hiccups like the first frame after loading or after a pause, they say nothing about the GPU
+        if (delta > frameBudget * 4f) {
+            return;
+        }
+        smoothedFrameTime += (delta - smoothedFrameTime) * SMOOTHING;
+        timeSinceChange += delta;
+
+        if (smoothedFrameTime > frameBudget * OVER_BUDGET_FACTOR) {
+            if (stepsDown < MAX_STEPS_DOWN && timeSinceChange >= LOWER_COOLDOWN) {
+                if (lastChangeWasRaise) {
+                    raiseDelay = Math.min(raiseDelay * 2f, MAX_RAISE_DELAY);
+                }
+                changeSteps(stepsDown + 1, false);
+            }
+        } else if (smoothedFrameTime < frameBudget * HEADROOM_FACTOR && timeSinceChange >= raiseDelay) {
+            if (lastChangeWasRaise) {
+                // the last raise held, be quicker to try the next one
+                raiseDelay = MIN_RAISE_DELAY;
+            }
+            if (stepsDown > 0) {
+                changeSteps(stepsDown - 1, true);
+            }
+        }
+    }
+
+    private void changeSteps(int newStepsDown, boolean raise) {
+        stepsDown = newStepsDown;
+        timeSinceChange = 0f;
+        lastChangeWasRaise = raise;
+        // give the new resolution a fresh start instead of carrying over the old frame times
+        smoothedFrameTime = frameBudget;
+    }
+
+    /**
+     * Starts rendering the scene into the frame buffer, at the current scale.
+     */
+    public void begin() {
+        if (frameBuffer == null) {
+            return;
+        }
+        frameBuffer.begin();
+        Gdx.gl.glViewport(0, 0, scaledWidth(), scaledHeight());
+        // the camera covers the same part of the world, only with fewer pixels
+        ScreenUtils.clear(0, 0, 0, 1);
+    }
+
+    /**
+     * Stops rendering into the frame buffer, and draws what was rendered over the viewport.
+     * The batch must not be drawing. Its projection matrix is left as it was.
+     */
+    public void end(Viewport viewport, SpriteBatch batch) {
+        if (frameBuffer == null) {
+            return;
+        }
+        frameBuffer.end();
+        viewport.apply();
+
+        // frame buffer textures are upside down
+        frameRegion.setTexture(frameBuffer.getColorBufferTexture());
+        frameRegion.setRegion(0, scaledHeight(), scaledWidth(), -scaledHeight());
+
+        // the region covers the whole viewport, whatever its world size
+        savedProjection.set(batch.getProjectionMatrix());
+        batch.setProjectionMatrix(projection.setToOrtho2D(0f, 0f, 1f, 1f));
+        batch.disableBlending();
+        batch.setColor(Color.WHITE);
+        batch.begin();
+        batch.draw(frameRegion, 0f, 0f, 1f, 1f);
+        batch.end();
+        batch.enableBlending();
+        batch.setProjectionMatrix(savedProjection);
+    }
+
+    private int scaledWidth() {
+        return Math.max(1, Math.round(frameBuffer.getWidth() * scale()));
+    }
+
+    private int scaledHeight() {
+        return Math.max(1, Math.round(frameBuffer.getHeight() * scale()));
+    }
+
+    /**
+     * @return the fraction of the viewport resolution the scene is rendered at, between 0.5 and 1
+     */
+    public float scale() {
+        return 1f - stepsDown * SCALE_STEP;
+    }
+
+    @Override
+    public void dispose() {
+        if (frameBuffer != null) {
+            frameBuffer.dispose();
+            frameBuffer = null;
+        }
+    }
+}
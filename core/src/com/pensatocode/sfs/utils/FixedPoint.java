@@ -0,0 +1,37 @@
+package com.pensatocode.sfs.utils;
+
+/**
+ * 16.16 fixed point numbers: ints holding a value times 65536, so 16 bits for the integer part
+ * and 16 bits for the fraction.
+ * Adding, subtracting and comparing them is plain int arithmetic, which gives the same bits on every
+ * JVM and every device. The simulation uses them in its fixed point mode (see World), so matches played
+ * from the same inputs end up in exactly the same state, as lockstep, rollback and replays need.
+ *
+ * Converting from a float rounds to the nearest fixed point value; converting back is exact,
+ * since a 16.16 value under 256 fits the 24 bits of a float mantissa.
+ */
+public final class FixedPoint {
+    public static final int FRACTION_BITS = 16;
+    public static final int ONE = 1 << FRACTION_BITS;
+
+    private static final float SCALE = ONE;
+
+    private FixedPoint() {
+    }
+
+    public static int fromFloat(float value) {
+        return Math.round(value * SCALE);
+    }
+
+    public static float toFloat(int value) {
+        return value / SCALE;
+    }
+
+    public static int mul(int a, int b) {
+        return (int) (((long) a * b) >> FRACTION_BITS);
+    }
+
+    public static int div(int a, int b) {
+        return (int) (((long) a << FRACTION_BITS) / b);
+    }
+}
@@ -0,0 +1,216 @@
+package com.pensatocode.sfs.utils;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Decides how often the game draws a frame, to save power when nothing moves on screen.
+ *
+ * In {@link Mode#ACTIVE}, for gameplay, frames are rendered continuously with vertical sync,
+ * capped at the refresh rate of the display. If frames can't keep up with a high refresh rate display,
+ * the cap drops to 60 FPS, which looks smoother than missing every other refresh, and the higher rate is tried
+ * again later.
+ * In {@link Mode#IDLE}, for menus, pauses and the game over screen, a frame is only rendered when something asks
+ * for one. The backends already ask for a frame on every input event; anything else that changes the screen,
+ * like loading assets in the background, must call {@link #requestRender()}.
+ *
+ * It also counts the frames rendered and estimates how busy the CPU and the GPU are, the numbers that matter
+ * for the battery. Once per second, a frame waits for the GPU to finish its work, to measure how far behind the CPU
+ * the GPU is; that wait would be a hitch in gameplay, so it's only done in {@link Mode#IDLE}, where a frame is drawn
+ * now and then anyway, or with the debug log level, when the metrics are logged.
+ */
+public class FramePacer {
+    public enum Mode {
+        ACTIVE,
+        IDLE
+    }
+
+    private static final String TAG = "FramePacer";
+    private static final int DEFAULT_FPS = 60;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    // how often the GPU time is sampled, and the metrics are logged
+    private static final long SAMPLE_INTERVAL_NANOS = NANOS_PER_SECOND;
+    private static final long REPORT_INTERVAL_NANOS = 10L * NANOS_PER_SECOND;
+    // frames under this fraction of the cap mean the display refresh rate is too much to keep up with
+    private static final float MISSED_FRAMES_RATIO = 0.9f;
+    // how long to stay at 60 FPS before trying the display refresh rate again
+    private static final long RETRY_HIGH_RATE_NANOS = 30L * NANOS_PER_SECOND;
+
+    private Mode mode;
+    private final int displayRefreshRate;
+    private int fpsCap;
+    private long lowRateSince;
+    // the first frame rendered continuously again, whose delta time is the whole time nothing was rendered
+    private boolean resumed;
+
+    // metrics
+    private long framesRendered;
+    private long activeFrames;
+    private long idleFrames;
+    private long frameStart;
+    private long renderNanos;
+    private long gpuWaitNanos;
+    private float gpuWait;
+    private float renderBusy;
+    private long lastSampleTime;
+    private long lastReportTime;
+    private long framesAtLastSample;
+    private long renderNanosAtLastSample;
+
+    public FramePacer() {
+        int refreshRate = Gdx.graphics.getDisplayMode().refreshRate;
+        this.displayRefreshRate = refreshRate > 0 ? refreshRate : DEFAULT_FPS;
+        this.fpsCap = displayRefreshRate;
+        this.lastSampleTime = TimeUtils.nanoTime();
+        this.lastReportTime = lastSampleTime;
+        setMode(Mode.ACTIVE);
+    }
+
+    public void setMode(Mode mode) {
+        if (this.mode == mode) {
+            return;
+        }
+        this.mode = mode;
+        if (mode == Mode.ACTIVE) {
+            resumed = true;
+            Gdx.graphics.setVSync(true);
+            Gdx.graphics.setForegroundFPS(fpsCap);
+            Gdx.graphics.setContinuousRendering(true);
+        } else {
+            Gdx.graphics.setContinuousRendering(false);
+            // draw the new state of the screen once
+            Gdx.graphics.requestRendering();
+        }
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Asks for a frame to be rendered, when not rendering continuously.
+     */
+    public void requestRender() {
+        if (mode == Mode.IDLE) {
+            Gdx.graphics.requestRendering();
+        }
+    }
+
+    /**
+     * The backends measure the delta time from the last frame rendered, so a frame rendered in {@link Mode#IDLE},
+     * like the one that leaves a pause, or the first one after it, would get the whole time nothing was rendered,
+     * and the match would jump ahead by as much. Those get at most the time of a frame at the cap instead.
+     *
+     * @param deltaTime the delta time of the backend
+     * @return the time since the last frame to update the screen by
+     */
+    public float deltaTime(float deltaTime) {
+        if (mode == Mode.IDLE || resumed) {
+            resumed = false;
+            return Math.min(deltaTime, 1f / fpsCap);
+        }
+        return deltaTime;
+    }
+
+    /**
+     * Call it at the start of every frame.
+     */
+    public void beginFrame() {
+        frameStart = TimeUtils.nanoTime();
+    }
+
+    /**
+     * Call it at the end of every frame, after everything was drawn.
+     */
+    public void endFrame() {
+        long now = TimeUtils.nanoTime();
+        framesRendered++;
+        if (mode == Mode.ACTIVE) {
+            activeFrames++;
+        } else {
+            idleFrames++;
+        }
+
+        if (now - lastSampleTime < SAMPLE_INTERVAL_NANOS) {
+            renderNanos += now - frameStart;
+            return;
+        }
+
+        long finished = now;
+        long elapsed = finished - lastSampleTime;
+        long frames = framesRendered - framesAtLastSample;
+        if (mode == Mode.IDLE || Gdx.app.getLogLevel() >= Application.LOG_DEBUG) {
+            // wait for the GPU to finish this frame, to see how much of its work was still left once the CPU was done
+            Gdx.gl.glFinish();
+            finished = TimeUtils.nanoTime();
+            gpuWaitNanos = finished - now;
+            // the sampled frame stands for all the frames of the last interval
+            gpuWait = Math.min(1f, (float) gpuWaitNanos * frames / elapsed);
+        }
+        renderNanos += finished - frameStart;
+        renderBusy = (float) (renderNanos - renderNanosAtLastSample) / elapsed;
+        adaptFpsCap(frames * NANOS_PER_SECOND / elapsed, finished);
+
+        lastSampleTime = finished;
+        framesAtLastSample = framesRendered;
+        renderNanosAtLastSample = renderNanos;
+
+        if (finished - lastReportTime >= REPORT_INTERVAL_NANOS) {
+            lastReportTime = finished;
+            Gdx.app.debug(TAG, report());
+        }
+    }
+
+    private void adaptFpsCap(long framesPerSecond, long now) {
+        if (mode != Mode.ACTIVE || displayRefreshRate <= DEFAULT_FPS) {
+            return;
+        }
+        if (fpsCap > DEFAULT_FPS && framesPerSecond < fpsCap * MISSED_FRAMES_RATIO) {
+            fpsCap = DEFAULT_FPS;
+            lowRateSince = now;
+            Gdx.graphics.setForegroundFPS(fpsCap);
+        } else if (fpsCap == DEFAULT_FPS && now - lowRateSince >= RETRY_HIGH_RATE_NANOS) {
+            fpsCap = displayRefreshRate;
+            Gdx.graphics.setForegroundFPS(fpsCap);
+        }
+    }
+
+    public long framesRendered() {
+        return framesRendered;
+    }
+
+    public long activeFrames() {
+        return activeFrames;
+    }
+
+    public long idleFrames() {
+        return idleFrames;
+    }
+
+    public int fpsCap() {
+        return fpsCap;
+    }
+
+    /**
+     * @return the fraction of the time the CPU would spend waiting for the GPU to finish its frames,
+     * estimated from the last sampled frame: 0 while the GPU keeps up, more as it becomes the bottleneck
+     */
+    public float gpuWait() {
+        return gpuWait;
+    }
+
+    /**
+     * @return the fraction of the time spent in the render method, sampled GPU waits included
+     */
+    public float renderBusy() {
+        return renderBusy;
+    }
+
+    public String report() {
+        return "mode " + mode + ", cap " + fpsCap + " FPS, frames " + framesRendered
+                + " (active " + activeFrames + ", idle " + idleFrames + ")"
+                + ", GPU wait " + Math.round(gpuWait * 100f) + "%"
+                + ", render busy " + Math.round(renderBusy * 100f) + "%";
+    }
+}
@@ -0,0 +1,137 @@
+package com.pensatocode.sfs.utils;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Draws indexed sprites in the colors of their skin: a sprite batch shader that looks the gray level of each texel
+ * up in a palette (see Palettes).
+ *
+ * All the palettes are rows of one texture, bound to its own texture unit, and the palette of a sprite
+ * is given by its vertex color (see Palettes.vertexColor()), so fighters with different skins go in the same
+ * draw call as long as they share a sprite sheet. Switching to the shader and back flushes the batch,
+ * twice a frame however many skins there are.
+ * <pre>
+ * paletteShader.begin(batch);
+ * ... draw the indexed sprites, with batch.setPackedColor(Palettes.vertexColor(palette)) ...
+ * paletteShader.end(batch);
+ * </pre>
+ */
+public class PaletteShader implements Disposable {
+    // the palette texture goes on the unit after the one the sprite batch uses
+    private static final int PALETTE_UNIT = 1;
+
+    private static final String VERTEX_SHADER = ""
+            + "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "attribute vec2 " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "uniform mat4 u_projTrans;\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "void main() {\n"
+            + "    v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+            + "    v_texCoords = " + ShaderProgram.TEXCOORD_ATTRIBUTE + "0;\n"
+            + "    gl_Position = u_projTrans * " + ShaderProgram.POSITION_ATTRIBUTE + ";\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER = ""
+            + "#ifdef GL_ES\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec4 v_color;\n"
+            + "varying vec2 v_texCoords;\n"
+            + "uniform sampler2D u_texture;\n"
+            + "uniform sampler2D u_palettes;\n"
+            + "uniform float u_paletteCount;\n"
+            + "void main() {\n"
+            + "    vec4 texel = texture2D(u_texture, v_texCoords);\n"
+            // the palette, from the low byte in red and the high byte in green, and the middle of its row
+            + "    float palette = floor(v_color.r * 255.0 + 0.5) + floor(v_color.g * 255.0 + 0.5) * 256.0;\n"
+            // the gray level is the index, filtered between two indices like their colors are
+            + "    vec2 entry = vec2((texel.r * 255.0 + 0.5) / 256.0, (palette + 0.5) / u_paletteCount);\n"
+            + "    vec4 color = texture2D(u_palettes, entry);\n"
+            + "    gl_FragColor = vec4(color.rgb, color.a * texel.a * v_color.a);\n"
+            + "}\n";
+
+    private final Palettes palettes;
+    private final ShaderProgram shader;
+    private final Pixmap pixmap;
+    private final Texture texture;
+    private int uploaded;
+
+    /**
+     * @throws GdxRuntimeException if the shader doesn't compile on this GPU
+     */
+    public PaletteShader(Palettes palettes) {
+        this.palettes = palettes;
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if (!shader.isCompiled()) {
+            String log = shader.getLog();
+            shader.dispose();
+            throw new GdxRuntimeException("The palette shader doesn't compile: " + log);
+        }
+
+        // the pixmap is kept, so the texture can be uploaded again when the context is lost
+        pixmap = new Pixmap(Palettes.SIZE, palettes.capacity(), Pixmap.Format.RGBA8888);
+        copyPalettes();
+        texture = new Texture(new PixmapTextureData(pixmap, null, false, false, true));
+        // linear along a row, between the colors of two indices; a row is always read in its middle
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        texture.setWrap(Texture.TextureWrap.ClampToEdge, Texture.TextureWrap.ClampToEdge);
+        uploaded = palettes.size();
+    }
+
+    /**
+     * Uploads the palettes added since the last time. Call it after adding some, not while drawing.
+     */
+    public void update() {
+        if (uploaded == palettes.size()) {
+            return;
+        }
+        copyPalettes();
+        texture.draw(pixmap, 0, 0);
+        uploaded = palettes.size();
+    }
+
+    private void copyPalettes() {
+        ByteBuffer pixels = pixmap.getPixels();
+        pixels.clear();
+        pixels.put(palettes.pixels());
+        pixels.flip();
+    }
+
+    /**
+     * Starts drawing indexed sprites. The sprite batch must be drawing.
+     */
+    public void begin(SpriteBatch batch) {
+        batch.setShader(shader);
+        texture.bind(PALETTE_UNIT);
+        // back to the unit of the sprite batch, which binds its textures to the active one
+        Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0);
+        shader.setUniformi("u_palettes", PALETTE_UNIT);
+        shader.setUniformf("u_paletteCount", palettes.capacity());
+    }
+
+    /**
+     * Goes back to drawing sprites as they are.
+     */
+    public void end(SpriteBatch batch) {
+        batch.setShader(null);
+    }
+
+    @Override
+    public void dispose() {
+        shader.dispose();
+        texture.dispose();
+        pixmap.dispose();
+    }
+}
@@ -0,0 +1,154 @@
+package com.pensatocode.sfs.utils;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.NumberUtils;
+
+/**
+ * The palettes of the fighters' skins, built on the CPU, one row of 256 colors each, in RGBA8888,
+ * ready to be uploaded as the palette texture of the PaletteShader.
+ *
+ * The sprite sheets are indexed: the gray level of a pixel is its index in the palette, from 0 for black
+ * to 255 for white, and its alpha stays its own. A skin is a palette, so a new skin is a new row of 1 KB,
+ * not a new set of sprite sheets. A palette is built from key colors at some of the indices,
+ * the indices between two keys fading from one to the other, so the gray levels the antialiasing and
+ * the texture filtering make between two indices get the colors between theirs.
+ *
+ * The ramp from black at 0 to a color at 255 gives the sprite the same colors it had tinted with that color.
+ *
+ * Nothing here needs a GPU, so palettes can be built and checked headless (see the paletteCheck task).
+ */
+public class Palettes {
+    // colors in a palette, one for each index
+    public static final int SIZE = 256;
+    private static final int BYTES_PER_COLOR = 4;
+    private static final int[] RAMP_INDICES = {0, SIZE - 1};
+
+    private final int capacity;
+    // the palettes, a row of SIZE colors each, RGBA in that order, like a Pixmap in RGBA8888
+    private final byte[] pixels;
+    // the color each palette was made for, in RGBA8888, to find it again
+    private final int[] keys;
+    private int size;
+
+    /**
+     * @param capacity the most palettes there can be, the height of the palette texture
+     */
+    public Palettes(int capacity) {
+        if (capacity <= 0 || capacity > 0x10000) {
+            throw new IllegalArgumentException("The capacity of the palettes must be from 1 to 65536: " + capacity);
+        }
+        this.capacity = capacity;
+        pixels = new byte[capacity * SIZE * BYTES_PER_COLOR];
+        keys = new int[capacity];
+    }
+
+    /**
+     * Adds the palette a sprite tinted with a color would have: black at index 0, the color at 255.
+     *
+     * @return the palette
+     */
+    public int addRamp(Color color) {
+        return add(color, RAMP_INDICES, new Color[]{Color.BLACK, color});
+    }
+
+    /**
+     * Adds a palette from its key colors. The indices before the first key get its color, the ones after the last
+     * key get the last color, and the ones between two keys fade from one color to the other.
+     *
+     * @param key     the color the palette is made for, to find it again
+     * @param indices the indices of the key colors, in increasing order, from 0 to 255
+     * @param colors  the key colors
+     * @return the palette
+     */
+    public int add(Color key, int[] indices, Color[] colors) {
+        if (indices.length == 0 || indices.length != colors.length) {
+            throw new IllegalArgumentException("A palette needs as many key colors as indices, at least one");
+        }
+        for (int i = 0; i < indices.length; i++) {
+            if (indices[i] < 0 || indices[i] >= SIZE || (i > 0 && indices[i] <= indices[i - 1])) {
+                throw new IllegalArgumentException("The indices of the key colors must go up, from 0 to "
+                        + (SIZE - 1) + ": " + indices[i]);
+            }
+        }
+        if (size == capacity) {
+            throw new IllegalStateException("There's no room for more than " + capacity + " palettes");
+        }
+
+        int palette = size++;
+        keys[palette] = Color.rgba8888(key);
+        int offset = palette * SIZE * BYTES_PER_COLOR;
+        int next = 0;
+        for (int index = 0; index < SIZE; index++) {
+            // the first key at or after the index
+            while (next < indices.length && indices[next] < index) {
+                next++;
+            }
+            Color to = colors[Math.min(next, colors.length - 1)];
+            Color from = colors[Math.max(next - 1, 0)];
+            float progress = next == 0 || next == indices.length
+                    ? 1f : (float) (index - indices[next - 1]) / (indices[next] - indices[next - 1]);
+            pixels[offset++] = channel(from.r, to.r, progress);
+            pixels[offset++] = channel(from.g, to.g, progress);
+            pixels[offset++] = channel(from.b, to.b, progress);
+            pixels[offset++] = channel(from.a, to.a, progress);
+        }
+        return palette;
+    }
+
+    private static byte channel(float from, float to, float progress) {
+        return (byte) Math.round((from + (to - from) * progress) * 255f);
+    }
+
+    /**
+     * @return the palette made for a color, or -1 if there's none
+     */
+    public int find(Color color) {
+        int key = Color.rgba8888(color);
+        for (int palette = 0; palette < size; palette++) {
+            if (keys[palette] == key) {
+                return palette;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the color of an index in a palette, in RGBA8888
+     */
+    public int color(int palette, int index) {
+        int offset = (palette * SIZE + index) * BYTES_PER_COLOR;
+        return (pixels[offset] & 0xff) << 24 | (pixels[offset + 1] & 0xff) << 16
+                | (pixels[offset + 2] & 0xff) << 8 | (pixels[offset + 3] & 0xff);
+    }
+
+    /**
+     * @return the color a sprite is drawn with, packed for SpriteBatch.setPackedColor(), to be drawn with a palette:
+     * the low byte of the palette in red, the high byte in green, fully opaque
+     */
+    public static float vertexColor(int palette) {
+        return NumberUtils.intToFloatColor(0xff << 24 | 0xff << 16 | (palette >>> 8 & 0xff) << 8 | (palette & 0xff));
+    }
+
+    /**
+     * @return the palette a packed vertex color stands for, read back like the shader does
+     */
+    public static int paletteOf(float vertexColor) {
+        int abgr = NumberUtils.floatToIntColor(vertexColor);
+        return (abgr >>> 8 & 0xff) << 8 | (abgr & 0xff);
+    }
+
+    /**
+     * @return the palettes, a row of SIZE colors each, in RGBA8888; only the first size() rows are in use
+     */
+    public byte[] pixels() {
+        return pixels;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,65 @@
+package com.pensatocode.sfs.utils;
+
+/**
+ * The clock of the game screen: turns the time since the last frame into the time the match is updated by.
+ *
+ * The global scale slows the whole match down, for slow motion, or speeds it up.
+ * A hit-stop freezes it for a moment on an impact, a few hundredths of a second of real time,
+ * which makes the hits feel heavier; the match isn't stepped until it's over.
+ * Fighters can also have their own time scale, in the simulation (see World.timeScale).
+ *
+ * Only the delta times change, and they're what the replays and the spectators are given,
+ * so a slowed down or frozen match still plays back the same.
+ */
+public class TimeScale {
+    private float scale = 1f;
+    // real time left in the hit-stop, in seconds
+    private float hitStop;
+
+    public float getScale() {
+        return scale;
+    }
+
+    /**
+     * @param scale 1 for normal speed, 0.5 for half speed, and so on
+     */
+    public void setScale(float scale) {
+        if (scale < 0f) {
+            throw new IllegalArgumentException("A time scale can't be negative: " + scale);
+        }
+        this.scale = scale;
+    }
+
+    /**
+     * Freezes time for a while, or longer if it's already frozen for less.
+     *
+     * @param duration the real time to freeze for, in seconds
+     */
+    public void hitStop(float duration) {
+        hitStop = Math.max(hitStop, duration);
+    }
+
+    public boolean isStopped() {
+        return hitStop > 0f;
+    }
+
+    /**
+     * @param deltaTime the real time since the last frame, in seconds
+     * @return the time to update the match by: zero during a hit-stop, otherwise the scaled delta time
+     */
+    public float apply(float deltaTime) {
+        if (hitStop > 0f) {
+            hitStop -= deltaTime;
+            return 0f;
+        }
+        return deltaTime * scale;
+    }
+
+    /**
+     * Back to normal speed, without any hit-stop.
+     */
+    public void reset() {
+        scale = 1f;
+        hitStop = 0f;
+    }
+}
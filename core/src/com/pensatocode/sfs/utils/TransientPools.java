@@ -0,0 +1,83 @@
+package com.pensatocode.sfs.utils;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Pool;
+
+/**
+ * Pools for short-lived objects used inside the game loop, such as the vectors needed
+ * to convert touch coordinates to world coordinates.
+ * Creating those objects every frame would give the garbage collector work to do,
+ * which shows up as stutters, mostly on mobile devices.
+ * Always give back what you obtain, usually in a finally block:
+ * <pre>
+ * Vector3 position = TransientPools.obtainVector3();
+ * try {
+ *     ...
+ * } finally {
+ *     TransientPools.free(position);
+ * }
+ * </pre>
+ * The pools are meant to be used from the render thread only.
+ */
+public final class TransientPools {
+    // a handful of objects is enough, since they are given back in the same frame
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int MAX_CAPACITY = 64;
+
+    private static final Pool<Vector2> VECTOR2_POOL = new Pool<Vector2>(INITIAL_CAPACITY, MAX_CAPACITY) {
+        @Override
+        protected Vector2 newObject() {
+            return new Vector2();
+        }
+    };
+
+    private static final Pool<Vector3> VECTOR3_POOL = new Pool<Vector3>(INITIAL_CAPACITY, MAX_CAPACITY) {
+        @Override
+        protected Vector3 newObject() {
+            return new Vector3();
+        }
+    };
+
+    private static final Pool<Rectangle> RECTANGLE_POOL = new Pool<Rectangle>(INITIAL_CAPACITY, MAX_CAPACITY) {
+        @Override
+        protected Rectangle newObject() {
+            return new Rectangle();
+        }
+    };
+
+    static {
+        // create the objects up front, so the first frames don't allocate them either
+        VECTOR2_POOL.fill(INITIAL_CAPACITY);
+        VECTOR3_POOL.fill(INITIAL_CAPACITY);
+        RECTANGLE_POOL.fill(INITIAL_CAPACITY);
+    }
+
+    private TransientPools() {
+    }
+
+    public static Vector2 obtainVector2() {
+        return VECTOR2_POOL.obtain().setZero();
+    }
+
+    public static Vector3 obtainVector3() {
+        return VECTOR3_POOL.obtain().setZero();
+    }
+
+    public static Rectangle obtainRectangle() {
+        return RECTANGLE_POOL.obtain().set(0f, 0f, 0f, 0f);
+    }
+
+    public static void free(Vector2 vector) {
+        VECTOR2_POOL.free(vector);
+    }
+
+    public static void free(Vector3 vector) {
+        VECTOR3_POOL.free(vector);
+    }
+
+    public static void free(Rectangle rectangle) {
+        RECTANGLE_POOL.free(rectangle);
+    }
+}
@@ -9,7 +9,10 @@ import com.pensatocode.sfs.resources.GlobalVariables;
 public class DesktopLauncher {
 	public static void main (String[] arg) {
 		Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
-		config.setForegroundFPS(60);
+		// render at the refresh rate of the display, in sync with it;
+		// the game lowers the cap or stops rendering continuously when it can, see FramePacer
+		config.useVsync(true);
+		config.setForegroundFPS(Lwjgl3ApplicationConfiguration.getDisplayMode().refreshRate);
 		config.setTitle("Stick Figure Showdown");
 
 		// set the window size manually, instead of using the LibGDX default
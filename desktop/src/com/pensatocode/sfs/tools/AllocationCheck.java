@@ -0,0 +1,56 @@
+package com.pensatocode.sfs.tools;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Build check that makes sure the gameplay loop doesn't create garbage.
+ * It plays headless best-of-three matches until the JIT has compiled the hot path,
+ * then measures the bytes allocated by the game thread during one complete match.
+ * Anything other than zero fails the check, and with it the build (see the allocationCheck task).
+ *
+ * Run it with: ./gradlew desktop:allocationCheck
+ */
+public class AllocationCheck {
+    private static final int WARM_UP_MATCHES = 20;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("Allocation check skipped: this JVM can't measure allocated bytes per thread.");
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // let the JIT compile the hot path, so we only measure the steady state
+        HeadlessMatch match = new HeadlessMatch();
+        for (int i = 0; i < WARM_UP_MATCHES; i++) {
+            match.play();
+        }
+
+        // reading the counter may allocate by itself, so measure that first and discount it
+        long probeStart = threads.getThreadAllocatedBytes(threadId);
+        long probeEnd = threads.getThreadAllocatedBytes(threadId);
+        long probeBytes = probeEnd - probeStart;
+
+        // play one more match, without the start of the match itself
+        match.start();
+        long ticksBefore = match.ticks();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        while (!match.match().isOver()) {
+            match.tick();
+        }
+        long allocatedAfter = threads.getThreadAllocatedBytes(threadId);
+        long ticks = match.ticks() - ticksBefore;
+        long allocated = Math.max(0L, allocatedAfter - allocatedBefore - probeBytes);
+
+        System.out.println("Allocation check: " + allocated + " bytes allocated in " + ticks + " ticks, "
+                + match.match().getCurrentRound() + " rounds.");
+        if (allocated > 0L) {
+            System.err.println("The gameplay loop must not allocate memory. "
+                    + "Look for new objects, string concatenation, boxing or varargs in the code called by Match.update().");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Rectangle;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+import com.pensatocode.sfs.resources.Assets;
+import com.pensatocode.sfs.resources.GlobalVariables;
+import com.pensatocode.sfs.utils.CameraController;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+
+/**
+ * Measures what the camera that follows the fighters (see CameraController) saves on drawing the scene,
+ * against the fixed camera that always showed all of it, on headless matches, frame by frame,
+ * as the game screen would draw them on a screen of 800x480 pixels:
+ * <ul>
+ * <li>the quads drawn, and the sprites culled for being out of view;</li>
+ * <li>the draw calls, one for each run of quads with the same texture: the background, the fighters,
+ * which share a sprite sheet only when in the same state, and the front ropes;</li>
+ * <li>the fragments shaded, the pixels of the screen each quad covers, which is what the fill rate goes to;</li>
+ * <li>the texels of the background in the quad drawn, the part of the texture read from.</li>
+ * </ul>
+ * There's no GPU here, so these are counted rather than timed, from the sizes of the textures and sprites.
+ * Once the JIT has warmed up, the camera must not allocate.
+ *
+ * Run it with: ./gradlew desktop:cameraBenchmark
+ */
+public class CameraBenchmark implements Match.Listener {
+    private static final int SCREEN_WIDTH = 800;
+    private static final int SCREEN_HEIGHT = 480;
+    private static final int WARM_UP_MATCHES = 20;
+    private static final int MATCHES = 10;
+    // like the game screen (see GameScreen.onHit)
+    private static final float HEAVY_HIT_DAMAGE = 8f;
+    private static final float HEAVY_HIT_SHAKE = 0.6f;
+    private static final float KO_SHAKE = 1f;
+    private static final float KO_FOCUS_TIME = 1.5f;
+
+    private final Match match;
+    private final CameraController cameraController;
+    private final Rectangle fixedView = new Rectangle(0f, 0f, GlobalVariables.WORLD_WIDTH, GlobalVariables.WORLD_HEIGHT);
+
+    private final int backgroundWidth;
+    private final int backgroundHeight;
+    private final int ropesWidth;
+    private final int ropesHeight;
+    private final float fighterWidth;
+    private final float fighterHeight;
+
+    // what's been drawn, by the fixed camera and by the one that follows
+    private final Totals fixedTotals = new Totals();
+    private final Totals followTotals = new Totals();
+    private long frames;
+
+    private CameraBenchmark() throws IOException {
+        StateMachine stateMachine = HeadlessMatch.loadFighterStateMachine();
+        MoveSet moves = HeadlessMatch.loadFighterMoves();
+        World world = new World();
+        match = new Match(new Fighter(world, stateMachine, moves, "Player", new Color(Color.RED)),
+                new Fighter(world, stateMachine, moves, "Opponent", new Color(Color.BLUE)), this);
+
+        // the textures are only read for their sizes
+        int[] size = new int[2];
+        readImageSize(Assets.BACKGROUND_TEXTURE, size);
+        backgroundWidth = size[0];
+        backgroundHeight = size[1];
+        readImageSize(Assets.FRONT_ROPES_TEXTURE, size);
+        ropesWidth = size[0];
+        ropesHeight = size[1];
+        readImageSize(Assets.IDLE_SPRITE_SHEET, size);
+        fighterWidth = size[0] / Fighter.FRAME_COLS * GlobalVariables.WORLD_SCALE;
+        fighterHeight = size[1] / Fighter.FRAME_ROWS * GlobalVariables.WORLD_SCALE;
+
+        // the viewport of the game screen fits the whole scene on a screen of this shape
+        cameraController = new CameraController(new OrthographicCamera(),
+                GlobalVariables.WORLD_WIDTH, GlobalVariables.WORLD_HEIGHT);
+        follow();
+        cameraController.resize(GlobalVariables.WORLD_WIDTH, GlobalVariables.WORLD_HEIGHT);
+    }
+
+    public static void main(String[] args) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        boolean measure = threads.isThreadAllocatedMemorySupported();
+        if (measure) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        long threadId = Thread.currentThread().getId();
+
+        CameraBenchmark benchmark = new CameraBenchmark();
+        for (int i = 0; i < WARM_UP_MATCHES; i++) {
+            benchmark.play();
+        }
+        benchmark.fixedTotals.clear();
+        benchmark.followTotals.clear();
+        benchmark.frames = 0L;
+        // reading the counter may allocate by itself, so measure that first and discount it
+        long probeBytes = 0L;
+        if (measure) {
+            long probeStart = threads.getThreadAllocatedBytes(threadId);
+            probeBytes = threads.getThreadAllocatedBytes(threadId) - probeStart;
+        }
+
+        long allocatedBefore = measure ? threads.getThreadAllocatedBytes(threadId) : 0L;
+        for (int i = 0; i < MATCHES; i++) {
+            benchmark.play();
+        }
+        long allocated = measure
+                ? Math.max(0L, threads.getThreadAllocatedBytes(threadId) - allocatedBefore - probeBytes) : 0L;
+
+        long frames = benchmark.frames;
+        System.out.println("Camera benchmark: " + MATCHES + " matches, " + frames + " frames at "
+                + SCREEN_WIDTH + "x" + SCREEN_HEIGHT + ", averages per frame");
+        System.out.println(String.format("%-8s %8s %8s %11s %12s %14s",
+                "camera", "quads", "culled", "draw calls", "fragments", "bg texels"));
+        benchmark.fixedTotals.print("fixed", frames);
+        benchmark.followTotals.print("follow", frames);
+        System.out.println(String.format("background texels read: %.0f%% of the fixed camera's, fragments shaded: %.0f%%",
+                100.0 * benchmark.followTotals.backgroundTexels / benchmark.fixedTotals.backgroundTexels,
+                100.0 * benchmark.followTotals.fragments / benchmark.fixedTotals.fragments));
+        System.out.println(measure ? allocated + " bytes allocated by the camera and the culling."
+                : "Allocations not measured on this JVM.");
+        if (allocated > 0L) {
+            System.err.println("The camera must not allocate memory while following the fight.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays a match through its inputs, the player walking up to the opponent and punching in odd rounds,
+     * and standing still in even ones, until the timer runs out, and draws every tick of it.
+     */
+    private void play() {
+        match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        while (!match.isOver()) {
+            Fighter player = match.player();
+            if (match.getRoundState() == Match.RoundState.IN_PROGRESS && match.getCurrentRound() % 2 == 1) {
+                if (match.areWithinContactDistance(player.getPosition(), match.opponent().getPosition())) {
+                    match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_RIGHT);
+                    if (!player.isAttacking()) {
+                        match.input(GameEvent.PLAYER, MatchInput.PUNCH);
+                    }
+                } else {
+                    match.input(GameEvent.PLAYER, MatchInput.MOVE_RIGHT);
+                }
+            } else {
+                match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_RIGHT);
+            }
+            match.update(HeadlessMatch.TIME_STEP);
+
+            follow();
+            cameraController.update(HeadlessMatch.TIME_STEP);
+            draw(fixedView, fixedTotals);
+            draw(cameraController.view(), followTotals);
+            frames++;
+        }
+    }
+
+    private void follow() {
+        float playerX = match.player().getPosition().x;
+        float playerY = match.player().getPosition().y;
+        float opponentX = match.opponent().getPosition().x;
+        float opponentY = match.opponent().getPosition().y;
+        cameraController.follow(playerX, playerY, opponentX, opponentY, fighterWidth, fighterHeight);
+    }
+
+    /**
+     * Counts what the game screen would draw of the scene with a view, in the order it draws it.
+     */
+    private void draw(Rectangle view, Totals totals) {
+        // the screen shows the whole view, so this many pixels go to each world unit
+        float pixelsPerUnit = SCREEN_WIDTH / view.width;
+        float scale = GlobalVariables.WORLD_SCALE;
+
+        // the background: cropped to the view by the camera that follows, whole by the fixed one
+        int texelsWide = backgroundWidth;
+        int texelsHigh = backgroundHeight;
+        if (view != fixedView) {
+            cameraController.crop(backgroundWidth, backgroundHeight, scale);
+            texelsWide = cameraController.croppedWidth();
+            texelsHigh = cameraController.croppedHeight();
+        }
+        totals.backgroundTexels += (long) texelsWide * texelsHigh;
+        totals.quads++;
+        totals.drawCalls++;
+        totals.fragments += fragments(view, 0f, 0f, backgroundWidth * scale, backgroundHeight * scale,
+                pixelsPerUnit);
+
+        // the fighters, further back first, one draw call for each change of sprite sheet
+        Fighter back = match.player();
+        Fighter front = match.opponent();
+        if (back.getPosition().y < front.getPosition().y) {
+            back = match.opponent();
+            front = match.player();
+        }
+        Fighter.State lastState = drawFighter(back, null, view, pixelsPerUnit, totals);
+        drawFighter(front, lastState, view, pixelsPerUnit, totals);
+
+        // and the front ropes, if they're in view
+        float ropesTop = ropesHeight * scale;
+        if (view.y < ropesTop) {
+            totals.quads++;
+            totals.drawCalls++;
+            totals.fragments += fragments(view, 0f, 0f, ropesWidth * scale, ropesTop, pixelsPerUnit);
+        }
+    }
+
+    /**
+     * @return the state of the fighter, whose sprite sheet the batch now holds, or the last one if it was culled
+     */
+    private Fighter.State drawFighter(Fighter fighter, Fighter.State lastState, Rectangle view,
+                                      float pixelsPerUnit, Totals totals) {
+        float x = fighter.getPosition().x;
+        float y = fighter.getPosition().y;
+        if (x >= view.x + view.width || x + fighterWidth <= view.x
+                || y >= view.y + view.height || y + fighterHeight <= view.y) {
+            totals.culled++;
+            return lastState;
+        }
+        totals.quads++;
+        if (fighter.getState() != lastState) {
+            totals.drawCalls++;
+        }
+        totals.fragments += fragments(view, x, y, fighterWidth, fighterHeight, pixelsPerUnit);
+        return fighter.getState();
+    }
+
+    /**
+     * @return the pixels of the screen a quad covers, the GPU clipping the rest of it
+     */
+    private static long fragments(Rectangle view, float x, float y, float width, float height, float pixelsPerUnit) {
+        float visibleWidth = Math.min(x + width, view.x + view.width) - Math.max(x, view.x);
+        float visibleHeight = Math.min(y + height, view.y + view.height) - Math.max(y, view.y);
+        if (visibleWidth <= 0f || visibleHeight <= 0f) {
+            return 0L;
+        }
+        return (long) (visibleWidth * pixelsPerUnit * visibleHeight * pixelsPerUnit);
+    }
+
+    @Override
+    public void onHit(Fighter attacker, Fighter defender) {
+        if (defender.hasLost()) {
+            cameraController.shake(KO_SHAKE);
+            cameraController.focus(defender.getPosition().x + fighterWidth * 0.5f,
+                    defender.getPosition().y + fighterHeight * 0.5f, KO_FOCUS_TIME);
+        } else if (attacker.getMoveDamage() >= HEAVY_HIT_DAMAGE) {
+            cameraController.shake(HEAVY_HIT_SHAKE);
+        }
+    }
+
+    @Override
+    public void onRoundWon() {
+    }
+
+    @Override
+    public void onRoundLost() {
+    }
+
+    /**
+     * Reads the size of an image in the assets, from its header, without decoding it.
+     */
+    private static void readImageSize(String file, int[] size) throws IOException {
+        InputStream input = CameraBenchmark.class.getResourceAsStream("/" + file);
+        if (input == null) {
+            throw new IllegalStateException(file + " isn't in the classpath");
+        }
+        try (ImageInputStream image = ImageIO.createImageInputStream(input)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(image);
+            if (!readers.hasNext()) {
+                throw new IOException(file + " isn't an image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(image);
+                size[0] = reader.getWidth(0);
+                size[1] = reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private static class Totals {
+        long quads;
+        long culled;
+        long drawCalls;
+        long fragments;
+        long backgroundTexels;
+
+        void clear() {
+            quads = 0L;
+            culled = 0L;
+            drawCalls = 0L;
+            fragments = 0L;
+            backgroundTexels = 0L;
+        }
+
+        void print(String camera, long frames) {
+            System.out.println(String.format("%-8s %8.2f %8.2f %11.2f %12.0f %14.0f", camera,
+                    (double) quads / frames, (double) culled / frames, (double) drawCalls / frames,
+                    (double) fragments / frames, (double) backgroundTexels / frames));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Build check that makes sure the fixed point simulation is deterministic.
+ * Both fighters are driven by pseudo random inputs from a fixed seed, for 100000 ticks, in fixed point mode.
+ *
+ * First two matches are played side by side, comparing their checksums after every tick,
+ * which catches any state that isn't reset or depends on something other than the inputs.
+ * Then the same run is repeated in new JVMs, once interpreted and once with the JIT compiler
+ * stopped at its first tier, and their final checksums must be the same as the ones of this JVM,
+ * which had the optimizing compiler. Any difference fails the check, and with it the build
+ * (see the determinismCheck task).
+ *
+ * Run it with: ./gradlew desktop:determinismCheck
+ */
+public class DeterminismCheck {
+    private static final int TICKS = 100000;
+    private static final long SEED = 20240517L;
+    private static final float TIME_STEP = 1f / 60f;
+    private static final String CHILD = "--child";
+    private static final String[][] CHILD_JVM_OPTIONS = {{"-Xint"}, {"-XX:TieredStopAtLevel=1"}};
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && CHILD.equals(args[0])) {
+            System.out.println(new Run().play(TICKS));
+            return;
+        }
+
+        // two runs in lockstep
+        Run first = new Run();
+        Run second = new Run();
+        for (int tick = 1; tick <= TICKS; tick++) {
+            first.tick();
+            second.tick();
+            if (first.match.getChecksum() != second.match.getChecksum()) {
+                long divergence = first.match.getChecksums().firstDivergence(second.match.getChecksums());
+                fail("Two runs of the same match diverged at tick " + divergence + ".");
+            }
+        }
+        String expected = first.result();
+        System.out.println("Determinism check: " + expected);
+
+        // the same run in other JVMs, with other compilers
+        for (String[] options : CHILD_JVM_OPTIONS) {
+            String result = runChild(options);
+            if (!expected.equals(result)) {
+                fail("The run with " + String.join(" ", options) + " ended in another state: " + result);
+            }
+            System.out.println("Same state with " + String.join(" ", options) + ".");
+        }
+    }
+
+    private static String runChild(String[] options) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String option : options) {
+            command.add(option);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DeterminismCheck.class.getName());
+        command.add(CHILD);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"))) {
+            result = reader.readLine();
+        }
+        if (process.waitFor() != 0) {
+            fail("The run with " + String.join(" ", options) + " failed: " + result);
+        }
+        return result;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message + " The fixed point simulation must only depend on its inputs: "
+                + "look for float arithmetic, unordered collections or state that isn't reset between matches.");
+        System.exit(1);
+    }
+
+    /**
+     * A fixed point match, with pseudo random inputs for both fighters.
+     */
+    private static class Run implements Match.Listener {
+        private final Match match;
+        private final Random random = new Random(SEED);
+        // the checksums of the matches so far, folded into one
+        private int history;
+        private int matches;
+
+        Run() {
+            StateMachine stateMachine = HeadlessMatch.loadFighterStateMachine();
+            MoveSet moves = HeadlessMatch.loadFighterMoves();
+            World world = new World(true);
+            Fighter player = new Fighter(world, stateMachine, moves, "Player", new Color(Color.RED));
+            Fighter opponent = new Fighter(world, stateMachine, moves, "Opponent", new Color(Color.BLUE));
+            match = new Match(player, opponent, this);
+            match.start();
+        }
+
+        String play(int ticks) {
+            for (int tick = 0; tick < ticks; tick++) {
+                tick();
+            }
+            return result();
+        }
+
+        void tick() {
+            if (match.isOver()) {
+                // the checksums start over with each match
+                history = 31 * history + match.getChecksum();
+                matches++;
+                match.start();
+            }
+            if (match.getRoundState() == Match.RoundState.IN_PROGRESS) {
+                act(match.player());
+                act(match.opponent());
+            } else {
+                match.skipRoundDelay();
+            }
+            match.update(TIME_STEP);
+        }
+
+        /**
+         * Presses or releases a button now and then, like a player mashing them.
+         */
+        private void act(Fighter fighter) {
+            switch (random.nextInt(24)) {
+                case 0: fighter.moveLeft(); break;
+                case 1: fighter.moveRight(); break;
+                case 2: fighter.moveUp(); break;
+                case 3: fighter.moveDown(); break;
+                case 4: fighter.stopMovingLeft(); break;
+                case 5: fighter.stopMovingRight(); break;
+                case 6: fighter.stopMovingUp(); break;
+                case 7: fighter.stopMovingDown(); break;
+                case 8: fighter.block(); break;
+                case 9: fighter.stopBlocking(); break;
+                case 10: fighter.punch(); break;
+                case 11: fighter.kick(); break;
+                default: break;
+            }
+        }
+
+        String result() {
+            return "checksum " + Integer.toHexString(match.getChecksum()) + ", history "
+                    + Integer.toHexString(history) + ", " + matches + " matches";
+        }
+
+        @Override
+        public void onHit(Fighter attacker, Fighter defender) {
+        }
+
+        @Override
+        public void onRoundWon() {
+        }
+
+        @Override
+        public void onRoundLost() {
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.pensatocode.sfs.tools;
+
+/**
+ * Encodes 4x4 blocks of pixels into ETC2 blocks, for the texture pipeline.
+ *
+ * It only uses the modes ETC2 inherits from ETC1 (individual and differential colors), which any ETC2 decoder reads,
+ * and searches them exhaustively for each block, which is plenty for a handful of textures.
+ * Pixels are given as 16 ARGB ints, row by row, and each block is returned as a 64-bit word
+ * to be written most significant byte first.
+ */
+final class Etc2Encoder {
+    // intensity modifiers of the color blocks, indexed by table and then by pixel index
+    private static final int[][] COLOR_MODIFIERS = {
+            {2, 8, -2, -8},
+            {5, 17, -5, -17},
+            {9, 29, -9, -29},
+            {13, 42, -13, -42},
+            {18, 60, -18, -60},
+            {24, 80, -24, -80},
+            {33, 106, -33, -106},
+            {47, 183, -47, -183}
+    };
+
+    // modifiers of the EAC alpha blocks, indexed by table and then by pixel index
+    private static final int[][] ALPHA_MODIFIERS = {
+            {-3, -6, -9, -15, 2, 5, 8, 14},
+            {-3, -7, -10, -13, 2, 6, 9, 12},
+            {-2, -5, -8, -13, 1, 4, 7, 12},
+            {-2, -4, -6, -13, 1, 3, 5, 12},
+            {-3, -6, -8, -12, 2, 5, 7, 11},
+            {-3, -7, -9, -11, 2, 6, 8, 10},
+            {-4, -7, -8, -11, 3, 6, 7, 10},
+            {-3, -5, -8, -11, 2, 4, 7, 10},
+            {-2, -6, -8, -10, 1, 5, 7, 9},
+            {-2, -5, -8, -10, 1, 4, 7, 9},
+            {-2, -4, -8, -10, 1, 3, 7, 9},
+            {-2, -5, -7, -10, 1, 4, 6, 9},
+            {-3, -4, -7, -10, 2, 3, 6, 9},
+            {-1, -2, -3, -10, 0, 1, 2, 9},
+            {-4, -6, -8, -9, 3, 5, 7, 8},
+            {-3, -5, -7, -9, 2, 4, 6, 8}
+    };
+    // table 13 has a modifier of 0, at index 4, used for blocks with a single alpha value
+    private static final int FLAT_ALPHA_TABLE = 13;
+    private static final int FLAT_ALPHA_INDEX = 4;
+
+    private Etc2Encoder() {
+    }
+
+    /**
+     * Encodes the colors of a block, ignoring alpha.
+     */
+    static long encodeColorBlock(int[] pixels) {
+        long bestBlock = 0L;
+        long bestError = Long.MAX_VALUE;
+        int[] indices = new int[16];
+        int[] bestIndices = new int[16];
+        int[][] averages = new int[2][3];
+
+        // a block is split in two sub-blocks of 2x4 pixels, side by side (flip 0) or on top of each other (flip 1)
+        for (int flip = 0; flip < 2; flip++) {
+            for (int subBlock = 0; subBlock < 2; subBlock++) {
+                average(pixels, flip, subBlock, averages[subBlock]);
+            }
+
+            // individual mode: each sub-block has its own 4-bit color
+            int[][] individual = new int[2][3];
+            int[][] individualBase = new int[2][3];
+            for (int subBlock = 0; subBlock < 2; subBlock++) {
+                for (int channel = 0; channel < 3; channel++) {
+                    individual[subBlock][channel] = quantize(averages[subBlock][channel], 15);
+                    individualBase[subBlock][channel] = individual[subBlock][channel] * 17;
+                }
+            }
+            int[] tables = new int[2];
+            long error = encodeSubBlocks(pixels, flip, individualBase, tables, indices);
+            if (error < bestError) {
+                bestError = error;
+                System.arraycopy(indices, 0, bestIndices, 0, 16);
+                bestBlock = ((long) individual[0][0] << 60) | ((long) individual[1][0] << 56)
+                        | ((long) individual[0][1] << 52) | ((long) individual[1][1] << 48)
+                        | ((long) individual[0][2] << 44) | ((long) individual[1][2] << 40)
+                        | ((long) tables[0] << 37) | ((long) tables[1] << 34)
+                        | ((long) flip << 32);
+            }
+
+            // differential mode: 5-bit colors, the second one stored as a difference of -4 to 3 from the first
+            int[][] differential = new int[2][3];
+            int[][] differentialBase = new int[2][3];
+            boolean fits = true;
+            for (int channel = 0; channel < 3; channel++) {
+                differential[0][channel] = quantize(averages[0][channel], 31);
+                differential[1][channel] = quantize(averages[1][channel], 31);
+                int difference = differential[1][channel] - differential[0][channel];
+                if (difference < -4 || difference > 3) {
+                    fits = false;
+                }
+                for (int subBlock = 0; subBlock < 2; subBlock++) {
+                    int value = differential[subBlock][channel];
+                    differentialBase[subBlock][channel] = (value << 3) | (value >> 2);
+                }
+            }
+            if (fits) {
+                error = encodeSubBlocks(pixels, flip, differentialBase, tables, indices);
+                if (error < bestError) {
+                    bestError = error;
+                    System.arraycopy(indices, 0, bestIndices, 0, 16);
+                    bestBlock = ((long) differential[0][0] << 59)
+                            | ((long) ((differential[1][0] - differential[0][0]) & 7) << 56)
+                            | ((long) differential[0][1] << 51)
+                            | ((long) ((differential[1][1] - differential[0][1]) & 7) << 48)
+                            | ((long) differential[0][2] << 43)
+                            | ((long) ((differential[1][2] - differential[0][2]) & 7) << 40)
+                            | ((long) tables[0] << 37) | ((long) tables[1] << 34)
+                            | (1L << 33) | ((long) flip << 32);
+                }
+            }
+        }
+
+        // pixel indices are stored column by column, their low bits in the lowest 16 bits
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                int index = bestIndices[y * 4 + x];
+                int bit = x * 4 + y;
+                bestBlock |= (long) (index & 1) << bit;
+                bestBlock |= (long) (index >> 1) << (bit + 16);
+            }
+        }
+        return bestBlock;
+    }
+
+    /**
+     * Encodes the alpha values of a block, as an EAC block.
+     */
+    static long encodeAlphaBlock(int[] pixels) {
+        int min = 255;
+        int max = 0;
+        for (int pixel : pixels) {
+            int alpha = pixel >>> 24;
+            min = Math.min(min, alpha);
+            max = Math.max(max, alpha);
+        }
+
+        int bestBase = min;
+        int bestMultiplier = 1;
+        int bestTable = FLAT_ALPHA_TABLE;
+        long bestError = min == max ? 0L : Long.MAX_VALUE;
+        int[] indices = new int[16];
+        int[] bestIndices = new int[16];
+        for (int i = 0; i < 16; i++) {
+            bestIndices[i] = FLAT_ALPHA_INDEX;
+        }
+
+        // most blocks are fully opaque or fully transparent, only search the others
+        for (int table = 0; table < ALPHA_MODIFIERS.length && bestError > 0L; table++) {
+            int[] modifiers = ALPHA_MODIFIERS[table];
+            int lowest = modifiers[3];
+            int highest = modifiers[7];
+            // pick the multiplier that stretches the table over the range of the block, and try its neighbors
+            int multiplier = Math.round((float) (max - min) / (highest - lowest));
+            for (int m = Math.max(1, multiplier - 1); m <= Math.min(15, multiplier + 1); m++) {
+                int base = Math.round((min + max) / 2f - (lowest + highest) * m / 2f);
+                for (int b = Math.max(0, base - 1); b <= Math.min(255, base + 1); b++) {
+                    long error = 0L;
+                    for (int i = 0; i < 16 && error < bestError; i++) {
+                        int alpha = pixels[i] >>> 24;
+                        int bestPixelError = Integer.MAX_VALUE;
+                        for (int index = 0; index < 8; index++) {
+                            int decoded = clamp(b + modifiers[index] * m);
+                            int pixelError = (decoded - alpha) * (decoded - alpha);
+                            if (pixelError < bestPixelError) {
+                                bestPixelError = pixelError;
+                                indices[i] = index;
+                            }
+                        }
+                        error += bestPixelError;
+                    }
+                    if (error < bestError) {
+                        bestError = error;
+                        bestBase = b;
+                        bestMultiplier = m;
+                        bestTable = table;
+                        System.arraycopy(indices, 0, bestIndices, 0, 16);
+                    }
+                }
+            }
+        }
+
+        long block = ((long) bestBase << 56) | ((long) bestMultiplier << 52) | ((long) bestTable << 48);
+        // 3-bit pixel indices, column by column, starting from the highest bits
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                block |= (long) bestIndices[y * 4 + x] << (45 - 3 * (x * 4 + y));
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Picks the best modifier table of both sub-blocks, for the given base colors.
+     *
+     * @return the total squared error of the block
+     */
+    private static long encodeSubBlocks(int[] pixels, int flip, int[][] baseColors, int[] tables, int[] indices) {
+        long totalError = 0L;
+        int[] tableIndices = new int[16];
+        for (int subBlock = 0; subBlock < 2; subBlock++) {
+            long bestError = Long.MAX_VALUE;
+            for (int table = 0; table < COLOR_MODIFIERS.length; table++) {
+                long error = 0L;
+                for (int i = 0; i < 16; i++) {
+                    if (subBlockOf(i, flip) != subBlock) {
+                        continue;
+                    }
+                    int bestPixelError = Integer.MAX_VALUE;
+                    for (int index = 0; index < 4; index++) {
+                        int modifier = COLOR_MODIFIERS[table][index];
+                        int pixelError = colorError(pixels[i],
+                                clamp(baseColors[subBlock][0] + modifier),
+                                clamp(baseColors[subBlock][1] + modifier),
+                                clamp(baseColors[subBlock][2] + modifier));
+                        if (pixelError < bestPixelError) {
+                            bestPixelError = pixelError;
+                            tableIndices[i] = index;
+                        }
+                    }
+                    error += bestPixelError;
+                }
+                if (error < bestError) {
+                    bestError = error;
+                    tables[subBlock] = table;
+                    for (int i = 0; i < 16; i++) {
+                        if (subBlockOf(i, flip) == subBlock) {
+                            indices[i] = tableIndices[i];
+                        }
+                    }
+                }
+            }
+            totalError += bestError;
+        }
+        return totalError;
+    }
+
+    private static int subBlockOf(int pixel, int flip) {
+        int x = pixel & 3;
+        int y = pixel >> 2;
+        return flip == 0 ? x >> 1 : y >> 1;
+    }
+
+    private static void average(int[] pixels, int flip, int subBlock, int[] average) {
+        int red = 0;
+        int green = 0;
+        int blue = 0;
+        for (int i = 0; i < 16; i++) {
+            if (subBlockOf(i, flip) == subBlock) {
+                red += (pixels[i] >> 16) & 0xff;
+                green += (pixels[i] >> 8) & 0xff;
+                blue += pixels[i] & 0xff;
+            }
+        }
+        // 8 pixels per sub-block
+        average[0] = (red + 4) / 8;
+        average[1] = (green + 4) / 8;
+        average[2] = (blue + 4) / 8;
+    }
+
+    private static int quantize(int value, int levels) {
+        return Math.min(levels, Math.max(0, Math.round(value * levels / 255f)));
+    }
+
+    private static int colorError(int pixel, int red, int green, int blue) {
+        int dr = ((pixel >> 16) & 0xff) - red;
+        int dg = ((pixel >> 8) & 0xff) - green;
+        int db = (pixel & 0xff) - blue;
+        return dr * dr + dg * dg + db * db;
+    }
+
+    private static int clamp(int value) {
+        return Math.min(255, Math.max(0, value));
+    }
+}
@@ -0,0 +1,133 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEventBus;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A match without graphics, audio or input devices, played at a fixed time step.
+ * The player is driven by a simple script: in odd rounds it walks up to the opponent and punches
+ * until the knockout; in even rounds it stands still until the round timer runs out.
+ * That way a best-of-three match goes through both ways a round can end.
+ */
+class HeadlessMatch implements Match.Listener {
+    static final float TIME_STEP = 1f / 60f;
+
+    private static final int EVENT_BUS_CAPACITY = 1024;
+
+    private final Match match;
+    private final GameEventBus eventBus;
+    private long ticks;
+
+    HeadlessMatch() {
+        StateMachine stateMachine = loadFighterStateMachine();
+        MoveSet moves = loadFighterMoves();
+        World world = new World();
+        Fighter player = new Fighter(world, stateMachine, moves, "Player", new Color(Color.RED));
+        Fighter opponent = new Fighter(world, stateMachine, moves, "Opponent", new Color(Color.BLUE));
+        match = new Match(player, opponent, this);
+
+        // publish the events like the game does, to a bus without sinks
+        eventBus = new GameEventBus(EVENT_BUS_CAPACITY);
+        eventBus.start();
+        match.setEventBus(eventBus);
+    }
+
+    static StateMachine loadFighterStateMachine() {
+        return StateMachine.compile(loadData(Fighter.STATES_FILE), Fighter.State.values());
+    }
+
+    static MoveSet loadFighterMoves() {
+        return MoveSet.compile(loadData(Fighter.MOVES_FILE));
+    }
+
+    /**
+     * Parses a data file without the libGDX files module,
+     * reading it from the classpath, which has the assets folder in it.
+     */
+    static JsonValue loadData(String file) {
+        InputStream input = HeadlessMatch.class.getResourceAsStream("/" + file);
+        if (input == null) {
+            throw new IllegalStateException(file + " isn't in the classpath");
+        }
+        try {
+            return new JsonReader().parse(input);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    GameEventBus eventBus() {
+        return eventBus;
+    }
+
+    Match match() {
+        return match;
+    }
+
+    long ticks() {
+        return ticks;
+    }
+
+    void start() {
+        match.start();
+    }
+
+    /**
+     * Plays a complete match from the start.
+     */
+    void play() {
+        start();
+        while (!match.isOver()) {
+            tick();
+        }
+    }
+
+    /**
+     * Feeds the scripted input of the player and advances the match by one time step.
+     */
+    void tick() {
+        if (match.getRoundState() == Match.RoundState.IN_PROGRESS && match.getCurrentRound() % 2 == 1) {
+            Fighter player = match.player();
+            Fighter opponent = match.opponent();
+            if (match.areWithinContactDistance(player.getPosition(), opponent.getPosition())) {
+                // close enough: stop and keep punching
+                player.stopMovingRight();
+                if (!player.isAttacking()) {
+                    player.punch();
+                }
+            } else {
+                player.moveRight();
+            }
+        } else {
+            match.player().stopMovingRight();
+        }
+
+        match.update(TIME_STEP);
+        ticks++;
+    }
+
+    @Override
+    public void onHit(Fighter attacker, Fighter defender) {
+    }
+
+    @Override
+    public void onRoundWon() {
+    }
+
+    @Override
+    public void onRoundLost() {
+    }
+}
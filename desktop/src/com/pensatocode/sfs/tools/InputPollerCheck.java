@@ -0,0 +1,196 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.events.GameEventBus;
+import com.pensatocode.sfs.input.InputBindings;
+import com.pensatocode.sfs.input.InputLatency;
+import com.pensatocode.sfs.input.InputPoller;
+import com.pensatocode.sfs.input.PlayerAction;
+import com.pensatocode.sfs.input.StubInputDevice;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Plays headless matches with a stub gamepad, read by the input poller once per tick like in the game,
+ * and fails if the player's buttons don't reach the match as they should, or if polling allocates memory.
+ *
+ * The script holds the stick toward the opponent, then alternates punches and kicks with the X and A buttons
+ * until the knockout, and presses Y to skip the delays between rounds. It also checks that unplugging
+ * the gamepad while it holds a direction stops the fighter, and prints how long the actions took
+ * from the change of the gamepad to the update of the match.
+ *
+ * Run it with: ./gradlew desktop:inputPollerCheck
+ */
+public class InputPollerCheck implements Match.Listener, Match.Recorder {
+    private static final int WARM_UP_MATCHES = 20;
+    private static final int MAX_TICKS = 100000;
+    private static final int EVENT_BUS_CAPACITY = 1024;
+
+    private final Match match;
+    private final GameEventBus eventBus = new GameEventBus(EVENT_BUS_CAPACITY);
+    private final InputLatency latency = new InputLatency();
+    private final InputPoller poller;
+    private final StubInputDevice gamepad = new StubInputDevice("Stub gamepad");
+    private final int[] inputs = new int[MatchInput.values().length];
+    private boolean kick;
+    private long ticks;
+
+    private InputPollerCheck() {
+        StateMachine stateMachine = HeadlessMatch.loadFighterStateMachine();
+        MoveSet moves = HeadlessMatch.loadFighterMoves();
+        World world = new World();
+        match = new Match(new Fighter(world, stateMachine, moves, "Player", new Color(Color.RED)),
+                new Fighter(world, stateMachine, moves, "Opponent", new Color(Color.BLUE)), this);
+        match.setEventBus(eventBus);
+        match.setRecorder(this);
+        eventBus.start();
+        poller = new InputPoller(match, latency);
+        poller.addDevice(gamepad);
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        InputPollerCheck check = new InputPollerCheck();
+        check.checkDisconnect();
+        for (int i = 0; i < WARM_UP_MATCHES; i++) {
+            check.play();
+        }
+
+        // one more match, measuring what the polled input path allocates
+        check.latency.reset();
+        Arrays.fill(check.inputs, 0);
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long ticksBefore = check.ticks;
+        check.play();
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        long ticks = check.ticks - ticksBefore;
+
+        Match match = check.match;
+        System.out.println("Input poller check: " + ticks + " ticks, " + match.getRoundsWon() + " rounds won, "
+                + check.inputs[MatchInput.PUNCH.ordinal()] + " punches, " + check.inputs[MatchInput.KICK.ordinal()]
+                + " kicks, " + allocated + " bytes allocated.");
+        System.out.println("Input latency: " + check.latency.summary());
+        check.eventBus.dispose();
+
+        if (match.getRoundsWon() <= Match.MAX_ROUNDS / 2 || check.inputs[MatchInput.KICK.ordinal()] == 0
+                || check.inputs[MatchInput.MOVE_RIGHT.ordinal()] != check.inputs[MatchInput.STOP_MOVING_RIGHT.ordinal()]) {
+            fail("The gamepad's buttons didn't reach the match as they should have.");
+        }
+        if (allocated > 0L) {
+            fail("Polling the input devices must not allocate memory.");
+        }
+    }
+
+    /**
+     * Holds right on the d-pad during a round, then unplugs the gamepad: the fighter must stop.
+     */
+    private void checkDisconnect() {
+        match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        match.input(GameEvent.NO_FIGHTER, MatchInput.SKIP_ROUND_DELAY);
+        tick();
+        float x = match.player().getPosition().x;
+        gamepad.press(InputBindings.STANDARD_DPAD_RIGHT);
+        tick();
+        if (match.player().getPosition().x <= x) {
+            fail("Holding right on the d-pad didn't move the fighter.");
+        }
+        gamepad.setConnected(false);
+        tick();
+        x = match.player().getPosition().x;
+        tick();
+        if (match.player().getPosition().x != x) {
+            fail("The fighter kept moving after the gamepad was unplugged.");
+        }
+        gamepad.setConnected(true);
+        gamepad.reset();
+        tick();
+    }
+
+    private void play() {
+        match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        int start = 0;
+        while (!match.isOver() && start++ < MAX_TICKS) {
+            script();
+            tick();
+        }
+    }
+
+    /**
+     * Sets the stub gamepad like a player would hold it.
+     */
+    private void script() {
+        gamepad.release(InputBindings.STANDARD_X);
+        gamepad.release(InputBindings.STANDARD_A);
+        gamepad.release(InputBindings.STANDARD_Y);
+        if (match.getRoundState() != Match.RoundState.IN_PROGRESS) {
+            gamepad.setAxis(InputBindings.STANDARD_AXIS_LEFT_X, 0f);
+            if ((ticks & 1) == 0) {
+                gamepad.press(InputBindings.STANDARD_Y);
+            }
+            return;
+        }
+        Fighter player = match.player();
+        if (!match.areWithinContactDistance(player.getPosition(), match.opponent().getPosition())) {
+            gamepad.setAxis(InputBindings.STANDARD_AXIS_LEFT_X, 1f);
+        } else {
+            gamepad.setAxis(InputBindings.STANDARD_AXIS_LEFT_X, 0f);
+            if (!player.isAttacking() && (ticks & 1) == 0) {
+                gamepad.press(kick ? InputBindings.STANDARD_A : InputBindings.STANDARD_X);
+                kick = !kick;
+            }
+        }
+    }
+
+    /**
+     * Polls the gamepad and updates the match, like GameScreen.render().
+     */
+    private void tick() {
+        int actions = poller.poll(true);
+        if ((actions & PlayerAction.CONFIRM.bit()) != 0) {
+            match.input(GameEvent.NO_FIGHTER, MatchInput.SKIP_ROUND_DELAY);
+        }
+        latency.publish(eventBus, match.getTick(), System.nanoTime());
+        match.update(HeadlessMatch.TIME_STEP);
+        ticks++;
+    }
+
+    @Override
+    public void onInput(int fighter, MatchInput input) {
+        if (fighter == GameEvent.PLAYER) {
+            inputs[input.ordinal()]++;
+        }
+    }
+
+    @Override
+    public void onUpdate(float deltaTime) {
+    }
+
+    @Override
+    public void onHit(Fighter attacker, Fighter defender) {
+    }
+
+    @Override
+    public void onRoundWon() {
+    }
+
+    @Override
+    public void onRoundLost() {
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
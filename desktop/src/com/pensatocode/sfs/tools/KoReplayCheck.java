@@ -0,0 +1,157 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+import com.pensatocode.sfs.replay.RollingReplay;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Build check of the knockout replays (see RollingReplay): headless matches are played with the rolling replay
+ * recording them, and every knockout is played back in slow motion, like the game screen does.
+ * The playback must go through the same states as the live match did, tick for tick, the match must be back
+ * in its live state afterwards, and once the JIT has warmed up, recording and playing back must not allocate.
+ *
+ * Run it with: ./gradlew desktop:koReplayCheck
+ */
+public class KoReplayCheck implements Match.Listener {
+    private static final int WARM_UP_MATCHES = 50;
+    private static final int MATCHES = 20;
+    private static final int CAPACITY = 256;
+    private static final int KEYFRAME_INTERVAL = 30;
+    private static final float REPLAY_SECONDS = 2f;
+    private static final float REPLAY_SPEED = 0.25f;
+
+    private final Match match;
+    private final RollingReplay replay;
+    // the checksums of the live ticks, by tick modulo their length
+    private final int[] checksums = new int[CAPACITY * 4];
+    private boolean knockedOut;
+    private int playbacks;
+    private long ticksPlayedBack;
+
+    private KoReplayCheck() {
+        StateMachine stateMachine = HeadlessMatch.loadFighterStateMachine();
+        MoveSet moves = HeadlessMatch.loadFighterMoves();
+        World world = new World();
+        match = new Match(new Fighter(world, stateMachine, moves, "Player", new Color(Color.RED)),
+                new Fighter(world, stateMachine, moves, "Opponent", new Color(Color.BLUE)), this);
+        replay = new RollingReplay(match, CAPACITY, KEYFRAME_INTERVAL);
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        boolean measure = threads.isThreadAllocatedMemorySupported();
+        if (measure) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        long threadId = Thread.currentThread().getId();
+
+        KoReplayCheck check = new KoReplayCheck();
+        for (int i = 0; i < WARM_UP_MATCHES; i++) {
+            check.play();
+        }
+        // reading the counter may allocate by itself, so measure that first and discount it
+        long probeBytes = 0L;
+        if (measure) {
+            long probeStart = threads.getThreadAllocatedBytes(threadId);
+            probeBytes = threads.getThreadAllocatedBytes(threadId) - probeStart;
+        }
+
+        int playbacksBefore = check.playbacks;
+        long ticksBefore = check.ticksPlayedBack;
+        long allocatedBefore = measure ? threads.getThreadAllocatedBytes(threadId) : 0L;
+        for (int i = 0; i < MATCHES; i++) {
+            check.play();
+        }
+        long allocated = measure
+                ? Math.max(0L, threads.getThreadAllocatedBytes(threadId) - allocatedBefore - probeBytes) : 0L;
+
+        System.out.println("Knockout replay check: " + (check.playbacks - playbacksBefore) + " knockouts played back, "
+                + (check.ticksPlayedBack - ticksBefore) + " ticks in all, the same as live; "
+                + (measure ? allocated + " bytes allocated." : "allocations not measured on this JVM."));
+        if (allocated > 0L) {
+            fail("Recording and playing back the knockouts must not allocate memory.");
+        }
+    }
+
+    /**
+     * Plays a match through its inputs, the player walking up to the opponent and punching in odd rounds,
+     * and standing still in even ones, until the timer runs out.
+     */
+    private void play() {
+        match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        while (!match.isOver()) {
+            Fighter player = match.player();
+            if (match.getRoundState() == Match.RoundState.IN_PROGRESS && match.getCurrentRound() % 2 == 1) {
+                if (match.areWithinContactDistance(player.getPosition(), match.opponent().getPosition())) {
+                    match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_RIGHT);
+                    if (!player.isAttacking()) {
+                        match.input(GameEvent.PLAYER, MatchInput.PUNCH);
+                    }
+                } else {
+                    match.input(GameEvent.PLAYER, MatchInput.MOVE_RIGHT);
+                }
+            } else {
+                match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_RIGHT);
+            }
+
+            match.update(HeadlessMatch.TIME_STEP);
+            checksums[(int) (match.getTick() % checksums.length)] = match.getChecksum();
+            if (knockedOut) {
+                knockedOut = false;
+                playBack();
+            }
+        }
+    }
+
+    private void playBack() {
+        long liveTick = match.getTick();
+        int liveChecksum = match.getChecksum();
+        if (!replay.startPlayback(REPLAY_SECONDS)) {
+            fail("Nothing to play back at the knockout of tick " + liveTick);
+        }
+        playbacks++;
+        long lastTick = match.getTick();
+        while (replay.updatePlayback(HeadlessMatch.TIME_STEP * REPLAY_SPEED)) {
+            long tick = match.getTick();
+            if (tick != lastTick) {
+                ticksPlayedBack++;
+                lastTick = tick;
+                if (match.getChecksum() != checksums[(int) (tick % checksums.length)]) {
+                    fail("The playback of the knockout of tick " + liveTick + " went another way at tick " + tick);
+                }
+            }
+        }
+        if (match.getTick() != liveTick || match.getChecksum() != liveChecksum) {
+            fail("The match isn't back in its live state after the playback of the knockout of tick " + liveTick);
+        }
+    }
+
+    @Override
+    public void onHit(Fighter attacker, Fighter defender) {
+        if (defender.hasLost() && !replay.isPlaying()) {
+            knockedOut = true;
+        }
+    }
+
+    @Override
+    public void onRoundWon() {
+    }
+
+    @Override
+    public void onRoundLost() {
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,221 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.input.InputMacro;
+import com.pensatocode.sfs.input.MacroPlayer;
+import com.pensatocode.sfs.input.MacroRecorder;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Plays the input macros kept as regression tests, and fails if a match doesn't end up in the state it was in
+ * when the macro was blessed: to turn a reported bug into a test, save the player's inputs
+ * (see GlobalVariables.RECORD_MACROS), trim the macro to the bug, comment it, and bless it once it's fixed.
+ * Each macro is played on the player of a new fixed point match, right after its start, at a fixed time step.
+ *
+ * Then it soaks the macro recorder and player: matches of random inputs from both fighters are recorded as macros,
+ * written and read back, and played again on a new match, which must go through the same states.
+ *
+ * Run it with: ./gradlew desktop:macroCheck [-Pbless], bless writing the checksums of the macros instead.
+ */
+public class MacroCheck {
+    private static final String MACRO_EXTENSION = ".macro";
+    private static final int SOAK_MATCHES = 50;
+    private static final long SEED = 20240615L;
+    // a match of random inputs is cut short after this, around 10 minutes of play
+    private static final int MAX_TICKS = 36000;
+
+    private static final Match.Listener NO_LISTENER = new Match.Listener() {
+        @Override
+        public void onHit(Fighter attacker, Fighter defender) {
+        }
+
+        @Override
+        public void onRoundWon() {
+        }
+
+        @Override
+        public void onRoundLost() {
+        }
+    };
+
+    public static void main(String[] args) throws IOException {
+        boolean bless = args.length > 0 && args[0].equals("bless");
+        File directory = new File(args.length > (bless ? 1 : 0) ? args[bless ? 1 : 0] : "macros");
+        File[] files = directory.listFiles();
+        if (files == null) {
+            fail("No macros in " + directory.getAbsolutePath());
+            return;
+        }
+        Arrays.sort(files);
+
+        int failures = 0;
+        for (File file : files) {
+            if (!file.getName().endsWith(MACRO_EXTENSION)) {
+                continue;
+            }
+            String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            InputMacro macro = InputMacro.parse(text);
+            int checksum = play(macro);
+            if (bless) {
+                macro.setChecksum(checksum);
+                Files.write(file.toPath(), (comments(text) + macro.format()).getBytes(StandardCharsets.UTF_8));
+                System.out.println("Blessed " + file.getName() + ": " + String.format("%08x", checksum));
+            } else if (!macro.hasChecksum()) {
+                System.err.println(file.getName() + " has no checksum, bless it.");
+                failures++;
+            } else if (macro.checksum() != checksum) {
+                System.err.println(file.getName() + " ended in another state: " + String.format("%08x", checksum)
+                        + " instead of " + String.format("%08x", macro.checksum()) + ".");
+                failures++;
+            } else {
+                System.out.println(file.getName() + ": " + macro.size() + " inputs over " + macro.duration()
+                        + " ticks, same state.");
+            }
+        }
+        if (bless) {
+            return;
+        }
+
+        soak();
+        if (failures > 0) {
+            fail(failures + " macros failed.");
+        }
+    }
+
+    /**
+     * @return the checksum of a new match after playing a macro on its player
+     */
+    private static int play(InputMacro macro) {
+        Match match = newMatch();
+        match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        MacroPlayer player = new MacroPlayer(match);
+        player.play(macro, GameEvent.PLAYER, false);
+        for (int tick = 0; tick < macro.duration(); tick++) {
+            player.update();
+            match.update(HeadlessMatch.TIME_STEP);
+        }
+        return match.getChecksum();
+    }
+
+    /**
+     * Records matches of random inputs, and checks their macros play them out the same.
+     */
+    private static void soak() {
+        Random random = new Random(SEED);
+        long inputs = 0L;
+        long ticks = 0L;
+        for (int i = 0; i < SOAK_MATCHES; i++) {
+            // record both fighters
+            Match match = newMatch();
+            MacroRecorder playerRecorder = new MacroRecorder(match, GameEvent.PLAYER);
+            MacroRecorder opponentRecorder = new MacroRecorder(match, GameEvent.OPPONENT);
+            match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+            playerRecorder.start();
+            opponentRecorder.start();
+            int[] checksums = new int[MAX_TICKS];
+            int tick = 0;
+            while (!match.isOver() && tick < MAX_TICKS) {
+                randomInputs(match, random, GameEvent.PLAYER);
+                randomInputs(match, random, GameEvent.OPPONENT);
+                if (match.getRoundState() != Match.RoundState.IN_PROGRESS && random.nextInt(30) == 0) {
+                    match.input(GameEvent.NO_FIGHTER, MatchInput.SKIP_ROUND_DELAY);
+                }
+                match.update(HeadlessMatch.TIME_STEP);
+                checksums[tick++] = match.getChecksum();
+            }
+
+            // through their text, as they're saved
+            InputMacro playerMacro = InputMacro.parse(playerRecorder.stop().format());
+            InputMacro opponentMacro = InputMacro.parse(opponentRecorder.stop().format());
+            if (playerMacro.duration() != tick) {
+                fail("The macro of soak match " + i + " lasts " + playerMacro.duration() + " ticks instead of " + tick);
+            }
+
+            // and played again, the skips of the round delays coming with the player's macro
+            Match replayed = newMatch();
+            replayed.input(GameEvent.NO_FIGHTER, MatchInput.START);
+            MacroPlayer player = new MacroPlayer(replayed);
+            MacroPlayer opponent = new MacroPlayer(replayed);
+            player.play(playerMacro, GameEvent.PLAYER, false);
+            opponent.play(withoutMatchInputs(opponentMacro), GameEvent.OPPONENT, false);
+            for (int t = 0; t < tick; t++) {
+                player.update();
+                opponent.update();
+                replayed.update(HeadlessMatch.TIME_STEP);
+                if (replayed.getChecksum() != checksums[t]) {
+                    fail("Soak match " + i + " played from its macros went another way at tick " + t + ".");
+                }
+            }
+            inputs += playerMacro.size() + opponentMacro.size();
+            ticks += tick;
+        }
+        System.out.println("Soaked " + SOAK_MATCHES + " matches of random inputs, " + inputs + " inputs over "
+                + ticks + " ticks: all played the same from their macros.");
+    }
+
+    /**
+     * Presses and releases random buttons, now and then, like a player mashing them.
+     */
+    private static void randomInputs(Match match, Random random, int fighter) {
+        if (random.nextInt(8) != 0) {
+            return;
+        }
+        MatchInput input = MatchInput.of(random.nextInt(MatchInput.KICK.ordinal() + 1));
+        // the keyboard only starts moving while a round is in progress
+        if (input.ordinal() <= MatchInput.MOVE_DOWN.ordinal() && match.getRoundState() != Match.RoundState.IN_PROGRESS) {
+            return;
+        }
+        match.input(fighter, input);
+    }
+
+    private static InputMacro withoutMatchInputs(InputMacro macro) {
+        InputMacro fighterInputs = new InputMacro();
+        for (int i = 0; i < macro.size(); i++) {
+            if (!InputMacro.isMatchInput(macro.input(i))) {
+                fighterInputs.add(macro.tick(i), macro.input(i));
+            }
+        }
+        fighterInputs.setDuration(macro.duration());
+        return fighterInputs;
+    }
+
+    private static Match newMatch() {
+        StateMachine stateMachine = HeadlessMatch.loadFighterStateMachine();
+        MoveSet moves = HeadlessMatch.loadFighterMoves();
+        World world = new World(true);
+        return new Match(new Fighter(world, stateMachine, moves, "Player", new Color(Color.RED)),
+                new Fighter(world, stateMachine, moves, "Opponent", new Color(Color.BLUE)), NO_LISTENER);
+    }
+
+    /**
+     * @return the comment lines at the top of a macro, to keep them when it's blessed
+     */
+    private static String comments(String text) {
+        StringBuilder comments = new StringBuilder();
+        for (String line : text.split("\r?\n")) {
+            if (!line.startsWith("#")) {
+                break;
+            }
+            comments.append(line).append('\n');
+        }
+        return comments.toString();
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,184 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+import com.pensatocode.sfs.resources.Assets;
+import com.pensatocode.sfs.resources.FighterChoice;
+import com.pensatocode.sfs.resources.GlobalVariables;
+import com.pensatocode.sfs.utils.Palettes;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Build check of the palette skins (see Palettes), without a GPU:
+ * <ul>
+ * <li>the sprite sheets must be indexed, every visible pixel a gray level, which the shader reads as its index;</li>
+ * <li>the skin of each fighter choice that has no palette of its own must give the colors the sprite had
+ * tinted with the fighter's color, give or take the rounding;</li>
+ * <li>as many skins as there's room for must each get their own palette, found again from their color
+ * and from the vertex color that selects it in the shader, and one more must not fit;</li>
+ * <li>key colors must fade into each other, and keys out of order must be refused.</li>
+ * </ul>
+ *
+ * Run it with: ./gradlew desktop:paletteCheck
+ */
+public class PaletteCheck {
+    private static final String[] SPRITE_SHEETS = {
+            Assets.IDLE_SPRITE_SHEET,
+            Assets.WALK_SPRITE_SHEET,
+            Assets.PUNCH_SPRITE_SHEET,
+            Assets.KICK_SPRITE_SHEET,
+            Assets.HURT_SPRITE_SHEET,
+            Assets.BLOCK_SPRITE_SHEET,
+            Assets.WIN_SPRITE_SHEET,
+            Assets.LOSE_SPRITE_SHEET
+    };
+    // the difference allowed with the tinted sprite: the tint is rounded to 8 bits before it's applied
+    private static final int TOLERANCE = 1;
+
+    public static void main(String[] args) throws IOException {
+        int grayLevels = checkSpriteSheets();
+
+        @SuppressWarnings("unchecked")
+        Array<FighterChoice> choices = new Json().readValue(Array.class, FighterChoice.class,
+                HeadlessMatch.loadData(FighterChoice.FIGHTER_CHOICES_FILE));
+        Palettes palettes = new Palettes(GlobalVariables.MAX_SKINS);
+        for (FighterChoice choice : choices) {
+            int palette = choice.addPalette(palettes);
+            if (choice.paletteValues == null) {
+                checkTint(palettes, palette, choice.color(), choice.name);
+            }
+        }
+
+        // fill the rest with skins of other colors
+        while (palettes.size() < palettes.capacity()) {
+            palettes.addRamp(skinColor(palettes.size()));
+        }
+        for (int palette = 0; palette < palettes.size(); palette++) {
+            if (Palettes.paletteOf(Palettes.vertexColor(palette)) != palette) {
+                fail("The vertex color of palette " + palette + " selects palette "
+                        + Palettes.paletteOf(Palettes.vertexColor(palette)));
+            }
+        }
+        for (int palette = choices.size; palette < palettes.size(); palette++) {
+            if (palettes.find(skinColor(palette)) != palette) {
+                fail("The skin of color " + skinColor(palette) + " isn't found in palette " + palette);
+            }
+        }
+        try {
+            palettes.addRamp(Color.WHITE);
+            fail("A palette was added past the capacity of " + palettes.capacity());
+        } catch (IllegalStateException expected) {
+            // full, as it should be
+        }
+
+        checkKeyColors();
+
+        System.out.println("Palette check: the sprite sheets use " + grayLevels + " gray levels; "
+                + choices.size + " fighter skins, " + palettes.size() + " in all, in a palette texture of "
+                + Palettes.SIZE + "x" + palettes.capacity() + ", " + palettes.pixels().length / 1024 + " KB.");
+    }
+
+    /**
+     * @return a color of its own for each skin, their reds all different
+     */
+    private static Color skinColor(int skin) {
+        return new Color((skin * 37 % 256) / 255f, (skin * 91 % 256) / 255f, (skin * 11 % 256) / 255f, 1f);
+    }
+
+    /**
+     * @return the number of gray levels the sprite sheets use
+     */
+    private static int checkSpriteSheets() throws IOException {
+        boolean[] used = new boolean[Palettes.SIZE];
+        for (String file : SPRITE_SHEETS) {
+            BufferedImage image = readImage(file);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    int argb = image.getRGB(x, y);
+                    if (argb >>> 24 == 0) {
+                        continue;
+                    }
+                    int red = argb >>> 16 & 0xff;
+                    if (red != (argb >>> 8 & 0xff) || red != (argb & 0xff)) {
+                        fail(file + " isn't indexed: the pixel at " + x + ", " + y + " isn't gray");
+                    }
+                    used[red] = true;
+                }
+            }
+        }
+        int grayLevels = 0;
+        for (boolean level : used) {
+            if (level) {
+                grayLevels++;
+            }
+        }
+        return grayLevels;
+    }
+
+    private static void checkTint(Palettes palettes, int palette, Color color, String name) {
+        int tint = Color.rgba8888(color);
+        for (int index = 0; index < Palettes.SIZE; index++) {
+            int paletteColor = palettes.color(palette, index);
+            for (int shift = 8; shift < 32; shift += 8) {
+                int tinted = Math.round(index * (tint >>> shift & 0xff) / 255f);
+                if (Math.abs((paletteColor >>> shift & 0xff) - tinted) > TOLERANCE) {
+                    fail("The skin of " + name + " gives index " + index + " another color than the tint: "
+                            + Integer.toHexString(paletteColor));
+                }
+            }
+        }
+    }
+
+    private static void checkKeyColors() {
+        Palettes palettes = new Palettes(1);
+        int palette = palettes.add(Color.RED, new int[]{64, 128, 255},
+                new Color[]{Color.BLACK, Color.RED, Color.WHITE});
+        expectColor(palettes, palette, 0, 0x000000ff);
+        expectColor(palettes, palette, 64, 0x000000ff);
+        expectColor(palettes, palette, 96, 0x800000ff);
+        expectColor(palettes, palette, 128, 0xff0000ff);
+        expectColor(palettes, palette, 255, 0xffffffff);
+
+        int[][] wrongIndices = {{128, 64}, {0, 0}, {-1, 255}, {0, 256}};
+        for (int[] indices : wrongIndices) {
+            try {
+                new Palettes(1).add(Color.RED, indices, new Color[]{Color.BLACK, Color.RED});
+                fail("Key colors at indices " + indices[0] + " and " + indices[1] + " were taken");
+            } catch (IllegalArgumentException expected) {
+                // refused, as it should be
+            }
+        }
+    }
+
+    private static void expectColor(Palettes palettes, int palette, int index, int expected) {
+        int color = palettes.color(palette, index);
+        for (int shift = 0; shift < 32; shift += 8) {
+            if (Math.abs((color >>> shift & 0xff) - (expected >>> shift & 0xff)) > TOLERANCE) {
+                fail("Index " + index + " of the key colors is " + Integer.toHexString(color)
+                        + " instead of " + Integer.toHexString(expected));
+            }
+        }
+    }
+
+    private static BufferedImage readImage(String file) throws IOException {
+        InputStream input = PaletteCheck.class.getResourceAsStream("/" + file);
+        if (input == null) {
+            throw new IllegalStateException(file + " isn't in the classpath");
+        }
+        try {
+            return ImageIO.read(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
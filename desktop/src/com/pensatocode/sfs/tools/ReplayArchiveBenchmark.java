@@ -0,0 +1,248 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.JsonValue;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+import com.pensatocode.sfs.replay.ReplayArchive;
+import com.pensatocode.sfs.replay.ReplayEntry;
+import com.pensatocode.sfs.replay.ReplayPlayer;
+import com.pensatocode.sfs.replay.ReplayRecorder;
+import com.pensatocode.sfs.resources.FighterChoice;
+import com.pensatocode.sfs.resources.GlobalVariables;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Measures the replay archive with as many replays as a dedicated player gathers.
+ *
+ * First a few fixed point matches, with pseudo random inputs, are recorded into a small archive,
+ * and every one of their frames is jumped to in a random order, checking the match ends up in the state
+ * it was in when playing the replay from the start. Then the recorded replays are copied over and over
+ * into a large archive, which is opened again, listed and filtered, measuring the time and the heap it takes.
+ *
+ * Run it with: ./gradlew desktop:replayArchiveBenchmark [-Preplays=100000]
+ */
+public class ReplayArchiveBenchmark {
+    private static final int DEFAULT_REPLAYS = 100000;
+    private static final int RECORDED_MATCHES = 8;
+    private static final long SEED = 20240601L;
+    private static final int SEEKS = 2000;
+    private static final String[] FIGHTERS = loadFighterNames();
+
+    private static final Match.Listener NO_LISTENER = new Match.Listener() {
+        @Override
+        public void onHit(Fighter attacker, Fighter defender) {
+        }
+
+        @Override
+        public void onRoundWon() {
+        }
+
+        @Override
+        public void onRoundLost() {
+        }
+    };
+
+    public static void main(String[] args) throws IOException {
+        int replays = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REPLAYS;
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        File directory = Files.createTempDirectory("replays").toFile();
+        File recordedFile = new File(directory, "recorded.sfsr");
+        File largeFile = new File(directory, "large.sfsr");
+        try {
+            // record a few matches
+            ReplayArchive recorded = new ReplayArchive(recordedFile);
+            Random random = new Random(SEED);
+            for (int i = 0; i < RECORDED_MATCHES; i++) {
+                Match match = newMatch(FIGHTERS[i % FIGHTERS.length], FIGHTERS[(i + 1) % FIGHTERS.length]);
+                ReplayRecorder recorder = new ReplayRecorder(match, recorded);
+                recorder.setDifficulty(GlobalVariables.Difficulty.values()[i % 3]);
+                play(match, random);
+            }
+            System.out.println("Recorded " + recorded.size() + " matches, " + recordedFile.length() / 1024 + " KB.");
+
+            // seek all over them
+            seek(recorded, random);
+
+            // copy them into a large archive
+            long start = System.nanoTime();
+            ReplayArchive large = new ReplayArchive(largeFile);
+            large.start();
+            for (int i = 0; i < replays; i++) {
+                large.copy(recorded, i % recorded.size());
+            }
+            large.flush();
+            large.dispose();
+            recorded.dispose();
+            System.out.println("Archived " + replays + " replays in " + millis(System.nanoTime() - start) + " ms, "
+                    + largeFile.length() / (1024 * 1024) + " MB.");
+
+            // open it again, and list and filter it
+            System.gc();
+            long heapBefore = usedHeap();
+            start = System.nanoTime();
+            large = new ReplayArchive(largeFile);
+            System.out.println("Opened the archive in " + millis(System.nanoTime() - start) + " ms.");
+
+            String fighter = FIGHTERS[2 % FIGHTERS.length];
+            Filter filter = new Filter(fighter, GlobalVariables.Difficulty.HARD);
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            int listed = large.scan(filter);
+            long scanTime = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            System.out.println("Listed " + listed + " replays in " + millis(scanTime) + " ms, "
+                    + filter.matches + " with " + fighter + " on hard, " + filter.wins + " won by the player; "
+                    + allocated + " bytes allocated.");
+
+            // and play one from the middle
+            ReplayPlayer player = new ReplayPlayer(large, newMatch(FIGHTERS[0], FIGHTERS[1]));
+            start = System.nanoTime();
+            player.load(replays / 2);
+            player.seek(player.frames() / 2);
+            System.out.println("Loaded replay " + replays / 2 + " at frame " + player.frame() + " in "
+                    + micros(System.nanoTime() - start) + " us; " + (usedHeap() - heapBefore) / 1024
+                    + " KB more heap used since the archive was opened.");
+            large.dispose();
+        } finally {
+            recordedFile.delete();
+            largeFile.delete();
+            directory.delete();
+        }
+    }
+
+    private static void seek(ReplayArchive archive, Random random) throws IOException {
+        ReplayPlayer player = new ReplayPlayer(archive, newMatch(FIGHTERS[0], FIGHTERS[1]));
+        long seekTime = 0L;
+        long maxSeekTime = 0L;
+        int seeks = 0;
+        for (int replay = 0; replay < archive.size(); replay++) {
+            // the state after each frame, playing from the start
+            player.load(replay);
+            int[] checksums = new int[player.frames() + 1];
+            checksums[0] = player.match().getChecksum();
+            while (player.step()) {
+                checksums[player.frame()] = player.match().getChecksum();
+            }
+            if (player.desyncs() > 0) {
+                fail("Replay " + replay + " plays out differently than the match it was recorded from.");
+            }
+
+            // the same states, seeking
+            for (int i = 0; i < SEEKS / archive.size(); i++) {
+                int frame = random.nextInt(checksums.length);
+                long start = System.nanoTime();
+                player.seek(frame);
+                long time = System.nanoTime() - start;
+                seekTime += time;
+                maxSeekTime = Math.max(maxSeekTime, time);
+                seeks++;
+                if (player.match().getChecksum() != checksums[frame]) {
+                    fail("Seeking to frame " + frame + " of replay " + replay + " ended in another state.");
+                }
+            }
+        }
+        System.out.println(seeks + " seeks, " + micros(seekTime / seeks) + " us on average, "
+                + micros(maxSeekTime) + " us at most.");
+    }
+
+    private static Match newMatch(String player, String opponent) {
+        StateMachine stateMachine = HeadlessMatch.loadFighterStateMachine();
+        MoveSet moves = HeadlessMatch.loadFighterMoves();
+        World world = new World(true);
+        return new Match(new Fighter(world, stateMachine, moves, player, new Color(Color.RED)),
+                new Fighter(world, stateMachine, moves, opponent, new Color(Color.BLUE)), NO_LISTENER);
+    }
+
+    /**
+     * Plays a match to the end: the player walks up to the opponent and attacks, the opponent mashes buttons.
+     */
+    private static void play(Match match, Random random) {
+        match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        while (!match.isOver()) {
+            if (match.getRoundState() != Match.RoundState.IN_PROGRESS) {
+                match.input(GameEvent.NO_FIGHTER, MatchInput.SKIP_ROUND_DELAY);
+            } else {
+                Fighter player = match.player();
+                if (!match.areWithinContactDistance(player.getPosition(), match.opponent().getPosition())) {
+                    match.input(GameEvent.PLAYER, MatchInput.MOVE_RIGHT);
+                } else if (!player.isAttacking()) {
+                    match.input(GameEvent.PLAYER, MatchInput.STOP_MOVING_RIGHT);
+                    match.input(GameEvent.PLAYER, random.nextBoolean() ? MatchInput.PUNCH : MatchInput.KICK);
+                }
+                int button = random.nextInt(24);
+                if (button <= MatchInput.KICK.ordinal()) {
+                    match.input(GameEvent.OPPONENT, MatchInput.of(button));
+                }
+            }
+            match.update(HeadlessMatch.TIME_STEP);
+        }
+    }
+
+    private static String[] loadFighterNames() {
+        JsonValue choices = HeadlessMatch.loadData(FighterChoice.FIGHTER_CHOICES_FILE);
+        String[] names = new String[choices.size];
+        int i = 0;
+        for (JsonValue choice = choices.child; choice != null; choice = choice.next) {
+            names[i++] = choice.getString("name");
+        }
+        return names;
+    }
+
+    /**
+     * Counts the matches of a fighter at a difficulty, and how many the player won,
+     * reading the entries without creating objects.
+     */
+    private static class Filter implements ReplayArchive.Visitor {
+        private final String fighter;
+        private final GlobalVariables.Difficulty difficulty;
+        private int matches;
+        private int wins;
+
+        Filter(String fighter, GlobalVariables.Difficulty difficulty) {
+            this.fighter = fighter;
+            this.difficulty = difficulty;
+        }
+
+        @Override
+        public void visit(int index, ReplayEntry entry) {
+            if (entry.difficulty() == difficulty && entry.hasFighter(fighter)) {
+                matches++;
+                if (entry.winner() == GameEvent.PLAYER) {
+                    wins++;
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1000000L;
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000L;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,188 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.net.MatchSpectator;
+import com.pensatocode.sfs.net.SpectatorClient;
+import com.pensatocode.sfs.net.SpectatorRelay;
+import com.pensatocode.sfs.net.SpectatorServer;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Broadcasts a match to a few hundred spectators on localhost, and checks they all play it in lockstep.
+ *
+ * A match driven by pseudo random inputs is broadcast by a spectator server. Half of the spectators
+ * connect to the server, the other half to a relay in the same process, and a quarter of them
+ * only connect halfway through, to catch up from a snapshot. Each spectator plays the stream
+ * on its own copy of the match, checking the checksum of every frame. At the end, every spectator must
+ * have played up to the last frame, without a single desync, and be in the same state as the match.
+ *
+ * Run it with: ./gradlew desktop:spectatorLoadTest, or with the number of spectators and frames as arguments.
+ */
+public class SpectatorLoadTest {
+    private static final int DEFAULT_SPECTATORS = 300;
+    private static final int DEFAULT_FRAMES = 3600;
+    private static final long SEED = 20240611L;
+    private static final float TIME_STEP = 1f / 60f;
+    private static final String HOST = "localhost";
+    // how long the spectators have to catch up once the match stops, in milliseconds
+    private static final long DRAIN_TIMEOUT_MILLIS = 10000L;
+
+    private static final Match.Listener NO_LISTENER = new Match.Listener() {
+        @Override
+        public void onHit(Fighter attacker, Fighter defender) {
+        }
+
+        @Override
+        public void onRoundWon() {
+        }
+
+        @Override
+        public void onRoundLost() {
+        }
+    };
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int spectatorCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SPECTATORS;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+        StateMachine stateMachine = HeadlessMatch.loadFighterStateMachine();
+        MoveSet moves = HeadlessMatch.loadFighterMoves();
+
+        Match match = newMatch(stateMachine, moves);
+        SpectatorServer server = new SpectatorServer(0);
+        server.follow(match);
+        server.start();
+        SpectatorRelay relay = new SpectatorRelay(0);
+        relay.connect(HOST, server.port());
+
+        // every other spectator goes through the relay, and the last quarter joins late
+        List<SpectatorClient> clients = new ArrayList<>();
+        List<MatchSpectator> spectators = new ArrayList<>();
+        int lateJoiners = spectatorCount / 4;
+        for (int i = 0; i < spectatorCount; i++) {
+            MatchSpectator spectator = new MatchSpectator(newMatch(stateMachine, moves));
+            spectators.add(spectator);
+            clients.add(new SpectatorClient(spectator));
+        }
+        connect(clients, 0, spectatorCount - lateJoiners, server, relay);
+
+        Random random = new Random(SEED);
+        // the CPU time of this thread only, since the network threads compete for the same cores
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long updateNanos = 0L;
+        long start = System.nanoTime();
+        match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        for (int frame = 0; frame < frames; frame++) {
+            if (frame == frames / 2) {
+                connect(clients, spectatorCount - lateJoiners, spectatorCount, server, relay);
+            }
+            if (match.isOver()) {
+                match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+            }
+            if (match.getRoundState() == Match.RoundState.IN_PROGRESS) {
+                act(match, GameEvent.PLAYER, random);
+                act(match, GameEvent.OPPONENT, random);
+            } else {
+                match.input(GameEvent.NO_FIGHTER, MatchInput.SKIP_ROUND_DELAY);
+            }
+            long updateStart = threads.getCurrentThreadCpuTime();
+            match.update(TIME_STEP);
+            updateNanos += threads.getCurrentThreadCpuTime() - updateStart;
+
+            relay.poll();
+            pollAll(clients);
+        }
+
+        // let everyone catch up
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (!allCaughtUp(spectators, server.sequence()) && System.currentTimeMillis() < deadline) {
+            relay.poll();
+            pollAll(clients);
+            Thread.sleep(1);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int failures = 0;
+        int snapshots = 0;
+        for (int i = 0; i < spectatorCount; i++) {
+            MatchSpectator spectator = spectators.get(i);
+            snapshots += spectator.snapshots();
+            if (spectator.desyncs() > 0 || spectator.sequence() != server.sequence()
+                    || spectator.match().getChecksum() != match.getChecksum()) {
+                failures++;
+                System.err.println("Spectator " + i + " is at frame " + spectator.sequence() + " of "
+                        + server.sequence() + ", with " + spectator.desyncs() + " desyncs");
+            }
+        }
+
+        System.out.println(spectatorCount + " spectators (" + (spectatorCount - spectatorCount / 2)
+                + " direct, " + spectatorCount / 2 + " through the relay, " + lateJoiners + " late) watched "
+                + (server.sequence() + 1) + " frames in " + elapsed / 1000000L + " ms");
+        System.out.println("Server: " + server.bytesSent() / 1024 + " KB sent, relay: "
+                + relay.server().bytesSent() / 1024 + " KB sent, " + snapshots + " snapshots restored, "
+                + (server.droppedSpectators() + relay.server().droppedSpectators()) + " spectators dropped");
+        System.out.println("Match update with the broadcast: " + updateNanos / frames + " ns of CPU per frame");
+
+        for (SpectatorClient client : clients) {
+            client.close();
+        }
+        relay.dispose();
+        server.dispose();
+        if (failures > 0) {
+            System.err.println(failures + " spectators didn't play the match in lockstep.");
+            System.exit(1);
+        }
+        System.out.println("All the spectators are in the same state as the match.");
+    }
+
+    private static Match newMatch(StateMachine stateMachine, MoveSet moves) {
+        World world = new World(true);
+        Fighter player = new Fighter(world, stateMachine, moves, "Player", new Color(Color.RED));
+        Fighter opponent = new Fighter(world, stateMachine, moves, "Opponent", new Color(Color.BLUE));
+        return new Match(player, opponent, NO_LISTENER);
+    }
+
+    private static void connect(List<SpectatorClient> clients, int from, int to,
+                                SpectatorServer server, SpectatorRelay relay) throws IOException {
+        for (int i = from; i < to; i++) {
+            clients.get(i).connect(HOST, i % 2 == 0 ? server.port() : relay.port());
+        }
+    }
+
+    private static void pollAll(List<SpectatorClient> clients) throws IOException {
+        for (SpectatorClient client : clients) {
+            client.poll();
+        }
+    }
+
+    private static boolean allCaughtUp(List<MatchSpectator> spectators, int sequence) {
+        for (MatchSpectator spectator : spectators) {
+            if (spectator.sequence() != sequence) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Presses or releases a button now and then, like a player mashing them.
+     */
+    private static void act(Match match, int fighter, Random random) {
+        int choice = random.nextInt(24);
+        if (choice < MatchInput.SKIP_ROUND_DELAY.ordinal()) {
+            match.input(fighter, MatchInput.of(choice));
+        }
+    }
+}
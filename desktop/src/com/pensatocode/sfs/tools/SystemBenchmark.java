@@ -0,0 +1,105 @@
+package com.pensatocode.sfs.tools;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.MathUtils;
+import com.pensatocode.sfs.ecs.CombatSystem;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.MovementSystem;
+import com.pensatocode.sfs.ecs.RingSystem;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.StateMachineSystem;
+import com.pensatocode.sfs.ecs.StateTimerSystem;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.objects.Fighter;
+
+import java.util.Arrays;
+
+/**
+ * Times each system of the simulation on its own, on a world crowded with entities:
+ * fighters walking around the ring, props that only have a position, and projectiles that only move.
+ * The rendering system needs a GPU, so it isn't part of it.
+ *
+ * Usage:
+ * <pre>
+ * SystemBenchmark [fighters] [props] [projectiles]
+ * </pre>
+ * Run it with: ./gradlew desktop:systemBenchmark [-Pentities=1000,1000,1000]
+ */
+public class SystemBenchmark {
+    private static final float TIME_STEP = 1f / 60f;
+    private static final int WARM_UP_TICKS = 20000;
+    private static final int MEASURED_TICKS = 20000;
+
+    public static void main(String[] args) {
+        int fighters = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int props = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int projectiles = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        StateMachine stateMachine = HeadlessMatch.loadFighterStateMachine();
+        MoveSet moves = HeadlessMatch.loadFighterMoves();
+        World world = new World();
+        Fighter[] fighterHandles = new Fighter[fighters];
+        for (int i = 0; i < fighters; i++) {
+            fighterHandles[i] = new Fighter(world, stateMachine, moves, "Fighter " + i, new Color(Color.WHITE));
+            fighterHandles[i].getReady(MathUtils.random(RingSystem.RING_MIN_X, RingSystem.RING_MAX_X),
+                    MathUtils.random(RingSystem.RING_MIN_Y, RingSystem.RING_MAX_Y));
+        }
+        for (int i = 0; i < props; i++) {
+            int prop = world.create(World.POSITION | World.RENDER);
+            world.setPosition(prop, MathUtils.random(80f), MathUtils.random(48f));
+        }
+        for (int i = 0; i < projectiles; i++) {
+            int projectile = world.create(World.POSITION | World.MOTION);
+            world.setDirection(projectile, MathUtils.randomSign(), 0f);
+            world.setSpeed(projectile, 20f);
+        }
+
+        StateTimerSystem stateTimerSystem = new StateTimerSystem();
+        MovementSystem movementSystem = new MovementSystem();
+        StateMachineSystem stateMachineSystem = new StateMachineSystem();
+        RingSystem ringSystem = new RingSystem();
+        CombatSystem combatSystem = new CombatSystem();
+        long[] nanos = new long[5];
+
+        System.out.println(world.size() + " entities: " + fighters + " fighters, " + props + " props, "
+                + projectiles + " projectiles");
+        for (int tick = 0; tick < WARM_UP_TICKS + MEASURED_TICKS; tick++) {
+            if (tick == WARM_UP_TICKS) {
+                Arrays.fill(nanos, 0L);
+            }
+            // keep the fighters busy: walking in random directions and attacking from time to time
+            Fighter fighter = fighterHandles[tick % fighters];
+            if (MathUtils.randomBoolean()) {
+                fighter.moveRight();
+            } else {
+                fighter.moveLeft();
+            }
+            if (tick % 7 == 0) {
+                fighter.punch();
+            }
+
+            long start = System.nanoTime();
+            stateTimerSystem.update(world, TIME_STEP);
+            long afterTimers = System.nanoTime();
+            movementSystem.update(world, TIME_STEP);
+            long afterMovement = System.nanoTime();
+            stateMachineSystem.update(world);
+            long afterStateMachine = System.nanoTime();
+            ringSystem.update(world);
+            long afterRing = System.nanoTime();
+            combatSystem.update(world);
+            long afterCombat = System.nanoTime();
+
+            nanos[0] += afterTimers - start;
+            nanos[1] += afterMovement - afterTimers;
+            nanos[2] += afterStateMachine - afterMovement;
+            nanos[3] += afterRing - afterStateMachine;
+            nanos[4] += afterCombat - afterRing;
+        }
+
+        String[] names = {"state timers", "movement", "state machine", "ring", "combat"};
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf("%-14s %8.2f us per tick%n", names[i], nanos[i] / 1000.0 / MEASURED_TICKS);
+        }
+    }
+}
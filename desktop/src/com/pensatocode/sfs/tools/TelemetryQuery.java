@@ -0,0 +1,92 @@
+package com.pensatocode.sfs.tools;
+
+import com.pensatocode.sfs.telemetry.MatchRecord;
+import com.pensatocode.sfs.telemetry.TelemetryStore;
+import com.pensatocode.sfs.telemetry.TelemetrySummary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Summarizes a match telemetry store written by the game (assets/telemetry/matches.bin on the desktop).
+ *
+ * Usage:
+ * <pre>
+ * TelemetryQuery &lt;store file&gt; [--since &lt;epoch millis&gt;]
+ * TelemetryQuery &lt;store file&gt; --generate &lt;matches&gt;
+ * </pre>
+ * The second form appends random matches to the store, to try out queries on large stores.
+ *
+ * Run it with: ./gradlew desktop:telemetryQuery [-Pstore=&lt;file&gt;] [-Psince=&lt;epoch millis&gt; | -Pgenerate=&lt;matches&gt;]
+ */
+public class TelemetryQuery {
+    private static final int GENERATE_BATCH = 1024;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TelemetryQuery <store file> [--since <epoch millis> | --generate <matches>]");
+            System.exit(1);
+        }
+        TelemetryStore store = new TelemetryStore(new File(args[0]));
+
+        if (args.length >= 3 && args[1].equals("--generate")) {
+            generate(store, Long.parseLong(args[2]));
+            return;
+        }
+
+        final long since = args.length >= 3 && args[1].equals("--since") ? Long.parseLong(args[2]) : 0L;
+        final TelemetrySummary summary = new TelemetrySummary();
+        long start = System.nanoTime();
+        long scanned = store.scan(new TelemetryStore.Visitor() {
+            @Override
+            public void visit(MatchRecord record) {
+                if (record.getEndTime() >= since) {
+                    summary.visit(record);
+                }
+            }
+        });
+        long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+
+        System.out.print(summary.report());
+        System.out.println("scanned " + scanned + " matches in " + elapsedMillis + " ms");
+    }
+
+    private static void generate(TelemetryStore store, long matches) throws IOException {
+        Random random = new Random();
+        MatchRecord[] batch = new MatchRecord[GENERATE_BATCH];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new MatchRecord();
+        }
+
+        // build the records through raw bytes, the same way the store reads them
+        ByteBuffer bytes = ByteBuffer.allocate(MatchRecord.SIZE);
+        long remaining = matches;
+        while (remaining > 0L) {
+            int count = (int) Math.min(remaining, batch.length);
+            for (int i = 0; i < count; i++) {
+                bytes.clear();
+                bytes.putLong(System.currentTimeMillis());
+                bytes.put((byte) random.nextInt(2));
+                int rounds = 2 + random.nextInt(2);
+                int timeUps = random.nextInt(rounds);
+                bytes.put((byte) rounds);
+                bytes.put((byte) timeUps);
+                bytes.put((byte) (rounds - timeUps));
+                bytes.putFloat(30f + random.nextFloat() * 200f);
+                bytes.putFloat((rounds - timeUps) * (5f + random.nextFloat() * 60f));
+                bytes.putInt(50 + random.nextInt(400));
+                for (int kind = 0; kind < MatchRecord.ATTACK_KINDS; kind++) {
+                    int hits = random.nextInt(10);
+                    bytes.putShort((short) hits);
+                    bytes.putFloat(hits * (kind % 2 == 0 ? 5f : 1f));
+                }
+                batch[i].read(bytes, 0);
+            }
+            store.append(batch, count);
+            remaining -= count;
+        }
+        System.out.println("appended " + matches + " random matches to " + store.file());
+    }
+}
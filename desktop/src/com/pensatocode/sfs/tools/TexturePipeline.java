@@ -0,0 +1,278 @@
+package com.pensatocode.sfs.tools;
+
+import com.pensatocode.sfs.resources.Assets;
+import com.pensatocode.sfs.resources.TextureVariants;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the compressed variants of the game textures, with all their mipmaps, as KTX files,
+ * and prints how much video memory each variant takes compared to the original RGBA8888 texture.
+ * See {@link TextureVariants} for how the game picks one of them at load time.
+ *
+ * Usage:
+ * <pre>
+ * TexturePipeline &lt;assets directory&gt;
+ * </pre>
+ */
+public class TexturePipeline {
+    // KTX file identifier and header values
+    private static final byte[] KTX_IDENTIFIER = {
+            (byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'
+    };
+    private static final int KTX_ENDIANNESS = 0x04030201;
+
+    // OpenGL enums written in the KTX headers
+    private static final int GL_UNSIGNED_SHORT_5_6_5 = 0x8363;
+    private static final int GL_UNSIGNED_SHORT_4_4_4_4 = 0x8033;
+    private static final int GL_RGB = 0x1907;
+    private static final int GL_RGBA = 0x1908;
+    private static final int GL_COMPRESSED_RGB8_ETC2 = 0x9274;
+    private static final int GL_COMPRESSED_RGBA8_ETC2_EAC = 0x9278;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TexturePipeline <assets directory>");
+            System.exit(1);
+        }
+        File assetsDirectory = new File(args[0]);
+
+        long totalOriginal = 0L;
+        long totalEtc2 = 0L;
+        long totalSixteenBit = 0L;
+        System.out.printf("%-36s %11s %12s %12s %12s%n", "texture", "size", "RGBA8888", "ETC2+mips", "16bit+mips");
+        for (String fileName : Assets.COMPRESSED_TEXTURES) {
+            BufferedImage image = ImageIO.read(new File(assetsDirectory, fileName));
+            if (image == null) {
+                throw new IOException("Can't read " + fileName);
+            }
+            List<Level> levels = mipMaps(image);
+            boolean opaque = isOpaque(levels.get(0));
+
+            long etc2Bytes = writeEtc2(levels, opaque,
+                    new File(assetsDirectory, TextureVariants.Variant.ETC2.path(fileName)));
+            long sixteenBitBytes = writeSixteenBit(levels, opaque,
+                    new File(assetsDirectory, TextureVariants.Variant.SIXTEEN_BIT.path(fileName)));
+            long originalBytes = (long) image.getWidth() * image.getHeight() * 4L;
+
+            totalOriginal += originalBytes;
+            totalEtc2 += etc2Bytes;
+            totalSixteenBit += sixteenBitBytes;
+            System.out.printf("%-36s %11s %12s %12s %12s%n", fileName + (opaque ? "" : " (alpha)"),
+                    image.getWidth() + "x" + image.getHeight(),
+                    kilobytes(originalBytes), kilobytes(etc2Bytes), kilobytes(sixteenBitBytes));
+        }
+        System.out.printf("%-36s %11s %12s %12s %12s%n", "total", "",
+                kilobytes(totalOriginal), kilobytes(totalEtc2), kilobytes(totalSixteenBit));
+    }
+
+    private static String kilobytes(long bytes) {
+        return (bytes + 1023L) / 1024L + " KB";
+    }
+
+    /**
+     * One mipmap level, as ARGB pixels row by row.
+     */
+    private static class Level {
+        final int width;
+        final int height;
+        final int[] pixels;
+
+        Level(int width, int height, int[] pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+
+        int pixel(int x, int y) {
+            // repeat the last row and column for blocks that go past the edges
+            return pixels[Math.min(y, height - 1) * width + Math.min(x, width - 1)];
+        }
+    }
+
+    /**
+     * @return the image followed by its mipmaps, each half the size of the previous one, down to 1x1
+     */
+    private static List<Level> mipMaps(BufferedImage image) {
+        List<Level> levels = new ArrayList<>();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Level level = new Level(width, height, image.getRGB(0, 0, width, height, null, 0, width));
+        levels.add(level);
+        while (level.width > 1 || level.height > 1) {
+            level = downsample(level);
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    /**
+     * Averages each 2x2 square of pixels, weighting colors by alpha so transparent pixels don't darken the edges.
+     */
+    private static Level downsample(Level source) {
+        int width = Math.max(1, source.width / 2);
+        int height = Math.max(1, source.height / 2);
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = 0;
+                int red = 0;
+                int green = 0;
+                int blue = 0;
+                for (int dy = 0; dy < 2; dy++) {
+                    for (int dx = 0; dx < 2; dx++) {
+                        int pixel = source.pixel(x * 2 + dx, y * 2 + dy);
+                        int a = pixel >>> 24;
+                        alpha += a;
+                        red += ((pixel >> 16) & 0xff) * a;
+                        green += ((pixel >> 8) & 0xff) * a;
+                        blue += (pixel & 0xff) * a;
+                    }
+                }
+                if (alpha > 0) {
+                    red = (red + alpha / 2) / alpha;
+                    green = (green + alpha / 2) / alpha;
+                    blue = (blue + alpha / 2) / alpha;
+                }
+                pixels[y * width + x] = ((alpha + 2) / 4) << 24 | red << 16 | green << 8 | blue;
+            }
+        }
+        return new Level(width, height, pixels);
+    }
+
+    private static boolean isOpaque(Level level) {
+        for (int pixel : level.pixels) {
+            if (pixel >>> 24 != 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the ETC2 variant: RGB8 for opaque textures, RGBA8 with EAC alpha for the others.
+     *
+     * @return the size of all the levels, in bytes
+     */
+    private static long writeEtc2(List<Level> levels, boolean opaque, File file) throws IOException {
+        int blockBytes = opaque ? 8 : 16;
+        int[] block = new int[16];
+        int internalFormat = opaque ? GL_COMPRESSED_RGB8_ETC2 : GL_COMPRESSED_RGBA8_ETC2_EAC;
+        try (DataOutputStream output = openKtx(file, 0, 0, internalFormat, opaque ? GL_RGB : GL_RGBA, levels)) {
+            long totalBytes = 0L;
+            for (Level level : levels) {
+                int blocksWide = (level.width + 3) / 4;
+                int blocksHigh = (level.height + 3) / 4;
+                int imageSize = blocksWide * blocksHigh * blockBytes;
+                writeInt(output, imageSize);
+                for (int blockY = 0; blockY < blocksHigh; blockY++) {
+                    for (int blockX = 0; blockX < blocksWide; blockX++) {
+                        for (int i = 0; i < 16; i++) {
+                            block[i] = level.pixel(blockX * 4 + (i & 3), blockY * 4 + (i >> 2));
+                        }
+                        // blocks are byte sequences, most significant byte first whatever the byte order of the file
+                        if (!opaque) {
+                            output.writeLong(Etc2Encoder.encodeAlphaBlock(block));
+                        }
+                        output.writeLong(Etc2Encoder.encodeColorBlock(block));
+                    }
+                }
+                // blocks are 8 or 16 bytes, so the image size is already a multiple of 4
+                totalBytes += imageSize;
+            }
+            return totalBytes;
+        }
+    }
+
+    /**
+     * Writes the 16-bit variant: RGB565 for opaque textures, RGBA4444 for the others.
+     *
+     * @return the size of all the levels, in bytes
+     */
+    private static long writeSixteenBit(List<Level> levels, boolean opaque, File file) throws IOException {
+        int format = opaque ? GL_RGB : GL_RGBA;
+        try (DataOutputStream output = openKtx(file, opaque ? GL_UNSIGNED_SHORT_5_6_5 : GL_UNSIGNED_SHORT_4_4_4_4,
+                format, format, format, levels)) {
+            long totalBytes = 0L;
+            for (Level level : levels) {
+                // rows are padded to 4 bytes, the unpack alignment the game loads textures with
+                int rowBytes = (level.width * 2 + 3) & ~3;
+                int imageSize = rowBytes * level.height;
+                writeInt(output, imageSize);
+                for (int y = 0; y < level.height; y++) {
+                    for (int x = 0; x < level.width; x++) {
+                        int pixel = level.pixels[y * level.width + x];
+                        output.writeShort(Short.reverseBytes((short) (opaque ? toRgb565(pixel) : toRgba4444(pixel))));
+                    }
+                    for (int padding = level.width * 2; padding < rowBytes; padding++) {
+                        output.writeByte(0);
+                    }
+                }
+                totalBytes += imageSize;
+            }
+            return totalBytes;
+        }
+    }
+
+    private static int toRgb565(int pixel) {
+        int red = ((pixel >> 16) & 0xff) * 31 / 255;
+        int green = ((pixel >> 8) & 0xff) * 63 / 255;
+        int blue = (pixel & 0xff) * 31 / 255;
+        return red << 11 | green << 5 | blue;
+    }
+
+    private static int toRgba4444(int pixel) {
+        int alpha = (pixel >>> 24) * 15 / 255;
+        int red = ((pixel >> 16) & 0xff) * 15 / 255;
+        int green = ((pixel >> 8) & 0xff) * 15 / 255;
+        int blue = (pixel & 0xff) * 15 / 255;
+        return red << 12 | green << 8 | blue << 4 | alpha;
+    }
+
+    /**
+     * Creates a KTX file and writes its header.
+     * Compressed formats have a type and a format of 0, uncompressed ones have no internal format of their own.
+     */
+    private static DataOutputStream openKtx(File file, int glType, int glFormat, int glInternalFormat,
+                                            int glBaseInternalFormat, List<Level> levels) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        output.write(KTX_IDENTIFIER);
+        writeInt(output, KTX_ENDIANNESS);
+        writeInt(output, glType);
+        // size of the type, used to swap bytes on little endian machines
+        writeInt(output, glType == 0 ? 1 : 2);
+        writeInt(output, glFormat);
+        writeInt(output, glInternalFormat);
+        writeInt(output, glBaseInternalFormat);
+        writeInt(output, levels.get(0).width);
+        writeInt(output, levels.get(0).height);
+        // a 2D texture: no depth, no array elements, a single face
+        writeInt(output, 0);
+        writeInt(output, 0);
+        writeInt(output, 1);
+        writeInt(output, levels.size());
+        // no key/value data
+        writeInt(output, 0);
+        return output;
+    }
+
+    /**
+     * KTX files are read without swapping the bytes of their pixels, so they are written in the byte order of
+     * the machines the game runs on, little endian. DataOutputStream only writes big endian.
+     */
+    private static void writeInt(DataOutputStream output, int value) throws IOException {
+        output.writeInt(Integer.reverseBytes(value));
+    }
+}
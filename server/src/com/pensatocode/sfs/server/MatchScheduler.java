@@ -0,0 +1,143 @@
+package com.pensatocode.sfs.server;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ticks the matches of the server at a fixed rate, on a small pool of threads shared by all of them.
+ * A tick takes microseconds, so a thread per core hosts hundreds of matches.
+ *
+ * Every tick is measured. A single match whose ticks keep going over the budget is stopped,
+ * so it doesn't take the time of the others. When ticks start late, the pool can't keep up:
+ * the server stops taking new matches, and if they get very late, it stops the newest matches
+ * (the ones with the least to lose) one at a time, until the others are on time again.
+ * Dropping a few matches beats every match on the server stuttering.
+ */
+class MatchScheduler {
+    static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    // a tick normally takes microseconds
+    static final long TICK_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    // half a second of ticks over budget
+    static final int MAX_CONSECUTIVE_OVERRUNS = 30;
+
+    // ticks later than this mean the server is full
+    private static final long OVERLOADED_LATENESS_NANOS = 2 * TICK_NANOS;
+    // ticks later than this mean the server must give up matches
+    private static final long SHEDDING_LATENESS_NANOS = 15 * TICK_NANOS;
+    // the server takes new matches again once the ticks have been on time for this long
+    private static final long RECOVERY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // time between two matches stopped for lateness, to see if it was enough
+    private static final long SHEDDING_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final MatchServer server;
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final AtomicLong lastOverloadNanos = new AtomicLong(System.nanoTime() - RECOVERY_NANOS);
+    private final AtomicLong lastSheddingNanos = new AtomicLong(System.nanoTime() - SHEDDING_INTERVAL_NANOS);
+
+    // statistics
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong tickNanos = new AtomicLong();
+    private final AtomicLong maxLatenessNanos = new AtomicLong();
+    private final AtomicInteger overruns = new AtomicInteger();
+    private final AtomicInteger shedMatches = new AtomicInteger();
+
+    MatchScheduler(MatchServer server, int threads) {
+        this.server = server;
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("match-ticks-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    void schedule(ServerMatch match) {
+        match.setFirstTick(System.nanoTime());
+        match.start(executor.scheduleAtFixedRate(match, 0L, TICK_NANOS, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * @return whether there's room for another match
+     */
+    boolean canAdmit() {
+        return System.nanoTime() - lastOverloadNanos.get() > RECOVERY_NANOS;
+    }
+
+    /**
+     * Accounts for a tick of a match, and sheds matches if the ticks are late.
+     */
+    void tickDone(ServerMatch match, long elapsedNanos, long latenessNanos) {
+        ticks.incrementAndGet();
+        tickNanos.addAndGet(elapsedNanos);
+        if (elapsedNanos > TICK_BUDGET_NANOS) {
+            overruns.incrementAndGet();
+        }
+        long max = maxLatenessNanos.get();
+        while (latenessNanos > max && !maxLatenessNanos.compareAndSet(max, latenessNanos)) {
+            max = maxLatenessNanos.get();
+        }
+
+        if (latenessNanos > OVERLOADED_LATENESS_NANOS) {
+            long now = System.nanoTime();
+            lastOverloadNanos.set(now);
+            long lastShedding = lastSheddingNanos.get();
+            if (latenessNanos > SHEDDING_LATENESS_NANOS && now - lastShedding > SHEDDING_INTERVAL_NANOS
+                    && lastSheddingNanos.compareAndSet(lastShedding, now)) {
+                ServerMatch newest = server.newestMatch();
+                if (newest != null) {
+                    System.err.println("Match " + newest.id + " stopped: the server can't keep up");
+                    shed(newest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops a match to save the time of the others.
+     */
+    void shed(ServerMatch match) {
+        shedMatches.incrementAndGet();
+        server.end(match);
+    }
+
+    long ticks() {
+        return ticks.get();
+    }
+
+    /**
+     * @return the average time of a tick, in nanoseconds
+     */
+    long averageTickNanos() {
+        long count = ticks.get();
+        return count == 0 ? 0L : tickNanos.get() / count;
+    }
+
+    /**
+     * @return how late the latest tick started so far, in nanoseconds
+     */
+    long maxLatenessNanos() {
+        return maxLatenessNanos.get();
+    }
+
+    int overruns() {
+        return overruns.get();
+    }
+
+    int shedMatches() {
+        return shedMatches.get();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,313 @@
+package com.pensatocode.sfs.server;
+
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.net.MatchServerProtocol;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A dedicated server that hosts matches between players over UDP (see MatchServerProtocol).
+ *
+ * It runs the same simulation as the game, without graphics, audio or SfsGame: a Match of Fighters
+ * in a fixed point World, loaded from the same data files. Players that ask for a match are paired
+ * as they come, and each match ticks on the shared pool of the scheduler (see MatchScheduler).
+ * The matches are authoritative: the players only send their inputs, and play what the server streams back.
+ *
+ * Run it with: ./gradlew server:run, or java -jar with the port, the number of threads
+ * and the maximum number of matches as arguments.
+ */
+public class MatchServer {
+    private static final int DEFAULT_MAX_MATCHES = 500;
+    // the statistics printed by main(), in seconds
+    private static final long STATISTICS_INTERVAL_SECONDS = 10L;
+
+    private final DatagramChannel channel;
+    private final MatchScheduler scheduler;
+    private final int maxMatches;
+    private final StateMachine stateMachine;
+    private final MoveSet moves;
+    private volatile float roundTime = Match.MAX_ROUND_TIME;
+
+    // the seats of the players in matches, by address, and the matches by id, in the order they started
+    private final ConcurrentHashMap<SocketAddress, Seat> seats = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Seat, ServerMatch> matchOfSeat = new ConcurrentHashMap<>();
+    private final ArrayList<ServerMatch> matches = new ArrayList<>();
+    private int nextMatchId;
+
+    // owned by the receiving thread: the player waiting for an opponent
+    private SocketAddress waiting;
+    private long waitingSinceMillis;
+    private final ByteBuffer received = ByteBuffer.allocateDirect(MatchServerProtocol.MAX_DATAGRAM_SIZE);
+    private final ByteBuffer reply = ByteBuffer.allocateDirect(MatchServerProtocol.MAX_DATAGRAM_SIZE);
+    private volatile int rejectedPlayers;
+    private Thread thread;
+    private volatile boolean running;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : MatchServerProtocol.DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxMatches = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_MATCHES;
+
+        MatchServer server = new MatchServer(port, threads, maxMatches);
+        server.start();
+        System.out.println("Match server listening on UDP port " + server.port() + ", with " + threads
+                + " threads for up to " + maxMatches + " matches");
+        while (true) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(STATISTICS_INTERVAL_SECONDS));
+            System.out.println(server.statistics());
+        }
+    }
+
+    /**
+     * @param port       the UDP port to listen on, or 0 for any free port (see port())
+     * @param threads    the threads ticking the matches
+     * @param maxMatches the matches hosted at once, at most
+     */
+    public MatchServer(int port, int threads, int maxMatches) throws IOException {
+        this.maxMatches = maxMatches;
+        stateMachine = StateMachine.compile(loadData(Fighter.STATES_FILE), Fighter.State.values());
+        moves = MoveSet.compile(loadData(Fighter.MOVES_FILE));
+        scheduler = new MatchScheduler(this, threads);
+        channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+    }
+
+    private static JsonValue loadData(String file) throws IOException {
+        InputStream input = MatchServer.class.getResourceAsStream("/" + file);
+        if (input == null) {
+            throw new IOException("Data file not found on the classpath: " + file);
+        }
+        try {
+            return new JsonReader().parse(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    public int port() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    public void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receiveLoop();
+            }
+        }, "match-server");
+        thread.start();
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            try {
+                received.clear();
+                SocketAddress address = channel.receive(received);
+                received.flip();
+                if (address != null && received.hasRemaining()) {
+                    handle(received.get(), address);
+                }
+            } catch (AsynchronousCloseException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Match server: " + e);
+            }
+        }
+    }
+
+    private void handle(byte type, SocketAddress address) {
+        Seat seat = seats.get(address);
+        if (type == MatchServerProtocol.INPUTS) {
+            if (seat != null) {
+                seat.receive(received);
+            } else if (address.equals(waiting)) {
+                waitingSinceMillis = System.currentTimeMillis();
+            }
+        } else if (type == MatchServerProtocol.JOIN) {
+            if (seat != null) {
+                // the welcome was lost
+                ServerMatch match = matchOfSeat.get(seat);
+                if (match != null) {
+                    welcome(match, seat);
+                }
+                seat.heard();
+            } else {
+                join(address);
+            }
+        } else if (type == MatchServerProtocol.LEAVE) {
+            if (seat != null) {
+                ServerMatch match = matchOfSeat.get(seat);
+                if (match != null) {
+                    end(match);
+                }
+            } else if (address.equals(waiting)) {
+                waiting = null;
+            }
+        }
+    }
+
+    /**
+     * Pairs a player with the one waiting, or makes it wait.
+     */
+    private void join(SocketAddress address) {
+        long now = System.currentTimeMillis();
+        if (waiting != null && now - waitingSinceMillis > MatchServerProtocol.TIMEOUT_MILLIS) {
+            waiting = null;
+        }
+        if (waiting == null || waiting.equals(address)) {
+            waiting = address;
+            waitingSinceMillis = now;
+            return;
+        }
+
+        if (!scheduler.canAdmit() || matchCount() >= maxMatches) {
+            rejectedPlayers += 2;
+            sendType(MatchServerProtocol.BUSY, waiting);
+            sendType(MatchServerProtocol.BUSY, address);
+            waiting = null;
+            return;
+        }
+
+        ServerMatch match = new ServerMatch(nextMatchId++, this, scheduler, stateMachine, moves, waiting, address);
+        waiting = null;
+        synchronized (matches) {
+            matches.add(match);
+        }
+        for (int fighter = GameEvent.PLAYER; fighter <= GameEvent.OPPONENT; fighter++) {
+            Seat seat = match.seat(fighter);
+            seats.put(seat.address, seat);
+            matchOfSeat.put(seat, match);
+            welcome(match, seat);
+        }
+        scheduler.schedule(match);
+    }
+
+    private void welcome(ServerMatch match, Seat seat) {
+        synchronized (reply) {
+            reply.clear();
+            reply.put(MatchServerProtocol.WELCOME);
+            reply.putInt(match.id);
+            reply.put((byte) seat.fighter);
+            reply.flip();
+            send(reply, seat.address);
+        }
+    }
+
+    private void sendType(byte type, SocketAddress address) {
+        synchronized (reply) {
+            reply.clear();
+            reply.put(type);
+            reply.flip();
+            send(reply, address);
+        }
+    }
+
+    /**
+     * Sends a datagram. Called from the receiving thread and the threads of the matches.
+     */
+    void send(ByteBuffer datagram, SocketAddress address) {
+        try {
+            channel.send(datagram, address);
+        } catch (IOException e) {
+            // a lost datagram, like any other
+        }
+    }
+
+    /**
+     * Stops a match and tells its players.
+     */
+    void end(ServerMatch match) {
+        synchronized (matches) {
+            if (!matches.remove(match)) {
+                return;
+            }
+        }
+        match.stop();
+        for (int fighter = GameEvent.PLAYER; fighter <= GameEvent.OPPONENT; fighter++) {
+            Seat seat = match.seat(fighter);
+            seats.remove(seat.address);
+            matchOfSeat.remove(seat);
+            sendType(MatchServerProtocol.ENDED, seat.address);
+        }
+    }
+
+    /**
+     * @return the match that started last, or null
+     */
+    ServerMatch newestMatch() {
+        synchronized (matches) {
+            return matches.isEmpty() ? null : matches.get(matches.size() - 1);
+        }
+    }
+
+    public int matchCount() {
+        synchronized (matches) {
+            return matches.size();
+        }
+    }
+
+    public String statistics() {
+        return matchCount() + " matches, " + scheduler.ticks() + " ticks, "
+                + scheduler.averageTickNanos() / 1000L + " us per tick on average, latest tick "
+                + scheduler.maxLatenessNanos() / 1000000L + " ms late, " + scheduler.overruns()
+                + " ticks over budget, " + scheduler.shedMatches() + " matches stopped, "
+                + rejectedPlayers + " players turned away";
+    }
+
+    /**
+     * Sets how long the rounds of the matches started from now on last. The players must play with the same
+     * (see Match.setRoundTime()), so it's only for tests where the server hosts its own players.
+     */
+    public void setRoundTime(float roundTime) {
+        this.roundTime = roundTime;
+    }
+
+    float roundTime() {
+        return roundTime;
+    }
+
+    StateMachine stateMachine() {
+        return stateMachine;
+    }
+
+    MoveSet moves() {
+        return moves;
+    }
+
+    public void dispose() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+package com.pensatocode.sfs.server;
+
+import com.pensatocode.sfs.net.MatchServerProtocol;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * A player in a match: where its datagrams come from, and the inputs it sent that the match hasn't applied yet.
+ * The receiving thread adds inputs, the thread of the match takes them at each tick.
+ */
+class Seat {
+    final SocketAddress address;
+    // GameEvent.PLAYER or GameEvent.OPPONENT
+    final int fighter;
+
+    // the inputs received and not applied yet, by sequence number
+    private final byte[] inputs = new byte[MatchServerProtocol.MAX_UNACKNOWLEDGED_INPUTS];
+    private int received = -1;
+    private int applied = -1;
+    private volatile long lastHeardMillis;
+
+    Seat(SocketAddress address, int fighter) {
+        this.address = address;
+        this.fighter = fighter;
+        lastHeardMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Takes the inputs of an INPUTS datagram, keeping only the ones not received yet.
+     * The player sends every input the server hasn't acknowledged, so they come in order,
+     * with the same ones over and over until acknowledged.
+     */
+    synchronized void receive(ByteBuffer datagram) {
+        lastHeardMillis = System.currentTimeMillis();
+        if (datagram.remaining() < 5) {
+            return;
+        }
+        int first = datagram.getInt();
+        int count = Math.min(datagram.get() & 0xff, datagram.remaining());
+        for (int i = 0; i < count; i++) {
+            int sequence = first + i;
+            int input = datagram.get();
+            if (sequence != received + 1) {
+                continue;
+            }
+            if (sequence - applied > inputs.length || input < 0 || input >= MatchInput.SKIP_ROUND_DELAY.ordinal()) {
+                // more than the player may have waiting, or not a button of a fighter
+                return;
+            }
+            inputs[sequence % inputs.length] = (byte) input;
+            received = sequence;
+        }
+    }
+
+    /**
+     * Copies the inputs to apply into an array, which must hold MAX_UNACKNOWLEDGED_INPUTS of them.
+     *
+     * @return the number of inputs
+     */
+    synchronized int take(byte[] into) {
+        int count = 0;
+        while (applied < received) {
+            applied++;
+            into[count++] = inputs[applied % inputs.length];
+        }
+        return count;
+    }
+
+    /**
+     * @return the sequence number of the last input taken, to acknowledge it
+     */
+    synchronized int applied() {
+        return applied;
+    }
+
+    /**
+     * Notes that the player is still there, without reading anything.
+     */
+    void heard() {
+        lastHeardMillis = System.currentTimeMillis();
+    }
+
+    long lastHeardMillis() {
+        return lastHeardMillis;
+    }
+}
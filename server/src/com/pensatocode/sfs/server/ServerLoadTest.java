@@ -0,0 +1,160 @@
+package com.pensatocode.sfs.server;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.net.MatchClient;
+import com.pensatocode.sfs.net.MatchSpectator;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hosts matches of bots on a match server in the same process, over UDP on localhost,
+ * and checks that every bot plays its match in lockstep with the server.
+ *
+ * The bots mash buttons like DeterminismCheck does, and join again when their match ends,
+ * so the server keeps hosting the same number of matches. Rounds are cut to {@value #ROUND_TIME} seconds,
+ * so that a match, up to three rounds and the delays between them, ends within the run, rather than
+ * after the five minutes the full timer can take. At the end, no bot may have desynced
+ * (a lost datagram is fine: the bot picks up again from the next snapshot), and matches must have been
+ * played to the end.
+ *
+ * Run it with: ./gradlew server:loadTest, or with the number of matches and seconds as arguments.
+ */
+public class ServerLoadTest {
+    private static final int DEFAULT_MATCHES = 100;
+    private static final int DEFAULT_SECONDS = 60;
+    private static final float ROUND_TIME = 10f;
+    private static final long SEED = 20240618L;
+    private static final String HOST = "localhost";
+    private static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int matchCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MATCHES;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SECONDS;
+
+        MatchServer server = new MatchServer(0, Runtime.getRuntime().availableProcessors(), matchCount);
+        server.setRoundTime(ROUND_TIME);
+        server.start();
+        int port = server.port();
+
+        List<Bot> bots = new ArrayList<>();
+        Random random = new Random(SEED);
+        for (int i = 0; i < matchCount * 2; i++) {
+            bots.add(new Bot(server, random));
+        }
+        for (Bot bot : bots) {
+            bot.client.connect(HOST, port);
+        }
+
+        // the bots run at 60 frames per second, like players
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long nextFrame = System.nanoTime();
+        int maxMatches = 0;
+        while (System.nanoTime() < end) {
+            for (Bot bot : bots) {
+                bot.frame(port);
+            }
+            maxMatches = Math.max(maxMatches, server.matchCount());
+            nextFrame += FRAME_NANOS;
+            long sleep = nextFrame - System.nanoTime();
+            if (sleep > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+        }
+
+        int desyncs = 0;
+        int gaps = 0;
+        int frames = 0;
+        int finished = 0;
+        for (Bot bot : bots) {
+            MatchSpectator spectator = bot.client.spectator();
+            desyncs += bot.desyncs + spectator.desyncs();
+            gaps += bot.gaps + spectator.gaps();
+            frames += bot.frames + spectator.frames();
+            finished += bot.matches;
+            bot.client.close();
+        }
+
+        System.out.println(bots.size() + " bots in up to " + maxMatches + " matches at once, "
+                + finished / 2 + " matches played to the end, " + frames + " frames played by the bots");
+        System.out.println("Server: " + server.statistics());
+        System.out.println("Bots: " + desyncs + " desyncs, " + gaps + " gaps in the stream");
+        server.dispose();
+        if (desyncs > 0) {
+            System.err.println("Some bots didn't play their match in lockstep with the server.");
+            System.exit(1);
+        }
+        if (finished == 0) {
+            System.err.println("No match was played to the end, run the test for longer.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * A player with its own copy of the match, mashing buttons.
+     */
+    private static class Bot {
+        final MatchClient client;
+        final Random random;
+        // the counts of the matches before the current one
+        int desyncs;
+        int gaps;
+        int frames;
+        int matches;
+
+        Bot(MatchServer server, Random random) {
+            this.random = new Random(random.nextLong());
+            World world = new World(true);
+            Fighter player = new Fighter(world, server.stateMachine(), server.moves(), "Player", new Color(Color.RED));
+            Fighter opponent = new Fighter(world, server.stateMachine(), server.moves(), "Opponent",
+                    new Color(Color.BLUE));
+            Match match = new Match(player, opponent, new Match.Listener() {
+                @Override
+                public void onHit(Fighter attacker, Fighter defender) {
+                }
+
+                @Override
+                public void onRoundWon() {
+                }
+
+                @Override
+                public void onRoundLost() {
+                }
+            });
+            match.setRoundTime(ROUND_TIME);
+            client = new MatchClient(match);
+        }
+
+        void frame(int port) throws IOException {
+            client.poll();
+            MatchClient.State state = client.state();
+            if (state == MatchClient.State.PLAYING) {
+                Match match = client.spectator().match();
+                if (client.spectator().isInSync() && match.getRoundState() == Match.RoundState.IN_PROGRESS) {
+                    int choice = random.nextInt(24);
+                    if (choice < MatchInput.SKIP_ROUND_DELAY.ordinal()) {
+                        client.input(MatchInput.of(choice));
+                    }
+                }
+            } else if (state == MatchClient.State.ENDED || state == MatchClient.State.BUSY) {
+                // keep the counts, and join again, with a fresh client and match
+                MatchSpectator spectator = client.spectator();
+                if (state == MatchClient.State.ENDED && spectator.match().isOver()) {
+                    matches++;
+                }
+                desyncs += spectator.desyncs();
+                gaps += spectator.gaps();
+                frames += spectator.frames();
+                spectator.reset();
+                client.connect(HOST, port);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.pensatocode.sfs.server;
+
+import com.badlogic.gdx.graphics.Color;
+import com.pensatocode.sfs.ecs.MoveSet;
+import com.pensatocode.sfs.ecs.StateMachine;
+import com.pensatocode.sfs.ecs.World;
+import com.pensatocode.sfs.events.GameEvent;
+import com.pensatocode.sfs.net.MatchServerProtocol;
+import com.pensatocode.sfs.net.MatchStream;
+import com.pensatocode.sfs.objects.Fighter;
+import com.pensatocode.sfs.objects.Match;
+import com.pensatocode.sfs.objects.MatchInput;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * A match hosted by the server, between two players over UDP.
+ *
+ * It ticks at a fixed rate on a thread of the scheduler, in fixed point, so every player plays it the same
+ * whatever their platform. Each tick applies the inputs the players sent since the last one, updates the match,
+ * and sends both players the frame (see MatchStream), along with the last input of theirs it applied,
+ * so they stop sending it again. A snapshot every second lets a player that lost a frame pick up again.
+ *
+ * Each tick has a budget. A match that keeps going over it, or a server that can't keep up with all of its
+ * matches, gets matches stopped rather than every match on the server falling behind (see MatchScheduler).
+ */
+class ServerMatch implements Runnable, MatchStream.Output, Match.Listener {
+    static final float TICK_TIME = 1f / 60f;
+
+    // frames between snapshots, a second
+    private static final int SNAPSHOT_INTERVAL = 60;
+    // ticks the stream goes on once the match is over, so the players see the end
+    private static final int LINGER_TICKS = 60;
+
+    final int id;
+    private final MatchServer server;
+    private final MatchScheduler scheduler;
+    private final Match match;
+    private final Seat[] seats;
+    private final byte[] inputs = new byte[MatchServerProtocol.MAX_UNACKNOWLEDGED_INPUTS];
+    private final ByteBuffer datagram = ByteBuffer.allocateDirect(MatchServerProtocol.MAX_DATAGRAM_SIZE);
+    private final long createdNanos = System.nanoTime();
+
+    private volatile ScheduledFuture<?> future;
+    private long nextTickNanos;
+    private int lingerTicks;
+    private int consecutiveOverruns;
+    private volatile boolean ended;
+
+    ServerMatch(int id, MatchServer server, MatchScheduler scheduler, StateMachine stateMachine, MoveSet moves,
+                SocketAddress player, SocketAddress opponent) {
+        this.id = id;
+        this.server = server;
+        this.scheduler = scheduler;
+        World world = new World(true);
+        Fighter playerFighter = new Fighter(world, stateMachine, moves, "Player", new Color(Color.RED));
+        Fighter opponentFighter = new Fighter(world, stateMachine, moves, "Opponent", new Color(Color.BLUE));
+        match = new Match(playerFighter, opponentFighter, this);
+        match.setRoundTime(server.roundTime());
+        new MatchStream(match, SNAPSHOT_INTERVAL, this);
+        seats = new Seat[]{new Seat(player, GameEvent.PLAYER), new Seat(opponent, GameEvent.OPPONENT)};
+    }
+
+    /**
+     * Sets when the first tick is due. Called before the match is scheduled, since the first tick may run
+     * before schedule() even returns.
+     */
+    void setFirstTick(long firstTickNanos) {
+        nextTickNanos = firstTickNanos;
+    }
+
+    void start(ScheduledFuture<?> future) {
+        this.future = future;
+        // stopped while it was being scheduled
+        if (ended) {
+            future.cancel(false);
+        }
+    }
+
+    Seat seat(int fighter) {
+        return seats[fighter];
+    }
+
+    /**
+     * One tick of the match.
+     */
+    @Override
+    public void run() {
+        if (ended) {
+            return;
+        }
+        long start = System.nanoTime();
+        // ticks run back to back when they're late, until they catch up
+        long lateness = start - nextTickNanos;
+        nextTickNanos += MatchScheduler.TICK_NANOS;
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            System.err.println("Match " + id + " failed: " + e);
+            server.end(this);
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (elapsed > MatchScheduler.TICK_BUDGET_NANOS) {
+            consecutiveOverruns++;
+            if (consecutiveOverruns > MatchScheduler.MAX_CONSECUTIVE_OVERRUNS) {
+                System.err.println("Match " + id + " stopped: its ticks keep going over budget");
+                scheduler.shed(this);
+                return;
+            }
+        } else {
+            consecutiveOverruns = 0;
+        }
+        scheduler.tickDone(this, elapsed, lateness);
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (Seat seat : seats) {
+            if (now - seat.lastHeardMillis() > MatchServerProtocol.TIMEOUT_MILLIS) {
+                server.end(this);
+                return;
+            }
+        }
+
+        if (match.getTick() == 0) {
+            match.input(GameEvent.NO_FIGHTER, MatchInput.START);
+        }
+        for (Seat seat : seats) {
+            int count = seat.take(inputs);
+            for (int i = 0; i < count; i++) {
+                match.input(seat.fighter, MatchInput.of(inputs[i]));
+            }
+        }
+        match.update(TICK_TIME);
+
+        if (match.isOver() && ++lingerTicks > LINGER_TICKS) {
+            server.end(this);
+        }
+    }
+
+    @Override
+    public void onMessage(ByteBuffer message, boolean snapshot) {
+        for (Seat seat : seats) {
+            datagram.clear();
+            datagram.put(MatchServerProtocol.STREAM);
+            datagram.putInt(seat.applied());
+            int position = message.position();
+            datagram.put(message);
+            message.position(position);
+            datagram.flip();
+            server.send(datagram, seat.address);
+        }
+    }
+
+    /**
+     * Stops ticking. Called by the server, which tells the players.
+     */
+    void stop() {
+        ended = true;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    boolean isEnded() {
+        return ended;
+    }
+
+    long createdNanos() {
+        return createdNanos;
+    }
+
+    // the server has no sounds to play
+
+    @Override
+    public void onHit(Fighter attacker, Fighter defender) {
+    }
+
+    @Override
+    public void onRoundWon() {
+    }
+
+    @Override
+    public void onRoundLost() {
+    }
+}